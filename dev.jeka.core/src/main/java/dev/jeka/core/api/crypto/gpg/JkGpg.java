@@ -6,7 +6,9 @@ import dev.jeka.core.api.utils.JkUtilsSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 /**
  * Provides method for signing and verify signature with PGP.
@@ -20,7 +22,8 @@ public final class JkGpg {
 
     private static final Path USER_HOME = Paths.get(System.getProperty("user.home"));
 
-    private static final JkInternalGpgDoer INTERNAL_GPG_DOER = JkInternalGpgDoer.of();
+    // Lazily created, as clearing the cache must not load the implementation
+    private static volatile JkInternalGpgDoer internalGpgDoer;
 
     private final Path pubRing;
 
@@ -92,15 +95,58 @@ public final class JkGpg {
      * Signs the specified file and write the signature in the specified signature file.
      */
     public void sign(Path fileToSign, String keyName, Path signatureFile) {
-        final char[] pass;
+        assertSecretRing();
+        internalGpgDoer().sign(fileToSign, secRing, keyName, signatureFile, pass(), true);
+    }
+
+    /**
+     * Signs the specified files, writing each signature in the file returned by {@link #getSignatureFile(Path)}.
+     * The secret key is unlocked once for all files, and files are signed concurrently.
+     * @return The signature files, in the same order as the signed files.
+     */
+    public List<Path> sign(List<Path> filesToSign, String keyName) {
+        assertSecretRing();
+        final List<Path> signatureFiles = filesToSign.stream().map(JkGpg::getSignatureFile)
+                .collect(Collectors.toList());
+        internalGpgDoer().signAll(filesToSign, secRing, keyName, signatureFiles, pass(), true);
+        return signatureFiles;
+    }
+
+    private char[] pass() {
         if (passphrase == null) {
-            pass = new char[0];
-        } else {
-            pass = passphrase.toCharArray();
+            return new char[0];
         }
+        return passphrase.toCharArray();
+    }
+
+    private void assertSecretRing() {
         JkUtilsAssert.state(secRing != null, "You must supply a secret ring file (as secring.gpg) to sign files");
         JkUtilsAssert.state(Files.exists(secRing), "Specified secret ring file " + secRing + " not found.");
-        INTERNAL_GPG_DOER.sign(fileToSign, secRing, keyName, signatureFile, pass, true);
+    }
+
+    /**
+     * Forgets secret keys unlocked by previous signatures, so they do not stay in memory. Jeka invokes it at the
+     * end of each run.
+     */
+    public static void clearCache() {
+        final JkInternalGpgDoer doer = internalGpgDoer;
+        if (doer != null) {
+            doer.clearCache();
+        }
+    }
+
+    private static JkInternalGpgDoer internalGpgDoer() {
+        JkInternalGpgDoer result = internalGpgDoer;
+        if (result == null) {
+            synchronized (JkGpg.class) {
+                result = internalGpgDoer;
+                if (result == null) {
+                    result = JkInternalGpgDoer.of();
+                    internalGpgDoer = result;
+                }
+            }
+        }
+        return result;
     }
 
     /**
@@ -119,7 +165,7 @@ public final class JkGpg {
         if (!Files.exists(getPublicRing())) {
             throw new IllegalStateException("Specified public ring file " + pubRing+ " not found.");
         }
-        return INTERNAL_GPG_DOER.verify(fileToVerify, pubRing, signature);
+        return internalGpgDoer().verify(fileToVerify, pubRing, signature);
     }
 
     /**
@@ -162,20 +208,31 @@ public final class JkGpg {
      * @param keyName The secret key to use within the t-scrfet ring. If empty string, the first key
      *                of the secret ring is selected.
      */
-    public UnaryOperator<Path> getSigner(String keyName) {
+    public JkSigner getSigner(String keyName) {
         JkUtilsAssert.argument(keyName != null, "Key name cannot be null. Use \"\" to select the first " +
                 "key present in " + this.secRing);
-        return new Signer(keyName);
+        return new JkSigner(keyName);
     }
 
-    private class Signer implements UnaryOperator<Path> {
+    /**
+     * Signs files with a given key of this secret ring.
+     */
+    public final class JkSigner implements UnaryOperator<Path> {
 
         private final String keyName;
 
-        private Signer(String keyName) {
+        private JkSigner(String keyName) {
             this.keyName = keyName;
         }
 
+        /**
+         * Signs the specified files at once, as {@link JkGpg#sign(List, String)} does.
+         * @return The signature files, in the same order as the signed files.
+         */
+        public List<Path> signAll(List<Path> files) {
+            return sign(files, keyName);
+        }
+
         @Override
         public Path apply(Path file) {
             if (!Files.exists(file)) {
@@ -5,6 +5,7 @@ import dev.jeka.core.api.java.JkInternalClassloader;
 import dev.jeka.core.api.utils.JkUtilsReflect;
 
 import java.nio.file.Path;
+import java.util.List;
 
 public interface JkInternalGpgDoer {
 
@@ -12,13 +13,21 @@ public interface JkInternalGpgDoer {
 
     void sign(Path fileToSign, Path secringFile, String keyName, Path signatureFile, char[] pass, boolean armor);
 
+    void signAll(List<Path> filesToSign, Path secringFile, String keyName, List<Path> signatureFiles, char[] pass,
+                 boolean armor);
+
+    /**
+     * Forgets the keys unlocked so far.
+     */
+    void clearCache();
+
     static JkInternalGpgDoer of() {
         String IMPL_CLASS = "dev.jeka.core.api.crypto.gpg.embedded.bc.BcGpgDoer";
         Class<JkInternalGpgDoer> clazz = JkClassLoader.ofCurrent().loadIfExist(IMPL_CLASS);
         if (clazz != null) {
             return JkUtilsReflect.invokeStaticMethod(clazz, "of");
         }
-        return JkInternalClassloader.ofMainEmbeddedLibs().createCrossClassloaderProxy(JkInternalGpgDoer.class, IMPL_CLASS, "of");
+        return JkInternalClassloader.ofSharedMainEmbeddedLibs().createCrossClassloaderProxy(JkInternalGpgDoer.class, IMPL_CLASS, "of");
     }
 
 }
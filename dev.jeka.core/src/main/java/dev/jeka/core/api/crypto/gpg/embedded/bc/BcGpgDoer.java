@@ -5,6 +5,7 @@ import dev.jeka.core.api.file.JkPathFile;
 import dev.jeka.core.api.system.JkLog;
 import dev.jeka.core.api.utils.JkUtilsAssert;
 import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
 import dev.jeka.core.api.utils.JkUtilsThrowable;
 import org.bouncycastle.bcpg.ArmoredOutputStream;
 import org.bouncycastle.bcpg.BCPGInputStream;
@@ -20,16 +21,27 @@ import org.bouncycastle.openpgp.operator.bc.BcPGPDigestCalculatorProvider;
 import org.bouncycastle.openpgp.operator.jcajce.JcaKeyFingerprintCalculator;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.IntStream;
 
 final class BcGpgDoer implements JkInternalGpgDoer {
 
     private static final int HASH_ALGO = PGPUtil.SHA1;
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Last unlocked key, so that signing successive files neither parses the key ring nor derives the key again.
+    // Cleared at the end of each run.
+    private volatile UnlockedKey unlockedKey;
+
     // Accessed through reflection
     static BcGpgDoer of() {
         return new BcGpgDoer();
@@ -80,9 +92,10 @@ final class BcGpgDoer implements JkInternalGpgDoer {
 
         final PGPContentVerifierBuilderProvider builderProvider = new BcPGPContentVerifierBuilderProvider();
         signature.init(builderProvider, publicKey);
-        int character;
-        while ((character = bufferedStream.read()) >= 0) {
-            signature.update((byte) character);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int count;
+        while ((count = bufferedStream.read(buffer)) >= 0) {
+            signature.update(buffer, 0, count);
         }
         return signature.verify();
     }
@@ -95,42 +108,109 @@ final class BcGpgDoer implements JkInternalGpgDoer {
                 keyName);
         JkUtilsAssert.argument(Files.exists(fileToSign), fileToSign + " not found.");
         JkUtilsAssert.argument(Files.exists(secringFile), secringFile + " not found.");
+        sign(fileToSign, signatureFile, unlockedKey(secringFile, keyName, pass), armor);
+    }
+
+    public void signAll(List<Path> filesToSign, Path secringFile, String keyName, List<Path> signatureFiles,
+                        char[] pass, boolean armor) {
+        JkUtilsAssert.argument(filesToSign.size() == signatureFiles.size(),
+                "There must be as many signature files as files to sign.");
+        JkLog.info("Sign %s using secretkey file %s and key name '%s'.",
+                JkUtilsString.plurialize(filesToSign.size(), "file"),
+                JkUtilsPath.relativizeFromWorkingDir(secringFile),
+                keyName);
+        filesToSign.forEach(file -> JkUtilsAssert.argument(Files.exists(file), file + " not found."));
+        JkUtilsAssert.argument(Files.exists(secringFile), secringFile + " not found.");
+        final UnlockedKey key = unlockedKey(secringFile, keyName, pass);
+        final long start = System.nanoTime();
+        final long[] durations = new long[filesToSign.size()];
+        IntStream.range(0, filesToSign.size()).parallel().forEach(i -> {
+            final long fileStart = System.nanoTime();
+            sign(filesToSign.get(i), signatureFiles.get(i), key, armor);
+            durations[i] = System.nanoTime() - fileStart;
+        });
+        long totalSize = 0;
+        for (int i = 0; i < filesToSign.size(); i++) {
+            final long size = size(filesToSign.get(i));
+            totalSize += size;
+            JkLog.trace("Signed " + JkUtilsPath.relativizeFromWorkingDir(filesToSign.get(i)) + " : "
+                    + throughput(size, durations[i]));
+        }
+        JkLog.info("Signed " + JkUtilsString.plurialize(filesToSign.size(), "file") + " : "
+                + throughput(totalSize, System.nanoTime() - start));
+    }
+
+    public void clearCache() {
+        this.unlockedKey = null;
+    }
+
+    static void sign(InputStream toSign, InputStream keyRing, String keyName, OutputStream out, char[] pass,
+            boolean armor) {
+        sign(toSign, unlock(keyRing, keyName, pass), out, armor);
+    }
+
+    private static void sign(Path fileToSign, Path signatureFile, UnlockedKey key, boolean armor) {
         JkPathFile.of(signatureFile).createIfNotExist();
         try (final InputStream toSign = Files.newInputStream(fileToSign);
-             final InputStream keyRing = Files.newInputStream(secringFile);
              final OutputStream out = Files.newOutputStream(signatureFile)) {
-            sign(toSign, keyRing, keyName, out, pass, armor);
+            sign(toSign, key, out, armor);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
-    static void sign(InputStream toSign, InputStream keyRing, String keyName, OutputStream out, char[] pass,
-            boolean armor) {
+    private static void sign(InputStream toSign, UnlockedKey key, OutputStream out, boolean armor) {
         if (armor) {
             out = new ArmoredOutputStream(out);
         }
-        final PGPSecretKey pgpSecretKey = readSecretKey(keyRing, keyName);
         try {
-            final PGPDigestCalculatorProvider pgpDigestCalculatorProvider = new BcPGPDigestCalculatorProvider();
-            final PBESecretKeyDecryptor secretKeyDecryptor = new BcPBESecretKeyDecryptorBuilder(
-                    pgpDigestCalculatorProvider).build(pass);
-            final PGPPrivateKey pgpPrivKey = pgpSecretKey.extractPrivateKey(secretKeyDecryptor);
-            final int secretKeyAlgo = pgpSecretKey.getPublicKey().getAlgorithm();
-            final PGPContentSignerBuilder signerBuilder = new BcPGPContentSignerBuilder(secretKeyAlgo, HASH_ALGO);
+            final PGPContentSignerBuilder signerBuilder = new BcPGPContentSignerBuilder(key.algorithm, HASH_ALGO);
             final PGPSignatureGenerator signatureGenerator = new PGPSignatureGenerator(signerBuilder);
-            signatureGenerator.init(PGPSignature.BINARY_DOCUMENT, pgpPrivKey);
+            signatureGenerator.init(PGPSignature.BINARY_DOCUMENT, key.privateKey);
             final BCPGOutputStream bcpgOut = new BCPGOutputStream(out);
-            final InputStream fileInputStream = new BufferedInputStream(toSign);
-            int ch;
-            while ((ch = fileInputStream.read()) >= 0) {
-                signatureGenerator.update((byte) ch);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = toSign.read(buffer)) >= 0) {
+                signatureGenerator.update(buffer, 0, count);
             }
-            fileInputStream.close();
+            toSign.close();
             signatureGenerator.generate().encode(bcpgOut);
             out.close();
-        } catch (final IOException e) {
+        } catch (final IOException | PGPException e) {
             throw JkUtilsThrowable.unchecked(e);
+        }
+    }
+
+    private UnlockedKey unlockedKey(Path secringFile, String keyName, char[] pass) {
+        final FileTime lastModified;
+        try {
+            lastModified = Files.getLastModifiedTime(secringFile);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final UnlockedKey current = this.unlockedKey;
+        if (current != null && current.isFor(secringFile, lastModified, keyName, pass)) {
+            return current;
+        }
+        final UnlockedKey result;
+        try (InputStream keyRing = Files.newInputStream(secringFile)) {
+            result = unlock(keyRing, keyName, pass);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        result.setOrigin(secringFile, lastModified, keyName, pass);
+        this.unlockedKey = result;
+        return result;
+    }
+
+    private static UnlockedKey unlock(InputStream keyRing, String keyName, char[] pass) {
+        final PGPSecretKey pgpSecretKey = readSecretKey(keyRing, keyName);
+        try {
+            final PGPDigestCalculatorProvider pgpDigestCalculatorProvider = new BcPGPDigestCalculatorProvider();
+            final PBESecretKeyDecryptor secretKeyDecryptor = new BcPBESecretKeyDecryptorBuilder(
+                    pgpDigestCalculatorProvider).build(pass);
+            final PGPPrivateKey pgpPrivKey = pgpSecretKey.extractPrivateKey(secretKeyDecryptor);
+            return new UnlockedKey(pgpPrivKey, pgpSecretKey.getPublicKey().getAlgorithm());
         } catch (final PGPException e) {
             if (e.getMessage().equals("checksum mismatch at 0 of 20")) {
                 throw new IllegalStateException("Secret key password is probably wrong.", e);
@@ -139,6 +219,20 @@ final class BcGpgDoer implements JkInternalGpgDoer {
         }
     }
 
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String throughput(long size, long durationNanos) {
+        final long millis = Math.max(1, durationNanos / 1_000_000);
+        return String.format(Locale.ENGLISH, "%d KB in %d ms (%.1f MB/s)", size / 1024, millis,
+                size / 1024d / 1024d / (millis / 1000d));
+    }
+
     private static PGPSecretKey readSecretKey(InputStream keyRingIs, String prefix) {
         for (final PGPSecretKeyRing keyRing : extractSecrectKeyRings(keyRingIs)) {
             final Iterator<PGPSecretKey> keyIter = keyRing.getSecretKeys();
@@ -209,6 +303,54 @@ final class BcGpgDoer implements JkInternalGpgDoer {
 
     }
 
+    private static final class UnlockedKey {
+
+        private final PGPPrivateKey privateKey;
+
+        private final int algorithm;
+
+        private Path secringFile;
+
+        private FileTime lastModified;
+
+        private String keyName;
+
+        // Digest rather than the passphrase itself, so it does not stay in memory
+        private byte[] passDigest;
+
+        UnlockedKey(PGPPrivateKey privateKey, int algorithm) {
+            this.privateKey = privateKey;
+            this.algorithm = algorithm;
+        }
+
+        void setOrigin(Path secringFile, FileTime lastModified, String keyName, char[] pass) {
+            this.secringFile = secringFile.toAbsolutePath().normalize();
+            this.lastModified = lastModified;
+            this.keyName = keyName;
+            this.passDigest = digest(pass);
+        }
+
+        boolean isFor(Path secringFile, FileTime lastModified, String keyName, char[] pass) {
+            return this.secringFile.equals(secringFile.toAbsolutePath().normalize())
+                    && this.lastModified.equals(lastModified) && this.keyName.equals(keyName)
+                    && MessageDigest.isEqual(this.passDigest, digest(pass));
+        }
+
+        private static byte[] digest(char[] pass) {
+            final ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(pass));
+            try {
+                final MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+                messageDigest.update(bytes);
+                return messageDigest.digest();
+            } catch (final NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                Arrays.fill(bytes.array(), (byte) 0);
+            }
+        }
+
+    }
+
     private BcGpgDoer() {
         // Do nothing
     }
@@ -24,6 +24,8 @@ public final class JkDependencyResolver<T> {
 
     private JkRepoSet repos = JkRepoSet.of();
 
+    private JkResolutionCache resolutionCache;
+
     /**
      * For parent chaining
      */
@@ -69,6 +71,20 @@ public final class JkDependencyResolver<T> {
         return addRepos(JkRepoSet.of(Arrays.asList(repos)));
     }
 
+    public JkResolutionCache getResolutionCache() {
+        return resolutionCache;
+    }
+
+    /**
+     * Sets the persistent cache to fetch module resolution results from, instead of invoking the underlying
+     * dependency manager, when the same dependencies have already been resolved for the same scopes, parameters
+     * and repositories. <code>null</code> disables the resolution cache.
+     */
+    public JkDependencyResolver<T> setResolutionCache(JkResolutionCache resolutionCache) {
+        this.resolutionCache = resolutionCache;
+        return this;
+    }
+
     /**
      * Returns the parameters of this dependency resolver.
      */
@@ -104,7 +120,6 @@ public final class JkDependencyResolver<T> {
         if (repos.getRepoList().isEmpty() && dependencies.hasModules()) {
             JkLog.warn("You are trying to resolve dependencies on zero repository. Won't be possible to resolve modules.");
         }
-        JkInternalDepResolver internalDepResolver = JkInternalDepResolver.of(this.repos);
         JkLog.trace("Preparing to resolve dependencies for module " + moduleHolder);
         final String msg = scopes.length == 0 ? "Resolve dependencies " :
                 "Resolve dependencies with specified scopes " + Arrays.asList(scopes);
@@ -113,7 +128,7 @@ public final class JkDependencyResolver<T> {
         if (dependencies.hasModules()) {
             JkUtilsAssert.state(!repos.getRepoList().isEmpty(), "Cannot resolve module dependency cause no " +
                     "repos has defined on resolver " + this);
-            resolveResult = internalDepResolver.resolve(moduleHolder, dependencies.withModulesOnly(), parameters, scopes);
+            resolveResult = resolveModules(dependencies.withModulesOnly(), scopes);
         } else {
             resolveResult = JkResolveResult.ofRoot(moduleHolder);
         }
@@ -132,6 +147,22 @@ public final class JkDependencyResolver<T> {
         return resolveResult;
     }
 
+    private JkResolveResult resolveModules(JkDependencySet moduleDependencies, JkScope[] scopes) {
+        if (resolutionCache == null) {
+            return JkInternalDepResolver.of(this.repos).resolve(moduleHolder, moduleDependencies, parameters, scopes);
+        }
+        final String key = JkResolutionCache.key(moduleHolder, moduleDependencies, scopes, parameters, repos);
+        final JkResolveResult cachedResult = resolutionCache.get(key);
+        if (cachedResult != null) {
+            JkLog.trace("Resolution result fetched from resolution cache.");
+            return cachedResult;
+        }
+        final JkResolveResult result = JkInternalDepResolver.of(this.repos).resolve(moduleHolder, moduleDependencies,
+                parameters, scopes);
+        resolutionCache.put(key, result);
+        return result;
+    }
+
     /**
      * Returns an alphabetical sorted list of groupId present in these repositories
      */
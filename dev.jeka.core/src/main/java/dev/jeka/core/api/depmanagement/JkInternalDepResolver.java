@@ -35,7 +35,7 @@ public interface JkInternalDepResolver {
         if (factoryClass != null) {
             return JkUtilsReflect.invokeStaticMethod(factoryClass, "of", repos);
         }
-        return JkInternalClassloader.ofMainEmbeddedLibs().createCrossClassloaderProxy(
+        return JkInternalClassloader.ofSharedMainEmbeddedLibs().createCrossClassloaderProxy(
                 JkInternalDepResolver.class, factoryClassName, "of", repos);
     }
 
@@ -3,6 +3,7 @@ package dev.jeka.core.api.depmanagement;
 import dev.jeka.core.api.utils.JkUtilsAssert;
 import dev.jeka.core.api.utils.JkUtilsString;
 
+import java.io.Serializable;
 import java.util.Comparator;
 
 /**
@@ -11,7 +12,9 @@ import java.util.Comparator;
  *
  * @author Jerome Angibaud
  */
-public final class JkModuleId {
+public final class JkModuleId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * Comparator sorting by module group first then module name.
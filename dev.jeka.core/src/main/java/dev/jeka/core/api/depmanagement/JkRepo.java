@@ -50,12 +50,19 @@ public final class JkRepo {
      */
     public static final String JCENTERL_URL = "https://jcenter.bintray.com";
 
+    /**
+     * Default maximum number of artifacts downloaded concurrently from a same repository.
+     */
+    public static final int DEFAULT_MAX_PARALLEL_DOWNLOADS = 4;
+
     private static final String IVY_PREFIX = "ivy:";
 
     private final URL url;
 
     private JkRepoCredentials credentials;
 
+    private int maxParallelDownloads = DEFAULT_MAX_PARALLEL_DOWNLOADS;
+
     private final JkRepoIvyConfig ivyConfig = new JkRepoIvyConfig(this);
 
     private final JkPublishConfig publishConfig = new JkPublishConfig(this);
@@ -200,6 +207,23 @@ public final class JkRepo {
         return this.setCredentials(username, password, null);
     }
 
+    /**
+     * Returns the maximum number of artifacts downloaded concurrently from this repository.
+     */
+    public int getMaxParallelDownloads() {
+        return maxParallelDownloads;
+    }
+
+    /**
+     * Sets the maximum number of artifacts downloaded concurrently from this repository while resolving
+     * dependencies. Specify 1 to download artifacts one after the other.
+     */
+    public JkRepo setMaxParallelDownloads(int maxParallelDownloads) {
+        JkUtilsAssert.argument(maxParallelDownloads > 0, "Max parallel downloads must be greater than 0.");
+        this.maxParallelDownloads = maxParallelDownloads;
+        return this;
+    }
+
     public JkRepoSet toSet() {
         return JkRepoSet.of(this);
     }
@@ -329,6 +353,16 @@ public final class JkRepo {
      */
     public static class JkPublishConfig {
 
+        /**
+         * Default maximum number of files uploaded concurrently to a same repository.
+         */
+        public static final int DEFAULT_MAX_PARALLEL_UPLOADS = 4;
+
+        /**
+         * Default number of times a failed upload is attempted again.
+         */
+        public static final int DEFAULT_UPLOAD_RETRIES = 2;
+
         public final JkRepo __;
 
         private Predicate<JkVersion> versionFilter = jkVersion -> true;
@@ -339,6 +373,10 @@ public final class JkRepo {
 
         private Set<String> checksumAlgos = new HashSet<>();
 
+        private int maxParallelUploads = DEFAULT_MAX_PARALLEL_UPLOADS;
+
+        private int uploadRetries = DEFAULT_UPLOAD_RETRIES;
+
         private JkPublishConfig(JkRepo parent) {
             __ = parent;
         }
@@ -383,6 +421,37 @@ public final class JkRepo {
             this.checksumAlgos = JkUtilsIterable.setOf(algos);
             return this;
         }
+
+        /**
+         * Returns the maximum number of files (artifacts, checksums and signatures) uploaded concurrently to
+         * this repository.
+         */
+        public int getMaxParallelUploads() {
+            return maxParallelUploads;
+        }
+
+        /**
+         * Sets the maximum number of files uploaded concurrently to this repository while publishing. Specify 1 to
+         * upload files one after the other.
+         */
+        public JkPublishConfig setMaxParallelUploads(int maxParallelUploads) {
+            JkUtilsAssert.argument(maxParallelUploads > 0, "Max parallel uploads must be greater than 0.");
+            this.maxParallelUploads = maxParallelUploads;
+            return this;
+        }
+
+        /**
+         * Returns the number of times a failed upload is attempted again before the publication fails.
+         */
+        public int getUploadRetries() {
+            return uploadRetries;
+        }
+
+        public JkPublishConfig setUploadRetries(int uploadRetries) {
+            JkUtilsAssert.argument(uploadRetries >= 0, "Upload retries cannot be negative.");
+            this.uploadRetries = uploadRetries;
+            return this;
+        }
     }
 
 }
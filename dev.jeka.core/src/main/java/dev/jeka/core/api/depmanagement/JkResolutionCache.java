@@ -0,0 +1,250 @@
+package dev.jeka.core.api.depmanagement;
+
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsAssert;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Persistent cache for module dependency resolutions. A resolution result (the dependency tree and the files it
+ * resolves to) is stored under a key computed from the dependencies, the resolved scopes, the resolution
+ * parameters and the repositories, so a next resolution of the same dependencies returns instantly, without
+ * involving Ivy, as long as all the resolved files still exist.<p>
+ *
+ * Results involving dynamic versions (as <code>1.3.+</code>) or snapshot versions, either declared directly or
+ * found in the transitive tree, are reused only during the dynamic version time-to-live. Results having errors are
+ * never stored.
+ */
+public final class JkResolutionCache {
+
+    /**
+     * Default time-to-live of results involving dynamic or snapshot versions.
+     */
+    public static final Duration DEFAULT_DYNAMIC_VERSION_TTL = Duration.ofHours(24);
+
+    private static final String EXTENSION = ".ser";
+
+    private final Path dir;
+
+    private Duration dynamicVersionTtl = DEFAULT_DYNAMIC_VERSION_TTL;
+
+    private JkResolutionCache(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Creates a resolution cache stored in the specified directory.
+     */
+    public static JkResolutionCache of(Path dir) {
+        return new JkResolutionCache(dir);
+    }
+
+    /**
+     * Creates a resolution cache stored in [jeka user home]/cache/resolution.
+     */
+    public static JkResolutionCache ofDefault() {
+        return of(JkLocator.getJekaUserHomeDir().resolve("cache/resolution"));
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    public Duration getDynamicVersionTtl() {
+        return dynamicVersionTtl;
+    }
+
+    /**
+     * Sets how long results involving dynamic or snapshot versions are reused. {@link Duration#ZERO} means that
+     * such results are never reused.
+     */
+    public JkResolutionCache setDynamicVersionTtl(Duration dynamicVersionTtl) {
+        JkUtilsAssert.argument(dynamicVersionTtl != null && !dynamicVersionTtl.isNegative(),
+                "Dynamic version TTL must be positive or zero.");
+        this.dynamicVersionTtl = dynamicVersionTtl;
+        return this;
+    }
+
+    /**
+     * Deletes all the entries of this cache.
+     */
+    public void clear() {
+        if (Files.exists(dir)) {
+            JkUtilsPath.listDirectChildren(dir).stream()
+                    .filter(path -> path.getFileName().toString().endsWith(EXTENSION))
+                    .forEach(JkUtilsPath::deleteIfExists);
+        }
+    }
+
+    /**
+     * Returns the cached result for the specified key or <code>null</code> if there is none, if it has expired or
+     * if some of its files do not exist anymore.
+     */
+    JkResolveResult get(String key) {
+        final Path file = dir.resolve(key + EXTENSION);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        final Entry entry;
+        try {
+            entry = JkUtilsIO.deserialize(file);
+        } catch (final RuntimeException e) {
+            JkLog.trace("Cannot read resolution cache entry " + file + " : " + e.getMessage());
+            return null;
+        }
+        if (entry.dynamic && System.currentTimeMillis() - entry.timestamp > dynamicVersionTtl.toMillis()) {
+            JkLog.trace("Resolution cache entry " + key + " involves dynamic versions and has expired.");
+            return null;
+        }
+        final JkDependencyNode tree = entry.root.toNode();
+        final Optional<Path> missingFile = tree.getResolvedFiles().stream().filter(path -> !Files.exists(path))
+                .findFirst();
+        if (missingFile.isPresent()) {
+            JkLog.trace("Resolution cache entry " + key + " is stale : " + missingFile.get() + " does not exist.");
+            return null;
+        }
+        return JkResolveResult.of(tree, JkResolveResult.JkErrorReport.allFine());
+    }
+
+    /**
+     * Stores the specified result under the specified key, unless it has errors.
+     */
+    void put(String key, JkResolveResult result) {
+        if (result.getErrorReport().hasErrors()) {
+            return;
+        }
+        final JkDependencyNode tree = result.getDependencyTree();
+        final boolean dynamic = tree.toFlattenList().stream()
+                .filter(JkDependencyNode::isModuleNode)
+                .map(node -> node.getModuleInfo().getDeclaredVersion())
+                .anyMatch(version -> version != null && version.isDynamic());
+        if (dynamic && dynamicVersionTtl.isZero()) {
+            return;
+        }
+        final Entry entry = new Entry(System.currentTimeMillis(), dynamic, CachedNode.of(tree));
+        final Path tmp = dir.resolve(key + "." + UUID.randomUUID() + ".tmp");
+        try {
+            JkUtilsPath.createDirectories(dir);
+            JkUtilsIO.serialize(entry, tmp);
+            Files.move(tmp, dir.resolve(key + EXTENSION), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException | RuntimeException e) {
+            JkLog.warn("Cannot store resolution cache entry " + key + " : " + e.getMessage());
+        } finally {
+            JkUtilsPath.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Computes the key of a resolution of the specified module dependencies.
+     */
+    static String key(JkVersionedModule module, JkDependencySet dependencies, JkScope[] scopes,
+                      JkResolutionParameters<?> parameters, JkRepoSet repos) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("module=").append(module).append('\n');
+        for (final JkScopedDependency scopedDependency : dependencies) {
+            final JkModuleDependency dependency = (JkModuleDependency) scopedDependency.getDependency();
+            final JkScopeMapping scopeMapping = scopedDependency.getScopeType() == JkScopedDependency.ScopeType.MAPPED
+                    ? scopedDependency.getScopeMapping() : null;
+            sb.append("dependency=").append(dependency.getModuleId())
+                    .append(':').append(dependency.getVersion())
+                    .append(':').append(dependency.getClassifier())
+                    .append(':').append(dependency.getExt())
+                    .append(", transitive=").append(dependency.withTransitive())
+                    .append(", excludes=").append(describe(dependency.getExcludes()))
+                    .append(", scopes=").append(sorted(scopedDependency.getScopes()))
+                    .append(", scopeMapping=").append(scopeMapping)
+                    .append('\n');
+        }
+        sb.append("globalExclusions=").append(describe(dependencies.getGlobalExclusions())).append('\n');
+        sb.append("versionProvider=").append(dependencies.getVersionProvider()).append('\n');
+        sb.append("scopes=").append(sorted(Arrays.asList(scopes))).append('\n');
+        sb.append("scopeMapping=").append(parameters.getScopeMapping()).append('\n');
+        sb.append("conflictResolver=").append(parameters.getConflictResolver()).append('\n');
+        for (final JkRepo repo : repos.getRepoList()) {
+            sb.append("repo=").append(repo.getUrl())
+                    .append(", ivy=").append(repo.getIvyConfig().artifactPatterns())
+                    .append('\n');
+        }
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return JkUtilsString.toHexString(digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String describe(Collection<JkDepExclude> excludes) {
+        return excludes.stream()
+                .map(exclude -> exclude.getModuleId() + ":" + exclude.getType() + ":" + exclude.getExt() + ":"
+                        + sorted(exclude.getScopes()))
+                .sorted()
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private static List<String> sorted(Collection<JkScope> scopes) {
+        if (scopes == null) {
+            return Collections.emptyList();
+        }
+        return scopes.stream().map(JkScope::getName).sorted().collect(Collectors.toList());
+    }
+
+    private static final class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long timestamp;
+
+        private final boolean dynamic;
+
+        private final CachedNode root;
+
+        private Entry(long timestamp, boolean dynamic, CachedNode root) {
+            this.timestamp = timestamp;
+            this.dynamic = dynamic;
+            this.root = root;
+        }
+
+    }
+
+    // JkDependencyNode is not serializable while its module node infos are
+    private static final class CachedNode implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final JkDependencyNode.JkModuleNodeInfo info;
+
+        private final List<CachedNode> children;
+
+        private CachedNode(JkDependencyNode.JkModuleNodeInfo info, List<CachedNode> children) {
+            this.info = info;
+            this.children = children;
+        }
+
+        static CachedNode of(JkDependencyNode node) {
+            final List<CachedNode> children = node.getChildren().stream()
+                    .map(CachedNode::of)
+                    .collect(Collectors.toCollection(ArrayList::new));
+            return new CachedNode(node.getModuleInfo(), children);
+        }
+
+        JkDependencyNode toNode() {
+            return JkDependencyNode.ofModuleDep(info,
+                    children.stream().map(CachedNode::toNode).collect(Collectors.toList()));
+        }
+
+    }
+
+}
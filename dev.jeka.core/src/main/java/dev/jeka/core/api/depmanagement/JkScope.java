@@ -3,6 +3,7 @@ package dev.jeka.core.api.depmanagement;
 import dev.jeka.core.api.utils.JkUtilsIterable;
 import dev.jeka.core.api.utils.JkUtilsString;
 
+import java.io.Serializable;
 import java.util.*;
 
 /**
@@ -16,7 +17,9 @@ import java.util.*;
  *
  * @author Jerome Angibaud
  */
-public final class JkScope {
+public final class JkScope implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * A scope meant to tag a dependency as necessary for compiling.<p>
@@ -3,6 +3,7 @@ package dev.jeka.core.api.depmanagement;
 import dev.jeka.core.api.utils.JkUtilsAssert;
 import dev.jeka.core.api.utils.JkUtilsString;
 
+import java.io.Serializable;
 import java.util.Comparator;
 
 /**
@@ -10,7 +11,9 @@ import java.util.Comparator;
  *
  * @author Jerome Angibaud
  */
-public final class JkVersion implements Comparable<JkVersion> {
+public final class JkVersion implements Comparable<JkVersion>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /** Mention that the version is unspecified */
     public static final JkVersion UNSPECIFIED = new JkVersion("UNSPECIFIED-SNAPSHOT");
@@ -53,14 +53,12 @@ final class IvyInternalDepResolver implements JkInternalDepResolver {
 
     private final Ivy ivy;
 
-    private IvyInternalDepResolver(Ivy ivy) {
+    private final IvyParallelDownloader downloader;
+
+    private IvyInternalDepResolver(Ivy ivy, IvyParallelDownloader downloader) {
         super();
         this.ivy = ivy;
-    }
-
-    private static IvyInternalDepResolver of(IvySettings ivySettings) {
-        final Ivy ivy = ivy(ivySettings);
-        return new IvyInternalDepResolver(ivy);
+        this.downloader = downloader;
     }
 
     static Ivy ivy(IvySettings ivySettings) {
@@ -91,8 +89,8 @@ final class IvyInternalDepResolver implements JkInternalDepResolver {
      * specified repositories for resolving.
      */
     public static IvyInternalDepResolver of(JkRepoSet resolveRepos) {
-        IvySettings ivySettings = ivySettingsOf(resolveRepos);
-        return of(ivySettings);
+        final Ivy ivy = ivy(ivySettingsOf(resolveRepos));
+        return new IvyInternalDepResolver(ivy, IvyParallelDownloader.of(ivy, resolveRepos));
     }
 
     @SuppressWarnings("unchecked")
@@ -121,13 +119,19 @@ final class IvyInternalDepResolver implements JkInternalDepResolver {
         resolveOptions.setLog(logLevel());
         resolveOptions.setRefresh(parameters.isRefreshed());
         resolveOptions.setCheckIfChanged(true);
-        resolveOptions.setOutputReport(true);
-        if (resolvedScopes.length == 0) {   // if no scope, verbose ivy report turns in exception
-            resolveOptions.setOutputReport(false);
-        }
+        final boolean outputReport = resolvedScopes.length != 0; // if no scope, verbose ivy report turns in exception
+
+        // Artifacts are downloaded afterward, concurrently, and the report is output once they are all present
+        resolveOptions.setOutputReport(false);
+        resolveOptions.setDownload(false);
         final ResolveReport ivyReport;
         try {
             ivyReport = ivy.resolve(moduleDescriptor, resolveOptions);
+            downloader.download(ivyReport, resolveOptions);
+            if (outputReport) {
+                ivy.getResolveEngine().outputReport(ivyReport, ivy.getSettings().getResolutionCacheManager(),
+                        resolveOptions);
+            }
         } catch (final Exception e) {
             throw JkUtilsThrowable.unchecked(e);
         }
@@ -119,12 +119,18 @@ final class IvyInternalPublisher implements JkInternalPublisher {
     public void publishMaven(JkVersionedModule versionedModule, JkMavenPublication publication,
                              JkDependencySet dependencies, UnaryOperator<Path> signer) {
         JkLog.startTask("Publish on Maven repositories");
-        final DefaultModuleDescriptor moduleDescriptor = createModuleDescriptor(versionedModule,
-                publication, dependencies, Instant.now(), JkVersionProvider.of());
-        final int count = publishMavenArtifacts(publication, moduleDescriptor, signer);
+        final int count;
+        try {
+            final DefaultModuleDescriptor moduleDescriptor = createModuleDescriptor(versionedModule,
+                    publication, dependencies, Instant.now(), JkVersionProvider.of());
+            count = publishMavenArtifacts(publication, moduleDescriptor, signer);
+        } catch (final RuntimeException e) {
+            JkLog.endTask("Publication failed after %d milliseconds.");
+            throw e;
+        }
         JkLog.info("Module published in %s.", JkUtilsString.plurialize(count,
                 "repository", "repositories"));
-       JkLog.endTask();
+        JkLog.endTask();
     }
 
     private int publishIvyArtifacts(JkIvyPublication publication, Instant date,
@@ -194,10 +200,13 @@ final class IvyInternalPublisher implements JkInternalPublisher {
                 UnaryOperator<Path> effectiveSigner = publishRepo.getPublishConfig().isSignatureRequired() ? signer :
                         null;
                 final IvyPublisherForMaven ivyPublisherForMaven = new IvyPublisherForMaven(
-                    effectiveSigner, resolver, descriptorOutputDir,
-                    publishRepo.getPublishConfig().isUniqueSnapshot(),
-                    publishRepo.getPublishConfig().getChecksumAlgos());
-                ivyPublisherForMaven.publish(moduleDescriptor, publication);
+                    ivy, effectiveSigner, resolver, descriptorOutputDir, publishRepo);
+                try {
+                    ivyPublisherForMaven.publish(moduleDescriptor, publication);
+                } catch (final RuntimeException e) {
+                    JkLog.endTask("Publication to " + resolver + " failed after %d milliseconds.");
+                    throw e;
+                }
                 count++;
                 JkLog.endTask();
             }
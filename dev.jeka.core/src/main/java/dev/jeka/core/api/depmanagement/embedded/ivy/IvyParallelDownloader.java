@@ -0,0 +1,209 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import dev.jeka.core.api.depmanagement.JkRepo;
+import dev.jeka.core.api.depmanagement.JkRepoSet;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.DownloadReport;
+import org.apache.ivy.core.report.DownloadStatus;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.DownloadOptions;
+import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.util.Message;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads the artifacts of a resolution performed without download, as Ivy <code>ResolveEngine#downloadArtifacts</code>
+ * does, except that modules are downloaded concurrently. The number of concurrent downloads from a same repository
+ * is limited by {@link JkRepo#getMaxParallelDownloads()}. Configuration reports are completed in the original
+ * dependency order, so the resolve report is the same as the one obtained by a sequential download.
+ * <p>
+ * Ivy resolvers are not thread-safe (attempt lists and transfer events are held in instance fields), so each
+ * download thread works with its own copy of the resolvers created from the {@link JkRepo}s.
+ */
+final class IvyParallelDownloader {
+
+    private final Ivy ivy;
+
+    // repos by resolver name
+    private final Map<String, JkRepo> repos;
+
+    private IvyParallelDownloader(Ivy ivy, Map<String, JkRepo> repos) {
+        this.ivy = ivy;
+        this.repos = repos;
+    }
+
+    static IvyParallelDownloader of(Ivy ivy, JkRepoSet repoSet) {
+        final Map<String, JkRepo> repos = new HashMap<>();
+        for (final JkRepo repo : repoSet.getRepoList()) {
+            repos.put(IvyTranslations.resolverName(repo), repo);
+        }
+        return new IvyParallelDownloader(ivy, repos);
+    }
+
+    void download(ResolveReport report, ResolveOptions resolveOptions) {
+        final long start = System.currentTimeMillis();
+        final DownloadOptions downloadOptions = new DownloadOptions();
+        downloadOptions.setLog(resolveOptions.getLog());
+        final List<IvyNode> dependencies = new LinkedList<>();
+        for (final IvyNode dependency : report.getDependencies()) {
+            if (!dependency.isCompletelyEvicted() && !dependency.hasProblem()
+                    && dependency.getModuleRevision() != null) {
+                dependencies.add(dependency);
+            }
+        }
+        final Map<String, Semaphore> semaphores = new HashMap<>();
+        int poolSize = 0;
+        for (final IvyNode dependency : dependencies) {
+            final String resolverName = dependency.getModuleRevision().getArtifactResolver().getName();
+            if (!semaphores.containsKey(resolverName)) {
+                final JkRepo repo = repos.get(resolverName);
+                final int max = repo == null ? 1 : repo.getMaxParallelDownloads();
+                semaphores.put(resolverName, new Semaphore(max));
+                poolSize += max;
+            }
+        }
+        poolSize = Math.min(poolSize, dependencies.size());
+        final Map<IvyNode, DownloadReport> downloadReports = poolSize <= 1
+                ? downloadSequentially(dependencies, resolveOptions, downloadOptions)
+                : downloadConcurrently(dependencies, resolveOptions, downloadOptions, semaphores, poolSize);
+        long totalSize = 0;
+        for (final IvyNode dependency : dependencies) {
+            final DownloadReport downloadReport = downloadReports.get(dependency);
+            for (final ArtifactDownloadReport artifactReport : downloadReport.getArtifactsReports()) {
+                if (artifactReport.getDownloadStatus() == DownloadStatus.SUCCESSFUL) {
+                    totalSize += artifactReport.getSize();
+                }
+            }
+            for (final String conf : dependency.getRootModuleConfigurations()) {
+                if (dependency.isEvicted(conf) || dependency.isBlacklisted(conf)) {
+                    report.getConfigurationReport(conf).addDependency(dependency);
+                } else {
+                    report.getConfigurationReport(conf).addDependency(dependency, downloadReport);
+                }
+            }
+        }
+        report.setDownloadTime(System.currentTimeMillis() - start);
+        report.setDownloadSize(totalSize);
+    }
+
+    private static Map<IvyNode, DownloadReport> downloadSequentially(List<IvyNode> dependencies,
+                                                                     ResolveOptions resolveOptions,
+                                                                     DownloadOptions downloadOptions) {
+        final Map<IvyNode, DownloadReport> result = new HashMap<>();
+        int count = 0;
+        for (final IvyNode dependency : dependencies) {
+            final DependencyResolver resolver = dependency.getModuleRevision().getArtifactResolver();
+            final DownloadReport downloadReport = download(resolver, dependency, resolveOptions, downloadOptions);
+            result.put(dependency, downloadReport);
+            logProgress(dependency, downloadReport, ++count, dependencies.size());
+        }
+        return result;
+    }
+
+    private Map<IvyNode, DownloadReport> downloadConcurrently(List<IvyNode> dependencies,
+                                                              ResolveOptions resolveOptions,
+                                                              DownloadOptions downloadOptions,
+                                                              Map<String, Semaphore> semaphores,
+                                                              int poolSize) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService executorService = Executors.newFixedThreadPool(poolSize, runnable -> {
+            final Thread thread = new Thread(runnable, "jeka-download-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final CompletionService<IvyNode> completionService = new ExecutorCompletionService<>(executorService);
+        final Map<IvyNode, DownloadReport> result = new ConcurrentHashMap<>();
+        final ThreadLocal<Map<String, DependencyResolver>> threadResolvers = ThreadLocal.withInitial(HashMap::new);
+        try {
+            for (final IvyNode dependency : dependencies) {
+                final Semaphore semaphore = semaphores.get(
+                        dependency.getModuleRevision().getArtifactResolver().getName());
+                completionService.submit(() -> {
+                    semaphore.acquire();
+                    IvyContext.pushNewContext().setIvy(ivy);
+                    try {
+                        result.put(dependency, download(threadResolvers.get(), dependency, resolveOptions,
+                                downloadOptions));
+                    } finally {
+                        IvyContext.popContext();
+                        semaphore.release();
+                    }
+                    return dependency;
+                });
+            }
+            for (int i = 1; i <= dependencies.size(); i++) {
+                final IvyNode dependency = completionService.take().get();
+                logProgress(dependency, result.get(dependency), i, dependencies.size());
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw JkUtilsThrowable.unchecked(e);
+        } catch (final ExecutionException e) {
+            throw JkUtilsThrowable.unchecked(e.getCause(), "Error while downloading artifacts.");
+        } finally {
+            executorService.shutdownNow();
+        }
+        return result;
+    }
+
+    private DownloadReport download(Map<String, DependencyResolver> threadResolvers, IvyNode dependency,
+                                    ResolveOptions resolveOptions, DownloadOptions downloadOptions) {
+        final DependencyResolver sharedResolver = dependency.getModuleRevision().getArtifactResolver();
+        final JkRepo repo = repos.get(sharedResolver.getName());
+        if (repo == null) {
+
+            // Resolver not created from a Jeka repo, so it can not be copied : its downloads are serialized
+            synchronized (sharedResolver) {
+                return download(sharedResolver, dependency, resolveOptions, downloadOptions);
+            }
+        }
+        final DependencyResolver resolver = threadResolvers.computeIfAbsent(sharedResolver.getName(), name -> {
+            final DependencyResolver copy = IvyTranslations.toDownloadResolver(repo);
+            copy.setSettings(ivy.getSettings());
+            return copy;
+        });
+        return download(resolver, dependency, resolveOptions, downloadOptions);
+    }
+
+    // Failures are reported right after the download as the resolver keeps the attempts of its last download only
+    private static DownloadReport download(DependencyResolver resolver, IvyNode dependency,
+                                           ResolveOptions resolveOptions, DownloadOptions downloadOptions) {
+        final Artifact[] artifacts = dependency.getSelectedArtifacts(resolveOptions.getArtifactFilter());
+        final DownloadReport downloadReport = resolver.download(artifacts, downloadOptions);
+        for (final ArtifactDownloadReport artifactReport : downloadReport.getArtifactsReports()) {
+            if (artifactReport.getDownloadStatus() == DownloadStatus.FAILED) {
+                final Artifact artifact = artifactReport.getArtifact();
+                if (artifact.getExtraAttribute("ivy:merged") != null) {
+                    Message.warn("\tmerged artifact not found: " + artifact + ". It was required in "
+                            + artifact.getExtraAttribute("ivy:merged"));
+                } else {
+                    Message.warn("\t" + artifactReport);
+                    resolver.reportFailure(artifact);
+                }
+            }
+        }
+        return downloadReport;
+    }
+
+    private static void logProgress(IvyNode dependency, DownloadReport downloadReport, int count, int total) {
+        final boolean downloaded = Arrays.stream(downloadReport.getArtifactsReports())
+                .anyMatch(report -> report.getDownloadStatus() == DownloadStatus.SUCCESSFUL);
+        final String message = "[" + count + "/" + total + "] " + dependency.getResolvedId();
+        if (downloaded) {
+            JkLog.info(message + " downloaded.");
+        } else {
+            JkLog.trace(message + " found in cache.");
+        }
+    }
+
+}
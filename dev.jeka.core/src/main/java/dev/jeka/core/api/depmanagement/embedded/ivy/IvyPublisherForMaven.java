@@ -1,8 +1,12 @@
 package dev.jeka.core.api.depmanagement.embedded.ivy;
 
+import dev.jeka.core.api.crypto.gpg.JkGpg;
 import dev.jeka.core.api.depmanagement.*;
+import dev.jeka.core.api.file.JkPathFile;
 import dev.jeka.core.api.system.JkLog;
 import dev.jeka.core.api.utils.*;
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleId;
@@ -14,26 +18,57 @@ import org.apache.ivy.plugins.repository.Resource;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.apache.ivy.plugins.resolver.IBiblioResolver;
 import org.apache.ivy.plugins.resolver.RepositoryResolver;
-import org.apache.ivy.util.ChecksumHelper;
+import org.apache.ivy.util.Message;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * {@link IvyInternalPublisher} delegates to this class for publishing to Maven
- * repositories.
+ * repositories.<p>
+ *
+ * Artifacts and pom are published through a pipeline : all files are signed at once, then checksums of each file
+ * are computed in a single read, concurrently for all files, and each file is uploaded along its checksums and
+ * signature as soon as they are ready. Uploads run concurrently, up to
+ * {@link JkRepo.JkPublishConfig#getMaxParallelUploads()}, each upload thread using its own repository instance.
+ * Uploads failing on network errors or server errors are attempted again. Maven metadata are pushed only once all
+ * uploads have succeeded.
  */
 final class IvyPublisherForMaven {
 
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    // Checksums and signatures are computed in parallel only if several processors are available
+    private static final Executor PREPARE_EXECUTOR = PARALLELISM > 1 ? ForkJoinPool.commonPool() : Runnable::run;
+
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private static final Pattern STATUS_CODE_PATTERN = Pattern.compile("status code (\\d{3})");
+
+    private final Ivy ivy;
+
     private final RepositoryResolver resolver;
 
+    private final JkRepo publishRepo;
+
+    // Ivy repositories are not meant to be shared among threads
+    private final ThreadLocal<Repository> uploadRepositories = ThreadLocal.withInitial(this::newUploadRepository);
+
     private final UnaryOperator<Path> signer;
 
     private final Path descriptorOutputDir;
@@ -42,14 +77,23 @@ final class IvyPublisherForMaven {
 
     private final Set<String> checksumAlgos;
 
-    IvyPublisherForMaven(UnaryOperator<Path> signer, RepositoryResolver dependencyResolver,
-                         Path descriptorOutputDir, boolean uniqueSnapshot, Set<String> checksumAlgos) {
+    private final int maxParallelUploads;
+
+    private final int uploadRetries;
+
+    IvyPublisherForMaven(Ivy ivy, UnaryOperator<Path> signer, RepositoryResolver dependencyResolver,
+                         Path descriptorOutputDir, JkRepo publishRepo) {
         super();
+        final JkRepo.JkPublishConfig publishConfig = publishRepo.getPublishConfig();
+        this.ivy = ivy;
         this.resolver = dependencyResolver;
+        this.publishRepo = publishRepo;
         this.descriptorOutputDir = descriptorOutputDir;
         this.signer = signer;
-        this.uniqueSnapshot = uniqueSnapshot;
-        this.checksumAlgos = checksumAlgos;
+        this.uniqueSnapshot = publishConfig.isUniqueSnapshot();
+        this.checksumAlgos = publishConfig.getChecksumAlgos();
+        this.maxParallelUploads = publishConfig.getMaxParallelUploads();
+        this.uploadRetries = publishConfig.getUploadRetries();
     }
 
     void publish(DefaultModuleDescriptor moduleDescriptor, JkMavenPublication publication) {
@@ -59,47 +103,32 @@ final class IvyPublisherForMaven {
         } catch (final IOException e) {
             throw new RuntimeException(e);
         }
-
-        // publish artifacts
         final JkVersionedModule versionedModule = IvyTranslations
                 .toJkVersionedModule(ivyModuleRevisionId);
-        final JkMavenMetadata returnedMetaData = publish(versionedModule, publication);
-
-        // publish pom
         final Path pomXml = makePom(moduleDescriptor, publication);
-        final String version;
-        if (versionedModule.getVersion().isSnapshot() && this.uniqueSnapshot) {
-            final String path = snapshotMetadataPath(versionedModule);
-            final JkMavenMetadata mavenMetadata = JkUtilsObject.firstNonNull(loadMavenMedatata(path),
-                    returnedMetaData);
-            final JkMavenMetadata.Versioning.JkSnapshot snap = mavenMetadata.currentSnapshot();
-            version = versionForUniqueSnapshot(versionedModule.getVersion().getValue(), snap.timestamp,
-                    snap.buildNumber);
-            final String pomDest = destination(versionedModule, "pom", JkArtifactId.MAIN_ARTIFACT_NAME,
-                    version);
-            putInRepo(pomXml, pomDest, true);
-            mavenMetadata.addSnapshotVersion("pom", JkArtifactId.MAIN_ARTIFACT_NAME);
-            push(mavenMetadata, path);
-        } else {
-            version = versionedModule.getVersion().getValue();
-            final String pomDest = destination(versionedModule, "pom", JkArtifactId.MAIN_ARTIFACT_NAME, version);
-            putInRepo(pomXml, pomDest, true);
-        }
-        if (this.descriptorOutputDir == null) {
-            JkUtilsPath.deleteFile(pomXml);
-        }
+        try {
 
-        // update maven-metadata
-        if (returnedMetaData != null) {
-            updateMetadata(ivyModuleRevisionId.getModuleId(), ivyModuleRevisionId.getRevision(),
-                    returnedMetaData.lastUpdateTimestamp());
-        }
+            // publish artifacts and pom
+            final JkMavenMetadata returnedMetaData = publish(versionedModule, publication, pomXml);
 
+            // update maven-metadata
+            if (returnedMetaData != null) {
+                updateMetadata(ivyModuleRevisionId.getModuleId(), ivyModuleRevisionId.getRevision(),
+                        returnedMetaData.lastUpdateTimestamp());
+            }
+        } catch (final RuntimeException e) {
+            abortPublishTransaction(resolver);
+            throw e;
+        } finally {
+            if (this.descriptorOutputDir == null) {
+                JkUtilsPath.deleteFile(pomXml);
+            }
+        }
         commitPublication(resolver);
     }
 
     private JkMavenMetadata publish(JkVersionedModule versionedModule,
-                                    JkMavenPublication mavenPublication) {
+                                    JkMavenPublication mavenPublication, Path pomXml) {
         if (!versionedModule.getVersion().isSnapshot()) {
             final String existing = checkNotExist(versionedModule, mavenPublication);
             if (existing != null) {
@@ -107,7 +136,8 @@ final class IvyPublisherForMaven {
                         + " already exists on repo.");
             }
         }
-        JkArtifactLocator artifactFileLocator = mavenPublication.getArtifactLocator();
+        final JkArtifactLocator artifactFileLocator = mavenPublication.getArtifactLocator();
+        final List<Transfer> transfers = new LinkedList<>();
         if (versionedModule.getVersion().isSnapshot() && this.uniqueSnapshot) {
             final String path = snapshotMetadataPath(versionedModule);
             JkMavenMetadata mavenMetadata = loadMavenMedatata(path);
@@ -116,20 +146,33 @@ final class IvyPublisherForMaven {
                 mavenMetadata = JkMavenMetadata.of(versionedModule, timestamp);
             }
             mavenMetadata.updateSnapshot(timestamp);
-            push(mavenMetadata, path);
             final int buildNumber = mavenMetadata.currentBuildNumber();
             final String versionUniqueSnapshot = versionForUniqueSnapshot(versionedModule.getVersion()
                     .getValue(), timestamp, buildNumber);
             for (final JkArtifactId artifactId : artifactFileLocator.getArtifactIds()) {
-                publishUniqueSnapshot(versionedModule, artifactId.getName(),
-                    artifactFileLocator.getArtifactPath(artifactId), versionUniqueSnapshot, mavenMetadata);
+                final Path source = artifactFileLocator.getArtifactPath(artifactId);
+                final String extension = JkUtilsString.substringAfterLast(source.getFileName().toString(), ".");
+                transfers.add(new Transfer(source, destination(versionedModule, extension, artifactId.getName(),
+                        versionUniqueSnapshot), false));
+                mavenMetadata.addSnapshotVersion(extension, artifactId.getName());
             }
+            transfers.add(new Transfer(pomXml, destination(versionedModule, "pom", JkArtifactId.MAIN_ARTIFACT_NAME,
+                    versionUniqueSnapshot), true));
+            mavenMetadata.addSnapshotVersion("pom", JkArtifactId.MAIN_ARTIFACT_NAME);
+            putInRepo(transfers);
+            push(mavenMetadata, path);
             return mavenMetadata;
         } else {
+            final boolean overwrite = versionedModule.getVersion().isSnapshot();
             for (final JkArtifactId artifactId : artifactFileLocator.getArtifactIds()) {
-                publishNormal(versionedModule, artifactId.getName(),
-                        artifactFileLocator.getArtifactPath(artifactId));
+                final Path source = artifactFileLocator.getArtifactPath(artifactId);
+                final String extension = JkUtilsString.substringAfterLast(source.getFileName().toString(), ".");
+                transfers.add(new Transfer(source, destination(versionedModule, extension, artifactId.getName()),
+                        overwrite));
             }
+            transfers.add(new Transfer(pomXml, destination(versionedModule, "pom", JkArtifactId.MAIN_ARTIFACT_NAME),
+                    true));
+            putInRepo(transfers);
             return null;
         }
     }
@@ -193,27 +236,6 @@ final class IvyPublisherForMaven {
         }
     }
 
-    private void publishUniqueSnapshot(JkVersionedModule versionedModule, String classifier,
-            Path source, String versionForUniqueSpshot, JkMavenMetadata mavenMetadata) {
-
-        final String extension = JkUtilsString.substringAfterLast(source.getFileName().toString(), ".");
-        final String dest = destination(versionedModule, extension, classifier,
-                versionForUniqueSpshot);
-        putInRepo(source, dest, false);
-        final String path = snapshotMetadataPath(versionedModule);
-        mavenMetadata.addSnapshotVersion(extension, classifier);
-        push(mavenMetadata, path);
-    }
-
-    private void publishNormal(JkVersionedModule versionedModule, String classifier, Path source) {
-
-        final String extension = JkUtilsString.substringAfterLast(source.getFileName().toString(), ".");
-        final String version = versionedModule.getVersion().getValue();
-        final String dest = destination(versionedModule.withVersion(version), extension, classifier);
-        final boolean overwrite = versionedModule.getVersion().isSnapshot();
-        putInRepo(source, dest, overwrite);
-    }
-
     private static String destination(JkVersionedModule versionedModule, String ext,
             String classifier) {
         return destination(versionedModule, ext, classifier, versionedModule.getVersion().getValue());
@@ -258,7 +280,11 @@ final class IvyPublisherForMaven {
         } catch (final IOException e) {
             throw new UncheckedIOException(e);
         }
-        putInRepo(file, path, true);
+        try {
+            putInRepo(Collections.singletonList(new Transfer(file, path, true)));
+        } finally {
+            JkUtilsPath.deleteFile(file);
+        }
     }
 
     private static JkVersionedModule of(ModuleId moduleId, String version) {
@@ -303,36 +329,145 @@ final class IvyPublisherForMaven {
     }
 
 
-    private void putInRepo(Path source, String destination, boolean overwrite) {
-        final Repository repository = this.resolver.getRepository();
-        final String dest = completePath(destination);
-        JkLog.info("Publish file " + dest);
+    // Uploads the specified files along their checksums and signatures
+    private void putInRepo(List<Transfer> transfers) {
+        final List<Path> tempFiles = Collections.synchronizedList(new LinkedList<>());
+        final Iterator<Path> signatures = sign(transfers).iterator();
+        final List<CompletableFuture<List<Transfer>>> preparedTransfers = new LinkedList<>();
+        for (final Transfer transfer : transfers) {
+            final Path signature = signatures.next();
+            preparedTransfers.add(CompletableFuture.supplyAsync(
+                    () -> withChecksumsAndSignature(transfer, signature, tempFiles), PREPARE_EXECUTOR));
+        }
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService executorService = Executors.newFixedThreadPool(maxParallelUploads, runnable -> {
+            final Thread thread = new Thread(runnable, "jeka-upload-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final CompletionService<String> completionService = new ExecutorCompletionService<>(executorService);
         try {
-            repository.put(null, source.toFile(), dest, overwrite);
-            for (final String algo : checksumAlgos) {
-                final Path temp = Files.createTempFile("jk-checksum-", algo);
-                final String checkSum = ChecksumHelper.computeAsString(source.toFile(), algo);
-                Files.write(temp, checkSum.getBytes());
-                final String csDest = dest + "." + algo;
-                JkLog.info("Publish file " + csDest);
-                repository.put(null, temp.toFile(), csDest, overwrite);
-                Files.deleteIfExists(temp);
+            int count = 0;
+            for (final CompletableFuture<List<Transfer>> preparedTransfer : preparedTransfers) {
+                for (final Transfer transfer : preparedTransfer.get()) {
+                    completionService.submit(() -> {
+                        IvyContext.pushNewContext().setIvy(ivy);
+                        try {
+                            return put(transfer);
+                        } finally {
+                            IvyContext.popContext();
+                        }
+                    });
+                    count++;
+                }
             }
-            if (this.signer != null) {
-                final Path signed = signer.apply(source);
-                final String signedDest = dest + ".asc";
-                JkLog.info("Publish file " + signedDest);
-                repository.put(null, signed.toFile(), signedDest, overwrite);
+            for (int i = 0; i < count; i++) {
+                JkLog.info("Published file " + completionService.take().get());
             }
-        } catch (final IOException e) {
-            throw new UncheckedIOException(e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw JkUtilsThrowable.unchecked(e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause()
+                    : e.getCause();
+            throw JkUtilsThrowable.unchecked(cause, "Error while publishing files.");
+        } finally {
+            executorService.shutdownNow();
+            preparedTransfers.forEach(future -> future.cancel(false));
+            for (final Path tempFile : new ArrayList<>(tempFiles)) {
+                JkUtilsPath.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    // Signs all files at once, so the secret key is unlocked a single time. Returns null signatures if no signer.
+    private List<Path> sign(List<Transfer> transfers) {
+        final List<Path> sources = transfers.stream().map(transfer -> transfer.source).collect(Collectors.toList());
+        if (this.signer == null) {
+            return Collections.nCopies(sources.size(), null);
+        }
+        if (this.signer instanceof JkGpg.JkSigner) {
+            return ((JkGpg.JkSigner) this.signer).signAll(sources);
+        }
+        return sources.stream().map(this.signer).collect(Collectors.toList());
+    }
+
+    // Computes all checksums reading the file once
+    private List<Transfer> withChecksumsAndSignature(Transfer transfer, Path signature, List<Path> tempFiles) {
+        final List<Transfer> result = new LinkedList<>();
+        result.add(transfer);
+        if (!checksumAlgos.isEmpty()) {
+            final List<String> algos = new ArrayList<>(checksumAlgos);
+            final String[] javaAlgos = algos.stream().map(IvyPublisherForMaven::javaAlgorithm).toArray(String[]::new);
+            final Map<String, String> checksums = JkPathFile.of(transfer.source).getChecksums(javaAlgos);
+            for (int i = 0; i < algos.size(); i++) {
+                final Path temp = JkUtilsPath.createTempFile("jk-checksum-", algos.get(i));
+                tempFiles.add(temp);
+                JkUtilsPath.write(temp, checksums.get(javaAlgos[i]).getBytes(StandardCharsets.US_ASCII));
+                result.add(new Transfer(temp, transfer.destination + "." + algos.get(i), transfer.overwrite));
+            }
+        }
+        if (signature != null) {
+            result.add(new Transfer(signature, transfer.destination + ".asc", transfer.overwrite));
+        }
+        return result;
+    }
+
+    // Transient failures, as network errors or server overload, are likely to vanish when trying again
+    private String put(Transfer transfer) throws IOException, InterruptedException {
+        final Repository repository = uploadRepositories.get();
+        final String dest = completePath(transfer.destination);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                repository.put(null, transfer.source.toFile(), dest, transfer.overwrite);
+                return dest;
+            } catch (final IOException e) {
+                if (attempt > uploadRetries || !isTransient(e)) {
+                    throw e;
+                }
+                Message.warn("Upload of " + dest + " failed (" + e.getMessage() + "). Trying again.");
+                Thread.sleep(RETRY_DELAY_MILLIS * attempt);
+            }
+        }
+    }
+
+    // Timeouts, broken connections and 5xx responses are worth trying again, unlike rejected uploads
+    static boolean isTransient(IOException e) {
+        if (e instanceof SocketTimeoutException || e instanceof SocketException) {
+            return true;
+        }
+        final Matcher matcher = STATUS_CODE_PATTERN.matcher(String.valueOf(e.getMessage()));
+        return matcher.find() && matcher.group(1).startsWith("5");
+    }
+
+    // Same repository as the resolver one, but dedicated to the calling thread
+    private Repository newUploadRepository() {
+        final RepositoryResolver uploadResolver = (RepositoryResolver) IvyTranslations.toPublishResolver(publishRepo);
+        uploadResolver.setSettings(ivy.getSettings());
+        return uploadResolver.getRepository();
+    }
+
+    // Ivy checksum algorithm names, as used for checksum file extensions, to Java ones
+    private static String javaAlgorithm(String algo) {
+        final String upperCase = algo.toUpperCase(Locale.ENGLISH);
+        if (upperCase.startsWith("SHA") && !upperCase.startsWith("SHA-")) {
+            return "SHA-" + upperCase.substring(3);
         }
+        return upperCase;
     }
 
     private String targetDir() {
         return this.descriptorOutputDir.toAbsolutePath().toString();
     }
 
+    private static void abortPublishTransaction(DependencyResolver resolver) {
+        try {
+            resolver.abortPublishTransaction();
+        } catch (final IOException e) {
+            JkLog.warn("Publish transaction hasn't been properly aborted");
+        }
+    }
+
     private static void commitPublication(DependencyResolver resolver) {
         try {
             resolver.commitPublishTransaction();
@@ -341,6 +476,22 @@ final class IvyPublisherForMaven {
         }
     }
 
+    private static final class Transfer {
+
+        private final Path source;
+
+        private final String destination;
+
+        private final boolean overwrite;
+
+        Transfer(Path source, String destination, boolean overwrite) {
+            this.source = source;
+            this.destination = destination;
+            this.overwrite = overwrite;
+        }
+
+    }
+
     private static class ScopeMapping extends PomWriterOptions.ConfigurationScopeMapping {
 
         public ScopeMapping() {
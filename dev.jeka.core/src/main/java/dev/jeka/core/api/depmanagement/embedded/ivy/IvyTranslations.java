@@ -154,6 +154,15 @@ final class IvyTranslations {
         throw new IllegalStateException(repo.getUrl() .getProtocol()+ " not handled for translating repo "+ repo);
     }
 
+    /**
+     * Creates a resolver equivalent to the one the main chain resolver holds for the specified repo.
+     */
+    static DependencyResolver toDownloadResolver(JkRepo repo) {
+        final DependencyResolver resolver = toResolver(repo, true);
+        resolver.setName(resolverName(repo));
+        return resolver;
+    }
+
     private static IBiblioResolver ibiblioResolver(JkRepo repo) {
         final IBiblioResolver result = new IBiblioResolver();
         result.setM2compatible(true);
@@ -200,12 +209,19 @@ final class IvyTranslations {
     static void populateIvySettingsWithPublishRepo(IvySettings ivySettings,
                                                    JkRepoSet repos) {
         for (final JkRepo publishRepo : repos.getRepoList()) {
-            final DependencyResolver resolver = toResolver(publishRepo,false);
-            resolver.setName(PUBLISH_RESOLVER_NAME + publishRepo.getUrl());
-            ivySettings.addResolver(resolver);
+            ivySettings.addResolver(toPublishResolver(publishRepo));
         }
     }
 
+    /**
+     * Creates a resolver equivalent to the one ivy settings hold for the specified publish repo.
+     */
+    static DependencyResolver toPublishResolver(JkRepo repo) {
+        final DependencyResolver resolver = toResolver(repo, false);
+        resolver.setName(PUBLISH_RESOLVER_NAME + repo.getUrl());
+        return resolver;
+    }
+
     static String publishResolverUrl(DependencyResolver resolver) {
         return resolver.getName().substring(PUBLISH_RESOLVER_NAME.length());
     }
@@ -221,13 +237,15 @@ final class IvyTranslations {
         return resolvers;
     }
 
+    static String resolverName(JkRepo repo) {
+        return repo.toString();
+    }
+
     @SuppressWarnings("unchecked")
     private static ChainResolver toChainResolver(JkRepoSet repos) {
         final ChainResolver chainResolver = new ChainResolver();
         for (final JkRepo jkRepo : repos.getRepoList()) {
-            final DependencyResolver resolver = toResolver(jkRepo, true);
-            resolver.setName(jkRepo.toString());
-            chainResolver.add(resolver);
+            chainResolver.add(toDownloadResolver(jkRepo));
         }
         return chainResolver;
     }
@@ -0,0 +1,465 @@
+package dev.jeka.core.api.file;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.PatternSyntaxException;
+
+/*
+ * Several glob patterns compiled into a single automaton, matching a path if it matches any of the patterns.
+ * Patterns follow the syntax and semantic of the glob patterns of Unix and zip file systems
+ * (see java.nio.file.FileSystem#getPathMatcher), except that '**' also matches line terminators.
+ *
+ * Patterns are translated into a non-deterministic automaton, whose state sets are turned lazily into
+ * deterministic states as paths are matched, so a path is matched in a single pass whatever the number of patterns.
+ * As paths are read from their start, the state reached after reading 'a/b/' tells if a path under 'a/b' can
+ * match at all, or if all paths under it match.
+ *
+ * Instances are thread safe.
+ */
+final class GlobAutomaton {
+
+    // Above this count, new deterministic states are computed for each transition but no more cached
+    private static final int MAX_CACHED_STATES = 10_000;
+
+    private static final CharSet ANY = c -> true;
+
+    private static final CharSet NOT_SEPARATOR = c -> c != '/';
+
+    private final List<NfaState> nfaStates = new ArrayList<>();
+
+    private final Map<BitSet, State> states = new ConcurrentHashMap<>();
+
+    private final State start;
+
+    private GlobAutomaton(Iterable<String> patterns) {
+        final NfaState nfaStart = newNfaState();
+        for (final String pattern : patterns) {
+            final NfaState patternStart = newNfaState();
+            nfaStart.epsilons.add(patternStart);
+            build(parse(pattern), patternStart).accepting = true;
+        }
+        markCoReachable();
+        final BitSet startSet = new BitSet();
+        addClosure(nfaStart, startSet);
+        start = state(startSet);
+    }
+
+    /*
+     * Throws a PatternSyntaxException if a pattern is invalid.
+     */
+    static GlobAutomaton of(Iterable<String> patterns) {
+        return new GlobAutomaton(patterns);
+    }
+
+    boolean matches(CharSequence path) {
+        return read(start, path).accepting;
+    }
+
+    /*
+     * Returns false if no path under the specified directory, whose path is relative as paths passed to
+     * #matches, can match. Returns true if some may match.
+     */
+    boolean mayMatchUnder(CharSequence dir) {
+        return read(start, dirPrefix(dir)).coReachable;
+    }
+
+    /*
+     * Returns true if all paths under the specified directory are known to match.
+     */
+    boolean matchesAllUnder(CharSequence dir) {
+        return read(start, dirPrefix(dir)).universal;
+    }
+
+    private static CharSequence dirPrefix(CharSequence dir) {
+        return dir.length() == 0 ? dir : dir + "/";
+    }
+
+    private State read(State from, CharSequence chars) {
+        State state = from;
+        for (int i = 0; i < chars.length() && !state.dead; i++) {
+            state = state.next(chars.charAt(i));
+        }
+        return state;
+    }
+
+    // ------------------------------ deterministic states -------------------------------------
+
+    private State state(BitSet nfaSet) {
+        final State state = states.get(nfaSet);
+        if (state != null) {
+            return state;
+        }
+        if (states.size() >= MAX_CACHED_STATES) {
+            return new State(nfaSet);
+        }
+        return states.computeIfAbsent(nfaSet, State::new);
+    }
+
+    private final class State {
+
+        private final BitSet nfaSet;
+
+        private final boolean accepting;
+
+        private final boolean coReachable;
+
+        private final boolean universal;
+
+        private final boolean dead;
+
+        private final AtomicReferenceArray<State> asciiTransitions = new AtomicReferenceArray<>(128);
+
+        private final Map<Character, State> transitions = new ConcurrentHashMap<>();
+
+        State(BitSet nfaSet) {
+            this.nfaSet = nfaSet;
+            boolean accepting = false;
+            boolean coReachable = false;
+            boolean universal = false;
+            for (int i = nfaSet.nextSetBit(0); i >= 0; i = nfaSet.nextSetBit(i + 1)) {
+                final NfaState nfaState = nfaStates.get(i);
+                accepting |= nfaState.accepting;
+                coReachable |= nfaState.coReachable;
+                universal |= nfaState.isUniversal();
+            }
+            this.accepting = accepting;
+            this.coReachable = coReachable;
+            this.universal = universal;
+            this.dead = nfaSet.isEmpty();
+        }
+
+        State next(char c) {
+            State result = c < 128 ? asciiTransitions.get(c) : transitions.get(c);
+            if (result != null) {
+                return result;
+            }
+            final BitSet nextSet = new BitSet();
+            for (int i = nfaSet.nextSetBit(0); i >= 0; i = nfaSet.nextSetBit(i + 1)) {
+                for (final Transition transition : nfaStates.get(i).transitions) {
+                    if (transition.charSet.contains(c)) {
+                        addClosure(transition.target, nextSet);
+                    }
+                }
+            }
+            result = state(nextSet);
+            if (c < 128) {
+                asciiTransitions.set(c, result);
+            } else if (states.size() < MAX_CACHED_STATES) {
+                transitions.put(c, result);
+            }
+            return result;
+        }
+
+    }
+
+    // ------------------------------ non-deterministic automaton ----------------------------------
+
+    private NfaState newNfaState() {
+        final NfaState result = new NfaState(nfaStates.size());
+        nfaStates.add(result);
+        return result;
+    }
+
+    private NfaState build(List<Element> elements, NfaState from) {
+        NfaState current = from;
+        for (final Element element : elements) {
+            current = element.build(current);
+        }
+        return current;
+    }
+
+    private void addClosure(NfaState nfaState, BitSet result) {
+        if (result.get(nfaState.index)) {
+            return;
+        }
+        result.set(nfaState.index);
+        for (final NfaState epsilon : nfaState.epsilons) {
+            addClosure(epsilon, result);
+        }
+    }
+
+    // Marks states from which an accepting state can be reached
+    private void markCoReachable() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (final NfaState nfaState : nfaStates) {
+                if (!nfaState.coReachable && nfaState.canReachCoReachable()) {
+                    nfaState.coReachable = true;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private static final class NfaState {
+
+        final int index;
+
+        final List<NfaState> epsilons = new ArrayList<>(1);
+
+        final List<Transition> transitions = new ArrayList<>(1);
+
+        boolean accepting;
+
+        boolean coReachable;
+
+        NfaState(int index) {
+            this.index = index;
+        }
+
+        boolean canReachCoReachable() {
+            if (accepting) {
+                return true;
+            }
+            for (final NfaState epsilon : epsilons) {
+                if (epsilon.coReachable) {
+                    return true;
+                }
+            }
+            for (final Transition transition : transitions) {
+                if (transition.target.coReachable) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Accepting state looping on any char, as the end of a pattern ending with '**'
+        boolean isUniversal() {
+            if (!accepting) {
+                return false;
+            }
+            for (final Transition transition : transitions) {
+                if (transition.target == this && transition.charSet == ANY) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+    private static final class Transition {
+
+        final CharSet charSet;
+
+        final NfaState target;
+
+        Transition(CharSet charSet, NfaState target) {
+            this.charSet = charSet;
+            this.target = target;
+        }
+    }
+
+    @FunctionalInterface
+    private interface CharSet {
+
+        boolean contains(char c);
+
+    }
+
+    // ----------------------------------------- parsing --------------------------------------------
+
+    private interface Element {
+
+        NfaState build(NfaState from);
+
+    }
+
+    // A char, or any repetition of a char when repeated is true
+    private final class CharElement implements Element {
+
+        final CharSet charSet;
+
+        final boolean repeated;
+
+        CharElement(CharSet charSet, boolean repeated) {
+            this.charSet = charSet;
+            this.repeated = repeated;
+        }
+
+        @Override
+        public NfaState build(NfaState from) {
+            final NfaState result = newNfaState();
+            if (repeated) {
+                from.epsilons.add(result);
+                result.transitions.add(new Transition(charSet, result));
+            } else {
+                from.transitions.add(new Transition(charSet, result));
+            }
+            return result;
+        }
+    }
+
+    private final class GroupElement implements Element {
+
+        final List<List<Element>> alternatives;
+
+        GroupElement(List<List<Element>> alternatives) {
+            this.alternatives = alternatives;
+        }
+
+        @Override
+        public NfaState build(NfaState from) {
+            final NfaState result = newNfaState();
+            for (final List<Element> alternative : alternatives) {
+                final NfaState alternativeStart = newNfaState();
+                from.epsilons.add(alternativeStart);
+                GlobAutomaton.this.build(alternative, alternativeStart).epsilons.add(result);
+            }
+            return result;
+        }
+    }
+
+    // Mirrors the glob translation of Unix and zip file systems, including their errors
+    private List<Element> parse(String glob) {
+        final List<Element> elements = new ArrayList<>();
+        List<List<Element>> group = null;
+        List<Element> current = elements;
+        int i = 0;
+        while (i < glob.length()) {
+            final char c = glob.charAt(i++);
+            switch (c) {
+                case '\\':
+                    if (i == glob.length()) {
+                        throw new PatternSyntaxException("No character to escape", glob, i - 1);
+                    }
+                    current.add(literal(glob.charAt(i++)));
+                    break;
+                case '[':
+                    i = parseClass(glob, i, current);
+                    break;
+                case '{':
+                    if (group != null) {
+                        throw new PatternSyntaxException("Cannot nest groups", glob, i - 1);
+                    }
+                    group = new ArrayList<>();
+                    current = new ArrayList<>();
+                    group.add(current);
+                    break;
+                case '}':
+                    if (group != null) {
+                        elements.add(new GroupElement(group));
+                        group = null;
+                        current = elements;
+                    } else {
+                        current.add(literal(c));
+                    }
+                    break;
+                case ',':
+                    if (group != null) {
+                        current = new ArrayList<>();
+                        group.add(current);
+                    } else {
+                        current.add(literal(c));
+                    }
+                    break;
+                case '*':
+                    if (i < glob.length() && glob.charAt(i) == '*') {
+                        current.add(new CharElement(ANY, true));
+                        i++;
+                    } else {
+                        current.add(new CharElement(NOT_SEPARATOR, true));
+                    }
+                    break;
+                case '?':
+                    current.add(new CharElement(NOT_SEPARATOR, false));
+                    break;
+                default:
+                    current.add(literal(c));
+            }
+        }
+        if (group != null) {
+            throw new PatternSyntaxException("Missing '}", glob, i - 1);
+        }
+        return elements;
+    }
+
+    private CharElement literal(char literal) {
+        return new CharElement(c -> c == literal, false);
+    }
+
+    // Parses a bracket expression starting after '[' and returns the index following ']'
+    private int parseClass(String glob, int start, List<Element> elements) {
+        int i = start;
+        boolean negated = false;
+        final StringBuilder ranges = new StringBuilder();  // pairs of range bounds
+        if (i < glob.length() && glob.charAt(i) == '^') {
+            ranges.append("^^");
+            i++;
+        } else {
+            if (i < glob.length() && glob.charAt(i) == '!') {
+                negated = true;
+                i++;
+            }
+            if (i < glob.length() && glob.charAt(i) == '-') {
+                ranges.append("--");
+                i++;
+            }
+        }
+        boolean hasRangeStart = false;
+        char last = 0;
+        char c = 0;
+        boolean closed = false;
+        while (i < glob.length()) {
+            c = glob.charAt(i++);
+            if (c == ']') {
+                closed = true;
+                break;
+            }
+            if (c == '/') {
+                throw new PatternSyntaxException("Explicit 'name separator' in class", glob, i - 1);
+            }
+            if (c == '-') {
+                if (!hasRangeStart) {
+                    throw new PatternSyntaxException("Invalid range", glob, i - 1);
+                }
+                if (i == glob.length()) {
+                    break;
+                }
+                c = glob.charAt(i++);
+                if (c == ']') {
+                    ranges.append("--");  // trailing '-' is a literal
+                    closed = true;
+                    break;
+                }
+                if (c < last) {
+                    throw new PatternSyntaxException("Invalid range", glob, i - 3);
+                }
+                ranges.setCharAt(ranges.length() - 1, c);
+                hasRangeStart = false;
+            } else {
+                ranges.append(c).append(c);
+                hasRangeStart = true;
+                last = c;
+            }
+        }
+        if (!closed) {
+            throw new PatternSyntaxException("Missing ']", glob, i - 1);
+        }
+        final char[] bounds = ranges.toString().toCharArray();
+        final boolean negatedClass = negated;
+        elements.add(new CharElement(ch -> ch != '/' && negatedClass != inRanges(bounds, ch), false));
+        return i;
+    }
+
+    private static boolean inRanges(char[] bounds, char c) {
+        for (int i = 0; i < bounds.length; i += 2) {
+            if (c >= bounds[i] && c <= bounds[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "automaton of " + nfaStates.size() + " states";
+    }
+
+}
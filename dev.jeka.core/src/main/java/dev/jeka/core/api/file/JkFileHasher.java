@@ -0,0 +1,257 @@
+package dev.jeka.core.api.file;
+
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsAssert;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Computes digests of files, memoizing them along the size and modification time of each file, so a file is read
+ * again only when it has changed. Several digests of a same file are computed in a single pass.<p>
+ *
+ * Memoized digests can be persisted in a store file (see {@link #of(Path)} and {@link #save()}), so they are
+ * reused across runs. Instances are thread safe.
+ */
+public final class JkFileHasher {
+
+    // Files modified less than this delay before being hashed are not memoized, as a modification within
+    // a same file system time unit could not be detected
+    private static final long RACY_DELAY = 2000;
+
+    // Above this count, entries not used since the store has been loaded are dropped when saving
+    private static final int MAX_STORED_ENTRIES = 100_000;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path storeFile;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Set<String> usedKeys = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean changed;
+
+    private JkFileHasher(Path storeFile) {
+        this.storeFile = storeFile;
+    }
+
+    /**
+     * Creates a hasher memoizing digests in memory only.
+     */
+    public static JkFileHasher of() {
+        return new JkFileHasher(null);
+    }
+
+    /**
+     * Creates a hasher memoizing digests in memory, initialized with the digests stored in the specified file,
+     * if it exists. Memoized digests are written back in this file by {@link #save()}.
+     */
+    public static JkFileHasher of(Path storeFile) {
+        final JkFileHasher result = new JkFileHasher(storeFile);
+        result.load();
+        return result;
+    }
+
+    /**
+     * Returns the hexadecimal digest of the specified file for the specified algorithm, as MD5, SHA-1 or SHA-256.
+     */
+    public String getDigest(Path file, String algorithm) {
+        return getDigests(file, algorithm).get(algorithm);
+    }
+
+    /**
+     * Returns the hexadecimal digests of the specified file, by algorithm. Digests not memoized yet are computed
+     * in a single read of the file.
+     */
+    public Map<String, String> getDigests(Path file, String... algorithms) {
+        final BasicFileAttributes attributes = attributes(file);
+        final String key = file.toAbsolutePath().normalize().toString();
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        final Entry memoized = entries.get(key);
+        final Entry entry = memoized != null && memoized.size == attributes.size()
+                && memoized.lastModified == lastModified ? memoized : new Entry(attributes.size(), lastModified);
+        final List<String> missingAlgorithms = Arrays.stream(algorithms)
+                .filter(algorithm -> !entry.digests.containsKey(algorithm))
+                .distinct()
+                .collect(Collectors.toList());
+        if (!missingAlgorithms.isEmpty()) {
+            entry.digests.putAll(digests(file, missingAlgorithms));
+            if (System.currentTimeMillis() - lastModified > RACY_DELAY) {
+                entries.put(key, entry);
+                changed = true;
+            }
+        }
+        usedKeys.add(key);
+        final Map<String, String> result = new LinkedHashMap<>();
+        for (final String algorithm : algorithms) {
+            result.put(algorithm, entry.digests.get(algorithm));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the hexadecimal digest of the files of the specified tree, computed from their relative paths and
+     * the digests of their content, so it does not depend on the tree location nor on walk order. File digests
+     * are computed in parallel.
+     */
+    public String getTreeDigest(JkPathTree tree, String algorithm) {
+        return getTreeDigest(JkPathTreeSet.of(tree), algorithm);
+    }
+
+    /**
+     * Same as {@link #getTreeDigest(JkPathTree, String)} but for all the trees of the specified tree set, in order.
+     */
+    public String getTreeDigest(JkPathTreeSet treeSet, String algorithm) {
+        final MessageDigest treeDigest = messageDigest(algorithm);
+        for (final JkPathTree tree : treeSet.toList()) {
+            update(treeDigest, "tree");
+            if (!tree.exists()) {
+                continue;
+            }
+            final Path root = tree.getRoot();
+            final SortedMap<String, String> fileDigests = new TreeMap<>();
+            try (Stream<Path> stream = tree.stream()) {
+                if (tree.isZip()) {  // zip entries are readable only while walking, and can not be memoized
+                    stream.filter(Files::isRegularFile).forEach(file -> fileDigests.put(relativePath(root, file),
+                            digests(file, Collections.singletonList(algorithm)).get(algorithm)));
+                } else {
+                    final List<Path> files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+                    fileDigests.putAll(files.parallelStream().collect(Collectors.toConcurrentMap(
+                            file -> relativePath(root, file), file -> getDigest(file, algorithm))));
+                }
+            }
+            fileDigests.forEach((relativePath, digest) -> {
+                update(treeDigest, relativePath);
+                update(treeDigest, digest);
+            });
+        }
+        return JkUtilsString.toHexString(treeDigest.digest());
+    }
+
+    /**
+     * Writes memoized digests in the store file this hasher has been created with, if some have been computed
+     * since it has been loaded. Does nothing for hashers not having a store file.
+     */
+    public JkFileHasher save() {
+        if (storeFile == null || !changed) {
+            return this;
+        }
+        final HashMap<String, Entry> stored = new HashMap<>(entries);
+        if (stored.size() > MAX_STORED_ENTRIES) {
+            stored.keySet().retainAll(usedKeys);
+        }
+        final Path parent = storeFile.toAbsolutePath().getParent();
+        JkUtilsPath.createDirectories(parent);
+        try {
+            final Path tempFile = Files.createTempFile(parent, storeFile.getFileName().toString(), ".tmp");
+            JkUtilsIO.serialize(stored, tempFile);
+            Files.move(tempFile, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        changed = false;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "file hasher" + (storeFile == null ? "" : " stored in " + storeFile);
+    }
+
+    /**
+     * Computes the digests of the specified file for the specified algorithms, reading it once. No memoization
+     * occurs.
+     */
+    static Map<String, String> digests(Path file, List<String> algorithms) {
+        final List<MessageDigest> messageDigests = algorithms.stream().map(JkFileHasher::messageDigest)
+                .collect(Collectors.toList());
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                for (final MessageDigest messageDigest : messageDigests) {
+                    messageDigest.update(buffer, 0, count);
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final Map<String, String> result = new LinkedHashMap<>();
+        for (int i = 0; i < algorithms.size(); i++) {
+            result.put(algorithms.get(i), JkUtilsString.toHexString(messageDigests.get(i).digest()));
+        }
+        return result;
+    }
+
+    private static MessageDigest messageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unknown digest algorithm " + algorithm, e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static String relativePath(Path root, Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    private static BasicFileAttributes attributes(Path file) {
+        JkUtilsAssert.argument(Files.isRegularFile(file), file + " is not a file.");
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(storeFile)) {
+            return;
+        }
+        try {
+            final Map<String, Entry> stored = JkUtilsIO.deserialize(storeFile);
+            entries.putAll(stored);
+        } catch (final RuntimeException e) {
+            JkLog.trace("Cannot read file hashes from " + storeFile + " : " + e.getMessage());
+        }
+    }
+
+    private static final class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final Map<String, String> digests = new ConcurrentHashMap<>();
+
+        Entry(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+}
@@ -2,23 +2,19 @@ package dev.jeka.core.api.file;
 
 import dev.jeka.core.api.utils.JkUtilsIO;
 import dev.jeka.core.api.utils.JkUtilsPath;
-import dev.jeka.core.api.utils.JkUtilsString;
-import dev.jeka.core.api.utils.JkUtilsThrowable;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.file.*;
 import java.nio.file.attribute.PosixFilePermission;
-import java.security.MessageDigest;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * A path standing for a file (not a directory). This class provides path methods relevant for files only.
@@ -78,13 +74,18 @@ public final class JkPathFile {
     public JkPathFile copyReplacingTokens(Path to, Map<String, String> tokens, Charset charset) {
         JkPathFile.of(to).createIfNotExist();
         if (tokens.isEmpty()) {
-            JkUtilsPath.copy(path, to, StandardCopyOption.REPLACE_EXISTING);
+            JkUtilsPath.transfer(path, to, StandardCopyOption.REPLACE_EXISTING);
             return this;
         }
-        try (Stream<String> stream = Files.lines(path, charset)) {
-            List<String> result = stream.map(line -> interpolated(line, tokens))
-                .collect(Collectors.toList());
-            Files.write(to, result, charset, StandardOpenOption.CREATE);
+
+        // Lines are interpolated one at a time, so the file is never loaded in memory
+        try (BufferedReader reader = Files.newBufferedReader(path, charset);
+             BufferedWriter writer = Files.newBufferedWriter(to, charset)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writer.write(interpolated(line, tokens));
+                writer.newLine();
+            }
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -143,20 +144,17 @@ public final class JkPathFile {
      * @param algorithm Hashing algorithm as MD5, SHA-2, ...
      */
     public String getChecksum(String algorithm) {
+        return getChecksums(algorithm).get(algorithm);
+    }
+
+    /**
+     * Returns ASCII string representations of the checksums of this file for the specified algorithms, by
+     * algorithm. This file is read once whatever the number of algorithms.
+     * @see JkFileHasher
+     */
+    public Map<String, String> getChecksums(String ... algorithms) {
         assertExist();
-        try (final InputStream is = Files.newInputStream(path)) {
-            final MessageDigest md = MessageDigest.getInstance(algorithm);
-            md.reset();
-            final byte[] buf = new byte[2048];
-            int len;
-            while ((len = is.read(buf)) != -1) {
-                md.update(buf, 0, len);
-            }
-            final byte[] bytes = md.digest();
-            return JkUtilsString.toHexString(bytes);
-        } catch (final Exception e) {
-            throw JkUtilsThrowable.unchecked(e);
-        }
+        return JkFileHasher.digests(path, Arrays.asList(algorithms));
     }
 
     /**
@@ -171,11 +169,10 @@ public final class JkPathFile {
      * Produces a files, in the same directory, that contains the checksum of this file.
      */
     public JkPathFile checksum(String ... algorithms) {
-        assertExist();
-        for (String algorithm : algorithms) {
-            final String fileName = this.path.getFileName().toString() + "." + algorithm.toLowerCase();
+        for (Map.Entry<String, String> entry : getChecksums(algorithms).entrySet()) {
+            final String fileName = this.path.getFileName().toString() + "." + entry.getKey().toLowerCase();
             JkPathFile.of(path.resolveSibling(fileName)).deleteIfExist().write(
-                    this.getChecksum(algorithm).getBytes(Charset.forName("ASCII")));
+                    entry.getValue().getBytes(Charset.forName("ASCII")));
         }
         return this;
     }
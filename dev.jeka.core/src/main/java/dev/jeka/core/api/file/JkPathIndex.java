@@ -0,0 +1,311 @@
+package dev.jeka.core.api.file;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Snapshot of the files and directories contained in a directory, along their size and modification time. The
+ * snapshot is built once by walking directories in parallel, then refreshed incrementally : a directory is listed
+ * again only if its modification time has changed, which happens when an entry is added, removed or renamed
+ * in it.<p>
+ *
+ * Indexes are shared : {@link #of(Path)} returns the same instance for a same directory, so several trees on
+ * a same directory, or several walks of a same tree, within a run benefit from a single walk. Only the most
+ * recently used indexes are kept, and all are discarded at the end of a run.
+ *
+ * @see JkPathTree#withIndex(boolean)
+ */
+public final class JkPathIndex {
+
+    static final int MAX_INDEXES = 64;
+
+    // Least recently used indexes are evicted first
+    private static final Map<Path, JkPathIndex> INDEXES = Collections.synchronizedMap(
+            new LinkedHashMap<Path, JkPathIndex>(16, 0.75f, true) {
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, JkPathIndex> eldest) {
+                    return size() > MAX_INDEXES;
+                }
+            });
+
+    private static final Path EMPTY_PATH = Paths.get("");
+
+    // Directories modified less than this delay before being listed are listed again on next refresh, as
+    // modifications within a same file system time unit can not be detected
+    private static final long RACY_DELAY = 2000;
+
+    private final Path root;
+
+    // Directory nodes by path relative to root
+    private final Map<Path, Dir> dirs = new ConcurrentHashMap<>();
+
+    private JkPathIndex(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the index of the specified directory, creating it if needed.
+     */
+    public static JkPathIndex of(Path dir) {
+        return INDEXES.computeIfAbsent(dir.toAbsolutePath().normalize(), JkPathIndex::new);
+    }
+
+    /**
+     * Discards all indexes, so memory is released and next usages start from a fresh walk.
+     */
+    public static void clearAll() {
+        INDEXES.clear();
+    }
+
+    /**
+     * Returns the root directory of this index.
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Refreshes the index, including size and modification time of files that have not been moved.
+     */
+    public JkPathIndex refresh() {
+        synchronized (this) {
+            refresh(true);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the paths, relative to the root, of all files and directories of this index, parent directories
+     * first and entries of a same directory sorted by name. The root directory is included as an empty path.
+     * Only directories are checked for changes before, so this is cheaper than {@link #getEntries()}.
+     */
+    public Stream<Path> stream() {
+        final List<Path> result = new ArrayList<>();
+        synchronized (this) {
+            refresh(false);
+            if (dirs.containsKey(EMPTY_PATH)) {
+                result.add(EMPTY_PATH);
+                collect(EMPTY_PATH, entry -> result.add(entry.relativePath));
+            }
+        }
+        return result.stream();
+    }
+
+    /**
+     * Returns the entries of all files and directories of this index, except the root, in {@link #stream()}
+     * order, after a full refresh.
+     */
+    public List<JkEntry> getEntries() {
+        return getEntries(true);
+    }
+
+    // Entries, without the root, after a refresh checking only directories unless fileAttributes is true
+    List<JkEntry> getEntries(boolean fileAttributes) {
+        final List<JkEntry> result = new ArrayList<>();
+        synchronized (this) {
+            refresh(fileAttributes);
+            if (dirs.containsKey(EMPTY_PATH)) {
+                collect(EMPTY_PATH, result::add);
+            }
+        }
+        return result;
+    }
+
+    private void refresh(boolean fileAttributes) {
+        final Visit visit = new Visit(EMPTY_PATH, fileAttributes);
+        if (ForkJoinPool.getCommonPoolParallelism() > 1) {
+            ForkJoinPool.commonPool().invoke(visit);
+        } else {
+            visit.compute();
+        }
+    }
+
+    private void collect(Path relativeDir, Consumer<JkEntry> consumer) {
+        for (final JkEntry entry : dirs.get(relativeDir).children.values()) {
+            consumer.accept(entry);
+            if (entry.directory && dirs.containsKey(entry.relativePath)) {
+                collect(entry.relativePath, consumer);
+            }
+        }
+    }
+
+    private void removeDir(Path relativeDir) {
+        final Dir dir = dirs.remove(relativeDir);
+        if (dir != null) {
+            dir.children.values().stream()
+                    .filter(entry -> entry.directory)
+                    .forEach(entry -> removeDir(entry.relativePath));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "index of " + root;
+    }
+
+    /**
+     * A file or directory of an index.
+     */
+    public static final class JkEntry {
+
+        private final Path relativePath;
+
+        private final boolean directory;
+
+        private volatile long size;
+
+        private volatile long lastModified;
+
+        private JkEntry(Path relativePath, BasicFileAttributes attributes) {
+            this.relativePath = relativePath;
+            this.directory = attributes.isDirectory();
+            update(attributes);
+        }
+
+        private void update(BasicFileAttributes attributes) {
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+        }
+
+        /**
+         * Returns the path of this entry, relative to the index root.
+         */
+        public Path getRelativePath() {
+            return relativePath;
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public String toString() {
+            return relativePath.toString();
+        }
+    }
+
+    private static final class Dir {
+
+        final long lastModified;
+
+        final long listedAt;
+
+        final SortedMap<String, JkEntry> children;
+
+        Dir(long lastModified, long listedAt, SortedMap<String, JkEntry> children) {
+            this.lastModified = lastModified;
+            this.listedAt = listedAt;
+            this.children = children;
+        }
+
+        boolean isUpToDate(BasicFileAttributes attributes) {
+            final long time = attributes.lastModifiedTime().toMillis();
+            return time == lastModified && listedAt - lastModified > RACY_DELAY;
+        }
+    }
+
+    // Refreshes a directory, then its sub-directories in parallel
+    private final class Visit extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path relativeDir;
+
+        private final boolean fileAttributes;
+
+        Visit(Path relativeDir, boolean fileAttributes) {
+            this.relativeDir = relativeDir;
+            this.fileAttributes = fileAttributes;
+        }
+
+        @Override
+        protected void compute() {
+            final Path dirPath = root.resolve(relativeDir);
+            final BasicFileAttributes attributes = readAttributes(dirPath);
+            if (attributes == null || !attributes.isDirectory()) {
+                removeDir(relativeDir);
+                return;
+            }
+            Dir dir = dirs.get(relativeDir);
+            if (dir == null || !dir.isUpToDate(attributes)) {
+                dir = list(dirPath, attributes, dir);
+                dirs.put(relativeDir, dir);
+            } else if (fileAttributes) {
+                for (final JkEntry entry : dir.children.values()) {
+                    if (!entry.directory) {
+                        final BasicFileAttributes entryAttributes = readAttributes(root.resolve(entry.relativePath));
+                        if (entryAttributes != null) {
+                            entry.update(entryAttributes);
+                        }
+                    }
+                }
+            }
+            final List<Visit> visits = new ArrayList<>();
+            for (final JkEntry entry : dir.children.values()) {
+                if (entry.directory) {
+                    visits.add(new Visit(entry.relativePath, fileAttributes));
+                }
+            }
+            if (getPool() != null) {
+                invokeAll(visits);
+            } else {
+                visits.forEach(Visit::compute);
+            }
+        }
+
+        private Dir list(Path dirPath, BasicFileAttributes attributes, Dir previous) {
+            final long listedAt = System.currentTimeMillis();
+            final SortedMap<String, JkEntry> children = new TreeMap<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dirPath)) {
+                for (final Path child : stream) {
+                    final BasicFileAttributes childAttributes = readAttributes(child);
+                    if (childAttributes != null) {
+                        final String name = child.getFileName().toString();
+                        children.put(name, new JkEntry(relativeDir.resolve(name), childAttributes));
+                    }
+                }
+            } catch (final NoSuchFileException e) {
+                // deleted meanwhile
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (previous != null) {
+                previous.children.forEach((name, entry) -> {
+                    final JkEntry child = children.get(name);
+                    if (entry.directory && (child == null || !child.directory)) {
+                        removeDir(entry.relativePath);
+                    }
+                });
+            }
+            return new Dir(attributes.lastModifiedTime().toMillis(), listedAt, children);
+        }
+
+        private BasicFileAttributes readAttributes(Path path) {
+            try {
+                return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (final NoSuchFileException e) {
+                return null;
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+}
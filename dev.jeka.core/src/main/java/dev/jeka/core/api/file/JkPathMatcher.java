@@ -1,12 +1,16 @@
 package dev.jeka.core.api.file;
 
 import java.nio.file.*;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.List;
 import java.util.function.Predicate;
 
 /**
- * A collection of PathMatcher commonly used each associated with a label for human recognising.
+ * A collection of PathMatcher commonly used each associated with a label for human recognising.<p>
+ *
+ * Glob patterns are compiled once in a single automaton, and matchers built from globs can tell if a directory may
+ * contain matching paths (see {@link #mayMatchUnder(Path)}), so file tree walks can skip directories that can not.
  */
 public final class JkPathMatcher implements PathMatcher {
 
@@ -16,14 +20,17 @@ public final class JkPathMatcher implements PathMatcher {
      * Creates an instance from a {@link PathMatcher} instance.
      */
     public static JkPathMatcher of(PathMatcher matcher) {
-        return new JkPathMatcher(matcher, "?");
+        if (matcher instanceof JkPathMatcher) {
+            return (JkPathMatcher) matcher;
+        }
+        return new JkPathMatcher(matcher, "?", false);
     }
 
     /**
      * A matcher accepting all entries.
      */
     public static JkPathMatcher of() {
-        return new JkPathMatcher(path -> true, "all");
+        return new JkPathMatcher(new AllMatcher(), "all", true);
     }
 
     /**
@@ -35,7 +42,7 @@ public final class JkPathMatcher implements PathMatcher {
                 return false;
             }
             return !Files.isDirectory(path, linkOptions);
-            }, "No directories");
+            }, "No directories", true);
     }
 
     /**
@@ -65,22 +72,15 @@ public final class JkPathMatcher implements PathMatcher {
      *                 If <code>false</code> matcher will accept files matching none of the specified pattern.
      */
     public static JkPathMatcher of(boolean positive, FileSystem fileSystem, Iterable<String> globPatterns) {
-        Iterator<String> it = globPatterns.iterator();
-        if (!it.hasNext()) {
+        if (!globPatterns.iterator().hasNext()) {
             return JkPathMatcher.of();
         }
-        String pattern = it.next();
-        PathMatcher result = path -> positive == globMatcher(fileSystem, pattern).matches(path);
-        while (it.hasNext()) {
-            String itPattern = it.next();
-            if (positive) {
-                result = new OrMatcher(result, globMatcher(fileSystem, itPattern));
-            } else {
-                result = new AndMatcher(result, path -> !globMatcher(fileSystem, itPattern).matches(path));
-            }
+        PathMatcher result = globMatcher(fileSystem, globPatterns);
+        if (!positive) {
+            result = new NotMatcher(result);
         }
         String name = positive ? "in" : "out";
-        return new JkPathMatcher(result, name + ":" + globPatterns);
+        return new JkPathMatcher(result, name + ":" + globPatterns, true);
     }
 
     // ---------------------------- fields and constructors
@@ -89,9 +89,13 @@ public final class JkPathMatcher implements PathMatcher {
 
     private final String label;
 
-    private JkPathMatcher(PathMatcher matcher, String label) {
+    // true if the label tells all about what is matched
+    private final boolean described;
+
+    private JkPathMatcher(PathMatcher matcher, String label, boolean described) {
         this.matcher = matcher;
         this.label = label;
+        this.described = described;
     }
 
     @Override
@@ -99,6 +103,15 @@ public final class JkPathMatcher implements PathMatcher {
         return label;
     }
 
+    /**
+     * Returns <code>true</code> if {@link #toString()} fully describes this matcher, so two matchers having the same
+     * description match the same paths. This is not the case if it has been created from a custom
+     * {@link PathMatcher}.
+     */
+    public boolean isDescribed() {
+        return described;
+    }
+
     /**
      * Returns this matcher as a {@link Predicate}
      */
@@ -113,16 +126,25 @@ public final class JkPathMatcher implements PathMatcher {
         return matcher.matches(path);
     }
 
+    /**
+     * Returns <code>false</code> if no path located under the specified directory can match this matcher, so
+     * walks can skip this directory. The directory is relative, as paths passed to {@link #matches(Path)},
+     * an empty path standing for the root. Returns <code>true</code> if some may match.
+     */
+    public boolean mayMatchUnder(Path relativeDir) {
+        return matchesUnder(matcher, relativeDir) != Under.NONE;
+    }
+
     // ---------------------------- adders ---------------------------------------
 
     public JkPathMatcher and(PathMatcher other) {
-        return new JkPathMatcher(new AndMatcher(this.matcher, other),
-                this.label + " && " + other.toString());
+        return new JkPathMatcher(new AndMatcher(this.matcher, unwrap(other)),
+                this.label + " && " + other.toString(), this.described && isDescribed(other));
     }
 
     public JkPathMatcher or(PathMatcher other) {
-        return new JkPathMatcher(new OrMatcher(this.matcher, other),
-                this.label + " || " + other.toString());
+        return new JkPathMatcher(new OrMatcher(this.matcher, unwrap(other)),
+                this.label + " || " + other.toString(), this.described && isDescribed(other));
     }
 
     public JkPathMatcher and(boolean positive, FileSystem fileSystem, String ...patterns) {
@@ -135,11 +157,98 @@ public final class JkPathMatcher implements PathMatcher {
 
     // --------------------------------------------- matcher
 
-    private static PathMatcher globMatcher(FileSystem fileSystem, String pattern) {
-        return fileSystem.getPathMatcher("glob:" + pattern);
+    private static PathMatcher globMatcher(FileSystem fileSystem, Iterable<String> patterns) {
+
+        // Unix and zip file systems share the glob syntax implemented by the automaton
+        if ("/".equals(fileSystem.getSeparator())
+                && (fileSystem == FileSystems.getDefault() || "jar".equals(fileSystem.provider().getScheme()))) {
+            return new GlobMatcher(GlobAutomaton.of(patterns));
+        }
+        List<PathMatcher> matchers = new ArrayList<>();
+        patterns.forEach(pattern -> matchers.add(fileSystem.getPathMatcher("glob:" + pattern)));
+        return path -> matchers.stream().anyMatch(matcher -> matcher.matches(path));
+    }
+
+    private static PathMatcher unwrap(PathMatcher matcher) {
+        return matcher instanceof JkPathMatcher ? ((JkPathMatcher) matcher).matcher : matcher;
+    }
+
+    private static Under matchesUnder(PathMatcher matcher, Path relativeDir) {
+        if (matcher instanceof PruningMatcher) {
+            return ((PruningMatcher) matcher).matchesUnder(relativeDir);
+        }
+        return matcher instanceof JkPathMatcher ? matchesUnder(((JkPathMatcher) matcher).matcher, relativeDir)
+                : Under.SOME;
+    }
+
+    // Tells if none, some or all of the paths under a directory match
+    private enum Under {
+        NONE, SOME, ALL
+    }
+
+    private interface PruningMatcher extends PathMatcher {
+
+        Under matchesUnder(Path relativeDir);
+
+    }
+
+    private static class AllMatcher implements PruningMatcher {
+
+        @Override
+        public boolean matches(Path path) {
+            return true;
+        }
+
+        @Override
+        public Under matchesUnder(Path relativeDir) {
+            return Under.ALL;
+        }
+    }
+
+    private static class GlobMatcher implements PruningMatcher {
+
+        private final GlobAutomaton automaton;
+
+        GlobMatcher(GlobAutomaton automaton) {
+            this.automaton = automaton;
+        }
+
+        @Override
+        public boolean matches(Path path) {
+            return automaton.matches(path.toString());
+        }
+
+        @Override
+        public Under matchesUnder(Path relativeDir) {
+            String dir = relativeDir.toString();
+            if (!automaton.mayMatchUnder(dir)) {
+                return Under.NONE;
+            }
+            return automaton.matchesAllUnder(dir) ? Under.ALL : Under.SOME;
+        }
     }
 
-    private static class AndMatcher implements PathMatcher {
+    private static class NotMatcher implements PruningMatcher {
+
+        private final PathMatcher pathMatcher;
+
+        NotMatcher(PathMatcher pathMatcher) {
+            this.pathMatcher = pathMatcher;
+        }
+
+        @Override
+        public boolean matches(Path path) {
+            return !pathMatcher.matches(path);
+        }
+
+        @Override
+        public Under matchesUnder(Path relativeDir) {
+            Under under = JkPathMatcher.matchesUnder(pathMatcher, relativeDir);
+            return under == Under.ALL ? Under.NONE : under == Under.NONE ? Under.ALL : Under.SOME;
+        }
+    }
+
+    private static class AndMatcher implements PruningMatcher {
 
         private final PathMatcher pathMatcher1;
         private final PathMatcher pathMatcher2;
@@ -153,9 +262,22 @@ public final class JkPathMatcher implements PathMatcher {
         public boolean matches(Path path) {
             return pathMatcher1.matches(path) && pathMatcher2.matches(path);
         }
+
+        @Override
+        public Under matchesUnder(Path relativeDir) {
+            Under under1 = JkPathMatcher.matchesUnder(pathMatcher1, relativeDir);
+            if (under1 == Under.NONE) {
+                return Under.NONE;
+            }
+            Under under2 = JkPathMatcher.matchesUnder(pathMatcher2, relativeDir);
+            if (under2 == Under.NONE) {
+                return Under.NONE;
+            }
+            return under1 == Under.ALL && under2 == Under.ALL ? Under.ALL : Under.SOME;
+        }
     }
 
-    private static class OrMatcher implements PathMatcher {
+    private static class OrMatcher implements PruningMatcher {
 
         private final PathMatcher pathMatcher1;
         private final PathMatcher pathMatcher2;
@@ -169,13 +291,29 @@ public final class JkPathMatcher implements PathMatcher {
         public boolean matches(Path path) {
             return pathMatcher1.matches(path) || pathMatcher2.matches(path);
         }
+
+        @Override
+        public Under matchesUnder(Path relativeDir) {
+            Under under1 = JkPathMatcher.matchesUnder(pathMatcher1, relativeDir);
+            if (under1 == Under.ALL) {
+                return Under.ALL;
+            }
+            Under under2 = JkPathMatcher.matchesUnder(pathMatcher2, relativeDir);
+            if (under2 == Under.ALL) {
+                return Under.ALL;
+            }
+            return under1 == Under.NONE && under2 == Under.NONE ? Under.NONE : Under.SOME;
+        }
     }
 
     // ------------------------------------- Other
 
     public JkPathMatcher reversed() {
-        PathMatcher matcher = path -> !this.matcher.matches(path);
-        return new JkPathMatcher(matcher, "Reverse of " + this.label);
+        return new JkPathMatcher(new NotMatcher(this.matcher), "Reverse of " + this.label, this.described);
+    }
+
+    private static boolean isDescribed(PathMatcher matcher) {
+        return matcher instanceof JkPathMatcher && ((JkPathMatcher) matcher).described;
     }
 
 }
@@ -10,8 +10,11 @@ import java.io.UncheckedIOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -49,18 +52,21 @@ public final class JkPathTree implements Closeable {
 
     private final JkPathMatcher matcher;
 
+    private final boolean indexed;
+
     private static JkPathTree of(Path rootDir, boolean zip) {
         return of(rootDir, ACCEPT_ALL, zip);
     }
 
     private static JkPathTree of(Path rootDirOrArchive, JkPathMatcher matcher, boolean zipFile) {
         final RootHolder rootHolder = zipFile ? RootHolder.ofZip(rootDirOrArchive) : RootHolder.ofDir(rootDirOrArchive);
-        return new JkPathTree(rootHolder, matcher);
+        return new JkPathTree(rootHolder, matcher, false);
     }
 
-    private JkPathTree(RootHolder rootHolder, JkPathMatcher matcher) {
+    private JkPathTree(RootHolder rootHolder, JkPathMatcher matcher, boolean indexed) {
         this.rootHolder = rootHolder;
         this.matcher = matcher;
+        this.indexed = indexed;
     }
 
     /**
@@ -93,6 +99,23 @@ public final class JkPathTree implements Closeable {
         return this.matcher == ACCEPT_ALL;
     }
 
+    /**
+     * Returns <code>true</code> if files of this tree are listed from a shared {@link JkPathIndex}.
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * Creates a copy of this {@link JkPathTree} listing its files from the shared {@link JkPathIndex} of its root
+     * directory, instead of walking the file system on each {@link #stream(FileVisitOption...)} invocation.
+     * Directories are checked for changes on each invocation, so the listing stays accurate. This has no effect
+     * on zip trees and when {@link FileVisitOption}s are specified.
+     */
+    public JkPathTree withIndex(boolean indexed) {
+        return new JkPathTree(rootHolder, this.matcher, indexed);
+    }
+
     // ------------------------------- functional ---------------------------------
 
     private Predicate<Path> excludeRootFilter() {
@@ -112,6 +135,11 @@ public final class JkPathTree implements Closeable {
         return rootHolder.exists();
     }
 
+    // Zip trees close their file system once streamed
+    boolean isZip() {
+        return rootHolder.isZip();
+    }
+
     /**
      * Creates root directory if not exists.
      */
@@ -135,7 +163,15 @@ public final class JkPathTree implements Closeable {
             return new LinkedList<Path>().stream();
         }
         final JkPathMatcher matcher = JkPathMatcher.of(this.matcher);
-        return JkUtilsPath.walk(getRoot(), options)
+        if (indexed && !rootHolder.isZip() && options.length == 0) {
+            final Path root = getRoot();
+            return JkPathIndex.of(root).stream()
+                    .filter(matcher::matches)
+                    .map(root::resolve);
+        }
+        final Stream<Path> walk = options.length == 0 ? PrunedWalk.stream(getRoot(), matcher)
+                : JkUtilsPath.walk(getRoot(), options);
+        return walk
                 .filter(path -> matcher.matches(getRoot().relativize(path)))
                 .onClose(() -> rootHolder.closeIfNeeded());
     }
@@ -171,7 +207,7 @@ public final class JkPathTree implements Closeable {
             throw new IllegalArgumentException(getRoot() + "/" + relativePath + " is not a directory");
         }
         RootHolder rootHolder = new RootHolder(this.rootHolder.zipFile, path);
-        return new JkPathTree(rootHolder, this.matcher);
+        return new JkPathTree(rootHolder, this.matcher, this.indexed);
     }
 
     /**
@@ -181,7 +217,7 @@ public final class JkPathTree implements Closeable {
     public JkPathTree resolvedTo(Path newRoot) {
         final Path path = newRoot.resolve(getRoot()).normalize();
         RootHolder rootHolder = new RootHolder(this.rootHolder.zipFile, path);
-        return new JkPathTree(rootHolder, this.matcher);
+        return new JkPathTree(rootHolder, this.matcher, this.indexed);
     }
 
     /**
@@ -317,22 +353,7 @@ public final class JkPathTree implements Closeable {
      * already exists, the content of this tree is appended to the existing archive, overriding existing entries within the archive.
      */
     public JkPathTree zipTo(Path destination) {
-        if (destination.getParent() != null) {
-            JkUtilsPath.createDirectories(destination.getParent());
-        }
-        final Path zipRootEntry = JkUtilsPath.zipRoot(destination);
-        try (Stream<Path> stream = this.stream()) {
-            stream.filter(excludeRootFilter()).forEach(path -> {
-                Path zipEntry = zipRootEntry.resolve(getRoot().relativize(path).toString());
-                if (!Files.exists(zipEntry) || !Files.isDirectory(zipEntry)) {
-                    JkUtilsPath.createDirectories(zipEntry.getParent());
-                    JkUtilsPath.copy(path, zipEntry, StandardCopyOption.REPLACE_EXISTING);
-                }
-            });
-            zipRootEntry.getFileSystem().close();
-        } catch (IOException e) {
-           throw new UncheckedIOException(e);
-        }
+        toSet().zipTo(destination);
         return this;
     }
 
@@ -343,7 +364,83 @@ public final class JkPathTree implements Closeable {
         if (!Files.exists(destinationDir)) {
             JkUtilsPath.createDirectories(destinationDir);
         }
-        return JkUtilsPath.copyDirContent(getRoot(), destinationDir, matcher, copyOptions);
+        return JkUtilsPath.copyDirContent(getRoot(), destinationDir, matcher, matcher::mayMatchUnder, copyOptions);
+    }
+
+    /**
+     * Makes the specified directory a mirror of this {@link JkPathTree} : files that are missing in the directory,
+     * or differ in size or modification time, are copied along their modification time, so unchanged files are
+     * not copied again on next invocation. Files and directories of the specified directory that are not part
+     * of this tree are deleted.
+     * @return The count of copied files.
+     */
+    public int syncTo(Path destinationDir) {
+        JkUtilsPath.createDirectories(destinationDir);
+        final Set<Path> expected = new HashSet<>();
+        final AtomicInteger count = new AtomicInteger();
+        try (Stream<Path> stream = stream()) {
+            stream.forEach(path -> {
+                final Path relativePath = getRoot().relativize(path);
+                if (relativePath.toString().isEmpty()) {
+                    return;
+                }
+                final Path target = destinationDir.resolve(relativePath.toString());
+                Path current = target;  // parents of matched files are part of the mirror
+                while (!current.equals(destinationDir) && expected.add(current)) {
+                    current = current.getParent();
+                }
+                if (Files.isDirectory(path)) {
+                    JkUtilsPath.createDirectories(target);
+                } else if (!isSameSizeAndTime(path, target)) {
+                    copyWithTime(path, target);
+                    count.incrementAndGet();
+                }
+            });
+        }
+        JkUtilsPath.walkFileTree(destinationDir, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (!expected.contains(file)) {
+                    JkUtilsPath.deleteFile(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                if (!dir.equals(destinationDir) && !expected.contains(dir)) {
+                    JkUtilsPath.deleteFile(dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+        });
+        return count.get();
+    }
+
+    private static void copyWithTime(Path source, Path target) {
+        JkUtilsPath.createDirectories(target.getParent());
+        JkUtilsPath.transfer(source, target, StandardCopyOption.REPLACE_EXISTING);
+        try {
+            Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isSameSizeAndTime(Path source, Path target) {
+        try {
+            final BasicFileAttributes targetAttributes = Files.readAttributes(target, BasicFileAttributes.class);
+            final BasicFileAttributes sourceAttributes = Files.readAttributes(source, BasicFileAttributes.class);
+            return targetAttributes.isRegularFile() && targetAttributes.size() == sourceAttributes.size()
+                    && targetAttributes.lastModifiedTime().toMillis()
+                    == sourceAttributes.lastModifiedTime().toMillis();
+        } catch (final NoSuchFileException e) {
+            return false;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
@@ -365,7 +462,7 @@ public final class JkPathTree implements Closeable {
      * Creates a copy of this {@link JkPathTree} augmented with the specified {@link JkPathMatcher}
      */
     public JkPathTree andMatcher(PathMatcher pathMatcher) {
-        return new JkPathTree(rootHolder, this.matcher.and(pathMatcher));
+        return new JkPathTree(rootHolder, this.matcher.and(pathMatcher), this.indexed);
     }
 
     /**
@@ -373,7 +470,7 @@ public final class JkPathTree implements Closeable {
      * but the matcher is replaced with the specified one.
      */
     public JkPathTree withMatcher(JkPathMatcher pathMatcher) {
-        return new JkPathTree(rootHolder, pathMatcher);
+        return new JkPathTree(rootHolder, pathMatcher, this.indexed);
     }
 
     /**
@@ -408,7 +505,15 @@ public final class JkPathTree implements Closeable {
         if (!exists()) {
             return 0;
         }
-        return JkUtilsPath.childrenCount(getRoot(), max, includeDirectories, this.matcher);
+        if (indexed && !rootHolder.isZip()) {
+            return (int) JkPathIndex.of(getRoot()).getEntries(false).stream()
+                    .filter(entry -> includeDirectories || !entry.isDirectory())
+                    .filter(entry -> matcher.matches(entry.getRelativePath()))
+                    .limit(max + 1L)
+                    .count();
+        }
+        return JkUtilsPath.childrenCount(getRoot(), max, includeDirectories, this.matcher,
+                this.matcher::mayMatchUnder);
     }
 
     /**
@@ -417,7 +522,7 @@ public final class JkPathTree implements Closeable {
      * resolved from the specified path to this root.
      */
     public JkPathTree resolve(Path path) {
-        return new JkPathTree(rootHolder.resolve(path), this.matcher);
+        return new JkPathTree(rootHolder.resolve(path), this.matcher, this.indexed);
     }
 
 
@@ -3,11 +3,12 @@ package dev.jeka.core.api.file;
 import dev.jeka.core.api.utils.JkUtilsIterable;
 import dev.jeka.core.api.utils.JkUtilsPath;
 
-import java.nio.file.CopyOption;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.PathMatcher;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
 import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
 
 /**
  * A set of {@link JkPathTree}.
@@ -16,6 +17,8 @@ import java.util.*;
  */
 public final class JkPathTreeSet {
 
+    private static final String MANIFEST_ENTRY = "META-INF/MANIFEST.MF";
+
     private final List<JkPathTree> pathTrees;
 
     private JkPathTreeSet(List<JkPathTree> dirs) {
@@ -127,6 +130,18 @@ public final class JkPathTreeSet {
         return new JkPathTreeSet(list);
     }
 
+    /**
+     * Creates a copy of this {@link JkPathTreeSet} whose trees list their files from shared indexes.
+     * @see JkPathTree#withIndex(boolean)
+     */
+    public JkPathTreeSet withIndex(boolean indexed) {
+        final List<JkPathTree> list = new LinkedList<>();
+        for (final JkPathTree tree : this.pathTrees) {
+            list.add(tree.withIndex(indexed));
+        }
+        return new JkPathTreeSet(list);
+    }
+
     // ------------------------- Replacing filter ----------------------------------
 
     /**
@@ -136,7 +151,8 @@ public final class JkPathTreeSet {
     public JkPathTreeSet withMatcher(PathMatcher matcher) {
         final List<JkPathTree> list = new LinkedList<>();
         for (final JkPathTree tree : this.pathTrees) {
-            list.add(JkPathTree.of(tree.getRoot()).withMatcher(JkPathMatcher.of(matcher)));
+            list.add(JkPathTree.of(tree.getRoot()).withMatcher(JkPathMatcher.of(matcher))
+                    .withIndex(tree.isIndexed()));
         }
         return new JkPathTreeSet(list);
     }
@@ -186,13 +202,103 @@ public final class JkPathTreeSet {
     // ----------------------- write out ---------------------------------------------
 
     /**
-     * Zips the content of all trees involved in this set.
+     * Zips the content of all trees involved in this set. If the specified destination file already exists, the
+     * content of this set is appended to the existing archive, overriding existing entries within the archive.
+     * When several trees contain a same entry, the one of the last tree is kept.
      */
-    public JkPathTreeSet zipTo(Path dir) {
-        this.pathTrees.forEach(tree -> tree.zipTo(dir));
+    public JkPathTreeSet zipTo(Path destination) {
+        return zipTo(destination, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Same as {@link #zipTo(Path)} but specifying the compression level.
+     * @see JkZipWriter#setCompressionLevel(int)
+     */
+    public JkPathTreeSet zipTo(Path destination, int compressionLevel) {
+        if (!Files.exists(destination)) {
+            try (JkZipWriter writer = JkZipWriter.of(destination).setCompressionLevel(compressionLevel)) {
+                zipTo(writer);
+            }
+            return this;
+        }
+        final Path temp = destination.resolveSibling(destination.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+
+            // Existing entries are copied without being inflated and deflated again
+            try (JkZipArchive existingArchive = JkZipArchive.of(destination);
+                 JkZipWriter writer = JkZipWriter.of(temp).setCompressionLevel(compressionLevel)) {
+                zipTo(writer);
+                try {
+                    existingArchive.getEntries().forEach(entry -> writer.putZipEntry(existingArchive, entry));
+                } catch (final RuntimeException | Error e) {
+                    writer.discard();
+                    throw e;
+                }
+            }
+            Files.move(temp, destination, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            JkUtilsPath.deleteIfExists(temp);
+        }
         return this;
     }
 
+    /**
+     * Writes the content of all trees involved in this set to the specified writer, walking each tree once. When
+     * several trees contain a same entry, the one of the last tree is written. The manifest entry, if any, is
+     * written first so it can be read by {@link java.util.jar.JarInputStream}, then trees are written from the last
+     * one to the first one, entries of each tree being sorted by name, so the result does not depend on the file
+     * system walk order. If writing fails, the writer is {@link JkZipWriter#discard() discarded}.
+     */
+    public JkPathTreeSet zipTo(JkZipWriter writer) {
+        try {
+            return doZipTo(writer);
+        } catch (final RuntimeException | Error e) {
+            writer.discard();
+            throw e;
+        }
+    }
+
+    private JkPathTreeSet doZipTo(JkZipWriter writer) {
+        putManifest(writer);
+
+        // The writer ignores entries already added, so the last tree wins. Paths of zip trees are usable only
+        // while the stream is open.
+        for (int i = pathTrees.size() - 1; i >= 0; i--) {
+            final JkPathTree tree = pathTrees.get(i);
+            try (Stream<Path> stream = tree.stream()) {
+                stream.sorted(Comparator.comparing(path -> entryName(tree, path))).forEach(path -> {
+                    final String name = entryName(tree, path);
+                    if (name.isEmpty()) {
+                        return;
+                    }
+                    if (Files.isDirectory(path)) {
+                        writer.putDirectory(name);
+                    } else {
+                        writer.putFile(name, path);
+                    }
+                });
+            }
+        }
+        return this;
+    }
+
+    // Looks up the manifest directly, so trees are not walked for it
+    private void putManifest(JkZipWriter writer) {
+        for (int i = pathTrees.size() - 1; i >= 0; i--) {
+            final JkPathTree tree = pathTrees.get(i);
+            if (!tree.exists()) {
+                continue;
+            }
+            final Path manifest = tree.get(MANIFEST_ENTRY);
+            if (Files.isRegularFile(manifest) && tree.getMatcher().matches(tree.getRoot().relativize(manifest))) {
+                writer.putFile(MANIFEST_ENTRY, manifest);
+                return;
+            }
+        }
+    }
+
     /**
      * Copies the content of all trees involved in this set.
      */
@@ -296,4 +402,12 @@ public final class JkPathTreeSet {
         } else return pathTrees.equals(other.pathTrees);
     }
 
+    private static String entryName(JkPathTree tree, Path path) {
+        final StringJoiner result = new StringJoiner("/");
+        for (final Path name : tree.getRoot().relativize(path)) {
+            result.add(name.toString());
+        }
+        return result.toString();
+    }
+
 }
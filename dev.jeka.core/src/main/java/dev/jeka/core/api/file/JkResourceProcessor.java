@@ -121,7 +121,7 @@ public final class JkResourceProcessor<T> {
      */
     public void generate(JkPathTreeSet resourceTrees, Path outputDir) {
         JkLog.startTask("Copy resource files to %s", outputDir);
-        for (final JkPathTree resourceTree : resourceTrees.toList()) {
+        for (final JkPathTree resourceTree : resourceTrees.withIndex(true).toList()) {
             final AtomicInteger count = new AtomicInteger(0);
             if (!resourceTree.exists()) {
                 continue;
@@ -144,6 +144,34 @@ public final class JkResourceProcessor<T> {
         JkLog.endTask();
     }
 
+    /**
+     * Same as {@link #generate(JkPathTreeSet, Path)} but processing only resources that have changed, or whose
+     * interpolated values have changed, since the last generation made with the specified state file. Outputs
+     * modified meanwhile are generated again, and outputs of removed resources are deleted. When sizes and
+     * modification times differ, resources copied without interpolation are compared to their outputs before
+     * being copied again.
+     *
+     * @param stateFile File storing sizes and modification times of resources and outputs of the last
+     *                  generation. It is created if absent.
+     */
+    public void generateIncrementally(JkPathTreeSet resourceTrees, Path outputDir, Path stateFile) {
+        JkLog.startTask("Synchronize resource files to %s", outputDir);
+        final ResourceSync resourceSync = new ResourceSync(stateFile);
+        resourceSync.sync(resourceTrees, outputDir, path -> JkInterpolator.of(path, interpolators),
+                interpolationCharset);
+        JkLog.info("%s processed, %d up to date, %d stale deleted.",
+                JkUtilsString.plurialize(resourceSync.getProcessed(), "file"), resourceSync.getUpToDate(),
+                resourceSync.getDeleted());
+        JkLog.endTask();
+    }
+
+    /**
+     * Returns <code>true</code> if some resources are interpolated, <code>false</code> if they are copied as is.
+     */
+    public boolean hasInterpolators() {
+        return !interpolators.isEmpty();
+    }
+
     /**
      * Defines values to be interpolated (replacing key by their
      * value), and the file filter to apply it. Keys are generally formatted as <code>${keyName}</code>
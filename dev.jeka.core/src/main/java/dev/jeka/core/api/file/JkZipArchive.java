@@ -0,0 +1,329 @@
+package dev.jeka.core.api.file;
+
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsZip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Read-only access to the entries of a zip archive, giving their compressed data as is, so they can be copied
+ * to another archive without being inflated and deflated again (see
+ * {@link JkZipWriter#putCompressed(String, JkZipWriter.JkCompressedContent, long)}). Entry data can be read
+ * concurrently. Only stored and deflated entries are supported.
+ */
+public final class JkZipArchive implements Closeable {
+
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int END_SIZE = 22;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private final Path file;
+
+    private final FileChannel channel;
+
+    private final List<JkEntry> entries;
+
+    private JkZipArchive(Path file, FileChannel channel, List<JkEntry> entries) {
+        this.file = file;
+        this.channel = channel;
+        this.entries = entries;
+    }
+
+    /**
+     * Opens the specified archive, reading its central directory.
+     */
+    public static JkZipArchive of(Path file) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            return new JkZipArchive(file, channel, readCentralDirectory(file, channel));
+        } catch (final IOException e) {
+            JkUtilsIO.closeQuietly(channel);
+            throw new UncheckedIOException("Error while reading zip archive " + file, e);
+        } catch (final RuntimeException e) {
+            JkUtilsIO.closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the file of this archive.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the entries of this archive in central directory order.
+     */
+    public List<JkEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the compressed content of the specified entry, as is.
+     */
+    public JkZipWriter.JkCompressedContent readCompressed(JkEntry entry) {
+        final byte[] data = readData(entry);
+        if (entry.method == ZipEntry.STORED) {
+            return JkZipWriter.JkCompressedContent.ofStored(data, entry.crc);
+        }
+        return JkZipWriter.JkCompressedContent.ofDeflated(data, entry.crc, entry.size);
+    }
+
+    /**
+     * Returns the uncompressed content of the specified entry.
+     */
+    public byte[] read(JkEntry entry) {
+        final byte[] data = readData(entry);
+        if (entry.method == ZipEntry.STORED) {
+            return data;
+        }
+        final Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            final ByteArrayOutputStream result = new ByteArrayOutputStream((int) Math.min(entry.size, 1 << 20));
+            final byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                final int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated entry " + entry.name + " in " + file);
+                }
+                result.write(buffer, 0, count);
+            }
+            return result.toByteArray();
+        } catch (final DataFormatException e) {
+            throw new IllegalStateException("Corrupted entry " + entry.name + " in " + file, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public void close() {
+        JkUtilsIO.closeQuietly(channel);
+    }
+
+    private byte[] readData(JkEntry entry) {
+        try {
+            final ByteBuffer localHeader = read(entry.localHeaderOffset, LOCAL_HEADER_SIZE);
+            if (localHeader.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+                throw new IllegalStateException("Invalid local header for entry " + entry.name + " in " + file);
+            }
+            final long dataOffset = entry.localHeaderOffset + LOCAL_HEADER_SIZE
+                    + (localHeader.getShort(26) & 0xFFFF) + (localHeader.getShort(28) & 0xFFFF);
+            if (entry.compressedSize > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Entry " + entry.name + " in " + file + " is too large.");
+            }
+            return read(dataOffset, (int) entry.compressedSize).array();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Error while reading zip archive " + file, e);
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        return read(channel, position, length);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of zip archive");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static List<JkEntry> readCentralDirectory(Path file, FileChannel channel) throws IOException {
+        final long fileSize = channel.size();
+        if (fileSize < END_SIZE) {
+            throw new IllegalStateException(file + " is not a zip archive.");
+        }
+
+        // Find the end of central directory record, possibly followed by a comment
+        final int tailSize = (int) Math.min(fileSize, END_SIZE + 0xFFFF);
+        final ByteBuffer tail = read(channel, fileSize - tailSize, tailSize);
+        int endIndex = -1;
+        for (int i = tailSize - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIGNATURE) {
+                endIndex = i;
+                break;
+            }
+        }
+        if (endIndex < 0) {
+            throw new IllegalStateException(file + " is not a zip archive.");
+        }
+        final long endOffset = fileSize - tailSize + endIndex;
+        long count = tail.getShort(endIndex + 10) & 0xFFFF;
+        long centralDirectorySize = tail.getInt(endIndex + 12) & ZIP64_MAGIC;
+        long centralDirectoryOffset = tail.getInt(endIndex + 16) & ZIP64_MAGIC;
+        long centralDirectoryEnd = endOffset;
+        if (endOffset >= 20) {
+            final ByteBuffer locator = read(channel, endOffset - 20, 20);
+            if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                final long zip64EndOffset = locator.getLong(8);
+                final ByteBuffer zip64End = read(channel, zip64EndOffset, 56);
+                if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+                    throw new IllegalStateException("Invalid zip64 end of central directory in " + file);
+                }
+                count = zip64End.getLong(32);
+                centralDirectorySize = zip64End.getLong(40);
+                centralDirectoryOffset = zip64End.getLong(48);
+                centralDirectoryEnd = zip64EndOffset;
+            }
+        }
+
+        // Offsets are shifted when some data precedes the archive (as a launch script)
+        final long shift = centralDirectoryEnd - centralDirectorySize - centralDirectoryOffset;
+        if (centralDirectorySize > Integer.MAX_VALUE || shift < 0) {
+            throw new IllegalStateException("Invalid central directory in " + file);
+        }
+        final ByteBuffer centralDirectory = read(channel, centralDirectoryOffset + shift, (int) centralDirectorySize);
+        final List<JkEntry> result = new ArrayList<>((int) Math.min(count, 1 << 16));
+        int index = 0;
+        while (index + 46 <= centralDirectorySize && centralDirectory.getInt(index) == CENTRAL_HEADER_SIGNATURE) {
+            final int flags = centralDirectory.getShort(index + 8) & 0xFFFF;
+            final int method = centralDirectory.getShort(index + 10) & 0xFFFF;
+            final long dosTime = centralDirectory.getInt(index + 12) & ZIP64_MAGIC;
+            final long crc = centralDirectory.getInt(index + 16) & ZIP64_MAGIC;
+            long compressedSize = centralDirectory.getInt(index + 20) & ZIP64_MAGIC;
+            long size = centralDirectory.getInt(index + 24) & ZIP64_MAGIC;
+            final int nameLength = centralDirectory.getShort(index + 28) & 0xFFFF;
+            final int extraLength = centralDirectory.getShort(index + 30) & 0xFFFF;
+            final int commentLength = centralDirectory.getShort(index + 32) & 0xFFFF;
+            long localHeaderOffset = centralDirectory.getInt(index + 42) & ZIP64_MAGIC;
+            final byte[] nameBytes = new byte[nameLength];
+            centralDirectory.position(index + 46);
+            centralDirectory.get(nameBytes);
+            final String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            // Zip64 extended information, present only for the fields that overflow
+            int extraIndex = index + 46 + nameLength;
+            final int extraEnd = extraIndex + extraLength;
+            while (extraIndex + 4 <= extraEnd) {
+                final int tag = centralDirectory.getShort(extraIndex) & 0xFFFF;
+                final int dataSize = centralDirectory.getShort(extraIndex + 2) & 0xFFFF;
+                if (tag == 1) {
+                    int fieldIndex = extraIndex + 4;
+                    if (size == ZIP64_MAGIC) {
+                        size = centralDirectory.getLong(fieldIndex);
+                        fieldIndex += 8;
+                    }
+                    if (compressedSize == ZIP64_MAGIC) {
+                        compressedSize = centralDirectory.getLong(fieldIndex);
+                        fieldIndex += 8;
+                    }
+                    if (localHeaderOffset == ZIP64_MAGIC) {
+                        localHeaderOffset = centralDirectory.getLong(fieldIndex);
+                    }
+                }
+                extraIndex += 4 + dataSize;
+            }
+            if ((flags & 1) != 0) {
+                throw new IllegalStateException("Encrypted entry " + name + " in " + file + " is not supported.");
+            }
+            if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED) {
+                throw new IllegalStateException("Compression method " + method + " of entry " + name + " in "
+                        + file + " is not supported.");
+            }
+            result.add(new JkEntry(name, method, dosTime, crc, compressedSize, size, localHeaderOffset + shift));
+            index += 46 + nameLength + extraLength + commentLength;
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * An entry of a {@link JkZipArchive}, as described in its central directory.
+     */
+    public static final class JkEntry {
+
+        private final String name;
+
+        private final int method;
+
+        private final long dosTime;
+
+        private final long crc;
+
+        private final long compressedSize;
+
+        private final long size;
+
+        private final long localHeaderOffset;
+
+        private JkEntry(String name, int method, long dosTime, long crc, long compressedSize, long size,
+                      long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the compression method, either {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}.
+         */
+        public int getMethod() {
+            return method;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+
+        /**
+         * Returns the uncompressed size.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        /**
+         * Returns the modification time, in milliseconds since epoch.
+         */
+        public long getTime() {
+            return JkUtilsZip.dosToJavaTime(dosTime);
+        }
+
+    }
+
+}
@@ -0,0 +1,633 @@
+package dev.jeka.core.api.file;
+
+import dev.jeka.core.api.utils.JkUtilsAssert;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsZip;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writes a zip archive in a single pass : entries are compressed and streamed to a temporary file next to the
+ * archive file as they are added. On {@link #close()}, the central directory is written and the temporary file is
+ * moved in place of the archive file. The archive content is never read back.<p>
+ *
+ * If adding an entry fails, or if {@link #discard()} is invoked, the temporary file is deleted on close and the
+ * archive file is left untouched, so a failure never leaves a truncated archive that looks valid.<p>
+ *
+ * An entry name can be added only once : adding an entry having the name of an already added one has no effect.
+ * Parent directory entries are added automatically. Entries having an extension of already compressed content
+ * (as jar or png) are stored without compression.<p>
+ *
+ * Content can be compressed beforehand, possibly concurrently, using {@link #compress(String, byte[])} then added
+ * with {@link #putCompressed(String, JkCompressedContent, long)}. This also allows to copy entries from other
+ * archives without inflating and deflating them again.<p>
+ *
+ * No file permission nor extra field is recorded, so the archive content depends only on entry names, contents
+ * and times, in the order they are added. Using {@link #setFixedTime(Long)}, archives created from identical
+ * entries are identical byte for byte.
+ */
+public final class JkZipWriter implements Closeable {
+
+    /**
+     * Default extensions of files stored without compression.
+     */
+    public static final List<String> DEFAULT_STORED_EXTENSIONS = Collections.unmodifiableList(Arrays.asList(
+            "jar", "war", "ear", "zip", "gz", "tgz", "bz2", "xz", "7z", "png", "jpg", "jpeg", "gif", "webp",
+            "mp3", "mp4", "woff", "woff2"));
+
+    /**
+     * Time conventionally given to entries of reproducible archives : 1980-02-01 00:00, local time, so the
+     * stored MS-DOS date-time does not depend on the time zone.
+     */
+    public static final long REPRODUCIBLE_TIME = LocalDateTime.of(1980, 2, 1, 0, 0)
+            .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int DATA_DESCRIPTOR_FLAG = 1 << 3;
+
+    private static final int UTF8_FLAG = 1 << 11;
+
+    private static final int VERSION = 20;
+
+    private static final int ZIP64_VERSION = 45;
+
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private static final int DIRECTORY_ATTRIBUTE = 0x10;
+
+    private final Path archiveFile;
+
+    private final Path tempFile;
+
+    private final OutputStream outputStream;
+
+    private final List<CentralEntry> centralEntries = new ArrayList<>();
+
+    private final Set<String> entryNames = new HashSet<>();
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private final byte[] header = new byte[64];
+
+    private long position;
+
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    private Set<String> storedExtensions = new HashSet<>(DEFAULT_STORED_EXTENSIONS);
+
+    private Long fixedTime;
+
+    private boolean failed;
+
+    private boolean closed;
+
+    private JkZipWriter(Path archiveFile, Path tempFile, OutputStream outputStream) {
+        this.archiveFile = archiveFile;
+        this.tempFile = tempFile;
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * Creates a writer creating the specified archive file. If the file already exists, it is overwritten when
+     * the writer is closed.
+     */
+    public static JkZipWriter of(Path file) {
+        final Path dir = file.toAbsolutePath().getParent();
+        JkUtilsPath.createDirectories(dir);
+        try {
+            final Path tempFile = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            return new JkZipWriter(file, tempFile,
+                    new BufferedOutputStream(Files.newOutputStream(tempFile), BUFFER_SIZE));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Sets the compression level, from 0 (no compression) to 9 (best compression), for entries added afterward.
+     * -1 stands for the default compression level. With level 0, all entries are stored without compression.
+     */
+    public JkZipWriter setCompressionLevel(int compressionLevel) {
+        JkUtilsAssert.argument(compressionLevel >= -1 && compressionLevel <= 9,
+                "Compression level must be between -1 and 9. Was " + compressionLevel);
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+
+    /**
+     * Sets the extensions (without leading dot) of files to store without compression, as their content is
+     * already compressed. Default is {@link #DEFAULT_STORED_EXTENSIONS}.
+     */
+    public JkZipWriter setStoredExtensions(Iterable<String> extensions) {
+        final Set<String> result = new HashSet<>();
+        extensions.forEach(extension -> result.add(extension.toLowerCase(Locale.ROOT)));
+        this.storedExtensions = result;
+        return this;
+    }
+
+    /**
+     * Sets the modification time given to all entries added afterward, whatever the time specified while adding
+     * them. <code>null</code>, the default, means that the specified times are used.
+     * @see #REPRODUCIBLE_TIME
+     */
+    public JkZipWriter setFixedTime(Long fixedTime) {
+        this.fixedTime = fixedTime;
+        return this;
+    }
+
+    /**
+     * Returns <code>true</code> if the content of the specified entry is stored without compression by this
+     * writer, <code>false</code> if it is deflated.
+     */
+    public boolean isStored(String entryName) {
+        if (compressionLevel == Deflater.NO_COMPRESSION) {
+            return true;
+        }
+        final int index = entryName.lastIndexOf('.');
+        return index > entryName.lastIndexOf('/')
+                && storedExtensions.contains(entryName.substring(index + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns <code>true</code> if an entry having the specified name has already been added. Directory entry
+     * names end with '/'.
+     */
+    public boolean contains(String entryName) {
+        return entryNames.contains(entryName);
+    }
+
+    /**
+     * Adds a directory entry having the specified name, if not already present.
+     * @return <code>true</code> if the entry has been added.
+     */
+    public boolean putDirectory(String entryName) {
+        return putDirectory(entryName, System.currentTimeMillis());
+    }
+
+    /**
+     * Adds a directory entry having the specified name and modification time, if not already present.
+     * @return <code>true</code> if the entry has been added.
+     */
+    public boolean putDirectory(String entryName, long time) {
+        final String name = entryName.endsWith("/") ? entryName : entryName + "/";
+        return failOnError(() -> {
+            if (!add(name)) {
+                return false;
+            }
+            writeEntry(name, ZipEntry.STORED, 0, 0, 0, time, new byte[0]);
+            return true;
+        });
+    }
+
+    /**
+     * Adds an entry having the specified name and the content of the specified file, if not already present.
+     * The file content is streamed, so it is never entirely loaded in memory.
+     * @return <code>true</code> if the entry has been added.
+     */
+    public boolean putFile(String entryName, Path file) {
+        return failOnError(() -> {
+            if (!add(entryName)) {
+                return false;
+            }
+            writeFile(entryName, file);
+            return true;
+        });
+    }
+
+    private void writeFile(String entryName, Path file) {
+        try {
+            final long time = Files.getLastModifiedTime(file).toMillis();
+            if (isStored(entryName)) {
+                final CRC32 crc = new CRC32();
+                long size = 0;
+                try (InputStream inputStream = Files.newInputStream(file)) {
+                    int count;
+                    while ((count = inputStream.read(buffer)) != -1) {
+                        crc.update(buffer, 0, count);
+                        size += count;
+                    }
+                }
+                final CentralEntry entry = writeLocalHeader(entryName, ZipEntry.STORED, 0, crc.getValue(), size,
+                        size, time);
+                try (InputStream inputStream = Files.newInputStream(file)) {
+                    int count;
+                    while ((count = inputStream.read(buffer)) != -1) {
+                        write(buffer, 0, count);
+                    }
+                }
+                centralEntries.add(entry);
+            } else {
+                try (InputStream inputStream = Files.newInputStream(file)) {
+                    writeDeflated(entryName, inputStream, time);
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Adds an entry having the specified name, content and modification time, if not already present.
+     * @return <code>true</code> if the entry has been added.
+     */
+    public boolean putBytes(String entryName, byte[] content, long time) {
+        if (contains(entryName)) {
+            return false;
+        }
+        return putCompressed(entryName, compress(entryName, content), time);
+    }
+
+    /**
+     * Adds an entry having the specified name, already compressed content and modification time, if not already
+     * present.
+     * @return <code>true</code> if the entry has been added.
+     */
+    public boolean putCompressed(String entryName, JkCompressedContent content, long time) {
+        return failOnError(() -> {
+            if (!add(entryName)) {
+                return false;
+            }
+            writeEntry(entryName, content.method, content.crc, content.data.length, content.size, time,
+                    content.data);
+            return true;
+        });
+    }
+
+    /**
+     * Compresses the specified content as this writer would do for an entry having the specified name. This
+     * method is thread safe, so entries can be compressed concurrently before being added sequentially.
+     */
+    public JkCompressedContent compress(String entryName, byte[] content) {
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        if (isStored(entryName)) {
+            return JkCompressedContent.ofStored(content, crc.getValue());
+        }
+        final Deflater deflater = new Deflater(compressionLevel, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            final ByteArrayOutputStream result = new ByteArrayOutputStream(Math.max(64, content.length / 2));
+            final byte[] chunk = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                final int count = deflater.deflate(chunk);
+                result.write(chunk, 0, count);
+            }
+            return JkCompressedContent.ofDeflated(result.toByteArray(), crc.getValue(), content.length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Adds the specified entry of the specified archive, if not already present. The compressed data is copied as
+     * is when this writer would use the same compression method for this entry.
+     */
+    boolean putZipEntry(JkZipArchive archive, JkZipArchive.JkEntry entry) {
+        final String name = entry.getName();
+        if (entry.isDirectory()) {
+            return putDirectory(name, entry.getTime());
+        }
+        if (contains(name)) {
+            return false;
+        }
+        return failOnError(() -> {
+            if ((entry.getMethod() == ZipEntry.STORED) == isStored(name)) {
+                return putCompressed(name, archive.readCompressed(entry), entry.getTime());
+            }
+            return putBytes(name, archive.read(entry), entry.getTime());
+        });
+    }
+
+    /**
+     * Marks this archive as not to be written : on {@link #close()}, the temporary file is deleted and the
+     * archive file is left untouched. Callers invoke this when failing to provide entries.
+     */
+    public void discard() {
+        failed = true;
+    }
+
+    /**
+     * Writes the central directory and moves the archive in place of the archive file. If this archive has been
+     * discarded or adding an entry has failed, the temporary file is deleted instead.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (failed) {
+            JkUtilsIO.closeQuietly(outputStream);
+            JkUtilsPath.deleteIfExists(tempFile);
+            return;
+        }
+        try {
+            final long centralDirectoryOffset = position;
+            for (final CentralEntry entry : centralEntries) {
+                writeCentralHeader(entry);
+            }
+            final long centralDirectorySize = position - centralDirectoryOffset;
+            final int count = centralEntries.size();
+            final boolean zip64 = count >= 0xFFFF || centralDirectoryOffset >= ZIP64_MAGIC
+                    || centralDirectorySize >= ZIP64_MAGIC;
+            if (zip64) {
+                final long zip64EndOffset = position;
+                writeInt(ZIP64_END_SIGNATURE);
+                writeLong(44);
+                writeShort(ZIP64_VERSION);
+                writeShort(ZIP64_VERSION);
+                writeInt(0);
+                writeInt(0);
+                writeLong(count);
+                writeLong(count);
+                writeLong(centralDirectorySize);
+                writeLong(centralDirectoryOffset);
+                writeInt(ZIP64_LOCATOR_SIGNATURE);
+                writeInt(0);
+                writeLong(zip64EndOffset);
+                writeInt(1);
+            }
+            writeInt(END_SIGNATURE);
+            writeShort(0);
+            writeShort(0);
+            writeShort(Math.min(count, 0xFFFF));
+            writeShort(Math.min(count, 0xFFFF));
+            writeInt(Math.min(centralDirectorySize, ZIP64_MAGIC));
+            writeInt(Math.min(centralDirectoryOffset, ZIP64_MAGIC));
+            writeShort(0);
+            outputStream.close();
+            move(tempFile, archiveFile);
+        } catch (final IOException | RuntimeException e) {
+            JkUtilsIO.closeQuietly(outputStream);
+            JkUtilsPath.deleteIfExists(tempFile);
+            throw e instanceof IOException ? new UncheckedIOException((IOException) e) : (RuntimeException) e;
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Any failure while adding an entry may have left partial content in the archive
+    private boolean failOnError(BooleanSupplier action) {
+        try {
+            return action.getAsBoolean();
+        } catch (final RuntimeException | Error e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    // Registers the entry name, adding parent directory entries if needed
+    private boolean add(String entryName) {
+        if (entryNames.contains(entryName)) {
+            return false;
+        }
+        final String path = entryName.endsWith("/") ? entryName.substring(0, entryName.length() - 1) : entryName;
+        final int index = path.lastIndexOf('/');
+        if (index > 0) {
+            putDirectory(path.substring(0, index + 1));
+        }
+        entryNames.add(entryName);
+        return true;
+    }
+
+    private void writeEntry(String name, int method, long crc, long compressedSize, long size, long time,
+                            byte[] data) {
+        try {
+            final CentralEntry entry = writeLocalHeader(name, method, 0, crc, compressedSize, size, time);
+            write(data, 0, data.length);
+            centralEntries.add(entry);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeDeflated(String name, InputStream inputStream, long time) throws IOException {
+        final CentralEntry entry = writeLocalHeader(name, ZipEntry.DEFLATED, DATA_DESCRIPTOR_FLAG, 0, 0, 0, time);
+        final long start = position;
+        final CRC32 crc = new CRC32();
+        final Deflater deflater = new Deflater(compressionLevel, true);
+        final byte[] chunk = new byte[BUFFER_SIZE];
+        long size = 0;
+        try {
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                crc.update(buffer, 0, count);
+                size += count;
+                deflater.setInput(buffer, 0, count);
+                while (!deflater.needsInput()) {
+                    final int deflated = deflater.deflate(chunk);
+                    write(chunk, 0, deflated);
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                final int deflated = deflater.deflate(chunk);
+                write(chunk, 0, deflated);
+            }
+        } finally {
+            deflater.end();
+        }
+        final long compressedSize = position - start;
+        if (size >= ZIP64_MAGIC || compressedSize >= ZIP64_MAGIC) {
+            throw new IllegalStateException("Entry " + name + " is too large to be zipped (4GB max).");
+        }
+        writeInt(DATA_DESCRIPTOR_SIGNATURE);
+        writeInt(crc.getValue());
+        writeInt(compressedSize);
+        writeInt(size);
+        centralEntries.add(new CentralEntry(entry.name, ZipEntry.DEFLATED, DATA_DESCRIPTOR_FLAG, entry.dosTime,
+                crc.getValue(), compressedSize, size, entry.offset));
+    }
+
+    private CentralEntry writeLocalHeader(String name, int method, int flags, long crc, long compressedSize,
+                                          long size, long time) throws IOException {
+        if (size >= ZIP64_MAGIC || compressedSize >= ZIP64_MAGIC) {
+            throw new IllegalStateException("Entry " + name + " is too large to be zipped (4GB max).");
+        }
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        final long dosTime = JkUtilsZip.javaToDosTime(fixedTime != null ? fixedTime : time);
+        final CentralEntry entry = new CentralEntry(nameBytes, method, flags, dosTime, crc, compressedSize, size,
+                position);
+        writeInt(LOCAL_HEADER_SIGNATURE);
+        writeShort(VERSION);
+        writeShort(flags | UTF8_FLAG);
+        writeShort(method);
+        writeInt(entry.dosTime);
+        writeInt(crc);
+        writeInt(compressedSize);
+        writeInt(size);
+        writeShort(nameBytes.length);
+        writeShort(0);
+        write(nameBytes, 0, nameBytes.length);
+        return entry;
+    }
+
+    private void writeCentralHeader(CentralEntry entry) throws IOException {
+        final boolean zip64 = entry.offset >= ZIP64_MAGIC;
+        writeInt(CENTRAL_HEADER_SIGNATURE);
+        writeShort(zip64 ? ZIP64_VERSION : VERSION);
+        writeShort(zip64 ? ZIP64_VERSION : VERSION);
+        writeShort(entry.flags | UTF8_FLAG);
+        writeShort(entry.method);
+        writeInt(entry.dosTime);
+        writeInt(entry.crc);
+        writeInt(entry.compressedSize);
+        writeInt(entry.size);
+        writeShort(entry.name.length);
+        writeShort(zip64 ? 12 : 0);
+        writeShort(0);
+        writeShort(0);
+        writeShort(0);
+        writeInt(entry.isDirectory() ? DIRECTORY_ATTRIBUTE : 0);
+        writeInt(zip64 ? ZIP64_MAGIC : entry.offset);
+        write(entry.name, 0, entry.name.length);
+        if (zip64) {
+            writeShort(1);
+            writeShort(8);
+            writeLong(entry.offset);
+        }
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        outputStream.write(bytes, offset, length);
+        position += length;
+    }
+
+    private void writeShort(int value) throws IOException {
+        header[0] = (byte) value;
+        header[1] = (byte) (value >>> 8);
+        write(header, 0, 2);
+    }
+
+    private void writeInt(long value) throws IOException {
+        header[0] = (byte) value;
+        header[1] = (byte) (value >>> 8);
+        header[2] = (byte) (value >>> 16);
+        header[3] = (byte) (value >>> 24);
+        write(header, 0, 4);
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeInt(value);
+        writeInt(value >>> 32);
+    }
+
+    private static final class CentralEntry {
+
+        final byte[] name;
+
+        final int method;
+
+        final int flags;
+
+        final long dosTime;
+
+        final long crc;
+
+        final long compressedSize;
+
+        final long size;
+
+        final long offset;
+
+        CentralEntry(byte[] name, int method, int flags, long dosTime, long crc, long compressedSize, long size,
+                     long offset) {
+            this.name = name;
+            this.method = method;
+            this.flags = flags;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.offset = offset;
+        }
+
+        boolean isDirectory() {
+            return name.length > 0 && name[name.length - 1] == '/';
+        }
+
+    }
+
+    /**
+     * Content of a zip entry, either stored or deflated, along its CRC-32 and uncompressed size.
+     */
+    public static final class JkCompressedContent {
+
+        private final int method;
+
+        private final byte[] data;
+
+        private final long crc;
+
+        private final long size;
+
+        private JkCompressedContent(int method, byte[] data, long crc, long size) {
+            this.method = method;
+            this.data = data;
+            this.crc = crc;
+            this.size = size;
+        }
+
+        /**
+         * Creates a content stored without compression.
+         */
+        public static JkCompressedContent ofStored(byte[] data, long crc) {
+            return new JkCompressedContent(ZipEntry.STORED, data, crc, data.length);
+        }
+
+        /**
+         * Creates a content from raw deflate data (without zlib header), as found in zip archives.
+         * @param size the uncompressed size
+         */
+        public static JkCompressedContent ofDeflated(byte[] data, long crc, long size) {
+            return new JkCompressedContent(ZipEntry.DEFLATED, data, crc, size);
+        }
+
+        public int getMethod() {
+            return method;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+    }
+
+}
@@ -0,0 +1,102 @@
+package dev.jeka.core.api.file;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+ * Lazy walk of a file tree, in the same order as Files#walk, that does not enter directories under which the
+ * matcher can not match. Symbolic links are not followed. Walked paths are not filtered by the matcher.
+ */
+final class PrunedWalk implements Iterator<Path> {
+
+    private final Path root;
+
+    private final JkPathMatcher matcher;
+
+    private final Deque<DirectoryStream<Path>> openDirs = new ArrayDeque<>();
+
+    private final Deque<Iterator<Path>> iterators = new ArrayDeque<>();
+
+    private Path next;
+
+    private PrunedWalk(Path root, JkPathMatcher matcher) {
+        this.root = root;
+        this.matcher = matcher;
+        this.next = root;
+    }
+
+    static Stream<Path> stream(Path root, JkPathMatcher matcher) {
+        final PrunedWalk walk = new PrunedWalk(root, matcher);
+        final Spliterator<Path> spliterator = Spliterators.spliteratorUnknownSize(walk,
+                Spliterator.DISTINCT | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(walk::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !iterators.isEmpty()) {
+            final Iterator<Path> iterator = iterators.peek();
+            try {
+                if (iterator.hasNext()) {
+                    next = iterator.next();
+                } else {
+                    iterators.pop();
+                    closeQuietly(openDirs.pop());
+                }
+            } catch (final DirectoryIteratorException e) {
+                throw new UncheckedIOException(e.getCause());
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Path next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final Path result = next;
+        next = null;
+        if (Files.isDirectory(result, LinkOption.NOFOLLOW_LINKS)
+                && matcher.mayMatchUnder(root.relativize(result))) {
+            try {
+                final DirectoryStream<Path> directoryStream = Files.newDirectoryStream(result);
+                openDirs.push(directoryStream);
+                iterators.push(directoryStream.iterator());
+            } catch (final IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+        }
+        return result;
+    }
+
+    private void close() {
+        iterators.clear();
+        while (!openDirs.isEmpty()) {
+            closeQuietly(openDirs.pop());
+        }
+    }
+
+    private static void closeQuietly(DirectoryStream<Path> directoryStream) {
+        try {
+            directoryStream.close();
+        } catch (final IOException e) {
+            // nothing to do
+        }
+    }
+
+}
@@ -0,0 +1,224 @@
+package dev.jeka.core.api.file;
+
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/*
+ * Processes resources incrementally. A resource is copied, or interpolated, only if it has changed, or its
+ * interpolation values have changed, since the processing recorded in the state file, or if its output has been
+ * modified meanwhile. When this can not be told from sizes and modification times, a resource copied as is
+ * is compared to its output. Outputs of resources that no longer exist are deleted.
+ */
+final class ResourceSync {
+
+    private final Path stateFile;
+
+    private int processed;
+
+    private int upToDate;
+
+    private int deleted;
+
+    ResourceSync(Path stateFile) {
+        this.stateFile = stateFile;
+    }
+
+    /*
+     * Tokens are provided for paths relative to resource tree roots.
+     */
+    void sync(JkPathTreeSet resourceTrees, Path outputDir, Function<String, Map<String, String>> tokens,
+              Charset charset) {
+        final State previous = readState();
+        final State state = new State();
+
+        // Later trees override files of former ones, as when copying them in sequence
+        final Map<String, Path> sources = new LinkedHashMap<>();
+        for (final JkPathTree resourceTree : resourceTrees.toList()) {
+            if (!resourceTree.exists()) {
+                continue;
+            }
+            final Path root = resourceTree.getRoot();
+            try (Stream<Path> stream = resourceTree.withIndex(true).stream()) {
+                stream.forEach(path -> {
+                    final Path relativePath = root.relativize(path);
+                    if (Files.isDirectory(path)) {
+                        JkUtilsPath.createDirectories(outputDir.resolve(relativePath.toString()));
+                    } else {
+                        sources.put(relativePath.toString().replace('\\', '/'), path);
+                    }
+                });
+            }
+        }
+        for (final Map.Entry<String, Path> entry : sources.entrySet()) {
+            final String key = entry.getKey();
+            final Path source = entry.getValue();
+            final Path output = outputDir.resolve(key);
+            final Map<String, String> values = tokens.apply(key);
+            final String interpolation = values.isEmpty() ? "" : charset + " " + new TreeMap<>(values);
+            final Output previousOutput = previous == null ? null : previous.outputs.get(key);
+            final BasicFileAttributes sourceAttributes = attributes(source);
+            if (isUpToDate(previousOutput, source, sourceAttributes, output, interpolation)) {
+                upToDate++;
+            } else {
+                JkPathFile.of(source).copyReplacingTokens(output, values, charset);
+                processed++;
+            }
+            state.outputs.put(key, new Output(source, sourceAttributes, output, interpolation));
+        }
+        if (previous != null) {
+            for (final String key : previous.outputs.keySet()) {
+                final Path staleOutput = outputDir.resolve(key);
+                if (!state.outputs.containsKey(key) && Files.exists(staleOutput)) {
+                    JkUtilsPath.deleteFile(staleOutput);
+                    deleted++;
+                }
+            }
+        }
+        writeState(state);
+    }
+
+    int getProcessed() {
+        return processed;
+    }
+
+    int getUpToDate() {
+        return upToDate;
+    }
+
+    int getDeleted() {
+        return deleted;
+    }
+
+    private static boolean isUpToDate(Output previous, Path source, BasicFileAttributes sourceAttributes,
+                                      Path output, String interpolation) {
+        final BasicFileAttributes outputAttributes = attributes(output);
+        if (outputAttributes == null) {
+            return false;
+        }
+        if (previous != null && previous.source.equals(key(source)) && previous.interpolation.equals(interpolation)
+                && previous.sourceSize == sourceAttributes.size()
+                && previous.sourceLastModified == sourceAttributes.lastModifiedTime().toMillis()
+                && previous.outputSize == outputAttributes.size()
+                && previous.outputLastModified == outputAttributes.lastModifiedTime().toMillis()) {
+            return true;
+        }
+        return interpolation.isEmpty() && outputAttributes.size() == sourceAttributes.size()
+                && sameContent(source, output);
+    }
+
+    private static boolean sameContent(Path file1, Path file2) {
+        final byte[] buffer1 = new byte[8192];
+        final byte[] buffer2 = new byte[8192];
+        try (InputStream in1 = Files.newInputStream(file1); InputStream in2 = Files.newInputStream(file2)) {
+            while (true) {
+                final int read = readFully(in1, buffer1);
+                if (read != readFully(in2, buffer2)) {
+                    return false;
+                }
+                if (read == 0) {
+                    return true;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (buffer1[i] != buffer2[i]) {
+                        return false;
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int count = 0;
+        while (count < buffer.length) {
+            final int read = in.read(buffer, count, buffer.length - count);
+            if (read < 0) {
+                break;
+            }
+            count += read;
+        }
+        return count;
+    }
+
+    private static BasicFileAttributes attributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    private static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    private State readState() {
+        if (!Files.exists(stateFile)) {
+            return null;
+        }
+        try {
+            return JkUtilsIO.deserialize(stateFile);
+        } catch (final RuntimeException e) {
+            JkLog.trace("Cannot read resource state " + stateFile + " : " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeState(State state) {
+        JkUtilsPath.createDirectories(stateFile.toAbsolutePath().getParent());
+        JkUtilsIO.serialize(state, stateFile);
+    }
+
+    private static final class State implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        // Outputs by path relative to output dir
+        private final Map<String, Output> outputs = new HashMap<>();
+
+    }
+
+    private static final class Output implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String source;
+
+        private final long sourceSize;
+
+        private final long sourceLastModified;
+
+        private final String interpolation;
+
+        private final long outputSize;
+
+        private final long outputLastModified;
+
+        Output(Path source, BasicFileAttributes sourceAttributes, Path output, String interpolation) {
+            this.source = key(source);
+            this.sourceSize = sourceAttributes.size();
+            this.sourceLastModified = sourceAttributes.lastModifiedTime().toMillis();
+            this.interpolation = interpolation;
+            final BasicFileAttributes outputAttributes = attributes(output);
+            this.outputSize = outputAttributes.size();
+            this.outputLastModified = outputAttributes.lastModifiedTime().toMillis();
+        }
+
+    }
+
+}
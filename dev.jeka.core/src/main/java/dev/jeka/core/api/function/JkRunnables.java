@@ -6,6 +6,8 @@ package dev.jeka.core.api.function;
  */
 public class JkRunnables<T> implements Runnable {
 
+    private static final Runnable NOOP = () -> {};
+
     private Runnable runnable;
 
     /**
@@ -31,14 +33,14 @@ public class JkRunnables<T> implements Runnable {
      * Creates a {@link JkRunnables} delegating to a no-op runnable.
      */
     public static JkRunnables<Void> of() {
-        return of(() -> {});
+        return of(NOOP);
     }
 
     /**
      * Same as {@link #of()} but providing parent chaining
      */
     public static <T> JkRunnables<T> ofParent(T parent) {
-        return of(parent, () -> {});
+        return of(parent, NOOP);
     }
 
     private JkRunnables(T parent, Runnable runnable) {
@@ -74,6 +76,13 @@ public class JkRunnables<T> implements Runnable {
         return this;
     }
 
+    /**
+     * Returns <code>true</code> if no {@link Runnable} has been set or chained in this container.
+     */
+    public boolean isEmpty() {
+        return runnable == NOOP;
+    }
+
     @Override
     public void run() {
         runnable.run();
@@ -0,0 +1,316 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Minimal class file reader extracting what is needed to track dependencies between classes. Referenced classes
+ * are read from the constant pool : class entries and type descriptors/signatures found in UTF8 entries. This may
+ * over-estimate dependencies but never misses one, except for inlined compile-time constants that are reported
+ * through #definesConstants. String literals looking like class names are reported apart through #getNamedClasses,
+ * as they may designate classes loaded by reflection. The binary interface of the class, what classes compiling
+ * against it can see, is fingerprinted through #getAbiHash.
+ */
+final class ClassFileInfo {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int STATIC_FINAL = 0x0008 | 0x0010;
+
+    private static final int PRIVATE = 0x0002;
+
+    private static final Pattern DESCRIPTOR_TYPE = Pattern.compile("L([\\w/$]+)[;<]");
+
+    private static final Pattern BINARY_CLASS_NAME = Pattern.compile("[\\w$]+(\\.[\\w$]+)+");
+
+    private final String className;
+
+    private final String sourceFileName;
+
+    private final Set<String> referencedClasses;
+
+    private final Set<String> namedClasses;
+
+    private final boolean definesConstants;
+
+    private final String abiHash;
+
+    private ClassFileInfo(String className, String sourceFileName, Set<String> referencedClasses,
+                          Set<String> namedClasses, boolean definesConstants, String abiHash) {
+        this.className = className;
+        this.sourceFileName = sourceFileName;
+        this.referencedClasses = referencedClasses;
+        this.namedClasses = namedClasses;
+        this.definesConstants = definesConstants;
+        this.abiHash = abiHash;
+    }
+
+    static ClassFileInfo of(Path classFile) {
+        return of(classFile, JkUtilsPath.readAllBytes(classFile));
+    }
+
+    /**
+     * Same as {@link #of(Path)} for a class file whose content has already been read.
+     */
+    static ClassFileInfo of(Path classFile, byte[] content) {
+        try {
+            return read(new DataInputStream(new ByteArrayInputStream(content)));
+        } catch (final IOException | RuntimeException e) {
+            throw new IllegalStateException("Cannot read class file " + classFile, e);
+        }
+    }
+
+    /**
+     * Internal name (as a/b/C$D) of the class.
+     */
+    String getClassName() {
+        return className;
+    }
+
+    /**
+     * Simple name of the source file (as C.java) this class has been compiled from. If the class file does not
+     * mention it (compiled with -g:none), it is guessed from the class name.
+     */
+    String getSourceFileName() {
+        if (sourceFileName != null) {
+            return sourceFileName;
+        }
+        final String simpleName = JkUtilsString.substringAfterLast(className, "/");
+        final String name = simpleName.isEmpty() ? className : simpleName;
+        return JkUtilsString.substringBeforeFirst(name + "$", "$") + ".java";
+    }
+
+    /**
+     * Package path (as a/b) of the class, empty for the default package.
+     */
+    String getPackagePath() {
+        return className.contains("/") ? JkUtilsString.substringBeforeLast(className, "/") : "";
+    }
+
+    /**
+     * Internal names of the classes referenced by this class.
+     */
+    Set<String> getReferencedClasses() {
+        return referencedClasses;
+    }
+
+    /**
+     * Binary names (as a.b.C$D) found in the string literals of this class. These classes may be loaded
+     * by reflection without being referenced.
+     */
+    Set<String> getNamedClasses() {
+        return namedClasses;
+    }
+
+    /**
+     * Returns <code>true</code> if this class declares compile-time constants. As javac inlines such constants
+     * in dependent classes without referencing this one, changing it requires a full recompilation.
+     */
+    boolean definesConstants() {
+        return definesConstants;
+    }
+
+    /**
+     * Returns a hash of the class header and of its non-private fields and methods : access flags, names,
+     * descriptors, generic signatures, declared exceptions and constant values. Method bodies, private members and
+     * debug information are left out, so the hash changes only when classes compiled against this one may have to
+     * be compiled again.
+     */
+    String getAbiHash() {
+        return abiHash;
+    }
+
+    private static ClassFileInfo read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a class file.");
+        }
+        in.readUnsignedShort();  // minor version
+        in.readUnsignedShort();  // major version
+        final int poolCount = in.readUnsignedShort();
+        final String[] utf8s = new String[poolCount];
+        final int[] classNameIndexes = new int[poolCount];
+        final int[] stringIndexes = new int[poolCount];
+        final Object[] numbers = new Object[poolCount];
+        for (int i = 1; i < poolCount; i++) {
+            final int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1:  // Utf8
+                    utf8s[i] = in.readUTF();
+                    break;
+                case 7:  // Class
+                    classNameIndexes[i] = in.readUnsignedShort();
+                    break;
+                case 8:  // String
+                    stringIndexes[i] = in.readUnsignedShort();
+                    break;
+                case 16: case 19: case 20:  // MethodType, Module, Package
+                    in.readUnsignedShort();
+                    break;
+                case 15:  // MethodHandle
+                    in.readUnsignedByte();
+                    in.readUnsignedShort();
+                    break;
+                case 3:  // Integer
+                    numbers[i] = in.readInt();
+                    break;
+                case 4:  // Float
+                    numbers[i] = in.readFloat();
+                    break;
+                case 9: case 10: case 11: case 12: case 17: case 18:
+                    in.readInt();
+                    break;
+                case 5:  // Long and Double take two slots
+                    numbers[i] = in.readLong();
+                    i++;
+                    break;
+                case 6:
+                    numbers[i] = in.readDouble();
+                    i++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+            }
+        }
+        final StringBuilder header = new StringBuilder().append(in.readUnsignedShort());  // access flags
+        final String className = utf8s[classNameIndexes[in.readUnsignedShort()]];
+        final int superIndex = in.readUnsignedShort();
+        header.append(' ').append(className).append(" extends ")
+                .append(superIndex == 0 ? "" : utf8s[classNameIndexes[superIndex]]).append(" implements");
+        final int interfaceCount = in.readUnsignedShort();
+        for (int i = 0; i < interfaceCount; i++) {
+            header.append(' ').append(utf8s[classNameIndexes[in.readUnsignedShort()]]);
+        }
+        final Set<String> members = new TreeSet<>();  // member order does not matter to dependent classes
+        boolean definesConstants = false;
+        final int fieldCount = in.readUnsignedShort();
+        for (int i = 0; i < fieldCount; i++) {
+            final int access = in.readUnsignedShort();
+            final StringBuilder member = new StringBuilder("field ").append(access).append(' ')
+                    .append(utf8s[in.readUnsignedShort()]).append(' ').append(utf8s[in.readUnsignedShort()]);
+            final int attributeCount = in.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                final String attributeName = utf8s[in.readUnsignedShort()];
+                final int length = in.readInt();
+                if ("ConstantValue".equals(attributeName)) {
+                    final int valueIndex = in.readUnsignedShort();
+                    member.append(" = ").append(stringIndexes[valueIndex] != 0 ? utf8s[stringIndexes[valueIndex]]
+                            : numbers[valueIndex]);
+                    definesConstants = definesConstants || (access & STATIC_FINAL) == STATIC_FINAL;
+                } else if ("Signature".equals(attributeName)) {
+                    member.append(" signature ").append(utf8s[in.readUnsignedShort()]);
+                } else {
+                    skip(in, length);
+                }
+            }
+            if ((access & PRIVATE) == 0) {
+                members.add(member.toString());
+            }
+        }
+        final int methodCount = in.readUnsignedShort();
+        for (int i = 0; i < methodCount; i++) {
+            final int access = in.readUnsignedShort();
+            final StringBuilder member = new StringBuilder("method ").append(access).append(' ')
+                    .append(utf8s[in.readUnsignedShort()]).append(' ').append(utf8s[in.readUnsignedShort()]);
+            final int attributeCount = in.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                final String attributeName = utf8s[in.readUnsignedShort()];
+                final int length = in.readInt();
+                if ("Exceptions".equals(attributeName)) {
+                    member.append(" throws");
+                    final int exceptionCount = in.readUnsignedShort();
+                    for (int k = 0; k < exceptionCount; k++) {
+                        member.append(' ').append(utf8s[classNameIndexes[in.readUnsignedShort()]]);
+                    }
+                } else if ("Signature".equals(attributeName)) {
+                    member.append(" signature ").append(utf8s[in.readUnsignedShort()]);
+                } else {
+                    skip(in, length);
+                }
+            }
+            if ((access & PRIVATE) == 0) {
+                members.add(member.toString());
+            }
+        }
+        String sourceFile = null;
+        final int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            final String attributeName = utf8s[in.readUnsignedShort()];
+            final int length = in.readInt();
+            if ("SourceFile".equals(attributeName)) {
+                sourceFile = utf8s[in.readUnsignedShort()];
+            } else if ("Signature".equals(attributeName)) {
+                header.append(" signature ").append(utf8s[in.readUnsignedShort()]);
+            } else {
+                skip(in, length);
+            }
+        }
+        final Set<String> referencedClasses = new HashSet<>();
+        final Set<String> namedClasses = new HashSet<>();
+        for (int i = 1; i < poolCount; i++) {
+            if (stringIndexes[i] != 0 && BINARY_CLASS_NAME.matcher(utf8s[stringIndexes[i]]).matches()) {
+                namedClasses.add(utf8s[stringIndexes[i]]);
+            } else if (classNameIndexes[i] != 0) {
+                addClassName(referencedClasses, utf8s[classNameIndexes[i]]);
+            } else if (utf8s[i] != null && utf8s[i].indexOf(';') > 0) {
+                final Matcher matcher = DESCRIPTOR_TYPE.matcher(utf8s[i]);
+                while (matcher.find()) {
+                    referencedClasses.add(matcher.group(1));
+                }
+            }
+        }
+        referencedClasses.remove(className);
+        return new ClassFileInfo(className, sourceFile, referencedClasses, namedClasses, definesConstants,
+                abiHash(header.toString(), members));
+    }
+
+    private static String abiHash(String header, Set<String> members) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(header.getBytes(StandardCharsets.UTF_8));
+        for (final String member : members) {
+            digest.update((byte) '\n');
+            digest.update(member.getBytes(StandardCharsets.UTF_8));
+        }
+        return JkUtilsString.toHexString(digest.digest());
+    }
+
+    // Class entries may stand for array types as [[Ljava/lang/String;
+    private static void addClassName(Set<String> result, String name) {
+        if (!name.startsWith("[")) {
+            result.add(name);
+            return;
+        }
+        final Matcher matcher = DESCRIPTOR_TYPE.matcher(name);
+        while (matcher.find()) {
+            result.add(matcher.group(1));
+        }
+    }
+
+    private static void skip(DataInputStream in, int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            final int skipped = in.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new UncheckedIOException(new IOException("Unexpected end of class file."));
+            }
+            remaining -= skipped;
+        }
+    }
+
+}
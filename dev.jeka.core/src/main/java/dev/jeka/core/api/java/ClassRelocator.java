@@ -0,0 +1,230 @@
+package dev.jeka.core.api.java;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Applies {@link JkClassRelocation}s to fat jar entries. Class files are relocated by rewriting the UTF8 entries of
+ * their constant pool, where all class names, descriptors and signatures are stored, so the rest of the class file
+ * is copied as is. Internal names (a/b/C) are rewritten when found as a whole name or within a descriptor, and
+ * binary names (a.b.C) when found in any string, as they may be used for reflection.
+ * Instances are immutable and can be used concurrently.
+ */
+final class ClassRelocator {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final String SERVICES_DIR = "META-INF/services/";
+
+    private final List<Rule> rules;
+
+    private ClassRelocator(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    static ClassRelocator of(List<JkClassRelocation> relocations) {
+        final List<Rule> rules = new ArrayList<>();
+        relocations.forEach(relocation -> rules.add(new Rule(relocation)));
+        return new ClassRelocator(rules);
+    }
+
+    /**
+     * Returns the name of the specified entry once relocated, as <code>my/shaded/a/b/C.class</code> for
+     * <code>a/b/C.class</code> or <code>META-INF/services/my.shaded.a.b.Service</code> for
+     * <code>META-INF/services/a.b.Service</code>.
+     */
+    String relocateEntryName(String entryName) {
+        for (final Rule rule : rules) {
+            if (entryName.startsWith(rule.path + "/")) {
+                return rule.relocatedPath + entryName.substring(rule.path.length());
+            }
+            if (entryName.startsWith(SERVICES_DIR + rule.packageName + ".")) {
+                return SERVICES_DIR + rule.relocatedPackageName
+                        + entryName.substring(SERVICES_DIR.length() + rule.packageName.length());
+            }
+        }
+        return entryName;
+    }
+
+    /**
+     * Returns <code>true</code> if the content of the specified entry may be changed by
+     * {@link #relocate(String, byte[])}.
+     */
+    boolean isRelocatable(String entryName) {
+        return !rules.isEmpty() && (entryName.endsWith(".class")
+                || (entryName.startsWith(SERVICES_DIR) && !entryName.endsWith("/")));
+    }
+
+    /**
+     * Returns the relocated content of the specified entry, or the specified content itself if it is unchanged.
+     */
+    byte[] relocate(String entryName, byte[] content) {
+        if (!isRelocatable(entryName) || !mayReference(content)) {
+            return content;
+        }
+        if (entryName.endsWith(".class")) {
+            try {
+                return relocateClass(content);
+            } catch (final IOException | RuntimeException e) {
+                throw new IllegalStateException("Cannot relocate class file " + entryName, e);
+            }
+        }
+        final String text = new String(content, StandardCharsets.UTF_8);
+        final String result = relocateBinaryNames(text);
+        return result.equals(text) ? content : result.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] relocateClass(byte[] content) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+        final ByteArrayOutputStream result = new ByteArrayOutputStream(content.length + 256);
+        final DataOutputStream out = new DataOutputStream(result);
+        if (in.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a class file.");
+        }
+        out.writeInt(MAGIC);
+        out.writeInt(in.readInt());  // minor and major versions
+        final int poolCount = in.readUnsignedShort();
+        out.writeShort(poolCount);
+        boolean changed = false;
+        for (int i = 1; i < poolCount; i++) {
+            final int tag = in.readUnsignedByte();
+            out.writeByte(tag);
+            switch (tag) {
+                case 1:  // Utf8
+                    final String value = in.readUTF();
+                    final String relocated = relocateString(value);
+                    changed |= !relocated.equals(value);
+                    try {
+                        out.writeUTF(relocated);
+                    } catch (final UTFDataFormatException e) {
+                        throw new IllegalStateException("Relocated constant is too long : " + relocated, e);
+                    }
+                    break;
+                case 7: case 8: case 16: case 19: case 20:  // Class, String, MethodType, Module, Package
+                    out.writeShort(in.readUnsignedShort());
+                    break;
+                case 15:  // MethodHandle
+                    out.writeByte(in.readUnsignedByte());
+                    out.writeShort(in.readUnsignedShort());
+                    break;
+                case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
+                    out.writeInt(in.readInt());
+                    break;
+                case 5: case 6:  // Long and Double take two slots
+                    out.writeLong(in.readLong());
+                    i++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+            }
+        }
+        if (!changed) {
+            return content;
+        }
+        final int offset = content.length - in.available();
+        out.write(content, offset, content.length - offset);
+        out.flush();
+        return result.toByteArray();
+    }
+
+    private String relocateString(String value) {
+        String result = value;
+        for (final Rule rule : rules) {
+            if (result.contains(rule.path)) {
+                result = rule.internalNamePattern.matcher(result).replaceAll(rule.relocatedPathReplacement);
+            }
+            if (result.contains(rule.packageName)) {
+                result = rule.binaryNamePattern.matcher(result).replaceAll(rule.relocatedPackageReplacement);
+            }
+        }
+        return result;
+    }
+
+    private String relocateBinaryNames(String value) {
+        String result = value;
+        for (final Rule rule : rules) {
+            if (result.contains(rule.packageName)) {
+                result = rule.binaryNamePattern.matcher(result).replaceAll(rule.relocatedPackageReplacement);
+            }
+        }
+        return result;
+    }
+
+    // Fast check avoiding to parse contents not mentioning any relocated package
+    private boolean mayReference(byte[] content) {
+        for (final Rule rule : rules) {
+            if (indexOf(content, rule.pathBytes) >= 0 || indexOf(content, rule.packageNameBytes) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOf(byte[] content, byte[] searched) {
+        final int last = content.length - searched.length;
+        final byte first = searched[0];
+        for (int i = 0; i <= last; i++) {
+            if (content[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < searched.length && content[i + j] == searched[j]) {
+                j++;
+            }
+            if (j == searched.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class Rule {
+
+        // Internal names are preceded by nothing or, in descriptors and signatures, by 'L'
+        private static final String INTERNAL_NAME_PREFIX = "(?<=^|^L|[\\[(;<>):^*+\\-BCDFIJSZ]L)";
+
+        final String packageName;
+
+        final String relocatedPackageName;
+
+        final String path;
+
+        final String relocatedPath;
+
+        final byte[] pathBytes;
+
+        final byte[] packageNameBytes;
+
+        final Pattern internalNamePattern;
+
+        final Pattern binaryNamePattern;
+
+        final String relocatedPathReplacement;
+
+        final String relocatedPackageReplacement;
+
+        Rule(JkClassRelocation relocation) {
+            this.packageName = relocation.getPackageName();
+            this.relocatedPackageName = relocation.getRelocatedPackageName();
+            this.path = packageName.replace('.', '/');
+            this.relocatedPath = relocatedPackageName.replace('.', '/');
+            this.pathBytes = path.getBytes(StandardCharsets.UTF_8);
+            this.packageNameBytes = packageName.getBytes(StandardCharsets.UTF_8);
+            this.internalNamePattern = Pattern.compile(INTERNAL_NAME_PREFIX + Pattern.quote(path) + "(?=[/;<]|$)");
+            this.binaryNamePattern = Pattern.compile("(?<![\\w.$/])" + Pattern.quote(packageName) + "(?=[.]|$)");
+            this.relocatedPathReplacement = Matcher.quoteReplacement(relocatedPath);
+            this.relocatedPackageReplacement = Matcher.quoteReplacement(relocatedPackageName);
+        }
+
+    }
+
+}
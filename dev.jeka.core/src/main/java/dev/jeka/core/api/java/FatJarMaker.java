@@ -0,0 +1,409 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.file.JkZipArchive;
+import dev.jeka.core.api.file.JkZipWriter;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+/**
+ * Creates fat jars in a single streaming pass. Dependency jars are opened concurrently, entry contents are read
+ * and compressed in parallel on a thread pool dedicated to the fat jar creation, as this involves blocking IO,
+ * then written in a deterministic order. Entries
+ * already deflated in dependency jars are copied as is, without being inflated and deflated again.<p>
+ *
+ * When several sources contain a same entry, the first one wins. Sources are class trees, last one first,
+ * then dependency jars, last one first. Entries are written in source natural order : dependency jars first
+ * then class trees, the manifest being written at first.<p>
+ *
+ * Entries accepted by a {@link JkJarEntryTransformer} are merged instead : the winning entry is replaced by the
+ * transformation of all contributions, computed in the same pass as other entries. Other duplicate entries having
+ * different contents are reported.<p>
+ *
+ * Entries of relocated packages are renamed and class files and service files referencing them are rewritten,
+ * in parallel as well, before being merged.
+ */
+final class FatJarMaker {
+
+    private static final String MANIFEST_ENTRY = "META-INF/MANIFEST.MF";
+
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    // Max number of entries being processed concurrently ahead of the writer, to bound memory usage
+    private static final int WINDOW_SIZE = PARALLELISM * 64;
+
+    // Tasks only read sources and compress in memory, so they end quickly once interrupted
+    private static final long TERMINATION_TIMEOUT_SECONDS = 30;
+
+    private final List<JkPathTree> classTrees;
+
+    private final List<Path> otherJars;
+
+    private final PathMatcher filter;
+
+    private final int compressionLevel;
+
+    private final Long fixedTime;
+
+    private final List<JkJarEntryTransformer> transformers;
+
+    private final ClassRelocator relocator;
+
+    FatJarMaker(List<JkPathTree> classTrees, Iterable<Path> otherJars, PathMatcher filter, int compressionLevel,
+                Long fixedTime, List<JkJarEntryTransformer> transformers, List<JkClassRelocation> relocations) {
+        this.classTrees = classTrees;
+        this.otherJars = JkUtilsIterable.listOf(otherJars);
+        this.filter = filter;
+        this.compressionLevel = compressionLevel;
+        this.fixedTime = fixedTime;
+        this.transformers = transformers;
+        this.relocator = ClassRelocator.of(relocations);
+    }
+
+    void make(Path resultFile) {
+        final List<JkZipArchive> archives = new ArrayList<>();
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService executorService = Executors.newFixedThreadPool(PARALLELISM, runnable -> {
+            final Thread thread = new Thread(runnable, "jeka-fat-jar-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final List<Future<JkZipArchive>> openings = new ArrayList<>();
+        try {
+            for (final Path jar : otherJars) {
+                openings.add(executorService.submit(() -> Files.isRegularFile(jar) ? JkZipArchive.of(jar) : null));
+            }
+            for (final Future<JkZipArchive> opening : openings) {
+                archives.add(get(opening));
+            }
+            final List<List<Item>> sources = new ArrayList<>();
+            for (int i = 0; i < otherJars.size(); i++) {
+                final JkZipArchive archive = archives.get(i);
+                if (archive != null) {
+                    sources.add(archiveItems(archive));
+                } else if (Files.isDirectory(otherJars.get(i))) {
+                    sources.add(treeItems(JkPathTree.of(otherJars.get(i))));
+                }
+            }
+            for (final JkPathTree classTree : classTrees) {
+                sources.add(treeItems(classTree));
+            }
+            final List<Item> items = plan(sources, resultFile);
+            try (JkZipWriter writer = JkZipWriter.of(resultFile).setCompressionLevel(compressionLevel)
+                    .setFixedTime(fixedTime)) {
+                try {
+                    write(writer, items, executorService);
+                } catch (final RuntimeException | Error e) {
+                    writer.discard();
+                    throw e;
+                }
+            }
+        } finally {
+            cancel(openings);
+            shutdown(executorService);
+            openedArchives(openings).forEach(JkZipArchive::close);
+        }
+    }
+
+    // Includes archives opened but not consumed because of a failure
+    private static List<JkZipArchive> openedArchives(List<Future<JkZipArchive>> openings) {
+        final List<JkZipArchive> result = new ArrayList<>();
+        for (final Future<JkZipArchive> opening : openings) {
+            if (opening.isDone() && !opening.isCancelled()) {
+                try {
+                    final JkZipArchive archive = opening.get();
+                    if (archive != null) {
+                        result.add(archive);
+                    }
+                } catch (final InterruptedException | ExecutionException e) {
+                    // Not opened
+                }
+            }
+        }
+        return result;
+    }
+
+    // Archives must not be closed while tasks still read them
+    private static void shutdown(ExecutorService executorService) {
+        executorService.shutdownNow();
+        try {
+            if (!executorService.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                JkLog.warn("Fat jar creation tasks did not terminate within " + TERMINATION_TIMEOUT_SECONDS
+                        + " seconds.");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Returns the items to write, in writing order, keeping only the first one for each entry name
+    private List<Item> plan(List<List<Item>> sources, Path resultFile) {
+        final Map<String, Item> winners = new HashMap<>();
+        final Map<String, List<Item>> duplicates = new TreeMap<>();  // items in precedence order
+        for (int i = sources.size() - 1; i >= 0; i--) {
+            for (final Item item : sources.get(i)) {
+                final Item winner = winners.putIfAbsent(item.name, item);
+                if (winner != null && !item.isDirectory() && !MANIFEST_ENTRY.equals(item.name)) {
+                    duplicates.computeIfAbsent(item.name, name -> new ArrayList<>(Collections.singletonList(winner)))
+                            .add(item);
+                }
+            }
+        }
+        int mergeCount = 0;
+        int conflictCount = 0;
+        for (final Map.Entry<String, List<Item>> duplicate : duplicates.entrySet()) {
+            final String name = duplicate.getKey();
+            final List<Item> contributors = duplicate.getValue();
+            final JkJarEntryTransformer transformer = transformers.stream()
+                    .filter(candidate -> candidate.accept(name))
+                    .findFirst().orElse(null);
+            if (transformer != null) {
+                winners.get(name).merge(contributors, transformer);
+                mergeCount++;
+                JkLog.trace("Entry " + name + " merged from " + sourcesOf(contributors) + " using " + transformer);
+            } else if (!contributors.stream().allMatch(item -> item.hasSameContent(contributors.get(0)))) {
+                conflictCount++;
+                JkLog.trace("Entry " + name + " taken from " + contributors.get(0).getSource() + ", ignored from "
+                        + sourcesOf(contributors.subList(1, contributors.size())));
+            }
+        }
+        if (mergeCount > 0 || conflictCount > 0) {
+            JkLog.info("%s : %d entries merged, %d duplicate entries having different contents ignored.",
+                    resultFile.getFileName(), mergeCount, conflictCount);
+        }
+        final List<Item> result = new ArrayList<>(winners.size());
+        final Item manifest = winners.get(MANIFEST_ENTRY);
+        if (manifest != null) {
+            result.add(manifest);
+        }
+        for (final List<Item> source : sources) {
+            for (final Item item : source) {
+                if (winners.get(item.name) == item && item != manifest) {
+                    result.add(item);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void write(JkZipWriter writer, List<Item> items, ExecutorService executorService) {
+        final Deque<Future<JkZipWriter.JkCompressedContent>> window = new ArrayDeque<>();
+        try {
+            write(writer, items, executorService, window);
+        } finally {
+            cancel(window);
+        }
+    }
+
+    private void write(JkZipWriter writer, List<Item> items, ExecutorService executorService,
+                       Deque<Future<JkZipWriter.JkCompressedContent>> window) {
+        int next = 0;
+        for (final Item item : items) {
+            while (window.size() < WINDOW_SIZE && next < items.size()) {
+                final Item nextItem = items.get(next++);
+                window.add(nextItem.isDirectory() ? CompletableFuture.completedFuture(null)
+                        : executorService.submit(() -> nextItem.compress(writer, relocator)));
+            }
+            final JkZipWriter.JkCompressedContent content = get(window.removeFirst());
+            if (item.isDirectory()) {
+                writer.putDirectory(item.name, item.getTime());
+            } else {
+                writer.putCompressed(item.name, content, item.getTime());
+            }
+        }
+    }
+
+    // Futures not consumed because of a failure
+    private static void cancel(Collection<? extends Future<?>> futures) {
+        futures.forEach(future -> future.cancel(true));
+    }
+
+    private static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw JkUtilsThrowable.unchecked(e);
+        } catch (final ExecutionException e) {
+            throw JkUtilsThrowable.unchecked(e.getCause(), "Error while creating fat jar.");
+        }
+    }
+
+    private List<Item> archiveItems(JkZipArchive archive) {
+        final List<Item> result = new ArrayList<>(archive.getEntries().size());
+        for (final JkZipArchive.JkEntry entry : archive.getEntries()) {
+            if (accept(entry.getName())) {
+                result.add(new Item(relocator.relocateEntryName(entry.getName()), null, archive, entry));
+            }
+        }
+        return result;
+    }
+
+    // Tree files are sorted as the file system walk order is not deterministic
+    private List<Item> treeItems(JkPathTree tree) {
+        final List<Item> result = new ArrayList<>();
+        try (Stream<Path> stream = tree.stream()) {
+            stream.forEach(path -> {
+                final String relativePath = entryName(tree.getRoot().relativize(path));
+                if (relativePath.isEmpty()) {
+                    return;
+                }
+                final String name = Files.isDirectory(path) ? relativePath + "/" : relativePath;
+                if (accept(name)) {
+                    result.add(new Item(relocator.relocateEntryName(name), path, null, null));
+                }
+            });
+        }
+        result.sort(Comparator.comparing(item -> item.name));
+        return result;
+    }
+
+    private boolean accept(String entryName) {
+        final String relativePath = entryName.endsWith("/")
+                ? entryName.substring(0, entryName.length() - 1) : entryName;
+        final Path path = Paths.get(relativePath);
+        return JkJarPacker.EXCLUDE_SIGNATURE_MATCHER.matches(path) && filter.matches(path);
+    }
+
+    private static String sourcesOf(List<Item> items) {
+        return items.stream().map(item -> item.getSource().toString()).collect(Collectors.joining(", "));
+    }
+
+    private static String entryName(Path relativePath) {
+        final StringJoiner result = new StringJoiner("/");
+        for (final Path name : relativePath) {
+            result.add(name.toString());
+        }
+        return result.toString();
+    }
+
+    private static final class Item {
+
+        final String name;
+
+        final Path file;
+
+        final JkZipArchive archive;
+
+        final JkZipArchive.JkEntry entry;
+
+        // Not null when the content is the transformation of the contributors one
+        private List<Item> contributors;
+
+        private JkJarEntryTransformer transformer;
+
+        Item(String name, Path file, JkZipArchive archive, JkZipArchive.JkEntry entry) {
+            this.name = name;
+            this.file = file;
+            this.archive = archive;
+            this.entry = entry;
+        }
+
+        void merge(List<Item> contributors, JkJarEntryTransformer transformer) {
+            this.contributors = contributors;
+            this.transformer = transformer;
+        }
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        Path getSource() {
+            return archive != null ? archive.getFile() : file;
+        }
+
+        // Contents are compared using their size and checksum, computed on demand for files of class trees
+        boolean hasSameContent(Item other) {
+            return this == other || (getSize() == other.getSize() && getCrc() == other.getCrc());
+        }
+
+        private long getSize() {
+            if (entry != null) {
+                return entry.getSize();
+            }
+            try {
+                return Files.size(file);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private long getCrc() {
+            if (entry != null) {
+                return entry.getCrc();
+            }
+            final CRC32 crc = new CRC32();
+            try {
+                crc.update(Files.readAllBytes(file));
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return crc.getValue();
+        }
+
+        long getTime() {
+            if (entry != null) {
+                return entry.getTime();
+            }
+            try {
+                return Files.getLastModifiedTime(file).toMillis();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        byte[] read(ClassRelocator relocator) {
+            if (file == null) {
+                return relocator.relocate(name, archive.read(entry));
+            }
+            try {
+                return relocator.relocate(name, Files.readAllBytes(file));
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        JkZipWriter.JkCompressedContent compress(JkZipWriter writer, ClassRelocator relocator) {
+            if (transformer != null) {
+                final List<byte[]> contents = contributors.stream()
+                        .map(item -> item.read(relocator))
+                        .collect(Collectors.toList());
+                return writer.compress(name, transformer.transform(name, contents));
+            }
+            if (file != null) {
+                return writer.compress(name, read(relocator));
+            }
+            final boolean stored = writer.isStored(name);
+            final boolean copyable = (entry.getMethod() == ZipEntry.DEFLATED && !stored)
+                    || (entry.getMethod() == ZipEntry.STORED && stored);
+            if (relocator.isRelocatable(name)) {
+                final byte[] content = archive.read(entry);
+                final byte[] relocatedContent = relocator.relocate(name, content);
+                if (relocatedContent != content || !copyable) {
+                    return writer.compress(name, relocatedContent);
+                }
+            }
+            if (copyable) {
+                return archive.readCompressed(entry);
+            }
+            return writer.compress(name, archive.read(entry));
+        }
+
+    }
+
+}
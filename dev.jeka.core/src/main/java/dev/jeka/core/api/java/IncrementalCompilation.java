@@ -0,0 +1,416 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.file.JkPathFile;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/*
+ * Compiles only the sources that have changed since the last compilation, plus the sources depending on them.
+ *
+ * The state of the last compilation (fingerprint of classpath and options, fingerprint of each source file,
+ * class files produced from each source and classes referenced by each class file) is stored in a file.
+ * A full compilation happens when there is no state, or when classpath, options or compiler have changed. Class
+ * directories of the classpath are fingerprinted on the binary interface of their classes, so changing only
+ * method bodies does not trigger a full compilation of the classes compiled against them.
+ */
+final class IncrementalCompilation {
+
+    private static final String CLASSPATH_OPTS = "-cp";
+
+    private final JkJavaCompiler<?> compiler;
+
+    private final Path stateFile;
+
+    IncrementalCompilation(JkJavaCompiler<?> compiler, Path stateFile) {
+        this.compiler = compiler;
+        this.stateFile = stateFile;
+    }
+
+    boolean compile(JkJavaCompileSpec<?> compileSpec) {
+        final Path outputDir = compileSpec.getOutputDir();
+        if (outputDir == null) {
+            throw new IllegalArgumentException("Output dir option (-d) has not been specified on the compiler.");
+        }
+        final List<Path> sources = JkJavaCompiler.javaFiles(compileSpec.getSourceFiles());
+        final String globalFingerprint = globalFingerprint(compileSpec);
+        final State previous = readState();
+        final String fullCompileReason = fullCompileReason(previous, globalFingerprint, outputDir);
+        if (fullCompileReason != null) {
+            JkLog.info("Full compilation needed : " + fullCompileReason + ".");
+            return fullCompile(compileSpec, sources, previous, globalFingerprint);
+        }
+        final State state = previous;
+        final Set<String> sourceKeys = new HashSet<>();
+        final List<Path> changedSources = new LinkedList<>();
+        boolean touched = false;
+        for (final Path source : sources) {
+            final String key = source.toAbsolutePath().normalize().toString();
+            sourceKeys.add(key);
+            final SourceState sourceState = state.sources.get(key);
+            if (sourceState == null || !sourceState.sameContent(source)) {
+                changedSources.add(source);
+            } else {
+                touched = touched || sourceState.lastModified != lastModified(source);
+            }
+        }
+        final Set<String> removedSources = new HashSet<>(state.sources.keySet());
+        removedSources.removeAll(sourceKeys);
+        if (changedSources.isEmpty() && removedSources.isEmpty()) {
+            JkLog.info("Compilation of " + JkUtilsString.plurialize(sources.size(), "source file")
+                    + " is up to date.");
+            if (touched) {  // Record new timestamps to avoid hashing again next time
+                writeState(State.of(globalFingerprint, sources, outputDir, previous));
+            }
+            return true;
+        }
+        final Set<String> staleSources = new HashSet<>(removedSources);
+        changedSources.forEach(path -> staleSources.add(path.toAbsolutePath().normalize().toString()));
+        final String constantOwner = state.findConstantDefiningSource(staleSources);
+        if (constantOwner != null) {
+            JkLog.info("Full compilation needed : " + Paths.get(constantOwner).getFileName()
+                    + " defines compile time constants that may be inlined in other classes.");
+            return fullCompile(compileSpec, sources, previous, globalFingerprint);
+        }
+        final Set<String> recompiledSources = state.withDependents(staleSources);
+        recompiledSources.removeAll(removedSources);
+        JkLog.info(JkUtilsString.plurialize(changedSources.size(), "source file") + " changed, "
+                + JkUtilsString.plurialize(removedSources.size(), "source file") + " removed, "
+                + JkUtilsString.plurialize(recompiledSources.size(), "source file") + " to recompile.");
+        staleSources.addAll(recompiledSources);
+        state.deleteClassFiles(staleSources, outputDir);
+        deleteState();
+        if (!recompiledSources.isEmpty()) {
+            final List<Path> recompiledPaths = recompiledSources.stream().map(Paths::get).collect(Collectors.toList());
+            final JkJavaCompileSpec<?> partialSpec = compileSpec.clone()
+                    .setSourceFiles(recompiledPaths)
+                    .setOption(CLASSPATH_OPTS, withOutputDir(compileSpec.getNextValue(CLASSPATH_OPTS), outputDir));
+            if (!compiler.compile(partialSpec)) {
+                return false;
+            }
+        }
+        writeState(State.of(globalFingerprint, sources, outputDir, previous));
+        return true;
+    }
+
+    private boolean fullCompile(JkJavaCompileSpec<?> compileSpec, List<Path> sources, State previous,
+                                String globalFingerprint) {
+        if (previous != null) {
+            previous.deleteClassFiles(previous.sources.keySet(), compileSpec.getOutputDir());
+        }
+        deleteState();
+        if (!compiler.compile(compileSpec.clone().setSourceFiles(sources))) {  // Avoid walking source dirs again
+            return false;
+        }
+        writeState(State.of(globalFingerprint, sources, compileSpec.getOutputDir(), null));
+        return true;
+    }
+
+    private static String fullCompileReason(State previous, String globalFingerprint, Path outputDir) {
+        if (previous == null) {
+            return "no previous compilation state found";
+        }
+        if (!previous.globalFingerprint.equals(globalFingerprint)) {
+            return "classpath, compiler or options have changed";
+        }
+        if (!Files.isDirectory(outputDir)) {
+            return "output dir does not exist";
+        }
+        for (final String classFile : previous.classes.keySet()) {
+            if (!Files.exists(outputDir.resolve(classFile))) {
+                return "class file " + classFile + " has been deleted";
+            }
+        }
+        return null;
+    }
+
+    private String globalFingerprint(JkJavaCompileSpec<?> compileSpec) {
+        final MessageDigest digest = md5();
+        update(digest, System.getProperty("java.version"));
+        update(digest, compiler.getDescription());
+        final List<String> options = new LinkedList<>(compileSpec.getOptions());
+        final int cpIndex = options.indexOf(CLASSPATH_OPTS);
+        final String classpath = compileSpec.getNextValue(CLASSPATH_OPTS);
+        if (cpIndex >= 0 && cpIndex < options.size() - 1) {
+            options.remove(cpIndex + 1);
+            options.remove(cpIndex);
+        }
+        options.forEach(option -> update(digest, option));
+        if (classpath != null) {
+            final Path outputDir = compileSpec.getOutputDir().toAbsolutePath().normalize();
+            for (final String item : classpath.split(File.pathSeparator)) {
+                if (item.isEmpty()) {
+                    continue;
+                }
+                final Path entry = Paths.get(item).toAbsolutePath().normalize();
+                if (!entry.equals(outputDir)) {
+                    updateWithEntry(digest, entry);
+                }
+            }
+        }
+        return JkUtilsString.toHexString(digest.digest());
+    }
+
+    private static void updateWithEntry(MessageDigest digest, Path entry) {
+        update(digest, entry.toString());
+        if (Files.isDirectory(entry)) {
+            update(digest, JkClassAbi.hashOf(entry));
+        } else if (Files.exists(entry)) {
+            update(digest, sizeAndTime(entry));
+        }
+    }
+
+    private static String sizeAndTime(Path file) {
+        try {
+            return Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String withOutputDir(String classpath, Path outputDir) {
+        if (JkUtilsString.isBlank(classpath)) {
+            return outputDir.toString();
+        }
+        return outputDir + File.pathSeparator + classpath;
+    }
+
+    private State readState() {
+        if (!Files.exists(stateFile)) {
+            return null;
+        }
+        try {
+            return JkUtilsIO.deserialize(stateFile);
+        } catch (final RuntimeException e) {
+            JkLog.trace("Cannot read compilation state " + stateFile + " : " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeState(State state) {
+        JkUtilsPath.createDirectories(stateFile.toAbsolutePath().getParent());
+        JkUtilsIO.serialize(state, stateFile);
+    }
+
+    private void deleteState() {
+        JkUtilsPath.deleteIfExists(stateFile);
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static final class State implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String globalFingerprint;
+
+        // Keys are absolute source paths
+        private final Map<String, SourceState> sources = new HashMap<>();
+
+        // Keys are class file paths relative to output dir
+        private final Map<String, ClassState> classes = new HashMap<>();
+
+        static State of(String globalFingerprint, List<Path> sources, Path outputDir, State previous) {
+            final State result = new State();
+            result.globalFingerprint = globalFingerprint;
+            final Map<String, List<Path>> sourcesByFileName = new HashMap<>();
+            for (final Path source : sources) {
+                final Path normalized = source.toAbsolutePath().normalize();
+                final SourceState previousSourceState = previous == null ? null
+                        : previous.sources.get(normalized.toString());
+                result.sources.put(normalized.toString(), SourceState.of(normalized, previousSourceState));
+                sourcesByFileName.computeIfAbsent(normalized.getFileName().toString(), key -> new LinkedList<>())
+                        .add(normalized);
+            }
+            JkPathTree.of(outputDir).andMatching(true, "**.class").stream().forEach(classFile -> {
+                final String relativePath = outputDir.relativize(classFile).toString();
+                final long lastModified = lastModified(classFile);
+                ClassState classState = previous == null ? null : previous.classes.get(relativePath);
+                if (classState == null || classState.lastModified != lastModified
+                        || !result.sources.containsKey(classState.source)) {
+                    final ClassFileInfo info = ClassFileInfo.of(classFile);
+                    final String source = findSource(sourcesByFileName, info);
+                    if (source == null) {
+                        return;
+                    }
+                    classState = new ClassState(info, source, lastModified);
+                }
+                result.classes.put(relativePath, classState);
+                result.sources.get(classState.source).classFiles.add(relativePath);
+            });
+            return result;
+        }
+
+        private static String findSource(Map<String, List<Path>> sourcesByFileName, ClassFileInfo info) {
+            final List<Path> candidates = sourcesByFileName.get(info.getSourceFileName());
+            if (candidates == null) {
+                return null;
+            }
+            final String packagePath = info.getPackagePath();
+            for (final Path candidate : candidates) {
+                final Path parent = candidate.getParent();
+                if (packagePath.isEmpty() || (parent != null
+                        && parent.endsWith(packagePath.replace('/', File.separatorChar)))) {
+                    return candidate.toString();
+                }
+            }
+            return null;
+        }
+
+        String findConstantDefiningSource(Set<String> sourceKeys) {
+            for (final String sourceKey : sourceKeys) {
+                final SourceState sourceState = sources.get(sourceKey);
+                if (sourceState == null) {
+                    continue;
+                }
+                for (final String classFile : sourceState.classFiles) {
+                    if (classes.get(classFile).definesConstants) {
+                        return sourceKey;
+                    }
+                }
+            }
+            return null;
+        }
+
+        // Returns the sources that transitively depend on classes compiled from the specified sources.
+        Set<String> withDependents(Set<String> sourceKeys) {
+            final Map<String, Set<String>> dependentSources = new HashMap<>();
+            for (final ClassState classState : classes.values()) {
+                for (final String referencedClass : classState.referencedClasses) {
+                    dependentSources.computeIfAbsent(referencedClass, key -> new HashSet<>()).add(classState.source);
+                }
+            }
+            final Set<String> result = new HashSet<>(sourceKeys);
+            final Deque<String> toProcess = new LinkedList<>(sourceKeys);
+            while (!toProcess.isEmpty()) {
+                final SourceState sourceState = sources.get(toProcess.pop());
+                if (sourceState == null) {
+                    continue;
+                }
+                for (final String classFile : sourceState.classFiles) {
+                    final String className = classes.get(classFile).className;
+                    for (final String dependent : dependentSources.getOrDefault(className, Collections.emptySet())) {
+                        if (result.add(dependent)) {
+                            toProcess.add(dependent);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        void deleteClassFiles(Set<String> sourceKeys, Path outputDir) {
+            for (final String sourceKey : sourceKeys) {
+                final SourceState sourceState = sources.get(sourceKey);
+                if (sourceState != null) {
+                    sourceState.classFiles.forEach(classFile -> JkUtilsPath.deleteIfExists(outputDir.resolve(classFile)));
+                }
+            }
+        }
+
+    }
+
+    private static final class SourceState implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final String hash;
+
+        private final Set<String> classFiles = new HashSet<>();
+
+        private SourceState(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        static SourceState of(Path source, SourceState previous) {
+            final long size = size(source);
+            final long lastModified = lastModified(source);
+            if (previous != null && previous.size == size && previous.lastModified == lastModified) {
+                return new SourceState(size, lastModified, previous.hash);
+            }
+            return new SourceState(size, lastModified, JkPathFile.of(source).getChecksum("MD5"));
+        }
+
+        boolean sameContent(Path source) {
+            final long currentSize = size(source);
+            if (currentSize != size) {
+                return false;
+            }
+            return lastModified(source) == lastModified || hash.equals(JkPathFile.of(source).getChecksum("MD5"));
+        }
+
+    }
+
+    private static final class ClassState implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String className;
+
+        private final String source;
+
+        private final long lastModified;
+
+        private final Set<String> referencedClasses;
+
+        private final boolean definesConstants;
+
+        ClassState(ClassFileInfo info, String source, long lastModified) {
+            this.className = info.getClassName();
+            this.source = source;
+            this.lastModified = lastModified;
+            this.referencedClasses = new HashSet<>(info.getReferencedClasses());
+            this.definesConstants = info.definesConstants();
+        }
+
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,182 @@
+package dev.jeka.core.api.java;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Implementations of {@link JkJarEntryTransformer}s provided by {@link JkJarEntryTransformer} factory methods.
+ * Results do not depend on anything else than the transformed contents, so fat jars stay reproducible.
+ */
+final class JarEntryTransformers {
+
+    private static final String SERVICES_DIR = "META-INF/services/";
+
+    private JarEntryTransformers() {
+    }
+
+    static final class ServiceFiles implements JkJarEntryTransformer {
+
+        @Override
+        public boolean accept(String entryName) {
+            return entryName.startsWith(SERVICES_DIR) && entryName.length() > SERVICES_DIR.length()
+                    && entryName.indexOf('/', SERVICES_DIR.length()) < 0;
+        }
+
+        @Override
+        public byte[] transform(String entryName, List<byte[]> contents) {
+            final Set<String> lines = new LinkedHashSet<>();
+            for (final byte[] content : contents) {
+                for (final String line : new String(content, StandardCharsets.UTF_8).split("\r?\n|\r")) {
+                    final int commentIndex = line.indexOf('#');
+                    final String value = (commentIndex < 0 ? line : line.substring(0, commentIndex)).trim();
+                    if (!value.isEmpty()) {
+                        lines.add(value);
+                    }
+                }
+            }
+            final StringBuilder result = new StringBuilder();
+            lines.forEach(line -> result.append(line).append('\n'));
+            return result.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ServiceFiles;
+        }
+
+        @Override
+        public int hashCode() {
+            return ServiceFiles.class.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "service files";
+        }
+
+    }
+
+    static final class Properties implements JkJarEntryTransformer {
+
+        private final Set<String> entryNames;
+
+        Properties(String... entryNames) {
+            this.entryNames = new HashSet<>(Arrays.asList(entryNames));
+        }
+
+        @Override
+        public boolean accept(String entryName) {
+            return entryNames.contains(entryName);
+        }
+
+        @Override
+        public byte[] transform(String entryName, List<byte[]> contents) {
+            final SortedMap<String, String> result = new TreeMap<>();
+            for (final byte[] content : contents) {
+                load(content).forEach(result::putIfAbsent);
+            }
+            return store(result);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Properties && entryNames.equals(((Properties) other).entryNames);
+        }
+
+        @Override
+        public int hashCode() {
+            return entryNames.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "properties " + entryNames;
+        }
+
+    }
+
+    static final class ListProperties implements JkJarEntryTransformer {
+
+        private final Set<String> entryNames;
+
+        ListProperties(String... entryNames) {
+            this.entryNames = new HashSet<>(Arrays.asList(entryNames));
+        }
+
+        @Override
+        public boolean accept(String entryName) {
+            return entryNames.contains(entryName);
+        }
+
+        @Override
+        public byte[] transform(String entryName, List<byte[]> contents) {
+            final SortedMap<String, Set<String>> items = new TreeMap<>();
+            for (final byte[] content : contents) {
+                load(content).forEach((key, value) -> {
+                    final Set<String> keyItems = items.computeIfAbsent(key, k -> new LinkedHashSet<>());
+                    for (final String item : value.split(",")) {
+                        if (!item.trim().isEmpty()) {
+                            keyItems.add(item.trim());
+                        }
+                    }
+                });
+            }
+            final SortedMap<String, String> result = new TreeMap<>();
+            items.forEach((key, keyItems) -> result.put(key, String.join(",", keyItems)));
+            return store(result);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ListProperties && entryNames.equals(((ListProperties) other).entryNames);
+        }
+
+        @Override
+        public int hashCode() {
+            return entryNames.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "list properties " + entryNames;
+        }
+
+    }
+
+    private static Map<String, String> load(byte[] content) {
+        final java.util.Properties properties = new java.util.Properties();
+        try {
+            properties.load(new ByteArrayInputStream(content));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final Map<String, String> result = new HashMap<>();
+        properties.stringPropertyNames().forEach(key -> result.put(key, properties.getProperty(key)));
+        return result;
+    }
+
+    // Written sorted, without the date comment nor platform line separators of Properties#store
+    private static byte[] store(SortedMap<String, String> properties) {
+        final java.util.Properties single = new java.util.Properties();
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        final StringBuilder result = new StringBuilder();
+        try {
+            for (final Map.Entry<String, String> entry : properties.entrySet()) {
+                single.clear();
+                single.setProperty(entry.getKey(), entry.getValue());
+                line.reset();
+                single.store(line, null);
+                final String text = new String(line.toByteArray(), StandardCharsets.ISO_8859_1).replace("\r", "");
+                result.append(text.substring(text.indexOf('\n') + 1));
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+}
@@ -0,0 +1,392 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.file.JkFileHasher;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Content-addressable cache for build outputs (compiled classes, test results, jar files). Entries are stored
+ * under a key computed from the content of everything that determines the output (see {@link JkKeyBuilder}), so
+ * builds on different branches, workspaces or machines sharing the same cache dir can reuse each others outputs.<p>
+ *
+ * The cache is a plain directory that can live on a shared file system : entries are written in a temporary
+ * location first then moved in place, so concurrent builds never see partial entries. When the cache grows beyond
+ * its maximum size, least recently used entries are evicted : the cache size is checked at first store, then each
+ * time a tenth of the maximum size has been stored since the last check.
+ */
+public final class JkBuildCache {
+
+    /**
+     * Default maximum size of the cache, in megabytes.
+     */
+    public static final long DEFAULT_MAX_SIZE_MB = 1024;
+
+    private static final String CONTENT = "content";
+
+    private static final String OBJECT = "object.ser";
+
+    private static final String SIZE = "size";
+
+    private static final String TMP_DIR = "tmp";
+
+    private final Path dir;
+
+    private final long maxSize;
+
+    // Walking the cache to compute its size is costly, so eviction is not checked at every store
+    private final AtomicLong storedSinceEviction;
+
+    private static volatile boolean fileHasherLoaded;
+
+    private JkBuildCache(Path dir, long maxSize) {
+        this.dir = dir;
+        this.maxSize = maxSize;
+        this.storedSinceEviction = new AtomicLong(evictionThreshold());
+    }
+
+    /**
+     * Creates a build cache stored in the specified directory and not exceeding the specified size, in megabytes.
+     */
+    public static JkBuildCache of(Path dir, long maxSizeMb) {
+        return new JkBuildCache(dir, maxSizeMb * 1024 * 1024);
+    }
+
+    /**
+     * Creates a build cache stored in [jeka user home]/cache/build, not exceeding {@link #DEFAULT_MAX_SIZE_MB}.
+     */
+    public static JkBuildCache ofDefault() {
+        return of(JkLocator.getJekaUserHomeDir().resolve("cache/build"), DEFAULT_MAX_SIZE_MB);
+    }
+
+    /**
+     * Creates a key builder for entries of the specified kind (as 'compile', 'test', 'jar').
+     */
+    public static JkKeyBuilder keyBuilder(String kind) {
+        return new JkKeyBuilder(kind);
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    /**
+     * Writes the file digests memoized while computing keys, so next runs do not read unchanged files again. This
+     * is invoked at the end of each Jeka run and at JVM shutdown.
+     */
+    public static void saveFileHashes() {
+        if (!fileHasherLoaded) {
+            return;
+        }
+        try {
+            FileHasherHolder.INSTANCE.save();
+        } catch (final UncheckedIOException e) {
+            JkLog.trace("Cannot save file hashes : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Makes the files of the specified tree identical to the ones cached under the specified key : cached files
+     * are copied, overwriting existing ones, and files of the tree absent from the cache entry are deleted.
+     * Files of the root directory not matched by the tree are left untouched.
+     * @return <code>false</code> if nothing is cached under this key.
+     */
+    public boolean restoreDir(String key, JkPathTree target) {
+        final Path content = entry(key).resolve(CONTENT);
+        if (!Files.isDirectory(content)) {
+            return false;
+        }
+        try {
+            final JkPathTree cached = JkPathTree.of(content);
+            final Set<String> cachedFiles = cached.getRelativeFiles().stream()
+                    .map(Path::toString).collect(Collectors.toSet());
+            if (target.exists()) {
+                target.getRelativeFiles().stream()
+                        .filter(relativePath -> !cachedFiles.contains(relativePath.toString()))
+                        .forEach(relativePath -> JkUtilsPath.deleteFile(target.getRoot().resolve(relativePath)));
+            }
+            JkUtilsPath.createDirectories(target.getRoot());
+            cached.copyTo(target.getRoot(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (final UncheckedIOException e) {  // entry evicted by a concurrent build
+            JkLog.warn("Cannot restore build cache entry " + key + " : " + e.getMessage());
+            return false;
+        }
+        touch(key);
+        return true;
+    }
+
+    /**
+     * Stores the files of the specified tree under the specified key.
+     */
+    public void storeDir(String key, JkPathTree tree) {
+        store(key, tmp -> {
+            JkUtilsPath.createDirectories(tmp.resolve(CONTENT));
+            tree.copyTo(tmp.resolve(CONTENT));
+        });
+    }
+
+    /**
+     * Copies the file cached under the specified key to the specified file.
+     * @return <code>false</code> if nothing is cached under this key.
+     */
+    public boolean restoreFile(String key, Path target) {
+        final Path content = entry(key).resolve(CONTENT);
+        if (!Files.isRegularFile(content)) {
+            return false;
+        }
+        try {
+            JkUtilsPath.createDirectories(target.toAbsolutePath().getParent());
+            JkUtilsPath.copy(content, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final UncheckedIOException e) {
+            JkLog.warn("Cannot restore build cache entry " + key + " : " + e.getMessage());
+            return false;
+        }
+        touch(key);
+        return true;
+    }
+
+    /**
+     * Stores the specified file under the specified key.
+     */
+    public void storeFile(String key, Path file) {
+        store(key, tmp -> JkUtilsPath.copy(file, tmp.resolve(CONTENT)));
+    }
+
+    /**
+     * Returns the object cached under the specified key, or <code>null</code> if none.
+     */
+    public <T extends Serializable> T getObject(String key) {
+        final Path file = entry(key).resolve(OBJECT);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            final T result = JkUtilsIO.deserialize(file);
+            touch(key);
+            return result;
+        } catch (final RuntimeException e) {
+            JkLog.warn("Cannot read build cache entry " + key + " : " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the specified object under the specified key.
+     */
+    public void putObject(String key, Serializable object) {
+        store(key, tmp -> JkUtilsIO.serialize(object, tmp.resolve(OBJECT)));
+    }
+
+    /**
+     * Deletes least recently used entries until the size of the cache does not exceed its maximum size.
+     */
+    public void evict() {
+        final List<Entry> entries = entries();
+        long totalSize = entries.stream().mapToLong(entry -> entry.size).sum();
+        if (totalSize <= maxSize) {
+            return;
+        }
+        entries.sort(Comparator.comparing(entry -> entry.lastAccess));
+        int count = 0;
+        for (final Entry entry : entries) {
+            if (totalSize <= maxSize) {
+                break;
+            }
+            JkPathTree.of(entry.dir).deleteRoot();
+            totalSize -= entry.size;
+            count++;
+        }
+        JkLog.trace("Evicted " + JkUtilsString.plurialize(count, "entry", "entries") + " from build cache " + dir);
+    }
+
+    private void store(String key, ContentWriter writer) {
+        final Path entry = entry(key);
+        if (Files.exists(entry)) {
+            return;
+        }
+        final Path tmp = dir.resolve(TMP_DIR).resolve(UUID.randomUUID().toString());
+        long size = 0;
+        try {
+            JkUtilsPath.createDirectories(tmp);
+            writer.write(tmp);
+            size = JkPathTree.of(tmp).stream().filter(Files::isRegularFile)
+                    .mapToLong(JkBuildCache::size).sum();
+            JkUtilsPath.write(tmp.resolve(SIZE), Long.toString(size).getBytes(StandardCharsets.UTF_8));
+            JkUtilsPath.createDirectories(entry.getParent());
+            Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            // Stored meanwhile by a concurrent build
+        } catch (final IOException | UncheckedIOException e) {
+            JkLog.warn("Cannot store build cache entry " + key + " : " + e.getMessage());
+        } finally {
+            if (Files.exists(tmp)) {
+                JkPathTree.of(tmp).deleteRoot();
+            }
+        }
+        if (storedSinceEviction.addAndGet(size) >= evictionThreshold()) {
+            storedSinceEviction.set(0);
+            evict();
+        }
+    }
+
+    private long evictionThreshold() {
+        return maxSize / 10;
+    }
+
+    private Path entry(String key) {
+        return dir.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private void touch(String key) {
+        try {
+            Files.setLastModifiedTime(entry(key), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (final IOException e) {
+            // Entry evicted meanwhile, does not matter
+        }
+    }
+
+    private List<Entry> entries() {
+        if (!Files.exists(dir)) {
+            return new LinkedList<>();
+        }
+        return JkUtilsPath.listDirectChildren(dir).stream()
+                .filter(path -> Files.isDirectory(path) && !path.getFileName().toString().equals(TMP_DIR))
+                .flatMap(path -> JkUtilsPath.listDirectChildren(path).stream())
+                .map(Entry::of)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface ContentWriter {
+
+        void write(Path tmpDir) throws IOException;
+
+    }
+
+    private static final class Entry {
+
+        private final Path dir;
+
+        private final long size;
+
+        private final FileTime lastAccess;
+
+        private Entry(Path dir, long size, FileTime lastAccess) {
+            this.dir = dir;
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+
+        static Entry of(Path dir) {
+            try {
+                final String size = new String(Files.readAllBytes(dir.resolve(SIZE)), StandardCharsets.UTF_8);
+                return new Entry(dir, Long.parseLong(size.trim()), Files.getLastModifiedTime(dir));
+            } catch (final IOException | NumberFormatException e) {
+                return null;  // Removed meanwhile
+            }
+        }
+
+    }
+
+    // File digests are memoized across builds, so unchanged files are not read again to compute keys
+    private static final class FileHasherHolder {
+
+        private static final JkFileHasher INSTANCE =
+                JkFileHasher.of(JkLocator.getJekaUserHomeDir().resolve("cache/file-hashes"));
+
+        static {
+            fileHasherLoaded = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(JkBuildCache::saveFileHashes));
+        }
+
+    }
+
+    /**
+     * Computes cache keys from the content of files and other values that determine a build output. File
+     * locations are not part of the key, only their names (for files) or relative paths (for directory content).
+     */
+    public static final class JkKeyBuilder {
+
+        private static final String DIGEST_ALGORITHM = "SHA-256";
+
+        private final MessageDigest digest;
+
+        private JkKeyBuilder(String kind) {
+            try {
+                digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            } catch (final NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            add(kind);
+        }
+
+        /**
+         * Adds the specified value to the key.
+         */
+        public JkKeyBuilder add(Object value) {
+            digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return this;
+        }
+
+        /**
+         * Adds the content of the specified files or directories, in the specified order.
+         */
+        public JkKeyBuilder addFiles(Iterable<Path> paths) {
+            for (final Path path : paths) {
+                if (Files.isDirectory(path)) {
+                    addTree(JkPathTree.of(path));
+                } else if (Files.exists(path)) {
+                    add(path.getFileName());
+                    addContent(path);
+                } else {
+                    add("-");
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Adds the relative paths and content of the files of the specified tree.
+         */
+        public JkKeyBuilder addTree(JkPathTree tree) {
+            return add(FileHasherHolder.INSTANCE.getTreeDigest(tree, DIGEST_ALGORITHM));
+        }
+
+        /**
+         * Returns the key, as an hexadecimal string.
+         */
+        public String build() {
+            return JkUtilsString.toHexString(digest.digest());
+        }
+
+        private void addContent(Path file) {
+            add(FileHasherHolder.INSTANCE.getDigest(file, DIGEST_ALGORITHM));
+        }
+
+    }
+
+}
@@ -0,0 +1,53 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Binary interface of compiled classes, that is what classes compiling against them can see. It changes when a class
+ * or one of its non-private members is added, removed or has its signature changed, or when a constant value changes.
+ * It does not change when only method bodies, private members or debug information change.
+ */
+public final class JkClassAbi {
+
+    private JkClassAbi() {
+    }
+
+    /**
+     * Returns a hash of the binary interface of the class files found in the specified directory. Other files are
+     * ignored.
+     */
+    public static String hashOf(Path classDir) {
+        final MessageDigest digest = md5();
+        if (!Files.isDirectory(classDir)) {
+            return JkUtilsString.toHexString(digest.digest());
+        }
+        JkPathTree.of(classDir).andMatching(true, "**.class").getRelativeFiles().stream()
+                .map(Path::toString).sorted().forEach(relativePath -> {
+                    final Path classFile = classDir.resolve(relativePath);
+                    update(digest, relativePath);
+                    update(digest, ClassFileInfo.of(classFile).getAbiHash());
+                });
+        return JkUtilsString.toHexString(digest.digest());
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+}
@@ -0,0 +1,150 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Static dependencies between compiled classes, read from the constant pool of class files found in given class
+ * directories. A class depends on another if it references it in its byte code or signatures. Dependencies
+ * through reflection are not detected, though classes named in string literals are reported by
+ * {@link #isNamedByString(String)}. Classes are designated by their binary name (as <code>a.b.C$D</code>).
+ */
+public final class JkClassDependencies {
+
+    private final Map<String, ClassEntry> entries;
+
+    private final Set<String> namedClasses;
+
+    private JkClassDependencies(Map<String, ClassEntry> entries, Set<String> namedClasses) {
+        this.entries = entries;
+        this.namedClasses = namedClasses;
+    }
+
+    /**
+     * Reads all class files found in the specified class directories. Non existing directories and
+     * non-directory entries are ignored.
+     */
+    public static JkClassDependencies of(Iterable<Path> classDirs) {
+        final Map<String, ClassEntry> entries = new HashMap<>();
+        final Set<String> namedClasses = new HashSet<>();
+        for (final Path classDir : classDirs) {
+            if (!Files.isDirectory(classDir)) {
+                continue;
+            }
+            JkPathTree.of(classDir).andMatching(true, "**.class").getFiles().forEach(classFile -> {
+                if (classFile.getFileName().toString().endsWith("-info.class")) {  // module-info, package-info
+                    return;
+                }
+                final byte[] bytes = JkUtilsPath.readAllBytes(classFile);
+                final ClassFileInfo info = ClassFileInfo.of(classFile, bytes);
+                final Set<String> references = new HashSet<>();
+                info.getReferencedClasses().forEach(name -> references.add(name.replace('/', '.')));
+                namedClasses.addAll(info.getNamedClasses());
+                entries.putIfAbsent(info.getClassName().replace('/', '.'),
+                        new ClassEntry(references, info.definesConstants(), md5(bytes)));
+            });
+        }
+        return new JkClassDependencies(entries, namedClasses);
+    }
+
+    /**
+     * Returns the binary names of all the classes read.
+     */
+    public Set<String> getClassNames() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * Returns an hexadecimal hash of the class file content of the specified class, or <code>null</code> if
+     * this class has not been read.
+     */
+    public String getHash(String className) {
+        final ClassEntry entry = entries.get(className);
+        return entry == null ? null : entry.hash;
+    }
+
+    /**
+     * Returns <code>true</code> if the specified class declares compile-time constants. Such constants are
+     * inlined by javac in dependent classes, which then do not reference the declaring class anymore.
+     */
+    public boolean definesConstants(String className) {
+        final ClassEntry entry = entries.get(className);
+        return entry != null && entry.definesConstants;
+    }
+
+    /**
+     * Returns <code>true</code> if the specified class is named in a string literal of a class read, as
+     * done for loading it by reflection (<code>Class.forName("a.b.C")</code>).
+     */
+    public boolean isNamedByString(String className) {
+        return namedClasses.contains(className);
+    }
+
+    /**
+     * Returns the classes read, directly referenced by the specified class.
+     */
+    public Set<String> getDependencies(String className) {
+        final ClassEntry entry = entries.get(className);
+        if (entry == null) {
+            return Collections.emptySet();
+        }
+        final Set<String> result = new TreeSet<>(entry.references);
+        result.retainAll(entries.keySet());
+        return result;
+    }
+
+    /**
+     * Returns the classes read, directly or indirectly referenced by the specified classes. The returned set
+     * includes the specified classes themselves.
+     */
+    public Set<String> getTransitiveDependencies(Collection<String> classNames) {
+        final Set<String> result = new TreeSet<>();
+        final Deque<String> toVisit = new LinkedList<>(classNames);
+        while (!toVisit.isEmpty()) {
+            final String className = toVisit.poll();
+            if (!result.add(className)) {
+                continue;
+            }
+            final ClassEntry entry = entries.get(className);
+            if (entry != null) {
+                entry.references.stream()
+                        .filter(entries::containsKey)
+                        .filter(name -> !result.contains(name))
+                        .forEach(toVisit::add);
+            }
+        }
+        return result;
+    }
+
+    private static String md5(byte[] bytes) {
+        try {
+            return JkUtilsString.toHexString(MessageDigest.getInstance("MD5").digest(bytes));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class ClassEntry {
+
+        private final Set<String> references;
+
+        private final boolean definesConstants;
+
+        private final String hash;
+
+        private ClassEntry(Set<String> references, boolean definesConstants, String hash) {
+            this.references = references;
+            this.definesConstants = definesConstants;
+            this.hash = hash;
+        }
+
+    }
+
+}
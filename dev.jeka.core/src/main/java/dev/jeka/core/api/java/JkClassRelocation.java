@@ -0,0 +1,68 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.utils.JkUtilsAssert;
+
+/**
+ * Relocation of a package, and its sub-packages, to another one when creating fat jars (aka shading). Classes of
+ * the relocated package are moved, and all references to them, in class files and service files, are rewritten.
+ *
+ * @see JkJarPacker#withRelocations(java.util.List)
+ */
+public final class JkClassRelocation {
+
+    private final String packageName;
+
+    private final String relocatedPackageName;
+
+    private JkClassRelocation(String packageName, String relocatedPackageName) {
+        this.packageName = packageName;
+        this.relocatedPackageName = relocatedPackageName;
+    }
+
+    /**
+     * Creates a relocation of the specified package to the specified one, as <code>of("com.google.common",
+     * "my.shaded.com.google.common")</code>.
+     */
+    public static JkClassRelocation of(String packageName, String relocatedPackageName) {
+        JkUtilsAssert.argument(isPackageName(packageName), "Invalid package name : " + packageName);
+        JkUtilsAssert.argument(isPackageName(relocatedPackageName),
+                "Invalid package name : " + relocatedPackageName);
+        return new JkClassRelocation(packageName, relocatedPackageName);
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public String getRelocatedPackageName() {
+        return relocatedPackageName;
+    }
+
+    private static boolean isPackageName(String name) {
+        return name != null && !name.isEmpty() && !name.startsWith(".") && !name.endsWith(".")
+                && !name.contains("/");
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final JkClassRelocation other = (JkClassRelocation) obj;
+        return packageName.equals(other.packageName) && relocatedPackageName.equals(other.relocatedPackageName);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * packageName.hashCode() + relocatedPackageName.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return packageName + " -> " + relocatedPackageName;
+    }
+
+}
@@ -26,6 +26,8 @@ public class JkInternalClassloader {
         this.classLoader = classLoader;
     }
 
+    private static JkInternalClassloader sharedMainEmbeddedLibs;
+
     public static final Path URL_CACHE_DIR = JkLocator.getJekaUserHomeDir().resolve("cache/url-content");
 
     static {
@@ -41,9 +43,26 @@ public class JkInternalClassloader {
     }
 
     public static JkInternalClassloader ofMainEmbeddedLibs(List<Path> extraEntries) {
+        return ofMainEmbeddedLibs(extraEntries, JkClassLoader.ofCurrent().get());
+    }
+
+    /**
+     * Same as {@link #ofMainEmbeddedLibs()} but the returned classloader is parented on the classloader having loaded
+     * Jeka instead of the current context one. As it can not see def classes, it is created only once per JVM, so
+     * embedded libs (Ivy, Bouncy Castle) stay loaded and warm across runs hosted in the same JVM.
+     */
+    public static synchronized JkInternalClassloader ofSharedMainEmbeddedLibs() {
+        if (sharedMainEmbeddedLibs == null) {
+            sharedMainEmbeddedLibs = ofMainEmbeddedLibs(Collections.emptyList(),
+                    JkInternalClassloader.class.getClassLoader());
+        }
+        return sharedMainEmbeddedLibs;
+    }
+
+    private static JkInternalClassloader ofMainEmbeddedLibs(List<Path> extraEntries, ClassLoader parent) {
         JkUtilsSystem.disableUnsafeWarning();  // Avoiding unsafe warning due to Ivy.
         List<Path> pathList = new LinkedList<>();
-        URL embeddedNameUrl = JkClassLoader.ofCurrent().get().getResource("META-INF/jeka-embedded-name");
+        URL embeddedNameUrl = parent.getResource("META-INF/jeka-embedded-name");
         if (embeddedNameUrl != null) {
             String jarName = JkUtilsIO.read(embeddedNameUrl);
             Path file = getEmbeddedLibAsPath("META-INF/" + jarName);
@@ -54,7 +73,7 @@ public class JkInternalClassloader {
                 .map(JkUtilsPath::toUrl)
                 .collect(Collectors.toList());
         URL[] urls = urlList.toArray(new URL[0]);
-        ClassLoader classLoader = new URLClassLoader(urls, JkClassLoader.ofCurrent().get());
+        ClassLoader classLoader = new URLClassLoader(urls, parent);
         return of(classLoader);
     }
 
@@ -84,7 +103,21 @@ public class JkInternalClassloader {
         final Object target = invokeStaticMethod(className, staticMethodFactory, args);
         ClassLoader from = Thread.currentThread().getContextClassLoader();
         return ((T) Proxy.newProxyInstance(from,
-                new Class[]{interfaze}, new CrossClassloaderInvocationHandler(target, from)));
+                new Class<?>[]{interfaze}, new CrossClassloaderInvocationHandler(target, from)));
+    }
+
+    /**
+     * Same as {@link #createCrossClassloaderProxy(Class, String, String, Object...)} but methods are invoked
+     * keeping the caller thread context classloader, instead of switching to this one. This is suited for
+     * services working on the caller context (as classpath scanning) and that must not be bound to the
+     * context classloader in place at creation time.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T createContextPreservingProxy(Class<T> interfaze, String className,
+                                              String staticMethodFactory, Object... args) {
+        final Object target = invokeStaticMethod(className, staticMethodFactory, args);
+        return ((T) Proxy.newProxyInstance(interfaze.getClassLoader(),
+                new Class<?>[]{interfaze}, new CrossClassloaderInvocationHandler(target, null)));
     }
 
     private class CrossClassloaderInvocationHandler implements InvocationHandler {
@@ -96,6 +129,7 @@ public class JkInternalClassloader {
 
         private final Object targetObject;
 
+        // null means that caller context classloader is preserved
         private final ClassLoader fromClassLoader;
 
         @Override
@@ -111,7 +145,9 @@ public class JkInternalClassloader {
     private <T> T invokeInstanceMethod(ClassLoader from, Object object, Method method,
                                       Object... args) {
         final ClassLoader currentClassLoader = Thread.currentThread().getContextClassLoader();
-        Thread.currentThread().setContextClassLoader(classLoader);
+        if (from != null) {
+            Thread.currentThread().setContextClassLoader(classLoader);
+        }
         try {
             final Object returned = JkUtilsReflect.invoke(object, method, args);
             return (T) returned;
@@ -20,7 +20,8 @@ public interface JkInternalClasspathScanner {
         if (clazz != null) {
             return JkUtilsReflect.invokeStaticMethod(clazz, "of");
         }
-        return JkInternalClassloader.ofMainEmbeddedLibs().createCrossClassloaderProxy(JkInternalClasspathScanner.class, IMPL_CLASS, "of");
+        return JkInternalClassloader.ofSharedMainEmbeddedLibs().createContextPreservingProxy(
+                JkInternalClasspathScanner.class, IMPL_CLASS, "of");
     }
 
     Set<Class<?>> loadClassesHavingSimpleNameMatching(Predicate<String> predicate);
@@ -0,0 +1,64 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.utils.JkUtilsIterable;
+
+import java.util.List;
+
+/**
+ * Merges the contents of entries having a same name, when several jars are merged into a fat jar. By default,
+ * only the entry having the highest precedence is kept, which is wrong for entries as service files where every
+ * contribution matters.
+ *
+ * @see JkJarPacker#withEntryTransformers(List)
+ */
+public interface JkJarEntryTransformer {
+
+    /**
+     * Returns <code>true</code> if this transformer merges entries having the specified name.
+     */
+    boolean accept(String entryName);
+
+    /**
+     * Returns the content of the entry to write in place of the specified contents. Contents are given in
+     * precedence order : content of the entry that would have been kept without transformation comes first.
+     * This method may be invoked concurrently.
+     */
+    byte[] transform(String entryName, List<byte[]> contents);
+
+    /**
+     * Transformers applied by default : {@link #ofServiceFiles()}, {@link #ofListProperties(String...)} for
+     * <code>META-INF/spring.factories</code> and {@link #ofProperties(String...)} for
+     * <code>META-INF/spring.handlers</code> and <code>META-INF/spring.schemas</code>.
+     */
+    static List<JkJarEntryTransformer> defaults() {
+        return JkUtilsIterable.listOf(
+                ofServiceFiles(),
+                ofListProperties("META-INF/spring.factories"),
+                ofProperties("META-INF/spring.handlers", "META-INF/spring.schemas"));
+    }
+
+    /**
+     * Concatenates <code>META-INF/services/*</code> files, removing comments and duplicate lines.
+     */
+    static JkJarEntryTransformer ofServiceFiles() {
+        return new JarEntryTransformers.ServiceFiles();
+    }
+
+    /**
+     * Merges the specified properties files : each key gets the value it has in the entry with the highest
+     * precedence.
+     */
+    static JkJarEntryTransformer ofProperties(String... entryNames) {
+        return new JarEntryTransformers.Properties(entryNames);
+    }
+
+    /**
+     * Merges the specified properties files whose values are comma separated lists, as
+     * <code>META-INF/spring.factories</code> : each key gets the distinct items of all its values, in
+     * precedence order.
+     */
+    static JkJarEntryTransformer ofListProperties(String... entryNames) {
+        return new JarEntryTransformers.ListProperties(entryNames);
+    }
+
+}
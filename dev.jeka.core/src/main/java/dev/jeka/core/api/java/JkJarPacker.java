@@ -2,10 +2,16 @@ package dev.jeka.core.api.java;
 
 import dev.jeka.core.api.file.JkPathMatcher;
 import dev.jeka.core.api.file.JkPathTreeSet;
+import dev.jeka.core.api.file.JkZipWriter;
+import dev.jeka.core.api.system.JkLog;
 import dev.jeka.core.api.utils.JkUtilsAssert;
+import dev.jeka.core.api.utils.JkUtilsIterable;
 
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
 
 /**
  * Utilities class to produce Jar files.
@@ -24,15 +30,33 @@ public final class JkJarPacker {
 
     private final JkPathTreeSet extraFiles;
 
-    private JkJarPacker(JkPathTreeSet classTrees, JkManifest manifest, JkPathTreeSet extraFiles) {
+    private final JkBuildCache buildCache;
+
+    private final int compressionLevel;
+
+    private final boolean reproducible;
+
+    private final List<JkJarEntryTransformer> entryTransformers;
+
+    private final List<JkClassRelocation> relocations;
+
+    private JkJarPacker(JkPathTreeSet classTrees, JkManifest manifest, JkPathTreeSet extraFiles,
+                        JkBuildCache buildCache, int compressionLevel, boolean reproducible,
+                        List<JkJarEntryTransformer> entryTransformers, List<JkClassRelocation> relocations) {
         this.classtrees = classTrees;
         this.manifest = manifest;
         this.extraFiles = extraFiles;
+        this.buildCache = buildCache;
+        this.compressionLevel = compressionLevel;
+        this.reproducible = reproducible;
+        this.entryTransformers = entryTransformers;
+        this.relocations = relocations;
     }
 
     public static JkJarPacker of(JkPathTreeSet classTrees) {
         JkUtilsAssert.argument(!classTrees.toList().isEmpty(), "Nothing to create jar from : " + classTrees);
-        return new JkJarPacker(classTrees, null, null);
+        return new JkJarPacker(classTrees, null, null, null, Deflater.DEFAULT_COMPRESSION, false,
+                JkJarEntryTransformer.defaults(), Collections.emptyList());
     }
 
     public static JkJarPacker of(Path classDir) {
@@ -40,11 +64,69 @@ public final class JkJarPacker {
     }
 
     public JkJarPacker withManifest(JkManifest manifest) {
-        return new JkJarPacker(this.classtrees, manifest, this.extraFiles);
+        return new JkJarPacker(this.classtrees, manifest, this.extraFiles, this.buildCache, this.compressionLevel,
+                this.reproducible, this.entryTransformers,
+                this.relocations);
     }
 
     public JkJarPacker withExtraFiles(JkPathTreeSet extraFiles) {
-        return new JkJarPacker(this.classtrees, this.manifest, extraFiles);
+        return new JkJarPacker(this.classtrees, this.manifest, extraFiles, this.buildCache, this.compressionLevel,
+                this.reproducible, this.entryTransformers,
+                this.relocations);
+    }
+
+    /**
+     * Returns a packer identical to this one but fetching jars from the specified build cache, instead of creating
+     * them, when jars with the same content have already been created. Created jars are stored in.
+     */
+    public JkJarPacker withBuildCache(JkBuildCache buildCache) {
+        return new JkJarPacker(this.classtrees, this.manifest, this.extraFiles, buildCache, this.compressionLevel,
+                this.reproducible, this.entryTransformers,
+                this.relocations);
+    }
+
+    /**
+     * Returns a packer identical to this one but compressing jar entries with the specified level, from 0 (no
+     * compression) to 9 (best compression), -1 standing for the default level.
+     * @see JkZipWriter#setCompressionLevel(int)
+     */
+    public JkJarPacker withCompressionLevel(int compressionLevel) {
+        return new JkJarPacker(this.classtrees, this.manifest, this.extraFiles, this.buildCache, compressionLevel,
+                this.reproducible, this.entryTransformers,
+                this.relocations);
+    }
+
+    /**
+     * Returns a packer identical to this one but creating reproducible jars : jars created from identical content
+     * are identical byte for byte, whatever the file system walk order and file modification times. Entries are
+     * sorted and all get {@link JkZipWriter#REPRODUCIBLE_TIME} as modification time. Result jars are overwritten
+     * instead of being completed.
+     */
+    public JkJarPacker withReproducible(boolean reproducible) {
+        return new JkJarPacker(this.classtrees, this.manifest, this.extraFiles, this.buildCache,
+                this.compressionLevel, reproducible, this.entryTransformers, this.relocations);
+    }
+
+    /**
+     * Returns a packer identical to this one but merging entries present in several places of fat jars with the
+     * specified transformers, instead of keeping only the one having the highest precedence. Default is
+     * {@link JkJarEntryTransformer#defaults()}, an empty list disables merging.
+     */
+    public JkJarPacker withEntryTransformers(List<JkJarEntryTransformer> entryTransformers) {
+        return new JkJarPacker(this.classtrees, this.manifest, this.extraFiles, this.buildCache,
+                this.compressionLevel, this.reproducible, JkUtilsIterable.listOf(entryTransformers),
+                this.relocations);
+    }
+
+    /**
+     * Returns a packer identical to this one but relocating the specified packages in fat jars (aka shading) :
+     * classes of these packages are moved to their relocated packages, and class files and service files
+     * referencing them are rewritten accordingly.
+     */
+    public JkJarPacker withRelocations(List<JkClassRelocation> relocations) {
+        return new JkJarPacker(this.classtrees, this.manifest, this.extraFiles, this.buildCache,
+                this.compressionLevel, this.reproducible, this.entryTransformers,
+                JkUtilsIterable.listOf(relocations));
     }
 
     /**
@@ -56,14 +138,31 @@ public final class JkJarPacker {
             manifest.writeToStandardLocation(classtrees.toList().get(0).getRoot());
         }
         JkPathTreeSet treeSet = extraFiles == null ? JkPathTreeSet.ofEmpty() : extraFiles;
-        classtrees.and(treeSet).zipTo(resultFile);
+        String cacheKey = buildCache == null ? null : keyBuilder("jar").build();
+        if (cacheKey != null && buildCache.restoreFile(cacheKey, resultFile)) {
+            JkLog.info("Jar file " + resultFile.getFileName() + " restored from build cache.");
+            return;
+        }
+        if (reproducible) {
+            try (JkZipWriter writer = JkZipWriter.of(resultFile).setCompressionLevel(compressionLevel)
+                    .setFixedTime(JkZipWriter.REPRODUCIBLE_TIME)) {
+                classtrees.and(treeSet).zipTo(writer);
+            }
+        } else {
+            classtrees.and(treeSet).zipTo(resultFile, compressionLevel);
+        }
+        if (cacheKey != null) {
+            buildCache.storeFile(cacheKey, resultFile);
+        }
     }
 
     /**
      * Creates a fat jar file according specified parameters. Fat jar file including the content of other jars.
      * The result jar does not contains other jars as zip entry but content of the other jars is merged with the content
-     * of original jar.
-     * @param resultFile Result file
+     * of original jar. When a same entry is present in several places, the one of the original jar is kept, then
+     * the one of the last jar in <code>otherJars</code>, unless an entry transformer merges them. Entries already
+     * deflated in other jars are copied as is.
+     * @param resultFile Result file. It is overwritten if it already exists.
      * @param otherJars content of other jar to merge with the original jar
      * @param filter Only files matching this filter will be included in the resulting fat jar, either it comes from
      *               dependencies or not.
@@ -72,9 +171,46 @@ public final class JkJarPacker {
         if (manifest != null && !manifest.isEmpty()) {
             manifest.writeToStandardLocation(classtrees.toList().get(0).getRoot());
         }
-        JkPathTreeSet.ofEmpty().andZips(otherJars).and(classtrees).andMatcher(EXCLUDE_SIGNATURE_MATCHER)
-                .andMatcher(filter)
-                .zipTo(resultFile);  // main jar files must take precedence over files coming form dependencies
+        // Custom filters and transformers have no description telling what they do, so can not be part of a key
+        final boolean described = filter instanceof JkPathMatcher && ((JkPathMatcher) filter).isDescribed()
+                && entryTransformers.stream().allMatch(JkJarPacker::overridesToString)
+                && relocations.stream().allMatch(JkJarPacker::overridesToString);
+        String cacheKey = buildCache == null || !described ? null
+                : keyBuilder("fat-jar").add(filter).add(entryTransformers).add(relocations)
+                .addFiles(otherJars).build();
+        if (cacheKey != null && buildCache.restoreFile(cacheKey, resultFile)) {
+            JkLog.info("Jar file " + resultFile.getFileName() + " restored from build cache.");
+            return;
+        }
+        // main jar files take precedence over files coming form dependencies
+        new FatJarMaker(classtrees.toList(), otherJars, filter, compressionLevel,
+                reproducible ? JkZipWriter.REPRODUCIBLE_TIME : null, entryTransformers, relocations)
+                .make(resultFile);
+        if (cacheKey != null) {
+            buildCache.storeFile(cacheKey, resultFile);
+        }
+    }
+
+    private static boolean overridesToString(Object object) {
+        try {
+            return object.getClass().getMethod("toString").getDeclaringClass() != Object.class;
+        } catch (final NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private JkBuildCache.JkKeyBuilder keyBuilder(String kind) {
+        JkBuildCache.JkKeyBuilder result = JkBuildCache.keyBuilder(kind);
+        result.add(compressionLevel);
+        if (reproducible) {
+            result.add("reproducible");
+        }
+        classtrees.toList().forEach(result::addTree);
+        if (extraFiles != null) {
+            result.add("extra files");
+            extraFiles.toList().forEach(result::addTree);
+        }
+        return result;
     }
 
 
@@ -182,6 +182,12 @@ public final class JkJavaCompileSpec<T> implements Cloneable {
         return addSources(JkUtilsIterable.listOf2orMore(path1, path2, files));
     }
 
+    // Replaces the source files to be compiled
+    JkJavaCompileSpec<T> setSourceFiles(List<Path> sourceFiles) {
+        this.sourceFiles = new LinkedList<>(sourceFiles);
+        return this;
+    }
+
     /**
      * Returns all source files to be compiled.
      */
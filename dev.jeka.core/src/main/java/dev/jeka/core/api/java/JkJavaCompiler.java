@@ -13,10 +13,14 @@ import java.io.File;
 import java.io.PrintWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Compiler for Java source code. Underlying, it uses either a {@link JavaCompiler} instance either an external
@@ -24,10 +28,17 @@ import java.util.Map;
  */
 public final class JkJavaCompiler<T> {
 
+    // Options whose value is a list of paths : the content of the files they name is part of build cache keys
+    private static final List<String> PATH_OPTIONS = Arrays.asList("-cp", "-classpath", "--class-path",
+            "-processorpath", "--processor-path", "--processor-module-path", "-p", "--module-path",
+            "--upgrade-module-path", "-sourcepath", "--source-path", "-bootclasspath", "--boot-class-path");
+
     private JkProcess forkingProcess;
 
     private JavaCompiler compilerTool;
 
+    private JkBuildCache buildCache;
+
     /**
      * Owner for parent chaining
      */
@@ -100,6 +111,20 @@ public final class JkJavaCompiler<T> {
     }
 
 
+    /**
+     * Sets the build cache to fetch compiled classes from, instead of compiling, when the same sources have already
+     * been compiled with the same classpath content, options and compiler. Classes produced by compilations are
+     * stored in. <code>null</code> disables build caching.
+     */
+    public JkJavaCompiler<T> setBuildCache(JkBuildCache buildCache) {
+        this.buildCache = buildCache;
+        return this;
+    }
+
+    public JkBuildCache getBuildCache() {
+        return buildCache;
+    }
+
     /**
      * Returns <code>true</code> if no compiler or fork has been set on.
      */
@@ -142,6 +167,13 @@ public final class JkJavaCompiler<T> {
             JkLog.endTask();
             return true;
         }
+        final String cacheKey = buildCacheKey(compileSpec, files);
+        final JkPathTree classTree = JkPathTree.of(outputDir).andMatching(true, "**.class");
+        if (cacheKey != null && buildCache.restoreDir(cacheKey, classTree)) {
+            JkLog.info("Compiled classes restored from build cache.");
+            JkLog.endTask();
+            return true;
+        }
         final boolean result;
         if (this.forkingProcess == null) {
             final Iterable<? extends JavaFileObject> javaFileObjects = fileManager.getJavaFileObjectsFromFiles(files);
@@ -156,9 +188,79 @@ public final class JkJavaCompiler<T> {
         if (!result) {
             return false;
         }
+        if (cacheKey != null) {
+            buildCache.storeDir(cacheKey, classTree);
+        }
         return true;
     }
 
+    /**
+     * Compiles only the source files that have changed since the last compilation made with the specified state file,
+     * plus the source files depending on them. Dependencies between classes are read from compiled class files.
+     * Class files compiled from removed sources are deleted. A full compilation happens when no state is found,
+     * or when the classpath, the compiler or the options have changed. When a full compilation happens, class
+     * files recorded in the previous state are deleted first.
+     *
+     * @param stateFile File storing fingerprints and dependencies of the last compilation. It is created if absent.
+     * @return <code>false</code> if a compilation error occurred.
+     */
+    public boolean compileIncrementally(JkJavaCompileSpec<?> compileSpec, Path stateFile) {
+        return new IncrementalCompilation(this, stateFile).compile(compileSpec);
+    }
+
+    // Identifies the underlying compiler, so a change of compiler can be detected
+    String getDescription() {
+        if (forkingProcess != null) {
+            return "fork:" + forkingProcess.getCommand();
+        }
+        return compilerTool == null ? "default" : compilerTool.getClass().getName();
+    }
+
+    // Returns null if build cache does not apply
+    String buildCacheKey(JkJavaCompileSpec<?> compileSpec, List<File> files) {
+        if (buildCache == null) {
+            return null;
+        }
+        final Path outputDir = compileSpec.getOutputDir().toAbsolutePath().normalize();
+        final List<String> options = new LinkedList<>();
+        final List<String> pathOptions = new LinkedList<>();
+        final List<List<Path>> optionPaths = new LinkedList<>();
+        for (final Iterator<String> it = compileSpec.getOptions().iterator(); it.hasNext(); ) {
+            final String option = it.next();
+            if (!it.hasNext() || (!option.equals("-d") && !PATH_OPTIONS.contains(option))) {
+                options.add(option);
+                continue;
+            }
+            final String value = it.next();
+            if (option.equals("-d")) {
+                continue;
+            }
+            pathOptions.add(option);
+            final List<Path> paths = new LinkedList<>();
+            for (final String item : value.split(File.pathSeparator)) {
+                if (item.isEmpty()) {
+                    continue;
+                }
+                final Path entry = Paths.get(item);
+                if (entry.toAbsolutePath().normalize().equals(outputDir)) {
+                    return null;  // Output dir content is an input : the result can not be reused elsewhere
+                }
+                paths.add(entry);
+            }
+            optionPaths.add(paths);
+        }
+        final JkBuildCache.JkKeyBuilder keyBuilder = JkBuildCache.keyBuilder("compile")
+                .add(System.getProperty("java.version"))
+                .add(getDescription())
+                .add(options)
+                .add(pathOptions);
+        optionPaths.forEach(keyBuilder::addFiles);
+        return keyBuilder
+                .add("sources")
+                .addFiles(files.stream().map(File::toPath).sorted().collect(Collectors.toList()))
+                .build();
+    }
+
     private static String compileWhatMessage(List<Path> paths) {
         List<String> folders = new LinkedList<>();
         List<String> files = new LinkedList<>();
@@ -181,12 +283,17 @@ public final class JkJavaCompiler<T> {
     }
 
     private List<File> toFiles(Collection<Path> paths) {
-        List<File> result = new LinkedList<>();
+        return javaFiles(paths).stream().map(Path::toFile).collect(Collectors.toList());
+    }
+
+    // Expands directories to the Java files they contain
+    static List<Path> javaFiles(Collection<Path> paths) {
+        List<Path> result = new LinkedList<>();
         for (Path path : paths) {
             if (Files.isDirectory(path)) {
-                JkPathTree.of(path).andMatching(true, "**/*.java").stream().forEach(pat -> result.add(pat.toFile()));
+                JkPathTree.of(path).withIndex(true).andMatching(true, "**/*.java").stream().forEach(result::add);
             } else {
-                result.add(path.toFile());
+                result.add(path);
             }
         }
         return result;
@@ -197,7 +304,7 @@ public final class JkJavaCompiler<T> {
         List<Path> paths = compileSpec.getSourceFiles();
         for (final Path file : paths) {
             if (Files.isDirectory(file)) {
-                JkPathTree.of(file).andMatching(true, "**/*.java").stream().forEach(path -> sourcePaths.add(path.toString()));
+                JkPathTree.of(file).withIndex(true).andMatching(true, "**/*.java").stream().forEach(path -> sourcePaths.add(path.toString()));
             } else {
                 sourcePaths.add(file.toAbsolutePath().toString());
             }
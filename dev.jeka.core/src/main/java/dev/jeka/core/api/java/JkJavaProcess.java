@@ -6,6 +6,8 @@ import dev.jeka.core.api.system.JkProcess;
 import dev.jeka.core.api.utils.*;
 import dev.jeka.core.api.utils.JkUtilsIO.JkStreamGobbler;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -238,6 +240,28 @@ public final class JkJavaProcess {
                 .withLogCommand(printCommand);
     }
 
+    /**
+     * Starts the specified class in a new process and returns without waiting for its termination. Unlike
+     * {@link #runClassSync(String, String...)}, the output of the process (merged with its error output) is not
+     * redirected : caller is responsible for consuming it.
+     */
+    public Process startClass(String mainClassName, String... arguments) {
+        final List<String> command = new LinkedList<>();
+        final OptionAndEnv optionAndEnv = optionsAndEnv();
+        command.add(getRunningJavaCommand());
+        command.addAll(optionAndEnv.options);
+        command.add(mainClassName);
+        command.addAll(Arrays.asList(arguments));
+        if (printCommand) {
+            JkLog.info("Start java program : " + String.join(" ", command));
+        }
+        try {
+            return processBuilder(command, optionAndEnv.env).start();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private void runClassOrJarSync(String mainClassName, Path jar, String... arguments) {
         JkUtilsAssert.argument(jar != null || mainClassName != null,
                 "main class name and jar can't be both null while launching a Java process, " +
@@ -301,14 +325,7 @@ public final class JkJavaProcess {
                 options.add(classpath.toString());
             }
         }
-        for (final AgentLibAndOption agentLibAndOption : agents) {
-            final StringBuilder builder = new StringBuilder("-javaagent:")
-                    .append(agentLibAndOption.lib);
-            if (!JkUtilsString.isBlank(agentLibAndOption.options)) {
-                builder.append("=").append(agentLibAndOption.options);
-            }
-            options.add(builder.toString());
-        }
+        options.addAll(getAgentOptions());
         for (final String key : this.systemProperties.keySet()) {
             final String value = this.systemProperties.get(key);
             options.add("-D" + key + "=" + value);
@@ -341,6 +358,11 @@ public final class JkJavaProcess {
             this.lib = lib;
             this.options = options;
         }
+
+        @Override
+        public String toString() {
+            return options == null ? lib : lib + "=" + options;
+        }
     }
 
     /**
@@ -352,4 +374,77 @@ public final class JkJavaProcess {
 
     }
 
+    /**
+     * Returns the directory containing the java executable of this {@link JkJavaProcess}.
+     */
+    public Path getJavaDir() {
+        return javaDir;
+    }
+
+    /**
+     * Returns the system properties passed to this {@link JkJavaProcess}.
+     */
+    public Map<String, String> getSystemProperties() {
+        return Collections.unmodifiableMap(systemProperties);
+    }
+
+    /**
+     * Returns the <code>-javaagent</code> options passed to this {@link JkJavaProcess}.
+     */
+    public List<String> getAgentOptions() {
+        final List<String> result = new LinkedList<>();
+        for (final AgentLibAndOption agentLibAndOption : agents) {
+            final StringBuilder builder = new StringBuilder("-javaagent:")
+                    .append(agentLibAndOption.lib);
+            if (!JkUtilsString.isBlank(agentLibAndOption.options)) {
+                builder.append("=").append(agentLibAndOption.options);
+            }
+            result.add(builder.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the java options passed to this {@link JkJavaProcess}, other than classpath, agents and system
+     * properties.
+     */
+    public List<String> getOptions() {
+        return Collections.unmodifiableList(new ArrayList<>(options));
+    }
+
+    /**
+     * Returns the working directory of this {@link JkJavaProcess}, <code>null</code> meaning the current one.
+     */
+    public Path getWorkingDir() {
+        return workingDir;
+    }
+
+    /**
+     * Returns the environment variables set for this {@link JkJavaProcess}.
+     */
+    public Map<String, String> getEnvironment() {
+        return Collections.unmodifiableMap(environment);
+    }
+
+    /**
+     * Returns a description of the options, system properties and environment of this process, leaving out
+     * file locations (java dir, working dir, agents, classpath), so it does not depend on where the project lies.
+     */
+    public String getOptionsDescription() {
+        return "options=" + options +
+                ", systemProperties=" + new TreeMap<>(systemProperties) +
+                ", environment=" + new TreeMap<>(environment);
+    }
+
+    @Override
+    public String toString() {
+        return "javaDir=" + javaDir +
+                ", options=" + options +
+                ", systemProperties=" + new TreeMap<>(systemProperties) +
+                ", classpath=" + classpath +
+                ", agents=" + agents +
+                ", workingDir=" + workingDir +
+                ", environment=" + new TreeMap<>(environment);
+    }
+
 }
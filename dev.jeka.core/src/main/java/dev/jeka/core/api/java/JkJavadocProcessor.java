@@ -153,7 +153,7 @@ public final class JkJavadocProcessor<T> {
 
     private LinkedHashSet<String> computePackages(JkPathTreeSet srcDirs) {
         LinkedHashSet<String> result = new LinkedHashSet<>();
-        for (Path relFile: srcDirs.getRelativeFiles()) {
+        for (Path relFile: srcDirs.withIndex(true).getRelativeFiles()) {
             Path packageDir = relFile.getParent();
             if (packageDir != null) {
                 String packageName = packageDir.toString().replace(File.separator, ".");
@@ -7,10 +7,13 @@ import dev.jeka.core.api.utils.JkUtilsThrowable;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.jar.Attributes;
 import java.util.jar.Attributes.Name;
 import java.util.jar.Manifest;
@@ -258,15 +261,73 @@ public final class JkManifest<T> {
         }
     }
 
+    /**
+     * Writes this manifest to the specified file.
+     * @see #toBytes()
+     */
     public void writeTo(Path file) {
         JkUtilsPath.createFileSafely(file);
         try (OutputStream outputStream = Files.newOutputStream(file)) {
-            manifest.write(outputStream);
+            outputStream.write(toBytes());
         } catch (final IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Returns the content of this manifest, as written in a manifest file. Unlike {@link Manifest#write(OutputStream)},
+     * the result does not depend on the order attributes have been added : 'Manifest-Version' comes first, then
+     * other main attributes sorted by name, then entry sections sorted by name, each having its attributes sorted
+     * by name. So identical manifests are written identically.
+     */
+    public byte[] toBytes() {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final Attributes mainAttributes = manifest.getMainAttributes();
+        final String version = mainAttributes.getValue(Name.MANIFEST_VERSION);
+        if (version != null) {
+            writeLine(result, Name.MANIFEST_VERSION.toString(), version);
+        }
+        writeAttributes(result, mainAttributes);
+        writeLine(result, null, null);
+        new TreeMap<>(manifest.getEntries()).forEach((entryName, attributes) -> {
+            writeLine(result, "Name", entryName);
+            writeAttributes(result, attributes);
+            writeLine(result, null, null);
+        });
+        return result.toByteArray();
+    }
+
+    private static void writeAttributes(ByteArrayOutputStream out, Attributes attributes) {
+        final SortedMap<String, String> sorted = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        attributes.forEach((key, value) -> sorted.put(key.toString(), value.toString()));
+        sorted.remove(Name.MANIFEST_VERSION.toString());
+        sorted.forEach((key, value) -> writeLine(out, key, value));
+    }
+
+    // Lines are 72 bytes max, longer ones are continued on next lines starting with a space
+    private static void writeLine(ByteArrayOutputStream out, String key, String value) {
+        if (key != null) {
+            final byte[] bytes = (key + ": " + value).getBytes(StandardCharsets.UTF_8);
+            int start = 0;
+            int max = 72;
+            while (bytes.length - start > max) {
+                int end = start + max;
+                while ((bytes[end] & 0xC0) == 0x80) {  // do not split UTF-8 multi-byte characters
+                    end--;
+                }
+                out.write(bytes, start, end - start);
+                out.write('\r');
+                out.write('\n');
+                out.write(' ');
+                start = end;
+                max = 71;
+            }
+            out.write(bytes, start, bytes.length - start);
+        }
+        out.write('\r');
+        out.write('\n');
+    }
+
     /**
      * Returns <code>true</code> if this manifest has no entry or has only
      * "Manifest-Version" entry.
@@ -1,22 +1,28 @@
 package dev.jeka.core.api.java.project;
 
 import dev.jeka.core.api.depmanagement.JkScope;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.file.JkPathTreeSet;
 import dev.jeka.core.api.file.JkResourceProcessor;
 import dev.jeka.core.api.function.JkConsumers;
 import dev.jeka.core.api.function.JkRunnables;
 import dev.jeka.core.api.java.JkJavaCompileSpec;
 import dev.jeka.core.api.java.JkJavaCompiler;
 import dev.jeka.core.api.java.JkJavaVersion;
+import dev.jeka.core.api.java.JkManifest;
 import dev.jeka.core.api.system.JkLog;
 import dev.jeka.core.api.utils.JkUtilsObject;
 
+import java.io.File;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Handles project compilation step. Users can configure inner phases by chaining runnables.
@@ -57,7 +63,9 @@ public class JkJavaProjectCompilation<T> {
 
     private boolean done;
 
-    private Supplier<JkJavaCompileSpec> compileSpecSupplier;
+    private boolean incremental;
+
+    private Supplier<JkJavaCompileSpec<?>> compileSpecSupplier;
 
     private JkJavaVersion javaVersion = DEFAULT_JAVA_VERSION;
 
@@ -80,16 +88,16 @@ public class JkJavaProjectCompilation<T> {
     }
 
     static JkJavaProjectCompilation<JkJavaProjectConstruction> ofProd(JkJavaProjectConstruction projectProduction) {
-        JkJavaProjectCompilation result =
-                new JkJavaProjectCompilation(projectProduction, "production code", projectProduction);
+        JkJavaProjectCompilation<JkJavaProjectConstruction> result =
+                new JkJavaProjectCompilation<>(projectProduction, "production code", projectProduction);
         result.compileSpecSupplier = () -> result.computeProdCompileSpec();
         return result;
     }
 
     static JkJavaProjectCompilation<JkJavaProjectTesting> ofTest(JkJavaProjectConstruction projectProduction,
                                                                  JkJavaProjectTesting parent) {
-        JkJavaProjectCompilation result =
-                new JkJavaProjectCompilation(projectProduction, "test code", parent);
+        JkJavaProjectCompilation<JkJavaProjectTesting> result =
+                new JkJavaProjectCompilation<>(projectProduction, "test code", parent);
         result.compileSpecSupplier = () -> result.computeTestCompileSpec(projectProduction.getCompilation());
         result.layout
                 .setSourceMavenStyle(JkCompileLayout.Concern.TEST)
@@ -119,10 +127,22 @@ public class JkJavaProjectCompilation<T> {
         beforeGenerate.run();
         sourceGenerator.accept(this.layout.resolveGeneratedSourceDir());
         resourceGenerator.accept(this.layout.resolveGeneratedResourceDir());
+        final PhaseFingerprint fingerprint = projectProduction.isSkipUpToDate()
+                ? fingerprint(compileSpecSupplier.get()) : null;
+        if (fingerprint != null) {
+            if (fingerprint.isUpToDate()) {
+                JkLog.endTask();
+                return;
+            }
+            fingerprint.delete();
+        }
         processResources();
         beforeCompile.run();
         runCompile();
         afterCompile.run();
+        if (fingerprint != null) {
+            fingerprint.save();
+        }
         JkLog.endTask();
     }
 
@@ -184,7 +204,7 @@ public class JkJavaProjectCompilation<T> {
      * Returns the runnables to be run after compilation. User can chain its own runnable
      * to customise the process. Empty by default.
      */
-    public JkRunnables getAfterCompile() {
+    public JkRunnables<JkJavaProjectCompilation<T>> getAfterCompile() {
         return afterCompile;
     }
 
@@ -240,22 +260,86 @@ public class JkJavaProjectCompilation<T> {
         return this;
     }
 
-    private JkJavaCompileSpec getComputedCompileSpec() {
+    /**
+     * Returns <code>true</code> if only sources changed since last compilation, and sources depending on them,
+     * are recompiled.
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Sets if compilation should be incremental. If so, only sources changed since last compilation, and
+     * sources depending on them, are recompiled. Class files produced from removed sources are deleted.
+     * A full compilation still happens when classpath, compiler or compile options change.
+     * See {@link JkJavaCompiler#compileIncrementally(JkJavaCompileSpec, Path)}. Resources are processed
+     * incrementally as well, see {@link JkResourceProcessor#generateIncrementally(JkPathTreeSet, Path, Path)}.
+     */
+    public JkJavaProjectCompilation<T> setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
+    /**
+     * Returns the file where the state of the last incremental compilation is stored.
+     */
+    public Path getIncrementalStateFile() {
+        Path classDir = layout.resolveClassDir();
+        return classDir.resolveSibling(classDir.getFileName() + ".compile-state");
+    }
+
+    private JkJavaCompileSpec<?> getComputedCompileSpec() {
         return compileSpecSupplier.get();
     }
 
     private void processResources() {
-        this.getResourceProcessor().generate(layout.resolveResources(), layout.resolveClassDir());
+        Path classDir = layout.resolveClassDir();
+        if (incremental) {
+            this.getResourceProcessor().generateIncrementally(layout.resolveResources(), classDir,
+                    classDir.resolveSibling(classDir.getFileName() + ".resource-state"));
+        } else {
+            this.getResourceProcessor().generate(layout.resolveResources(), classDir);
+        }
     }
 
     private void runCompile() {
-        boolean success = getCompiler().compile(compileSpecSupplier.get());
+        JkJavaCompileSpec<?> compileSpec = compileSpecSupplier.get();
+        boolean success = incremental
+                ? getCompiler().compileIncrementally(compileSpec, getIncrementalStateFile())
+                : getCompiler().compile(compileSpec);
         if (!success) {
             throw new IllegalStateException("Compilation of Java sources failed.");
         }
     }
 
-    private JkJavaCompileSpec computeProdCompileSpec() {
+    private PhaseFingerprint fingerprint(JkJavaCompileSpec<?> compileSpec) {
+        String classpath = compileSpec.getNextValue("-cp");
+        List<Path> classpathEntries = classpath == null ? Collections.emptyList() : Arrays.stream(
+                classpath.split(File.pathSeparator)).filter(item -> !item.isEmpty()).map(Paths::get)
+                .collect(Collectors.toList());
+        final PhaseFingerprint result = projectProduction.fingerprint("Compilation of " + scope,
+                    "compile-" + scope.replace(' ', '-') + ".properties")
+                .addInputFiles("sources", compileSpec.getSourceFiles())
+                .addInputFiles("resources", layout.resolveResources().getFiles())
+                .addInputClasspath("classpath", classpathEntries)
+                .addInput("compile options", System.getProperty("java.version"), compileSpec.getOptions())
+                .addInput("resource charset", resourceProcessor.getInterpolationCharset())
+                .addOutputTree("classes", classTree());
+        if (resourceProcessor.hasInterpolators()) {
+            result.addOpaqueInput("resource interpolation");
+        }
+        if (!beforeCompile.isEmpty() || !afterCompile.isEmpty()) {
+            result.addOpaqueInput("before/after compile actions");
+        }
+        return result;
+    }
+
+    // Jar creation writes the manifest in class dir
+    JkPathTree classTree() {
+        return JkPathTree.of(layout.resolveClassDir()).andMatching(false, JkManifest.STANDARD_LOCATION);
+    }
+
+    private JkJavaCompileSpec<?> computeProdCompileSpec() {
         JkScope[] scopes = new JkScope[] {JkScope.COMPILE, JkScope.PROVIDED};
         return JkJavaCompileSpec.of()
             .setSourceAndTargetVersion(JkUtilsObject.firstNonNull(this.javaVersion, DEFAULT_JAVA_VERSION))
@@ -267,9 +351,9 @@ public class JkJavaProjectCompilation<T> {
             .setOutputDir(layout.resolveClassDir());
     }
 
-    private JkJavaCompileSpec computeTestCompileSpec(JkJavaProjectCompilation prodStep) {
+    private JkJavaCompileSpec<?> computeTestCompileSpec(JkJavaProjectCompilation<?> prodStep) {
         JkScope[] scopes = new JkScope[] {JkScope.TEST, JkScope.PROVIDED};
-        JkJavaCompileSpec prodSpec = prodStep.getComputedCompileSpec();
+        JkJavaCompileSpec<?> prodSpec = prodStep.getComputedCompileSpec();
         return JkJavaCompileSpec.of()
                 .setSourceAndTargetVersion(javaVersion != null ? javaVersion : prodSpec.getSourceVersion())
                 .setEncoding(sourceEncoding != null ? sourceEncoding : prodSpec.getEncoding())
@@ -3,12 +3,22 @@ package dev.jeka.core.api.java.project;
 import dev.jeka.core.api.depmanagement.*;
 import dev.jeka.core.api.file.JkPathMatcher;
 import dev.jeka.core.api.file.JkPathTreeSet;
+import dev.jeka.core.api.java.JkBuildCache;
+import dev.jeka.core.api.java.JkClassRelocation;
+import dev.jeka.core.api.java.JkJarEntryTransformer;
 import dev.jeka.core.api.java.JkJarPacker;
+import dev.jeka.core.api.java.JkJavaCompiler;
 import dev.jeka.core.api.java.JkManifest;
+import dev.jeka.core.api.java.testing.JkTestProcessor;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.function.Consumer;
+import java.util.zip.Deflater;
 
 /**
  * Responsible to produce jar files. It involves compilation and unit testing.
@@ -37,10 +47,22 @@ public class JkJavaProjectConstruction {
 
     private PathMatcher fatJarFilter = JkPathMatcher.of(); // take all
 
+    private List<JkJarEntryTransformer> fatJarEntryTransformers = JkJarEntryTransformer.defaults();
+
+    private List<JkClassRelocation> fatJarRelocations = Collections.emptyList();
+
     private final JkManifest manifest;
 
     private JkPathTreeSet extraFilesToIncludeInFatJar = JkPathTreeSet.ofEmpty();
-    
+
+    private boolean skipUpToDate;
+
+    private JkBuildCache buildCache;
+
+    private int jarCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    private boolean reproducibleJars;
+
     /**
      * For Parent chaining
      */
@@ -94,14 +116,124 @@ public class JkJavaProjectConstruction {
         }
     }
 
+    /**
+     * Returns <code>true</code> if compilation, test and jar creation phases are skipped when their inputs and
+     * outputs have not changed since their last successful execution.
+     */
+    public boolean isSkipUpToDate() {
+        return skipUpToDate;
+    }
+
+    /**
+     * Sets if compilation, test and jar creation phases should be skipped when their inputs (sources, resources,
+     * classpath, compile options, interpolated values, test selection, manifest, ...) and outputs have not
+     * changed since their last successful execution. Fingerprints of last executions are stored in the project
+     * output dir, so they are discarded when the output dir is cleaned.
+     */
+    public JkJavaProjectConstruction setSkipUpToDate(boolean skipUpToDate) {
+        this.skipUpToDate = skipUpToDate;
+        return this;
+    }
+
+    public JkBuildCache getBuildCache() {
+        return buildCache;
+    }
+
+    /**
+     * Sets the build cache to use for compiling production and test code, running tests and creating jars.
+     * When the outputs of these tasks are found in the cache for identical inputs, they are restored instead of
+     * being recomputed. <code>null</code> disables build caching.
+     * @see JkJavaCompiler#setBuildCache(JkBuildCache)
+     * @see JkTestProcessor#setBuildCache(JkBuildCache)
+     * @see JkJarPacker#withBuildCache(JkBuildCache)
+     */
+    public JkJavaProjectConstruction setBuildCache(JkBuildCache buildCache) {
+        this.buildCache = buildCache;
+        compilation.getCompiler().setBuildCache(buildCache);
+        testing.getCompilation().getCompiler().setBuildCache(buildCache);
+        testing.getTestProcessor().setBuildCache(buildCache);
+        return this;
+    }
+
+    public int getJarCompressionLevel() {
+        return jarCompressionLevel;
+    }
+
+    /**
+     * Sets the compression level of the created jars, from 0 (no compression) to 9 (best compression),
+     * -1 standing for the default level.
+     * @see JkJarPacker#withCompressionLevel(int)
+     */
+    public JkJavaProjectConstruction setJarCompressionLevel(int jarCompressionLevel) {
+        this.jarCompressionLevel = jarCompressionLevel;
+        return this;
+    }
+
+    public boolean isReproducibleJars() {
+        return reproducibleJars;
+    }
+
+    /**
+     * Sets if the created jars should be reproducible, meaning that jars created from unchanged content are
+     * identical byte for byte, so they have identical checksums.
+     * @see JkJarPacker#withReproducible(boolean)
+     */
+    public JkJavaProjectConstruction setReproducibleJars(boolean reproducibleJars) {
+        this.reproducibleJars = reproducibleJars;
+        return this;
+    }
+
+    public List<JkJarEntryTransformer> getFatJarEntryTransformers() {
+        return fatJarEntryTransformers;
+    }
+
+    /**
+     * Sets the transformers merging entries present in several jars when creating fat jars.
+     * @see JkJarPacker#withEntryTransformers(List)
+     */
+    public JkJavaProjectConstruction setFatJarEntryTransformers(List<JkJarEntryTransformer> fatJarEntryTransformers) {
+        this.fatJarEntryTransformers = fatJarEntryTransformers;
+        return this;
+    }
+
+    public List<JkClassRelocation> getFatJarRelocations() {
+        return fatJarRelocations;
+    }
+
+    /**
+     * Sets the packages to relocate (aka shade) when creating fat jars.
+     * @see JkJarPacker#withRelocations(List)
+     */
+    public JkJavaProjectConstruction setFatJarRelocations(List<JkClassRelocation> fatJarRelocations) {
+        this.fatJarRelocations = fatJarRelocations;
+        return this;
+    }
+
+    PhaseFingerprint fingerprint(String phaseName, String fileName) {
+        return PhaseFingerprint.of(phaseName, project.getOutputDir().resolve("fingerprints").resolve(fileName));
+    }
+
     public void createBinJar(Path target) {
         compilation.runIfNecessary();
         testing.runIfNecessary();
         addManifestDefaults();
+        final PhaseFingerprint fingerprint = skipUpToDate ? jarFingerprint(target) : null;
+        if (fingerprint != null) {
+            if (fingerprint.isUpToDate()) {
+                return;
+            }
+            fingerprint.delete();
+        }
         JkJarPacker.of(compilation.getLayout().resolveClassDir())
                 .withManifest(manifest)
                 .withExtraFiles(getExtraFilesToIncludeInJar())
+                .withBuildCache(buildCache)
+                .withCompressionLevel(jarCompressionLevel)
+                .withReproducible(reproducibleJars)
                 .makeJar(target);
+        if (fingerprint != null) {
+            fingerprint.save();
+        }
     }
 
     public void createBinJar() {
@@ -113,16 +245,57 @@ public class JkJavaProjectConstruction {
         testing.runIfNecessary();
         Iterable<Path> classpath = dependencyManagement.fetchDependencies(JkScope.RUNTIME).getFiles();
         addManifestDefaults();
+        final PhaseFingerprint fingerprint = !skipUpToDate ? null : fatJarFingerprint(target, classpath);
+        if (fingerprint != null) {
+            if (fingerprint.isUpToDate()) {
+                return;
+            }
+            fingerprint.delete();
+        }
         JkJarPacker.of(compilation.getLayout().resolveClassDir())
                 .withManifest(manifest)
                 .withExtraFiles(getExtraFilesToIncludeInJar())
+                .withBuildCache(buildCache)
+                .withCompressionLevel(jarCompressionLevel)
+                .withReproducible(reproducibleJars)
+                .withEntryTransformers(fatJarEntryTransformers)
+                .withRelocations(fatJarRelocations)
                 .makeFatJar(target, classpath, this.fatJarFilter);
+        if (fingerprint != null) {
+            fingerprint.save();
+        }
     }
 
     public void createFatJar() {
         createFatJar(project.getArtifactPath(JkArtifactId.of("fat", "jar")));
     }
 
+    // fatJarFilter is not an input as it always takes all entries
+    private PhaseFingerprint fatJarFingerprint(Path target, Iterable<Path> classpath) {
+        final PhaseFingerprint result = jarFingerprint(target).addInputFiles("runtime classpath", classpath);
+        if (fatJarEntryTransformers.equals(JkJarEntryTransformer.defaults())) {
+            result.addInput("fat jar entry transformers", "defaults");
+        } else {
+            result.addOpaqueInput("fat jar entry transformers");
+        }
+        final List<String> relocations = new LinkedList<>();
+        fatJarRelocations.forEach(relocation -> {
+            relocations.add(relocation.getPackageName());
+            relocations.add(relocation.getRelocatedPackageName());
+        });
+        return result.addInput("fat jar relocations", relocations);
+    }
+
+    private PhaseFingerprint jarFingerprint(Path target) {
+        return fingerprint("Creation of " + target.getFileName(), "jar-" + target.getFileName() + ".properties")
+                .addInputTree("classes", compilation.classTree())
+                .addInput("manifest", new String(manifest.toBytes(), StandardCharsets.UTF_8))
+                .addInputFiles("extra files", getExtraFilesToIncludeInJar().getFiles())
+                .addInput("compression level", jarCompressionLevel)
+                .addInput("reproducible", reproducibleJars)
+                .addOutputFiles("jar file", Collections.singletonList(target));
+    }
+
     public JkPathTreeSet getExtraFilesToIncludeInJar() {
         return this.extraFilesToIncludeInFatJar;
     }
@@ -5,6 +5,7 @@ import dev.jeka.core.api.file.JkPathSequence;
 import dev.jeka.core.api.function.JkRunnables;
 import dev.jeka.core.api.java.JkJavaCompileSpec;
 import dev.jeka.core.api.java.JkJavaCompiler;
+import dev.jeka.core.api.java.JkJavaProcess;
 import dev.jeka.core.api.java.testing.JkTestProcessor;
 import dev.jeka.core.api.java.testing.JkTestResult;
 import dev.jeka.core.api.java.testing.JkTestSelection;
@@ -12,6 +13,9 @@ import dev.jeka.core.api.system.JkLog;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.function.Consumer;
 import java.util.function.UnaryOperator;
 
@@ -27,11 +31,11 @@ public class JkJavaProjectTesting {
 
     private final JkJavaProjectCompilation<JkJavaProjectTesting> compilation;
 
-    public final JkRunnables afterTest;
+    public final JkRunnables<JkJavaProjectTesting> afterTest;
 
-    private JkTestProcessor testProcessor;
+    private JkTestProcessor<JkJavaProjectTesting> testProcessor;
 
-    private JkTestSelection testSelection;
+    private JkTestSelection<JkJavaProjectTesting> testSelection;
 
     // replative path from output dir
     private String reportDir = "test-report";
@@ -42,6 +46,8 @@ public class JkJavaProjectTesting {
 
     private boolean breakOnFailures = true;
 
+    private boolean testImpactAnalysis;
+
     /**
      * For parent chaining
      */
@@ -122,6 +128,31 @@ public class JkJavaProjectTesting {
         return this;
     }
 
+    public boolean isTestImpactAnalysis() {
+        return testImpactAnalysis;
+    }
+
+    /**
+     * Specifies if only test classes affected by classes changed since the last successful test run should be
+     * run. Test classes are affected if they depend, directly or transitively, on a changed class found in a class
+     * directory of the test classpath. All tests run when dependency jars, resources, test selection or forking
+     * process have changed, and when a change is not a plain code change (deleted classes, classes defining
+     * constants, service implementations or classes named in string literals). Other dependencies through
+     * reflection, as dependency injection or class path scanning, are not detected : tests reaching changed
+     * classes only this way are skipped. Reports only mention the tests that have run.
+     */
+    public JkJavaProjectTesting setTestImpactAnalysis(boolean testImpactAnalysis) {
+        this.testImpactAnalysis = testImpactAnalysis;
+        return this;
+    }
+
+    /**
+     * Returns the file where is stored the state of the last successful test run, for test impact analysis.
+     */
+    public Path getTestImpactStateFile() {
+        return projectProduction.getProject().getOutputDir().resolve("test-impact-state");
+    }
+
     public Path getReportDir() {
         return projectProduction.getProject().getOutputDir().resolve(reportDir);
     }
@@ -144,7 +175,17 @@ public class JkJavaProjectTesting {
         JkLog.startTask("Process tests");
         this.projectProduction.getCompilation().runIfNecessary();
         this.compilation.run();
-        executeWithTestProcessor();
+        final PhaseFingerprint fingerprint = projectProduction.isSkipUpToDate() ? fingerprint() : null;
+        if (fingerprint != null) {
+            if (fingerprint.isUpToDate()) {
+                JkLog.endTask();
+                return;
+            }
+            fingerprint.delete();
+        }
+        if (executeWithTestProcessor() && fingerprint != null) {
+            fingerprint.save();
+        }
         afterTest.run();
         JkLog.endTask();
     }
@@ -167,17 +208,87 @@ public class JkJavaProjectTesting {
         done = false;
     }
 
-    private void executeWithTestProcessor() {
+    // Returns true if no test has failed
+    private boolean executeWithTestProcessor() {
         UnaryOperator<JkPathSequence> op = paths -> paths.resolvedTo(projectProduction.getProject().getOutputDir());
         testSelection.setTestClassRoots(op);
-        JkTestResult result = testProcessor.launch(getTestClasspath(), testSelection);
+        JkPathSequence testClasspath = getTestClasspath();
+        JkTestSelection<?> selection = testSelection;
+        TestImpactAnalysis impactAnalysis = null;
+        if (testImpactAnalysis) {
+            impactAnalysis = TestImpactAnalysis.of(getTestImpactStateFile(), testClasspath, testSelection,
+                    "java=" + System.getProperty("java.version") + ", " + selectionDescription()
+                            + ", forkingProcess=" + forkingProcessDescription());
+            selection = impactAnalysis.select(testSelection);
+            if (selection == null) {
+                impactAnalysis.save();
+                return true;
+            }
+        }
+        JkTestResult result = testProcessor.launch(testClasspath, selection);
+        boolean success = result.getFailures().isEmpty();
+        if (impactAnalysis != null && success) {
+            impactAnalysis.save();
+        }
         if (breakOnFailures) {
             result.assertNoFailure();
         }
+        return success;
+    }
+
+    private String selectionDescription() {
+        JkPathSequence testClassRoots = testSelection.getTestClassRoots()
+                .resolvedTo(projectProduction.getProject().getOutputDir());
+        return "testClassRoots=" + testClassRoots
+                + ", includePatterns=" + new TreeSet<>(testSelection.getIncludePatterns())
+                + ", excludePatterns=" + new TreeSet<>(testSelection.getExcludePatterns())
+                + ", includeTags=" + new TreeSet<>(testSelection.getIncludeTags())
+                + ", excludeTags=" + new TreeSet<>(testSelection.getExcludeTags());
+    }
+
+    // Built on explicit fields, as the fingerprint, so no setting of the forking process can be missed
+    private String forkingProcessDescription() {
+        JkJavaProcess forkingProcess = testProcessor.getForkingProcess();
+        if (forkingProcess == null) {
+            return "none";
+        }
+        return "[javaDir=" + forkingProcess.getJavaDir()
+                + ", systemProperties=" + new TreeMap<>(forkingProcess.getSystemProperties())
+                + ", classpath=" + forkingProcess.getClasspath().getEntries()
+                + ", agents=" + forkingProcess.getAgentOptions()
+                + ", options=" + forkingProcess.getOptions()
+                + ", workingDir=" + forkingProcess.getWorkingDir()
+                + ", environment=" + new TreeMap<>(forkingProcess.getEnvironment()) + "]";
+    }
+
+    private PhaseFingerprint fingerprint() {
+        JkJavaProcess forkingProcess = testProcessor.getForkingProcess();
+        PhaseFingerprint result = projectProduction.fingerprint("Test execution", "test.properties")
+                .addInputFiles("test classpath", getTestClasspath())
+                .addInput("test selection",
+                        testSelection.getTestClassRoots().resolvedTo(projectProduction.getProject().getOutputDir())
+                                .getEntries(),
+                        testSelection.getIncludePatterns(), testSelection.getExcludePatterns(),
+                        testSelection.getIncludeTags(), testSelection.getExcludeTags());
+        if (forkingProcess == null) {
+            result.addInput("forking process", (Object) null);
+        } else {
+            result.addInput("forking process", forkingProcess.getJavaDir(), forkingProcess.getSystemProperties(),
+                    forkingProcess.getClasspath().getEntries(), forkingProcess.getAgentOptions(),
+                    forkingProcess.getOptions(), forkingProcess.getWorkingDir(), forkingProcess.getEnvironment());
+        }
+        if (!afterTest.isEmpty()) {
+            result.addOpaqueInput("after test actions");
+        }
+        Path legacyReportDir = testProcessor.getEngineBehavior().getLegacyReportDir();
+        if (legacyReportDir != null) {
+            result.addOutputFiles("test reports", Collections.singletonList(legacyReportDir));
+        }
+        return result;
     }
 
     private JkTestProcessor<JkJavaProjectTesting> defaultTestProcessor() {
-        JkTestProcessor result = JkTestProcessor.ofParent(this);
+        JkTestProcessor<JkJavaProjectTesting> result = JkTestProcessor.ofParent(this);
         final Path reportDir = compilation.getLayout().getOutputDir().resolve(this.reportDir);
         result.getEngineBehavior()
                 .setLegacyReportDir(reportDir)
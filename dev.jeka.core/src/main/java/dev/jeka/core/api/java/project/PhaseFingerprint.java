@@ -0,0 +1,300 @@
+package dev.jeka.core.api.java.project;
+
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.java.JkClassAbi;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.function.Supplier;
+
+/*
+ * Fingerprint of the inputs and outputs of a project phase (compilation, test run, jar creation). It is stored
+ * when the phase succeeds so that a next run can skip the phase if none of its inputs and outputs have changed
+ * since.
+ *
+ * Files are fingerprinted on their path, size and last modified time. Directories are walked, except class
+ * directories of a compile classpath that are fingerprinted on the binary interface of their classes. Other inputs are
+ * fingerprinted on explicit fields of well known types, never on <code>toString()</code> which is not a stable key.
+ */
+final class PhaseFingerprint {
+
+    private static final String INPUT_PREFIX = "input.";
+
+    private static final String OUTPUT_PREFIX = "output.";
+
+    private final String phaseName;
+
+    private final Path file;
+
+    private final Map<String, String> inputs = new LinkedHashMap<>();
+
+    private final Map<String, Supplier<String>> outputs = new LinkedHashMap<>();
+
+    private final List<String> opaqueInputs = new LinkedList<>();
+
+    private PhaseFingerprint(String phaseName, Path file) {
+        this.phaseName = phaseName;
+        this.file = file;
+    }
+
+    /**
+     * Creates an empty fingerprint for the specified phase, stored in the specified file.
+     */
+    static PhaseFingerprint of(String phaseName, Path file) {
+        return new PhaseFingerprint(phaseName, file);
+    }
+
+    /**
+     * Adds an input described by the specified fields. Fields can be <code>null</code>, strings, numbers, booleans,
+     * enums, paths, charsets, or maps, collections and arrays of these. Maps and sets are fingerprinted regardless of
+     * their iteration order.
+     *
+     * @throws IllegalArgumentException if a field is of another type.
+     */
+    PhaseFingerprint addInput(String name, Object... fields) {
+        final MessageDigest digest = md5();
+        for (final Object field : fields) {
+            update(digest, describe(name, field));
+        }
+        inputs.put(name, JkUtilsString.toHexString(digest.digest()));
+        return this;
+    }
+
+    /**
+     * Adds an input that can not be described by explicit fields (e.g. a user supplied function). The phase is
+     * then never considered as up to date.
+     */
+    PhaseFingerprint addOpaqueInput(String name) {
+        opaqueInputs.add(name);
+        return this;
+    }
+
+    /**
+     * Adds an input made of the specified files or directories.
+     */
+    PhaseFingerprint addInputFiles(String name, Iterable<Path> paths) {
+        inputs.put(name, filesHash(paths));
+        return this;
+    }
+
+    /**
+     * Adds an input made of the specified compile classpath. Directories are fingerprinted on the binary interface
+     * of the classes they contain, as it is all compilation depends on.
+     */
+    PhaseFingerprint addInputClasspath(String name, Iterable<Path> entries) {
+        final MessageDigest digest = md5();
+        for (final Path entry : entries) {
+            final Path path = entry.toAbsolutePath().normalize();
+            if (Files.isDirectory(path)) {
+                update(digest, path.toString());
+                update(digest, JkClassAbi.hashOf(path));
+            } else {
+                update(digest, filesHash(Collections.singletonList(path)));
+            }
+        }
+        inputs.put(name, JkUtilsString.toHexString(digest.digest()));
+        return this;
+    }
+
+    /**
+     * Adds an input made of the files of the specified tree.
+     */
+    PhaseFingerprint addInputTree(String name, JkPathTree tree) {
+        inputs.put(name, treeHash(tree));
+        return this;
+    }
+
+    /**
+     * Adds an output made of the specified files or directories. Outputs are fingerprinted when the phase
+     * succeeds, so their modification or deletion makes the phase re-run.
+     */
+    PhaseFingerprint addOutputFiles(String name, Iterable<Path> paths) {
+        final List<Path> list = new LinkedList<>();
+        paths.forEach(list::add);
+        outputs.put(name, () -> filesHash(list));
+        return this;
+    }
+
+    /**
+     * Adds an output made of the files of the specified tree.
+     */
+    PhaseFingerprint addOutputTree(String name, JkPathTree tree) {
+        outputs.put(name, () -> treeHash(tree));
+        return this;
+    }
+
+    /**
+     * Returns <code>true</code> if the fingerprint stored at last successful execution matches the current one.
+     * Otherwise, logs the reason why the phase has to run again.
+     */
+    boolean isUpToDate() {
+        final String reason = outdatedReason();
+        if (reason == null) {
+            JkLog.info(phaseName + " is up to date : skipped.");
+            return true;
+        }
+        JkLog.info(phaseName + " has to run : " + reason + ".");
+        return false;
+    }
+
+    /**
+     * Records the current fingerprint as the one of a successful execution.
+     */
+    void save() {
+        final Properties properties = new Properties();
+        inputs.forEach((name, hash) -> properties.setProperty(INPUT_PREFIX + name, hash));
+        outputs.forEach((name, hash) -> properties.setProperty(OUTPUT_PREFIX + name, hash.get()));
+        JkUtilsPath.createDirectories(file.toAbsolutePath().getParent());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, "Fingerprint of " + phaseName);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Forgets about the last successful execution, so next check will fail.
+     */
+    void delete() {
+        JkUtilsPath.deleteIfExists(file);
+    }
+
+    private String outdatedReason() {
+        if (!opaqueInputs.isEmpty()) {
+            return opaqueInputs.get(0) + " can not be fingerprinted";
+        }
+        if (!Files.exists(file)) {
+            return "no previous successful execution recorded";
+        }
+        final Properties previous = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            previous.load(in);
+        } catch (final IOException | IllegalArgumentException e) {
+            JkLog.trace("Cannot read fingerprint " + file + " : " + e.getMessage());
+            return "previous fingerprint is unreadable";
+        }
+        for (final Map.Entry<String, String> entry : inputs.entrySet()) {
+            if (!entry.getValue().equals(previous.getProperty(INPUT_PREFIX + entry.getKey()))) {
+                return entry.getKey() + " changed";
+            }
+        }
+        for (final Map.Entry<String, Supplier<String>> entry : outputs.entrySet()) {
+            if (!entry.getValue().get().equals(previous.getProperty(OUTPUT_PREFIX + entry.getKey()))) {
+                return entry.getKey() + " changed or deleted";
+            }
+        }
+        return null;
+    }
+
+    private static String describe(String inputName, Object field) {
+        if (field == null) {
+            return "null";
+        }
+        if (field instanceof CharSequence || field instanceof Number || field instanceof Boolean
+                || field instanceof Character) {
+            return scalar(field.getClass().getSimpleName(), field.toString());
+        }
+        if (field instanceof Enum) {
+            return scalar(((Enum<?>) field).getDeclaringClass().getName(), ((Enum<?>) field).name());
+        }
+        if (field instanceof Charset) {
+            return scalar("Charset", ((Charset) field).name());
+        }
+        if (field instanceof Path) {
+            return scalar("Path", ((Path) field).toAbsolutePath().normalize().toString());
+        }
+        if (field instanceof Map) {
+            final SortedSet<String> entries = new TreeSet<>();
+            ((Map<?, ?>) field).forEach((key, value) ->
+                    entries.add(describe(inputName, key) + "=" + describe(inputName, value)));
+            return "Map:" + entries;
+        }
+        if (field instanceof Set) {
+            final SortedSet<String> items = new TreeSet<>();
+            ((Set<?>) field).forEach(item -> items.add(describe(inputName, item)));
+            return "Set:" + items;
+        }
+        if (field instanceof Iterable) {
+            final List<String> items = new LinkedList<>();
+            ((Iterable<?>) field).forEach(item -> items.add(describe(inputName, item)));
+            return "List:" + items;
+        }
+        if (field instanceof Object[]) {
+            return describe(inputName, Arrays.asList((Object[]) field));
+        }
+        throw new IllegalArgumentException("Field of type " + field.getClass().getName() + " for input '"
+                + inputName + "' can not be fingerprinted.");
+    }
+
+    // Length prefix prevents values containing separators from colliding
+    private static String scalar(String type, String value) {
+        return type + ":" + value.length() + ":" + value;
+    }
+
+    private static String filesHash(Iterable<Path> paths) {
+        final MessageDigest digest = md5();
+        for (final Path path : paths) {
+            final Path root = path.toAbsolutePath().normalize();
+            if (Files.isDirectory(root)) {
+                update(digest, JkPathTree.of(root));
+            } else if (Files.exists(root)) {
+                update(digest, root.toString());
+                update(digest, sizeAndTime(root));
+            } else {
+                update(digest, root.toString());
+                update(digest, "-");
+            }
+        }
+        return JkUtilsString.toHexString(digest.digest());
+    }
+
+    private static String treeHash(JkPathTree tree) {
+        final MessageDigest digest = md5();
+        update(digest, tree);
+        return JkUtilsString.toHexString(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, JkPathTree tree) {
+        final Path root = tree.getRoot().toAbsolutePath().normalize();
+        update(digest, root.toString());
+        if (!tree.exists()) {
+            update(digest, "-");
+            return;
+        }
+        tree.stream().filter(Files::isRegularFile).map(Path::toAbsolutePath).sorted().forEach(file -> {
+            update(digest, root.relativize(file.normalize()).toString());
+            update(digest, sizeAndTime(file));
+        });
+    }
+
+    private static String sizeAndTime(Path file) {
+        try {
+            return Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+}
@@ -0,0 +1,247 @@
+package dev.jeka.core.api.java.project;
+
+import dev.jeka.core.api.file.JkFileHasher;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.java.JkClassDependencies;
+import dev.jeka.core.api.java.testing.JkTestSelection;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/*
+ * Restricts a test selection to the test classes affected by the classes changed since the last successful test
+ * run.
+ *
+ * The state of the last successful run (fingerprint of jars and test configuration, hash of each class file found
+ * in class directories of the test classpath and classes each test class depends on) is stored in a file. A test
+ * class is affected if it depends, directly or transitively, on a changed class according the current class files
+ * or the recorded ones.
+ *
+ * Only static references are followed, so all tests run whenever a change is not a plain code change : no state,
+ * changed jars, resources (including META-INF/services files) or test configuration, deleted classes, changed
+ * classes defining (now or before) compile-time constants that are inlined without referencing the declaring class,
+ * and changed classes that may be reached without static reference : service implementations declared in
+ * META-INF/services and classes named in string literals. Classes reached through other reflective means
+ * (dependency injection, class path scanning, ...) are still missed.
+ */
+final class TestImpactAnalysis {
+
+    private static final String RESOURCE_DIGEST_ALGORITHM = "SHA-256";
+
+    private final Path stateFile;
+
+    private final String configFingerprint;
+
+    private final JkClassDependencies dependencies;
+
+    private final Set<String> testClassNames;
+
+    private final Set<String> serviceImplementations;
+
+    private TestImpactAnalysis(Path stateFile, String configFingerprint, JkClassDependencies dependencies,
+                               Set<String> testClassNames, Set<String> serviceImplementations) {
+        this.stateFile = stateFile;
+        this.configFingerprint = configFingerprint;
+        this.dependencies = dependencies;
+        this.testClassNames = testClassNames;
+        this.serviceImplementations = serviceImplementations;
+    }
+
+    /**
+     * Analyses class directories of the specified test classpath. The specified configuration describes anything
+     * else than the test classpath, that may change test results.
+     */
+    static TestImpactAnalysis of(Path stateFile, Iterable<Path> testClasspath, JkTestSelection<?> selection,
+                                 String configuration) {
+        final List<Path> classDirs = new LinkedList<>();
+        final StringBuilder config = new StringBuilder(configuration);
+        final JkFileHasher hasher = JkFileHasher.of();
+        final Set<String> serviceImplementations = new HashSet<>();
+        for (final Path entry : testClasspath) {
+            if (Files.isDirectory(entry)) {
+                classDirs.add(entry);
+                serviceImplementations.addAll(serviceImplementations(entry));
+
+                // Tests may depend on any resource, so a changed resource is a change in test configuration
+                config.append('\n').append(entry.toAbsolutePath().normalize()).append(":resources:")
+                        .append(hasher.getTreeDigest(JkPathTree.of(entry).andMatching(false, "**.class", "*.class"),
+                                RESOURCE_DIGEST_ALGORITHM));
+            } else {
+                config.append('\n').append(entry.toAbsolutePath().normalize()).append(':').append(sizeAndTime(entry));
+            }
+        }
+        final JkClassDependencies dependencies = JkClassDependencies.of(classDirs);
+        final Set<String> testClassNames = JkClassDependencies.of(selection.getTestClassRoots()).getClassNames()
+                .stream()
+                .map(TestImpactAnalysis::topLevelClassName)
+                .collect(Collectors.toCollection(TreeSet::new));
+        return new TestImpactAnalysis(stateFile, config.toString(), dependencies, testClassNames,
+                serviceImplementations);
+    }
+
+    /**
+     * Returns the specified selection restricted to the affected test classes, the specified selection itself if
+     * all tests have to run, or <code>null</code> if no test class is affected.
+     */
+    JkTestSelection<?> select(JkTestSelection<?> selection) {
+        for (final Path root : selection.getTestClassRoots()) {
+            if (Files.exists(root) && !Files.isDirectory(root)) {
+                JkLog.info("Running all tests : test class root " + root + " is not a directory.");
+                return selection;
+            }
+        }
+        final State previous = readState();
+        if (previous == null) {
+            JkLog.info("Running all tests : no previous successful test run recorded.");
+            return selection;
+        }
+        if (!configFingerprint.equals(previous.configFingerprint)) {
+            JkLog.info("Running all tests : dependencies, resources or test configuration changed.");
+            return selection;
+        }
+        final Set<String> changedClasses = new TreeSet<>(previous.classHashes.keySet());
+        changedClasses.addAll(dependencies.getClassNames());
+        changedClasses.removeIf(name -> Objects.equals(previous.classHashes.get(name), dependencies.getHash(name)));
+        if (changedClasses.isEmpty()) {
+            JkLog.info("No class changed since last successful test run : tests skipped.");
+            return null;
+        }
+        final String fullRunReason = fullRunReason(changedClasses, previous);
+        if (fullRunReason != null) {
+            JkLog.info("Running all tests : " + fullRunReason);
+            return selection;
+        }
+        final List<String> affectedTests = new LinkedList<>();
+        for (final String testClassName : testClassNames) {
+            final Set<String> previousDependencies = previous.testDependencies.get(testClassName);
+            if (previousDependencies == null
+                    || !Collections.disjoint(previousDependencies, changedClasses)
+                    || !Collections.disjoint(testDependencies(testClassName), changedClasses)) {
+                affectedTests.add(testClassName);
+            }
+        }
+        if (affectedTests.isEmpty()) {
+            JkLog.info(JkUtilsString.plurialize(changedClasses.size(), "class", "classes")
+                    + " changed since last successful test run, no test class affected : tests skipped.");
+            return null;
+        }
+        JkLog.info(JkUtilsString.plurialize(changedClasses.size(), "class", "classes")
+                + " changed since last successful test run : running " + affectedTests.size() + " of "
+                + JkUtilsString.plurialize(testClassNames.size(), "test class", "test classes") + ".");
+        JkLog.trace("Affected test classes : " + affectedTests);
+        final String alternatives = affectedTests.stream().map(Pattern::quote).collect(Collectors.joining("|"));
+        return selection.clone().addExcludePatterns("(?!(?:" + alternatives + ")(?:\\$.*)?$).*");
+    }
+
+    /**
+     * Records the current state as the one of a successful test run.
+     */
+    void save() {
+        final State state = new State();
+        state.configFingerprint = configFingerprint;
+        dependencies.getClassNames().forEach(name -> state.classHashes.put(name, dependencies.getHash(name)));
+        dependencies.getClassNames().stream().filter(dependencies::definesConstants)
+                .forEach(state.constantOwners::add);
+        testClassNames.forEach(name -> state.testDependencies.put(name, testDependencies(name)));
+        JkUtilsPath.createDirectories(stateFile.toAbsolutePath().getParent());
+        JkUtilsIO.serialize(state, stateFile);
+    }
+
+    // Returns why the changed classes can not be narrowed to a set of affected tests, or null if they can
+    private String fullRunReason(Set<String> changedClasses, State previous) {
+        for (final String changedClass : changedClasses) {
+            if (dependencies.getHash(changedClass) == null) {
+                return changedClass + " has been deleted.";
+            }
+            if (dependencies.definesConstants(changedClass) || previous.constantOwners.contains(changedClass)) {
+                return changedClass + " defines compile time constants that may be inlined in other classes.";
+            }
+            if (serviceImplementations.contains(changedClass)) {
+                return changedClass + " is a service implementation declared in META-INF/services.";
+            }
+            if (dependencies.isNamedByString(changedClass)) {
+                return changedClass + " is named in a string literal, so may be loaded by reflection.";
+            }
+        }
+        return null;
+    }
+
+    // Class names listed in the META-INF/services files of the specified class dir
+    private static Set<String> serviceImplementations(Path classDir) {
+        final Path servicesDir = classDir.resolve("META-INF/services");
+        if (!Files.isDirectory(servicesDir)) {
+            return Collections.emptySet();
+        }
+        final Set<String> result = new HashSet<>();
+        JkPathTree.of(servicesDir).getFiles().forEach(file -> {
+            for (final String line : JkUtilsPath.readAllLines(file)) {
+                final String className = JkUtilsString.substringBeforeFirst(line + "#", "#").trim();
+                if (!className.isEmpty()) {
+                    result.add(className);
+                }
+            }
+        });
+        return result;
+    }
+
+    // Dependencies of the specified test class and its nested classes
+    private Set<String> testDependencies(String testClassName) {
+        final List<String> roots = dependencies.getClassNames().stream()
+                .filter(name -> name.equals(testClassName) || name.startsWith(testClassName + "$"))
+                .collect(Collectors.toList());
+        return new HashSet<>(dependencies.getTransitiveDependencies(roots));
+    }
+
+    private State readState() {
+        if (!Files.exists(stateFile)) {
+            return null;
+        }
+        try {
+            return JkUtilsIO.deserialize(stateFile);
+        } catch (final RuntimeException e) {
+            JkLog.trace("Cannot read test impact state " + stateFile + " : " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String topLevelClassName(String className) {
+        final int dollarIndex = className.indexOf('$');
+        return dollarIndex < 0 ? className : className.substring(0, dollarIndex);
+    }
+
+    private static String sizeAndTime(Path file) {
+        if (!Files.exists(file)) {
+            return "-";
+        }
+        try {
+            return Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class State implements Serializable {
+
+        private static final long serialVersionUID = 2L;
+
+        private String configFingerprint;
+
+        private final Map<String, String> classHashes = new HashMap<>();
+
+        private final Set<String> constantOwners = new HashSet<>();
+
+        private final Map<String, Set<String>> testDependencies = new HashMap<>();
+
+    }
+
+}
@@ -1,20 +1,29 @@
 package dev.jeka.core.api.java.testing;
 
 import dev.jeka.core.api.file.JkPathSequence;
+import dev.jeka.core.api.file.JkPathTree;
 import dev.jeka.core.api.function.JkRunnables;
 import dev.jeka.core.api.function.JkUnaryOperator;
 import dev.jeka.core.api.java.*;
 import dev.jeka.core.api.system.JkLog;
-import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsAssert;
 import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
 import org.junit.platform.launcher.core.LauncherConfig;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.ServiceLoader;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Processor executing a given bunch of tests existing in compiled Java classes. <p/>
@@ -73,6 +82,12 @@ public final class JkTestProcessor<T> {
 
     private final JkRunnables postActions = JkRunnables.of();
 
+    private JkBuildCache buildCache;
+
+    private int forkCount = 1;
+
+    private int maxLaunchesPerFork = 1;
+
     /**
      * For parent chaining
      */
@@ -121,6 +136,63 @@ public final class JkTestProcessor<T> {
         return this;
     }
 
+    public int getForkCount() {
+        return forkCount;
+    }
+
+    /**
+     * Sets the maximum number of JVMs to fork concurrently for running tests. Test classes are distributed among
+     * forks according their duration in the previous legacy XML report if any. Results and legacy XML reports of
+     * forks are merged. This setting applies only if a forking process has been set and test class roots are
+     * directories. Progress is not displayed while several forks are running.
+     */
+    public JkTestProcessor<T> setForkCount(int forkCount) {
+        JkUtilsAssert.argument(forkCount > 0, "Fork count must be greater than 0, was " + forkCount);
+        this.forkCount = forkCount;
+        return this;
+    }
+
+    public int getMaxLaunchesPerFork() {
+        return maxLaunchesPerFork;
+    }
+
+    /**
+     * Sets how many launches a forked JVM can serve before being recycled. With the default value of 1, each
+     * launch gets a fresh JVM. Greater values keep forked JVMs alive between launches (and between parallel
+     * forks), so junit-platform and test jars stay loaded and warm. Class directories of the test classpath are
+     * loaded afresh on each launch, but a forked JVM is reused only for the same forking process options and the
+     * same jars. Agents writing their data at JVM exit (as code coverage) get it only when the JVM is recycled.
+     */
+    public JkTestProcessor<T> setMaxLaunchesPerFork(int maxLaunchesPerFork) {
+        JkUtilsAssert.argument(maxLaunchesPerFork > 0,
+                "Max launches per fork must be greater than 0, was " + maxLaunchesPerFork);
+        this.maxLaunchesPerFork = maxLaunchesPerFork;
+        return this;
+    }
+
+    /**
+     * Stops forked JVMs kept alive for next launches (see {@link #setMaxLaunchesPerFork(int)}). Jeka invokes it at
+     * the end of each run.
+     */
+    public static void stopIdleForks() {
+        TestWorkerPool.stopIdleWorkers();
+    }
+
+    public JkBuildCache getBuildCache() {
+        return buildCache;
+    }
+
+    /**
+     * Sets the build cache to fetch test results (and legacy reports) from, instead of running tests, when the same
+     * tests have already been run successfully against the same classpath content. Test results having no
+     * failure are stored in. Test processors using custom launcher or discovery configurers are never cached.
+     * <code>null</code> disables build caching.
+     */
+    public JkTestProcessor<T> setBuildCache(JkBuildCache buildCache) {
+        this.buildCache = buildCache;
+        return this;
+    }
+
     private List<Path> computeClasspath(JkPathSequence testClasspath) {
         JkClasspath result = JkClasspath.of(testClasspath);
         JkClassLoader classloader = JkClassLoader.ofCurrent();
@@ -159,67 +231,138 @@ public final class JkTestProcessor<T> {
      * the classpath of the current classloader plus the specified one.
      */
     public JkTestResult launch(JkPathSequence extraTestClasspath, JkTestSelection testSelection) {
+        final String cacheKey = buildCacheKey(extraTestClasspath, testSelection);
+        if (cacheKey != null) {
+            JkTestResult cachedResult = buildCache.getObject(cacheKey);
+            if (cachedResult != null) {
+                JkLog.info("Test result restored from build cache : " + cachedResult.getTestCount());
+                if (engineBehavior.getLegacyReportDir() != null) {
+                    buildCache.restoreDir(reportCacheKey(cacheKey),
+                            JkPathTree.of(engineBehavior.getLegacyReportDir()));
+                }
+                return cachedResult;
+            }
+        }
         final JkTestResult result;
-        if (forkingProcess == null) {
-            JkLog.startTask("Executing tests");
-            result = launchInClassloader(extraTestClasspath, testSelection);
-        } else {
-            JkLog.startTask("Execute tests in forked process");
-            result = launchInForkedProcess(extraTestClasspath, testSelection);
+        boolean done = false;
+        try {
+            if (forkingProcess == null) {
+                JkLog.startTask("Executing tests");
+                result = launchInClassloader(extraTestClasspath, testSelection);
+            } else if (forkCount > 1) {
+                JkLog.startTask("Execute tests in parallel forked processes");
+                result = launchInParallelForkedProcesses(extraTestClasspath, testSelection);
+            } else {
+                JkLog.startTask("Execute tests in forked process");
+                result = launchInForkedProcess(extraTestClasspath, testSelection);
+            }
+            postActions.run();
+            JkLog.info("Result : " + result.getTestCount());
+            done = true;
+        } finally {
+            JkLog.endTask(done ? "Done in %d milliseconds." : "Failed after %d milliseconds.");
+        }
+        if (cacheKey != null && result.getFailures().isEmpty()) {
+            buildCache.putObject(cacheKey, result);
+            Path reportDir = engineBehavior.getLegacyReportDir();
+            if (reportDir != null && Files.isDirectory(reportDir)) {
+                buildCache.storeDir(reportCacheKey(cacheKey), JkPathTree.of(reportDir));
+            }
         }
-        postActions.run();
-        JkLog.info("Result : " + result.getTestCount());
-        JkLog.endTask();
         return result;
     }
 
+    // Returns null if build cache does not apply. Post actions (as coverage reports) need an actual test run.
+    private String buildCacheKey(JkPathSequence testClasspath, JkTestSelection<?> testSelection) {
+        if (buildCache == null || engineBehavior.getLauncherConfigurer() != null
+                || testSelection.getDiscoveryConfigurer() != null || !postActions.isEmpty()) {
+            return null;
+        }
+        return JkBuildCache.keyBuilder("test")
+                .add(System.getProperty("java.version"))
+                .add(forkingProcess == null ? "in-process" : forkingProcess.getOptionsDescription())
+                .add(new TreeSet<>(testSelection.getIncludePatterns()))
+                .add(new TreeSet<>(testSelection.getExcludePatterns()))
+                .add(new TreeSet<>(testSelection.getIncludeTags()))
+                .add(new TreeSet<>(testSelection.getExcludeTags()))
+                .addFiles(testSelection.getTestClassRoots())
+                .add("classpath")
+                .addFiles(testClasspath)
+                .build();
+    }
+
+    private static String reportCacheKey(String cacheKey) {
+        return JkBuildCache.keyBuilder("test-report").add(cacheKey).build();
+    }
+
     private JkTestResult launchInClassloader(JkPathSequence testClasspath, JkTestSelection testSelection) {
         List<Path> classpath = computeClasspath(testClasspath);
         return JkInternalJunitDoer.instance(classpath).launch(engineBehavior, testSelection);
     }
 
     private JkTestResult launchInForkedProcess(JkPathSequence testClasspath, JkTestSelection testSelection) {
-        Path serializedResultPath = JkUtilsPath.createTempFile("testResult-", ".ser");
-        Args args = new Args();
-        args.resultFile = serializedResultPath.toAbsolutePath().toString();
-        args.engineBehavior = this.engineBehavior;
-        args.testSelection = testSelection;
-        Path serializedArgPath = JkUtilsPath.createTempFile("testArgs-", ".ser");
-        JkUtilsIO.serialize(args, serializedArgPath);
-        String arg = serializedArgPath.toAbsolutePath().toString();
-        JkJavaProcess process = forkingProcess
-            .withPrintCommand(false)
-            .andClasspath(JkClassLoader.ofCurrent().getClasspath().
-                    and(computeClasspath(testClasspath)).withoutDuplicates().getEntries());
-        process.runClassSync(JkTestProcessor.class.getName(), new String[] {arg});
-        JkUtilsPath.deleteFile(serializedArgPath);
-        JkTestResult result = JkUtilsIO.deserialize(serializedResultPath);
-        JkUtilsPath.deleteFile(serializedResultPath);
-        return result;
+        return launchInForkedProcess(computeClasspath(testClasspath), this.engineBehavior, testSelection);
     }
 
-    /**
-     * Non public API. Used by #launchInClassloader.
-     */
-    public static void main(String[] args) {
-        Path argFile = Paths.get(args[0]);
-        Args data = JkUtilsIO.deserialize(argFile);
-        JkTestResult result =
-                JkInternalJunitDoer.instance(Collections.emptyList()).launch(data.engineBehavior, data.testSelection);
-        JkUtilsIO.serialize(result, Paths.get(data.resultFile));
-        System.exit(0);  // Triggers shutdown hooks
+    private JkTestResult launchInParallelForkedProcesses(JkPathSequence testClasspath,
+                                                         JkTestSelection<?> testSelection) {
+        Path reportDir = engineBehavior.getLegacyReportDir();
+        List<JkTestSelection<?>> selections = ParallelForks.partition(testSelection, forkCount, reportDir);
+        List<Path> classpath = computeClasspath(testClasspath);
+        if (selections.size() == 1) {
+            return launchInForkedProcess(classpath, this.engineBehavior, testSelection);
+        }
+        JkLog.info("Distribute test classes among " + selections.size() + " forked processes.");
+        Path tempReportDir = reportDir == null ? null : JkUtilsPath.createTempDirectory("jeka-test-reports-");
+        List<Path> forkReportDirs = new LinkedList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(selections.size());
+        try {
+            List<Future<JkTestResult>> futures = new LinkedList<>();
+            for (int i = 0; i < selections.size(); i++) {
+                JkEngineBehavior<T> behavior = engineBehavior.copy().setProgressDisplayer(null);
+                if (tempReportDir != null) {
+                    Path forkReportDir = tempReportDir.resolve("fork-" + i);
+                    forkReportDirs.add(forkReportDir);
+                    behavior.setLegacyReportDir(forkReportDir);
+                }
+                JkTestSelection<?> selection = selections.get(i);
+                futures.add(executor.submit(() -> launchInForkedProcess(classpath, behavior, selection)));
+            }
+            JkTestResult result = null;
+            for (Future<JkTestResult> future : futures) {
+                JkTestResult forkResult = future.get();
+                result = result == null ? forkResult : result.and(forkResult);
+            }
+            if (reportDir != null) {
+                ParallelForks.mergeReports(forkReportDirs, reportDir);
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw JkUtilsThrowable.unchecked(e.getCause(), "Forked test process failed.");
+        } finally {
+            executor.shutdownNow();
+            if (tempReportDir != null) {
+                JkPathTree.of(tempReportDir).deleteRoot();
+            }
+        }
     }
 
-    private static class Args implements Serializable {
-
-        private static final long serialVersionUID = 1L;
-
-        JkEngineBehavior engineBehavior;
-
-        String resultFile;
-
-        JkTestSelection testSelection;
+    private JkTestResult launchInForkedProcess(List<Path> classpath, JkEngineBehavior<?> engineBehavior,
+                                               JkTestSelection<?> testSelection) {
+        return TestWorkerPool.launch(forkingProcess.withPrintCommand(false), classpath, maxLaunchesPerFork,
+                engineBehavior, testSelection);
+    }
 
+    /**
+     * Non public API. Entry point of forked processes running tests : arguments are the port to connect to and
+     * an access token.
+     */
+    public static void main(String[] args) throws IOException {
+        TestWorker.serve(Integer.parseInt(args[0]), args[1]);
+        System.exit(0);  // Retired : triggers shutdown hooks even if tests have left non-daemon threads
     }
 
     public static class JkEngineBehavior<T> implements Serializable {
@@ -241,6 +384,14 @@ public final class JkTestProcessor<T> {
             this.__ = __;
         }
 
+        JkEngineBehavior<T> copy() {
+            JkEngineBehavior<T> result = new JkEngineBehavior<>(__);
+            result.legacyReportDir = legacyReportDir;
+            result.progressDisplayer = progressDisplayer;
+            result.launcherConfigurer = launcherConfigurer;
+            return result;
+        }
+
         public Path getLegacyReportDir() {
             return legacyReportDir == null ? null : Paths.get(legacyReportDir);
         }
@@ -2,6 +2,7 @@ package dev.jeka.core.api.java.testing;
 
 import java.io.*;
 import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
@@ -51,6 +52,16 @@ public final class JkTestResult implements Serializable {
         return failures;
     }
 
+    /**
+     * Returns a result merging this one with the specified one, as if both test runs were a single one.
+     */
+    public JkTestResult and(JkTestResult other) {
+        List<JkFailure> mergedFailures = new LinkedList<>(failures);
+        mergedFailures.addAll(other.failures);
+        return new JkTestResult(Math.min(timeStarted, other.timeStarted), Math.max(timeFinished, other.timeFinished),
+                containerCount.and(other.containerCount), testCount.and(other.testCount), mergedFailures);
+    }
+
     @Override
     public String toString() {
         return "{" +
@@ -115,6 +126,14 @@ public final class JkTestResult implements Serializable {
             return failed;
         }
 
+        /**
+         * Returns a count summing this one with the specified one.
+         */
+        public JkCount and(JkCount other) {
+            return new JkCount(found + other.found, started + other.started, skipped + other.skipped,
+                    aborted + other.aborted, succeded + other.succeded, failed + other.failed);
+        }
+
         @Override
         public String toString() {
             return "{" +
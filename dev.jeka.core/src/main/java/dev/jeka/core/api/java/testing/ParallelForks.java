@@ -0,0 +1,205 @@
+package dev.jeka.core.api.java.testing;
+
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsXml;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/*
+ * Splits a test selection into several ones, each to be run in its own forked JVM, and merges the legacy XML
+ * reports produced by each fork.
+ *
+ * Test classes are found by scanning class files of the test class roots. They are distributed among forks
+ * according their duration in the previous legacy XML reports when present, so forks finish at about the
+ * same time (longest first, each on the least loaded fork).
+ */
+final class ParallelForks {
+
+    private static final String REPORT_PREFIX = "TEST-";
+
+    private static final String[] SUMMED_ATTRIBUTES = {"tests", "skipped", "failures", "errors"};
+
+    private ParallelForks() {
+    }
+
+    /**
+     * Returns a selection for each fork. The returned list may contain less than forkCount elements, or only
+     * the specified selection if test classes can not be listed.
+     */
+    static List<JkTestSelection<?>> partition(JkTestSelection<?> selection, int forkCount, Path previousReportDir) {
+        final List<String> classNames = testClassNames(selection);
+        if (classNames == null || classNames.size() < 2) {
+            return Collections.singletonList(selection);
+        }
+        final Map<String, Double> durations = previousReportDir == null ? Collections.emptyMap()
+                : classDurations(previousReportDir);
+        final double defaultDuration = durations.isEmpty() ? 1d
+                : durations.values().stream().mapToDouble(Double::doubleValue).average().orElse(1d);
+        final List<String> sortedClassNames = new ArrayList<>(classNames);
+        sortedClassNames.sort(Comparator.comparing(
+                (String name) -> durations.getOrDefault(name, defaultDuration)).reversed());
+        final int partitionCount = Math.min(forkCount, classNames.size());
+        final List<List<String>> partitions = new ArrayList<>();
+        final double[] loads = new double[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new LinkedList<>());
+        }
+        for (final String className : sortedClassNames) {
+            int lightest = 0;
+            for (int i = 1; i < partitionCount; i++) {
+                if (loads[i] < loads[lightest]) {
+                    lightest = i;
+                }
+            }
+            partitions.get(lightest).add(className);
+            loads[lightest] += durations.getOrDefault(className, defaultDuration);
+        }
+        return partitions.stream().map(partition -> restrict(selection, partition)).collect(Collectors.toList());
+    }
+
+    /**
+     * Merges legacy XML reports found in the specified fork report dirs, into the specified report dir.
+     * Reports of a same test engine are merged in a single file.
+     */
+    static void mergeReports(List<Path> forkReportDirs, Path reportDir) {
+        final Map<String, Document> merged = new TreeMap<>();
+        for (final Path forkReportDir : forkReportDirs) {
+            if (!Files.isDirectory(forkReportDir)) {
+                continue;
+            }
+            for (final Path report : reports(forkReportDir)) {
+                final String name = report.getFileName().toString();
+                final Document document = JkUtilsXml.documentFrom(report);
+                final Document target = merged.get(name);
+                if (target == null) {
+                    merged.put(name, document);
+                } else {
+                    merge(target, document);
+                }
+            }
+        }
+        JkUtilsPath.createDirectories(reportDir);
+        merged.forEach((name, document) -> {
+            try (OutputStream out = Files.newOutputStream(reportDir.resolve(name))) {
+                JkUtilsXml.output(document, out);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // Restricts the selection to the specified classes (and their nested classes) with an exclude pattern
+    // matching any other class.
+    private static JkTestSelection<?> restrict(JkTestSelection<?> selection, List<String> classNames) {
+        final String alternatives = classNames.stream().map(Pattern::quote).collect(Collectors.joining("|"));
+        return selection.clone().addExcludePatterns("(?!(?:" + alternatives + ")(?:\\$.*)?$).*");
+    }
+
+    // Returns top level class names having at least one class (itself or a nested one) selected by
+    // include/exclude patterns, or null if some test class roots are not directories.
+    private static List<String> testClassNames(JkTestSelection<?> selection) {
+        final List<Pattern> includes = patterns(selection.getIncludePatterns());
+        final List<Pattern> excludes = patterns(selection.getExcludePatterns());
+        final Set<String> result = new TreeSet<>();
+        for (final Path root : selection.getTestClassRoots()) {
+            if (!Files.exists(root)) {
+                continue;
+            }
+            if (!Files.isDirectory(root)) {
+                return null;
+            }
+            JkPathTree.of(root).andMatching(true, "**.class").getRelativeFiles().forEach(relativePath -> {
+                final String path = relativePath.toString().replace('\\', '/');
+                final String className = path.substring(0, path.length() - ".class".length()).replace('/', '.');
+                if (className.endsWith("module-info") || className.endsWith("package-info")) {
+                    return;
+                }
+                if ((includes.isEmpty() || matchesAny(includes, className)) && !matchesAny(excludes, className)) {
+                    final int dollarIndex = className.indexOf('$');
+                    result.add(dollarIndex < 0 ? className : className.substring(0, dollarIndex));
+                }
+            });
+        }
+        return new ArrayList<>(result);
+    }
+
+    private static List<Pattern> patterns(Set<String> regexps) {
+        return regexps.stream().map(Pattern::compile).collect(Collectors.toList());
+    }
+
+    private static boolean matchesAny(List<Pattern> patterns, String className) {
+        return patterns.stream().anyMatch(pattern -> pattern.matcher(className).matches());
+    }
+
+    // Sums the durations, in seconds, of test cases by top level class
+    private static Map<String, Double> classDurations(Path reportDir) {
+        final Map<String, Double> result = new HashMap<>();
+        if (!Files.isDirectory(reportDir)) {
+            return result;
+        }
+        for (final Path report : reports(reportDir)) {
+            try {
+                final Element testSuite = JkUtilsXml.documentFrom(report).getDocumentElement();
+                for (final Element testCase : JkUtilsXml.directChildren(testSuite, "testcase")) {
+                    final String className = testCase.getAttribute("classname");
+                    final int dollarIndex = className.indexOf('$');
+                    final String topLevelClassName = dollarIndex < 0 ? className : className.substring(0, dollarIndex);
+                    result.merge(topLevelClassName, parseDouble(testCase.getAttribute("time")), Double::sum);
+                }
+            } catch (final RuntimeException e) {
+                JkLog.trace("Cannot read test durations from " + report + " : " + e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    private static List<Path> reports(Path dir) {
+        return JkUtilsPath.listDirectChildren(dir).stream()
+                .filter(path -> path.getFileName().toString().startsWith(REPORT_PREFIX))
+                .filter(path -> path.getFileName().toString().endsWith(".xml"))
+                .collect(Collectors.toList());
+    }
+
+    private static void merge(Document target, Document source) {
+        final Element targetSuite = target.getDocumentElement();
+        final Element sourceSuite = source.getDocumentElement();
+        for (final String attribute : SUMMED_ATTRIBUTES) {
+            final long sum = (long) parseDouble(targetSuite.getAttribute(attribute))
+                    + (long) parseDouble(sourceSuite.getAttribute(attribute));
+            targetSuite.setAttribute(attribute, Long.toString(sum));
+        }
+        final double time = Math.max(parseDouble(targetSuite.getAttribute("time")),
+                parseDouble(sourceSuite.getAttribute("time")));  // forks run concurrently
+        targetSuite.setAttribute("time", String.format(Locale.ENGLISH, "%.3f", time));
+        final List<Element> targetTestCases = JkUtilsXml.directChildren(targetSuite, "testcase");
+        Node insertionPoint = targetTestCases.isEmpty() ? null
+                : targetTestCases.get(targetTestCases.size() - 1).getNextSibling();
+        for (final Element testCase : JkUtilsXml.directChildren(sourceSuite, "testcase")) {
+            targetSuite.insertBefore(target.importNode(testCase, true), insertionPoint);
+        }
+    }
+
+    private static double parseDouble(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0d;
+        }
+        try {
+            return Double.parseDouble(value.replace(",", ""));
+        } catch (final NumberFormatException e) {
+            return 0d;
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+package dev.jeka.core.api.java.testing;
+
+import dev.jeka.core.api.java.JkInternalClassloader;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+/*
+ * Main loop of a forked JVM running test batches sent by a TestWorkerPool over a loopback socket.
+ *
+ * Jars of the test classpath are on the worker JVM classpath, so junit-platform and test libraries stay loaded
+ * across batches. Class directories are sent along each batch and loaded in a fresh classloader, so classes
+ * recompiled between two batches are never stale.
+ *
+ * Protocol : the worker connects to the port passed as first argument and sends the token passed as second
+ * argument. Then, for each batch, the pool sends the count of class directories (-1 to stop the worker), the
+ * class directories, then the length and bytes of the serialized Batch. The worker answers with frames made of a
+ * one byte type, an int length and bytes : OUT_FRAME and ERR_FRAME for the test output, then RESULT_FRAME (the
+ * serialized test result) or FAILURE_FRAME (the stack trace, in UTF-8) to end the batch.
+ */
+final class TestWorker {
+
+    static final byte RESULT_FRAME = 0;
+
+    static final byte OUT_FRAME = 1;
+
+    static final byte ERR_FRAME = 2;
+
+    static final byte FAILURE_FRAME = 3;
+
+    private static final String DOER_CLASS = "dev.jeka.core.api.java.testing.embedded.junitplatform.JunitPlatformDoer";
+
+    private TestWorker() {
+    }
+
+    static void serve(int port, String token) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(token);
+            out.flush();
+
+            // Redirect before anything else (as JkLog) grabs the original streams
+            System.setOut(new PrintStream(new BufferedOutputStream(new FrameOutputStream(out, OUT_FRAME)), true));
+            System.setErr(new PrintStream(new BufferedOutputStream(new FrameOutputStream(out, ERR_FRAME)), true));
+            final JkInternalJunitDoer doer = JkInternalClassloader.ofSharedMainEmbeddedLibs()
+                    .createContextPreservingProxy(JkInternalJunitDoer.class, DOER_CLASS, "of");
+            while (true) {
+                final int entryCount;
+                try {
+                    entryCount = in.readInt();
+                } catch (final EOFException e) {
+                    break;  // Pool has gone
+                }
+                if (entryCount < 0) {
+                    break;
+                }
+                final URL[] urls = new URL[entryCount];
+                for (int i = 0; i < entryCount; i++) {
+                    urls[i] = JkUtilsPath.toUrl(Paths.get(in.readUTF()));
+                }
+                final byte[] batchBytes = new byte[in.readInt()];
+                in.readFully(batchBytes);
+                runBatch(doer, urls, batchBytes, out);
+            }
+        }
+    }
+
+    private static void runBatch(JkInternalJunitDoer doer, URL[] urls, byte[] batchBytes, DataOutputStream out)
+            throws IOException {
+        final ClassLoader formerClassLoader = Thread.currentThread().getContextClassLoader();
+        final URLClassLoader batchClassLoader = new URLClassLoader(urls, TestWorker.class.getClassLoader());
+        Thread.currentThread().setContextClassLoader(batchClassLoader);
+        byte type;
+        byte[] payload;
+        try {
+            final Batch batch = JkUtilsIO.deserialize(new ByteArrayInputStream(batchBytes), batchClassLoader);
+            final JkTestResult result = doer.launch(batch.engineBehavior, batch.testSelection);
+            final ByteArrayOutputStream resultBytes = new ByteArrayOutputStream();
+            JkUtilsIO.serialize(result, resultBytes);
+            type = RESULT_FRAME;
+            payload = resultBytes.toByteArray();
+        } catch (final RuntimeException | Error e) {
+            final StringWriter stackTrace = new StringWriter();
+            e.printStackTrace(new PrintWriter(stackTrace));
+            type = FAILURE_FRAME;
+            payload = stackTrace.toString().getBytes(StandardCharsets.UTF_8);
+        } finally {
+            System.out.flush();
+            System.err.flush();
+            Thread.currentThread().setContextClassLoader(formerClassLoader);
+            JkUtilsIO.closeQuietly(batchClassLoader);
+        }
+        synchronized (out) {
+            out.writeByte(type);
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.flush();
+        }
+    }
+
+    static class Batch implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final JkTestProcessor.JkEngineBehavior<?> engineBehavior;
+
+        final JkTestSelection<?> testSelection;
+
+        Batch(JkTestProcessor.JkEngineBehavior<?> engineBehavior, JkTestSelection<?> testSelection) {
+            this.engineBehavior = engineBehavior;
+            this.testSelection = testSelection;
+        }
+
+    }
+
+    private static class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+
+        private final byte type;
+
+        FrameOutputStream(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(len);
+                out.write(bytes, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+
+    }
+
+}
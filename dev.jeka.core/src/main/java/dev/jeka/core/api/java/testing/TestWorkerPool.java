@@ -0,0 +1,265 @@
+package dev.jeka.core.api.java.testing;
+
+import dev.jeka.core.api.java.JkClassLoader;
+import dev.jeka.core.api.java.JkJavaProcess;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+ * Pool of forked JVMs (see TestWorker) kept alive between test launches, so JVM startup, junit-platform
+ * class loading and JIT warm-up are paid once per worker instead of once per launch.
+ *
+ * Workers are keyed by the forking process options and the jars of the test classpath (with their size and last
+ * modified time) : a worker is never reused for another classpath. A worker is retired after serving the
+ * configured number of batches, or after a failure. At most MAX_IDLE_WORKERS are kept idle, the least recently
+ * used being stopped first. Idle workers are stopped at the end of each Jeka run and when this JVM exits.
+ */
+final class TestWorkerPool {
+
+    private static final int CONNECTION_TIMEOUT_MILLIS = 60 * 1000;
+
+    private static final int STOP_TIMEOUT_SECONDS = 30;
+
+    static final int MAX_IDLE_WORKERS = 4;
+
+    // Most recently released first
+    private static final Deque<Worker> IDLE_WORKERS = new LinkedList<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(TestWorkerPool::stopIdleWorkers));
+    }
+
+    private TestWorkerPool() {
+    }
+
+    /**
+     * Runs the specified tests in an idle worker matching the specified process and classpath, or in a new one if
+     * none is available. The worker is returned to the pool afterward unless it has already served
+     * maxBatchesPerWorker batches.
+     */
+    static JkTestResult launch(JkJavaProcess process, List<Path> testClasspath, int maxBatchesPerWorker,
+                               JkTestProcessor.JkEngineBehavior<?> engineBehavior, JkTestSelection<?> testSelection) {
+        final List<Path> jars = testClasspath.stream().filter(Files::isRegularFile).collect(Collectors.toList());
+        final List<Path> classDirs = testClasspath.stream().filter(Files::isDirectory).collect(Collectors.toList());
+        final String key = key(process, jars);
+        Worker worker = acquire(key);
+        if (worker == null) {
+            final List<Path> workerClasspath = JkClassLoader.ofCurrent().getClasspath().and(jars)
+                    .withoutDuplicates().getEntries();
+            worker = Worker.start(key, process.andClasspath(workerClasspath));
+        } else {
+            JkLog.trace("Reuse warm test worker process.");
+        }
+        boolean reusable = false;
+        try {
+            final JkTestResult result = worker.run(classDirs, new TestWorker.Batch(engineBehavior, testSelection));
+            reusable = true;
+            return result;
+        } finally {
+            if (reusable && worker.batchCount < maxBatchesPerWorker) {
+                release(worker);
+            } else {
+                worker.stop();
+            }
+        }
+    }
+
+    /**
+     * Stops all idle workers.
+     */
+    static void stopIdleWorkers() {
+        final List<Worker> workers;
+        synchronized (IDLE_WORKERS) {
+            workers = new ArrayList<>(IDLE_WORKERS);
+            IDLE_WORKERS.clear();
+        }
+        workers.forEach(Worker::stop);
+    }
+
+    static int getIdleWorkerCount() {
+        synchronized (IDLE_WORKERS) {
+            return IDLE_WORKERS.size();
+        }
+    }
+
+    private static Worker acquire(String key) {
+        final List<Worker> dead = new LinkedList<>();
+        Worker result = null;
+        synchronized (IDLE_WORKERS) {
+            for (final Iterator<Worker> it = IDLE_WORKERS.iterator(); it.hasNext() && result == null; ) {
+                final Worker worker = it.next();
+                if (!worker.key.equals(key)) {
+                    continue;
+                }
+                it.remove();
+                if (worker.process.isAlive()) {
+                    result = worker;
+                } else {
+                    dead.add(worker);
+                }
+            }
+        }
+        dead.forEach(Worker::stop);
+        return result;
+    }
+
+    private static void release(Worker worker) {
+        final List<Worker> evicted = new LinkedList<>();
+        synchronized (IDLE_WORKERS) {
+            IDLE_WORKERS.push(worker);
+            while (IDLE_WORKERS.size() > MAX_IDLE_WORKERS) {
+                evicted.add(IDLE_WORKERS.removeLast());
+            }
+        }
+        evicted.forEach(Worker::stop);
+    }
+
+    private static String key(JkJavaProcess process, List<Path> jars) {
+        final StringBuilder sb = new StringBuilder(process.toString());
+        for (final Path jar : jars) {
+            sb.append('\n').append(jar.toAbsolutePath());
+            try {
+                sb.append(':').append(Files.size(jar)).append(':').append(Files.getLastModifiedTime(jar).toMillis());
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final class Worker {
+
+        private final String key;
+
+        private final Process process;
+
+        private final Socket socket;
+
+        private final DataInputStream in;
+
+        private final DataOutputStream out;
+
+        private int batchCount;
+
+        private Worker(String key, Process process, Socket socket) throws IOException {
+            this.key = key;
+            this.process = process;
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        static Worker start(String key, JkJavaProcess javaProcess) {
+            final String token = newToken();
+            try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+                serverSocket.setSoTimeout(CONNECTION_TIMEOUT_MILLIS);
+                final Process process = javaProcess.startClass(JkTestProcessor.class.getName(),
+                        Integer.toString(serverSocket.getLocalPort()), token);
+
+                // Output written before the worker connects (as JVM startup errors) is not framed. Daemon thread,
+                // so idle workers do not prevent this JVM from exiting.
+                final Thread gobbler = new Thread(() -> JkUtilsIO.copy(process.getInputStream(),
+                        JkLog.getOutputStream()));
+                gobbler.setDaemon(true);
+                gobbler.start();
+                while (true) {
+                    final Socket socket;
+                    try {
+                        socket = serverSocket.accept();
+                    } catch (final SocketTimeoutException e) {
+                        process.destroyForcibly();
+                        throw new IllegalStateException("Test worker process did not connect within "
+                                + CONNECTION_TIMEOUT_MILLIS / 1000 + " seconds.");
+                    }
+                    final Worker worker = new Worker(key, process, socket);
+                    if (token.equals(worker.in.readUTF())) {
+                        return worker;
+                    }
+                    JkUtilsIO.closeQuietly(socket);
+                }
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        JkTestResult run(List<Path> classDirs, TestWorker.Batch batch) {
+            batchCount++;
+            final ByteArrayOutputStream batchBytes = new ByteArrayOutputStream();
+            JkUtilsIO.serialize(batch, batchBytes);
+            try {
+                out.writeInt(classDirs.size());
+                for (final Path classDir : classDirs) {
+                    out.writeUTF(classDir.toAbsolutePath().toString());
+                }
+                out.writeInt(batchBytes.size());
+                batchBytes.writeTo(out);
+                out.flush();
+                while (true) {
+                    final byte type = in.readByte();
+                    final byte[] payload = new byte[in.readInt()];
+                    in.readFully(payload);
+                    if (type == TestWorker.OUT_FRAME) {
+                        JkLog.getOutputStream().write(payload);
+                    } else if (type == TestWorker.ERR_FRAME) {
+                        JkLog.getErrorStream().write(payload);
+                    } else if (type == TestWorker.RESULT_FRAME) {
+                        return JkUtilsIO.deserialize(new ByteArrayInputStream(payload));
+                    } else {
+                        throw new IllegalStateException("Test worker process failed : "
+                                + new String(payload, StandardCharsets.UTF_8));
+                    }
+                }
+            } catch (final EOFException e) {
+                throw new IllegalStateException("Test worker process terminated unexpectedly.", e);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void stop() {
+            try {
+                out.writeInt(-1);
+                out.flush();
+            } catch (final IOException e) {
+                // Worker already gone
+            }
+            JkUtilsIO.closeQuietly(socket);
+            try {
+                // So shutdown hooks (as coverage agents) have completed
+                if (!process.waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    JkLog.warn("Test worker process did not stop within " + STOP_TIMEOUT_SECONDS
+                            + " seconds. Kill it.");
+                    process.destroyForcibly();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+
+        private static String newToken() {
+            final byte[] bytes = new byte[16];
+            new SecureRandom().nextBytes(bytes);
+            final StringBuilder sb = new StringBuilder();
+            for (final byte b : bytes) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        }
+
+    }
+
+}
@@ -97,6 +97,11 @@ public final class JkBraceConsoleLogConsumer implements JkLog.JkEventLogConsumer
         return System.err;
     }
 
+    @Override
+    public OutputStream getProgressStream() {
+        return formerOut == null ? System.out : formerOut;
+    }
+
     private static class MarginStream extends OutputStream {
 
         private final PrintStream delegate;
@@ -77,6 +77,11 @@ public final class JkIndentConsoleLogConsumer implements JkLog.JkEventLogConsume
         return System.err;
     }
 
+    @Override
+    public OutputStream getProgressStream() {
+        return formerOut == null ? System.out : formerOut;
+    }
+
     private static class MarginStream extends OutputStream {
 
         private final PrintStream delegate;
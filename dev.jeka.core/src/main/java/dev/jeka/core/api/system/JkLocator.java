@@ -8,6 +8,7 @@ import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Map;
 
 /**
  * Provides location related to the running Jeka instance.
@@ -22,6 +23,17 @@ public final class JkLocator {
 
     private static Path JEKA_JAR_FILE;
 
+    private static volatile Map<String, String> environment = System.getenv();
+
+    /**
+     * Sets the environment variables Jeka locations are read from. By default, these are the environment
+     * variables of the running process, but a process running builds on behalf of other ones (as the Jeka daemon)
+     * has to use the environment of its client. <code>null</code> restores the environment of the running process.
+     */
+    public static void setEnv(Map<String, String> envArg) {
+        environment = envArg == null ? System.getenv() : envArg;
+    }
+
     /**
      * Returns the Jeka jar file currently used in the running process. Returns a folder if the classes
      * are not packaged in jar.
@@ -61,7 +73,7 @@ public final class JkLocator {
      */
     public static Path getJekaUserHomeDir() {
         final Path result;
-        final String env = System.getenv(JK_USER_HOME_ENV_NAME);
+        final String env = environment.get(JK_USER_HOME_ENV_NAME);
         if (!JkUtilsString.isBlank(env)) {
             result = Paths.get(env);
         } else {
@@ -78,7 +90,7 @@ public final class JkLocator {
      * Returns the location of the artifact repository cache.
      */
     public static Path getJekaRepositoryCache() {
-        final String jekaCacheOption = System.getenv(JK_REPOSITORY_CACHE_ENV_NAME);
+        final String jekaCacheOption = environment.get(JK_REPOSITORY_CACHE_ENV_NAME);
         final Path result;
         if (!JkUtilsString.isBlank(jekaCacheOption)) {
             result = Paths.get(jekaCacheOption);
@@ -5,10 +5,12 @@ import dev.jeka.core.api.utils.JkUtilsIO;
 import dev.jeka.core.api.utils.JkUtilsObject;
 import dev.jeka.core.api.utils.JkUtilsTime;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Serializable;
-import java.lang.reflect.Method;
-import java.util.LinkedList;
+import java.io.UncheckedIOException;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
@@ -20,7 +22,11 @@ import java.util.function.Consumer;
  * By default, logging events turns in a no-op.<p>
  *
  * This class provides task concept for hierarchical log. A log event happening during a task will be assigned a nested
- * task level (task can be nested).
+ * task level (task can be nested).<p>
+ *
+ * Logging is thread safe. Threads share the same task nesting unless they run within {@link #runTask(String, Runnable)}
+ * : the task then gets its own nesting and its output is displayed at once when it ends, so concurrent tasks do not
+ * interleave their logs.
  */
 public final class JkLog implements Serializable {
 
@@ -49,23 +55,34 @@ public final class JkLog implements Serializable {
         }
     }
 
-    private static JkEventLogConsumer consumer;
+    private static volatile JkEventLogConsumer consumer;
+
+    private static volatile OutputStream stream = JkUtilsIO.nopPrintStream();
+
+    private static volatile OutputStream errorStream = JkUtilsIO.nopOuputStream();
+
+    private static volatile Verbosity verbosity = Verbosity.NORMAL;
 
-    private static OutputStream stream = JkUtilsIO.nopPrintStream();
+    // Nesting shared by threads not running a task of their own
+    private static volatile AtomicInteger currentNestedTaskLevel = new AtomicInteger(0);
 
-    private static OutputStream errorStream = JkUtilsIO.nopOuputStream();
+    private static final ThreadLocal<TaskContext> CONTEXTS = new ThreadLocal<>();
 
-    private static Verbosity verbosity = Verbosity.NORMAL;
+    // Held while delivering to the consumer, so that events and outputs of concurrent tasks do not interleave
+    private static final Object LOCK = new Object();
 
-    private static AtomicInteger currentNestedTaskLevel = new AtomicInteger(0);
+    private static final Set<TaskContext> RUNNING_TASKS = new LinkedHashSet<>();
 
-    private static final ThreadLocal<LinkedList<Long>> START_TIMES = new ThreadLocal<>();
+    private static final boolean PROGRESS_VIEW_SUPPORTED = ProgressView.isSupported();
 
-    private static LinkedList<Long> getStartTimes() {
-        LinkedList<Long> result = START_TIMES.get();
+    private static final ProgressView PROGRESS_VIEW = new ProgressView(JkLog::progressStream, LOCK,
+            JkLog::progressLines);
+
+    private static TaskContext context() {
+        TaskContext result = CONTEXTS.get();
         if (result == null) {
-            result = new LinkedList<>();
-            START_TIMES.set(result);
+            result = new TaskContext(null);
+            CONTEXTS.set(result);
         }
         return result;
     }
@@ -99,13 +116,17 @@ public final class JkLog implements Serializable {
     }
 
     public static int getCurrentNestedLevel() {
-        return currentNestedTaskLevel.get();
+        return context().nestedTaskLevel().get();
     }
 
     public static OutputStream getOutputStream() {
         if (Verbosity.MUTE == verbosity()) {
             return JkUtilsIO.nopPrintStream();
         }
+        final TaskContext context = CONTEXTS.get();
+        if (context != null && context.isBuffered()) {
+            return context.out;
+        }
         return JkUtilsObject.firstNonNull(stream, JkUtilsIO.nopOuputStream());
     }
 
@@ -113,6 +134,10 @@ public final class JkLog implements Serializable {
         if (Verbosity.MUTE == verbosity()) {
             return JkUtilsIO.nopPrintStream();
         }
+        final TaskContext context = CONTEXTS.get();
+        if (context != null && context.isBuffered()) {
+            return context.err;
+        }
         return JkUtilsObject.firstNonNull(errorStream, JkUtilsIO.nopOuputStream());
     }
 
@@ -148,10 +173,10 @@ public final class JkLog implements Serializable {
      * Logs the start of the current task. Subsequent logs will be nested in this task log until #endTask is invoked.
      */
     public static void startTask(String message, Object ... params) {
-        consume(JkLogEvent.ofRegular(Type.START_TASK, String.format(message, params)));
+        final String formattedMessage = String.format(message, params);
+        consume(JkLogEvent.ofRegular(Type.START_TASK, formattedMessage));
         if (shouldPrint(Type.START_TASK)) {
-            currentNestedTaskLevel.incrementAndGet();
-            getStartTimes().addLast(System.nanoTime());
+            context().start(formattedMessage);
         }
     }
 
@@ -162,8 +187,7 @@ public final class JkLog implements Serializable {
      */
     public static void endTask(String message) {
         if (shouldPrint(Type.END_TASK)) {
-            currentNestedTaskLevel.decrementAndGet();
-            Long startTime = getStartTimes().pollLast();
+            Long startTime = context().end();
             if (startTime == null) {
                 for (StackTraceElement ste : Thread.currentThread().getStackTrace()) {
                     System.err.println(ste);
@@ -184,6 +208,117 @@ public final class JkLog implements Serializable {
         endTask("Done in %d milliseconds.");
     }
 
+    /**
+     * Runs the specified task within a task named after the specified name. The task has its own nesting and the
+     * events and outputs it logs from the current thread are held back until it ends. They are then displayed at once,
+     * nested under the current task of the shared nesting, so tasks running concurrently do not interleave their logs.
+     * Meanwhile, running tasks are displayed at the bottom of the console if it is a terminal.
+     * Tasks started within and left unterminated by a failure are ended, logging the failure.
+     */
+    public static void runTask(String name, Runnable task) {
+        final TaskContext previous = CONTEXTS.get();
+        if (previous != null && previous.isBuffered()) {  // Already held back by an enclosing task
+            startTask(name);
+            task.run();
+            endTask();
+            return;
+        }
+        final TaskContext context = new TaskContext(name);
+        CONTEXTS.set(context);
+        started(context);
+        try {
+            startTask(name);
+            task.run();
+            endTask();
+        } catch (final RuntimeException | Error e) {
+            while (context.nestedTaskLevel().get() > 0 && shouldPrint(Type.END_TASK)) {
+                endTask("Failed after %d milliseconds.");
+            }
+            throw e;
+        } finally {
+            CONTEXTS.set(previous);
+            ended(context);
+        }
+    }
+
+    private static void started(TaskContext context) {
+        synchronized (LOCK) {
+            RUNNING_TASKS.add(context);
+            if (PROGRESS_VIEW_SUPPORTED && consumer != null && shouldPrint(Type.INFO)) {
+                PROGRESS_VIEW.start();
+                PROGRESS_VIEW.draw();
+            }
+        }
+    }
+
+    // Replays the held back entries, nested from the current level without altering it
+    private static void ended(TaskContext context) {
+        synchronized (LOCK) {
+            RUNNING_TASKS.remove(context);
+            PROGRESS_VIEW.clear();
+            final TaskContext current = CONTEXTS.get();
+            final TaskContext replay = TaskContext.ofReplay(context().nestedTaskLevel().get());
+            CONTEXTS.set(replay);
+            try {
+                for (final Object entry : context.entries) {
+                    if (entry instanceof JkLogEvent) {
+                        final JkLogEvent event = (JkLogEvent) entry;
+                        if (event.getType() == Type.END_TASK) {
+                            replay.nestedTaskLevel.decrementAndGet();
+                        }
+                        deliver(event);
+                        if (event.getType() == Type.START_TASK) {
+                            replay.nestedTaskLevel.incrementAndGet();
+                        }
+                    } else {
+                        ((Output) entry).writeTo();
+                    }
+                }
+            } finally {
+                CONTEXTS.set(current);
+            }
+            context.entries = null;
+            if (RUNNING_TASKS.isEmpty()) {
+                PROGRESS_VIEW.stop();
+            } else {
+                redrawProgress();
+            }
+        }
+    }
+
+    private static void redrawProgress() {
+        if (!PROGRESS_VIEW.isStarted()) {
+            return;
+        }
+        flushQuietly(stream);
+        flushQuietly(errorStream);
+        PROGRESS_VIEW.draw();
+    }
+
+    private static OutputStream progressStream() {
+        final JkEventLogConsumer consumer = JkLog.consumer;
+        return consumer == null ? JkUtilsIO.nopOuputStream() : consumer.getProgressStream();
+    }
+
+    private static List<String> progressLines() {
+        final List<String> result = new ArrayList<>(RUNNING_TASKS.size());
+        for (final TaskContext context : RUNNING_TASKS) {
+            final String currentTask = context.currentTask;
+            final String step = currentTask == null || currentTask.equals(context.name) ? "" : " > " + currentTask;
+            result.add("  " + context.name + step + " (" + JkUtilsTime.durationInMillis(context.startTime) / 1000
+                    + " s)");
+        }
+        return result;
+    }
+
+    private static void flushQuietly(OutputStream outputStream) {
+        try {
+            outputStream.flush();
+        } catch (final IOException e) {
+            // Nothing to flush
+        }
+    }
+
     public static boolean isVerbose() {
         return verbosity == Verbosity.VERBOSE;
     }
@@ -195,26 +330,163 @@ public final class JkLog implements Serializable {
         if (!shouldPrint(event.getType()) ){
             return;
         }
-
-        // This is necessary for avoing class cast exception when run in other classloader (unit tests)
-        if (event.getClass().getClassLoader() != consumer.getClass().getClassLoader()) {  // survive to classloader change
-            final Object evt = JkUtilsIO.cloneBySerialization(event, consumer.getClass().getClassLoader());
-            try {
-                Method accept = consumer.getClass().getMethod("accept", evt.getClass());
-                accept.setAccessible(true);
-                accept.invoke(consumer, evt);
-            } catch (ReflectiveOperationException e) {
-                throw new RuntimeException(e);
+        final TaskContext context = CONTEXTS.get();
+        synchronized (LOCK) {
+            if (context != null && context.entries != null) {
+                context.entries.add(event);
+                return;
             }
-        } else {
-            consumer.accept((JkLogEvent) event);
+            PROGRESS_VIEW.clear();
+            deliver(event);
+            redrawProgress();
         }
     }
 
+    private static void deliver(JkLogEvent event) {
+        final JkEventLogConsumer consumer = JkLog.consumer;
+        if (consumer == null) {
+            return;
+        }
+
+        // The consumer may come from another classloader (unit tests)
+        LogEventBridge.deliver(consumer, event);
+    }
+
     public static JkEventLogConsumer getConsumer() {
         return consumer;
     }
 
+    /*
+     * Task nesting of a thread. Threads share the same nesting level unless they run a task of their own, in which
+     * case events and outputs are held back in entries until the task ends.
+     */
+    private static final class TaskContext {
+
+        private final String name;
+
+        private final AtomicInteger nestedTaskLevel;
+
+        private final LinkedList<Long> startTimes = new LinkedList<>();
+
+        private final LinkedList<String> taskNames = new LinkedList<>();
+
+        private final long startTime = System.nanoTime();
+
+        private final OutputStream out = new ContextStream(this, false);
+
+        private final OutputStream err = new ContextStream(this, true);
+
+        private List<Object> entries;  // guarded by LOCK, null once flushed
+
+        private volatile String currentTask;
+
+        TaskContext(String name) {
+            this(name, name == null ? null : new AtomicInteger(0));
+        }
+
+        private TaskContext(String name, AtomicInteger nestedTaskLevel) {
+            this.name = name;
+            this.nestedTaskLevel = nestedTaskLevel;
+            this.entries = name == null ? null : new ArrayList<>();
+        }
+
+        // Not buffered, with its own nesting level starting at the specified one
+        static TaskContext ofReplay(int nestedTaskLevel) {
+            return new TaskContext(null, new AtomicInteger(nestedTaskLevel));
+        }
+
+        boolean isBuffered() {
+            return name != null;
+        }
+
+        AtomicInteger nestedTaskLevel() {
+            return nestedTaskLevel == null ? currentNestedTaskLevel : nestedTaskLevel;
+        }
+
+        void start(String taskName) {
+            nestedTaskLevel().incrementAndGet();
+            startTimes.addLast(System.nanoTime());
+            if (isBuffered()) {
+                taskNames.addLast(taskName);
+                currentTask = taskName;
+            }
+        }
+
+        Long end() {
+            nestedTaskLevel().decrementAndGet();
+            if (isBuffered()) {
+                taskNames.pollLast();
+                currentTask = taskNames.peekLast();
+            }
+            return startTimes.pollLast();
+        }
+
+    }
+
+    // Text written to the output or error stream by a task running in its own context
+    private static final class Output {
+
+        private final boolean error;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Output(boolean error) {
+            this.error = error;
+        }
+
+        void writeTo() {
+            final OutputStream target = error ? errorStream : stream;
+            try {
+                bytes.writeTo(target);
+                target.flush();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+    private static final class ContextStream extends OutputStream {
+
+        private final TaskContext context;
+
+        private final boolean error;
+
+        ContextStream(TaskContext context, boolean error) {
+            this.context = context;
+            this.error = error;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            synchronized (LOCK) {
+                final List<Object> entries = context.entries;
+                if (entries == null) {  // Task has ended
+                    final OutputStream target = error ? errorStream : stream;
+                    PROGRESS_VIEW.clear();
+                    target.write(b, off, len);
+                    redrawProgress();
+                    return;
+                }
+                final Object last = entries.isEmpty() ? null : entries.get(entries.size() - 1);
+                final Output output;
+                if (last instanceof Output && ((Output) last).error == error) {
+                    output = (Output) last;
+                } else {
+                    output = new Output(error);
+                    entries.add(output);
+                }
+                output.bytes.write(b, off, len);
+            }
+        }
+
+    }
+
     public static class JkLogEvent implements Serializable {
 
         private JkLogEvent(Type type, String message, long duration) {
@@ -260,6 +532,14 @@ public final class JkLog implements Serializable {
 
         OutputStream getErrorStream();
 
+        /**
+         * Returns the stream live progress of running tasks is drawn on. It reaches the same terminal as
+         * {@link #getOutStream()} but bypasses any formatting this consumer applies to the output.
+         */
+        default OutputStream getProgressStream() {
+            return getOutStream();
+        }
+
     }
 
     public static class JkState {
@@ -0,0 +1,116 @@
+package dev.jeka.core.api.system;
+
+import dev.jeka.core.api.utils.JkUtilsIO;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/*
+ * Delivers log events to consumers. When the consumer class sees another JkLogEvent class than this one (consumer
+ * loaded in another class loader), the event is rebuilt in the consumer class loader from its type, message and
+ * duration, through method handles resolved once per consumer class. Cloning by serialization is only used as
+ * a last resort, if the consumer JkLogEvent class does not have the expected constructor.
+ */
+final class LogEventBridge {
+
+    private static final LogEventBridge DIRECT = new LogEventBridge(null, null, null);
+
+    private static final LogEventBridge SERIALIZING = new LogEventBridge(null, null, null);
+
+    private static final ClassValue<LogEventBridge> BRIDGES = new ClassValue<LogEventBridge>() {
+
+        @Override
+        protected LogEventBridge computeValue(Class<?> consumerClass) {
+            return of(consumerClass);
+        }
+    };
+
+    private final MethodHandle constructor;  // (Object type, String message, long duration) -> Object event
+
+    private final MethodHandle accept;  // (Object consumer, Object event) -> void
+
+    private final Object[] types;  // Foreign event types, indexed by local ordinal
+
+    private LogEventBridge(MethodHandle constructor, MethodHandle accept, Object[] types) {
+        this.constructor = constructor;
+        this.accept = accept;
+        this.types = types;
+    }
+
+    static void deliver(JkLog.JkEventLogConsumer consumer, JkLog.JkLogEvent event) {
+        final LogEventBridge bridge = BRIDGES.get(consumer.getClass());
+        if (bridge == DIRECT) {
+            consumer.accept(event);
+        } else if (bridge == SERIALIZING) {
+            deliverSerialized(consumer, event);
+        } else {
+            bridge.deliverRebuilt(consumer, event);
+        }
+    }
+
+    private void deliverRebuilt(Object consumer, JkLog.JkLogEvent event) {
+        try {
+            final Object foreignEvent = (Object) constructor.invokeExact(types[event.getType().ordinal()],
+                    event.getMessage(), event.getDurationMs());
+            accept.invokeExact(consumer, foreignEvent);
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void deliverSerialized(Object consumer, JkLog.JkLogEvent event) {
+        final Object evt = JkUtilsIO.cloneBySerialization(event, consumer.getClass().getClassLoader());
+        try {
+            Method accept = consumer.getClass().getMethod("accept", evt.getClass());
+            accept.setAccessible(true);
+            accept.invoke(consumer, evt);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static LogEventBridge of(Class<?> consumerClass) {
+        final Method acceptMethod = acceptMethod(consumerClass);
+        if (acceptMethod == null || acceptMethod.getParameterTypes()[0] == JkLog.JkLogEvent.class) {
+            return DIRECT;
+        }
+        final Class<?> eventClass = acceptMethod.getParameterTypes()[0];
+        try {
+            final Class<?> typeClass = Class.forName(JkLog.Type.class.getName(), false, eventClass.getClassLoader());
+            final Constructor<?> eventConstructor = eventClass.getDeclaredConstructor(typeClass, String.class,
+                    long.class);
+            eventConstructor.setAccessible(true);
+            acceptMethod.setAccessible(true);
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            final MethodHandle constructor = lookup.unreflectConstructor(eventConstructor)
+                    .asType(MethodType.methodType(Object.class, Object.class, String.class, long.class));
+            final MethodHandle accept = lookup.unreflect(acceptMethod)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            final Object[] types = new Object[JkLog.Type.values().length];
+            for (final JkLog.Type type : JkLog.Type.values()) {
+                types[type.ordinal()] = typeClass.getMethod("valueOf", String.class).invoke(null, type.name());
+            }
+            return new LogEventBridge(constructor, accept, types);
+        } catch (final ReflectiveOperationException | IllegalArgumentException e) {
+            return SERIALIZING;
+        }
+    }
+
+    // Returns the accept method taking a JkLogEvent, whatever class loader the JkLogEvent comes from
+    private static Method acceptMethod(Class<?> consumerClass) {
+        for (final Method method : consumerClass.getMethods()) {
+            if (method.getName().equals("accept") && method.getParameterCount() == 1
+                    && method.getParameterTypes()[0].getName().equals(JkLog.JkLogEvent.class.getName())) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,148 @@
+package dev.jeka.core.api.system;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+ * Displays one line per running task under the regular output of a terminal, refreshed periodically.
+ * Lines are erased before regular output is written and drawn again after, so they always stay at the bottom.
+ * The cursor is saved before drawing or erasing lines and restored after, so regular output goes on exactly where
+ * it stopped. Except #isSupported, methods must be invoked while holding the lock passed at construction.
+ */
+final class ProgressView {
+
+    private static final long REFRESH_MILLIS = 250;
+
+    private static final String ESC = "\u001B[";
+
+    private static final String SAVE_CURSOR = "\u001B7";
+
+    private static final String RESTORE_CURSOR = "\u001B8";
+
+    private static final String INDEX = "\u001BD";  // cursor down, scrolling up at the bottom, keeping the column
+
+    private final Supplier<OutputStream> out;
+
+    private final Object lock;
+
+    private final Supplier<List<String>> lineSupplier;
+
+    private final int width;
+
+    private ScheduledExecutorService refresher;
+
+    private int drawnLineCount;
+
+    ProgressView(Supplier<OutputStream> out, Object lock, Supplier<List<String>> lineSupplier) {
+        this.out = out;
+        this.lock = lock;
+        this.lineSupplier = lineSupplier;
+        this.width = columns();
+    }
+
+    static boolean isSupported() {
+        final String term = System.getenv("TERM");
+        return System.console() != null && term != null && !"dumb".equals(term);
+    }
+
+    boolean isStarted() {
+        return refresher != null;
+    }
+
+    void start() {
+        if (refresher != null) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "jeka-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, REFRESH_MILLIS, REFRESH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        if (refresher == null) {
+            return;
+        }
+        refresher.shutdownNow();
+        refresher = null;
+        clear();
+    }
+
+    /*
+     * Erases the lines drawn below the cursor, leaving the cursor where it is.
+     */
+    void clear() {
+        if (drawnLineCount == 0) {
+            return;
+        }
+        final StringBuilder sb = new StringBuilder(SAVE_CURSOR);
+        for (int i = 0; i < drawnLineCount; i++) {
+            sb.append('\n').append(ESC).append('K');
+        }
+        print(sb.append(RESTORE_CURSOR));
+        drawnLineCount = 0;
+    }
+
+    /*
+     * Draws the lines below the one holding the cursor, as the regular output may have left the cursor in the middle
+     * of it, then puts the cursor back. Room is made first so the screen does not scroll once the cursor is saved.
+     */
+    void draw() {
+        if (refresher == null || drawnLineCount > 0) {
+            return;
+        }
+        final List<String> lines = lineSupplier.get();
+        if (lines.isEmpty()) {
+            return;
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines.size(); i++) {
+            sb.append(INDEX);
+        }
+        sb.append(ESC).append(lines.size()).append('A').append(SAVE_CURSOR);
+        for (final String line : lines) {
+            sb.append('\n').append(ESC).append('K')
+                    .append(line.length() < width ? line : line.substring(0, width - 1));
+        }
+        print(sb.append(RESTORE_CURSOR));
+        drawnLineCount = lines.size();
+    }
+
+    private void refresh() {
+        synchronized (lock) {
+            if (refresher == null) {
+                return;
+            }
+            clear();
+            draw();
+        }
+    }
+
+    private void print(CharSequence chars) {
+        final OutputStream outputStream = out.get();
+        try {
+            outputStream.write(chars.toString().getBytes(StandardCharsets.UTF_8));
+            outputStream.flush();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int columns() {
+        try {
+            return Integer.parseInt(System.getenv("COLUMNS"));
+        } catch (final NumberFormatException e) {
+            return 80;
+        }
+    }
+
+}
@@ -7,13 +7,17 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileAttribute;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.zip.ZipError;
@@ -24,6 +28,12 @@ import java.util.zip.ZipError;
  */
 public final class JkUtilsPath {
 
+    /**
+     * Size from which files are copied by channel transfer rather than stream copy.
+     * @see #transfer(Path, Path, CopyOption...)
+     */
+    public static final long TRANSFER_THRESHOLD = 64 * 1024;
+
     private JkUtilsPath() {
         // Do nothing
     }
@@ -275,6 +285,19 @@ public final class JkUtilsPath {
         }
     }
 
+    /**
+     * Same as {@link #copy(Path, Path, CopyOption...)} but files from the default file system larger than
+     * {@link #TRANSFER_THRESHOLD} are copied with {@link FileChannel#transferTo(long, long, WritableByteChannel)},
+     * so the operating system can copy them without going through the JVM (sendfile on Linux).
+     */
+    public static void transfer(Path source, Path target, CopyOption ...copyOptions) {
+        try {
+            transferFile(source, target, copyOptions);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * Get the url to the specified path.
      */
@@ -316,7 +339,17 @@ public final class JkUtilsPath {
      * @return the copied file count.
      */
     public static int copyDirContent(Path sourceDir, Path targetDir, PathMatcher pathMatcher, CopyOption ... copyOptions)  {
-        final CopyDirVisitor visitor = new CopyDirVisitor(sourceDir, targetDir, pathMatcher, copyOptions);
+        return copyDirContent(sourceDir, targetDir, pathMatcher, dir -> true, copyOptions);
+    }
+
+    /**
+     * Same as {@link #copyDirContent(Path, Path, PathMatcher, CopyOption...)} but not entering directories whose
+     * relative path is not accepted by the specified filter.
+     */
+    public static int copyDirContent(Path sourceDir, Path targetDir, PathMatcher pathMatcher,
+                                     Predicate<Path> walkedDirFilter, CopyOption ... copyOptions)  {
+        final CopyDirVisitor visitor = new CopyDirVisitor(sourceDir, targetDir, pathMatcher, walkedDirFilter,
+                copyOptions);
         createDirectories(targetDir);
         walkFileTree(sourceDir, visitor);
         return visitor.count;
@@ -328,7 +361,17 @@ public final class JkUtilsPath {
      * This method is designed to stop file traversal as soon as count is greater than max.
      */
     public static int childrenCount(Path dir, int max, boolean includeDirectories, PathMatcher pathMatcher)  {
-        final CountFileVisitor visitor = new CountFileVisitor(dir, max, includeDirectories, pathMatcher);
+        return childrenCount(dir, max, includeDirectories, pathMatcher, path -> true);
+    }
+
+    /**
+     * Same as {@link #childrenCount(Path, int, boolean, PathMatcher)} but not entering directories whose
+     * relative path is not accepted by the specified filter.
+     */
+    public static int childrenCount(Path dir, int max, boolean includeDirectories, PathMatcher pathMatcher,
+                                    Predicate<Path> walkedDirFilter)  {
+        final CountFileVisitor visitor = new CountFileVisitor(dir, max, includeDirectories, pathMatcher,
+                walkedDirFilter);
         walkFileTree(dir, visitor);
         return visitor.count;
     }
@@ -341,18 +384,51 @@ public final class JkUtilsPath {
         return path.isAbsolute() ? Paths.get("").toAbsolutePath().relativize(path) : path;
     }
 
+    private static void transferFile(Path source, Path target, CopyOption... options) throws IOException {
+        final FileSystem defaultFileSystem = FileSystems.getDefault();
+        final List<CopyOption> optionList = Arrays.asList(options);
+        final boolean replace = optionList.contains(StandardCopyOption.REPLACE_EXISTING);
+        if (source.getFileSystem() != defaultFileSystem || target.getFileSystem() != defaultFileSystem
+                || optionList.size() > (replace ? 1 : 0) || Files.isSymbolicLink(source)
+                || !Files.isRegularFile(source) || Files.size(source) < TRANSFER_THRESHOLD) {
+            Files.copy(source, target, options);
+            return;
+        }
+        final OpenOption creation = replace ? StandardOpenOption.CREATE : StandardOpenOption.CREATE_NEW;
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, creation, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            final long size = in.size();
+            long position = 0;
+            while (position < size) {
+                final long transferred = in.transferTo(position, size - position, out);
+                if (transferred == 0) {
+                    if (position >= in.size()) {
+                        break;  // Source has shrunk while being copied
+                    }
+                    throw new IOException("No byte could be transferred from " + source + " to " + target
+                            + " at position " + position + ".");
+                }
+                position += transferred;
+            }
+        }
+    }
+
     private static class CopyDirVisitor extends SimpleFileVisitor<Path> {
 
-        CopyDirVisitor(Path fromDir, Path toDir, PathMatcher pathMatcher, CopyOption ... options) {
+        CopyDirVisitor(Path fromDir, Path toDir, PathMatcher pathMatcher, Predicate<Path> walkedDirFilter,
+                       CopyOption ... options) {
             this.fromDir = fromDir;
             this.toDir = toDir;
             this.options = options;
             this.pathMatcher = pathMatcher;
+            this.walkedDirFilter = walkedDirFilter;
         }
 
         private final Path fromDir;
         private final Path toDir;
         private final PathMatcher pathMatcher;
+        private final Predicate<Path> walkedDirFilter;
         private final CopyOption[] options;
         int count;
 
@@ -360,12 +436,14 @@ public final class JkUtilsPath {
         @Override
         public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
             final Path sourceRelativePath = fromDir.relativize(dir);
+            final FileVisitResult result = walkedDirFilter.test(sourceRelativePath) ? FileVisitResult.CONTINUE
+                    : FileVisitResult.SKIP_SUBTREE;
             if (!pathMatcher.matches(sourceRelativePath)) {
-                return FileVisitResult.CONTINUE;
+                return result;
             }
             final Path relativePath = toDir.getFileSystem().getPath(toDir.toString(), sourceRelativePath.toString());
             Files.createDirectories(relativePath);
-            return FileVisitResult.CONTINUE;
+            return result;
         }
 
         @Override
@@ -378,7 +456,7 @@ public final class JkUtilsPath {
             if (target.getParent() != null) {
                 Files.createDirectories(target.getParent());
             }
-            Files.copy(file, target , options);
+            transferFile(file, target, options);
             count ++;
             return FileVisitResult.CONTINUE;
         }
@@ -391,20 +469,25 @@ public final class JkUtilsPath {
         private final int countMax;
         private int count;
         private final PathMatcher pathMatcher;
+        private final Predicate<Path> walkedDirFilter;
 
 
-        CountFileVisitor(Path fromPath, int countMax , boolean includeDirectories, PathMatcher pathMatcher) {
+        CountFileVisitor(Path fromPath, int countMax , boolean includeDirectories, PathMatcher pathMatcher,
+                         Predicate<Path> walkedDirFilter) {
             this.fromPath = fromPath;
             this.countMax = countMax;
             this.includeDirectories = includeDirectories;
             this.pathMatcher = pathMatcher;
+            this.walkedDirFilter = walkedDirFilter;
         }
 
         @Override
         public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
             final Path sourceRelativePath = fromPath.relativize(dir);
+            final FileVisitResult result = walkedDirFilter.test(sourceRelativePath) ? FileVisitResult.CONTINUE
+                    : FileVisitResult.SKIP_SUBTREE;
             if (!pathMatcher.matches(sourceRelativePath)) {
-                return FileVisitResult.CONTINUE;
+                return result;
             }
             if (includeDirectories && !fromPath.equals(dir)) {
                 count ++;
@@ -412,7 +495,7 @@ public final class JkUtilsPath {
             if (count > countMax) {
                 return FileVisitResult.TERMINATE;
             }
-            return FileVisitResult.CONTINUE;
+            return result;
         }
 
         @Override
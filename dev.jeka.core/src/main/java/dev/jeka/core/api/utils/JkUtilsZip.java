@@ -1,6 +1,10 @@
 package dev.jeka.core.api.utils;
 
 import java.io.File;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Enumeration;
 import java.util.LinkedList;
 import java.util.List;
@@ -40,4 +44,38 @@ public final class JkUtilsZip {
         }
     }
 
+    /**
+     * Converts the specified time, in milliseconds since epoch, to a MS-DOS date-time, as stored in zip entries.
+     * Precision is 2 seconds. Times before 1980 are converted to 1980-01-01.
+     */
+    public static long javaToDosTime(long time) {
+        final LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        final int year = dateTime.getYear();
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980L) << 25 | dateTime.getMonthValue() << 21 | dateTime.getDayOfMonth() << 16
+                | dateTime.getHour() << 11 | dateTime.getMinute() << 5 | dateTime.getSecond() >> 1;
+    }
+
+    /**
+     * Converts the specified MS-DOS date-time, as stored in zip entries, to milliseconds since epoch. Invalid
+     * date-times are converted to 1980-01-01.
+     */
+    public static long dosToJavaTime(long dosTime) {
+        LocalDateTime dateTime;
+        try {
+            dateTime = LocalDateTime.of(
+                    (int) ((dosTime >> 25) & 0x7f) + 1980,
+                    (int) ((dosTime >> 21) & 0x0f),
+                    (int) ((dosTime >> 16) & 0x1f),
+                    (int) ((dosTime >> 11) & 0x1f),
+                    (int) ((dosTime >> 5) & 0x3f),
+                    (int) ((dosTime << 1) & 0x3e));
+        } catch (final DateTimeException e) {
+            dateTime = LocalDateTime.of(1980, 1, 1, 0, 0);
+        }
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
 }
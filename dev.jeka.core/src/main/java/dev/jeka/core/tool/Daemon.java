@@ -0,0 +1,322 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.*;
+
+/**
+ * Long-lived process hosting successive Jeka runs in order to avoid paying JVM startup, class loading and
+ * JIT warm-up on each invocation. The daemon listens on a local socket and runs requests one at a time : each
+ * request gets its own context classloader (so def classes never leak from one run to another) while Jeka classes
+ * and embedded libraries (Ivy, Bouncy Castle) stay loaded in the daemon classloader.<p>
+ *
+ * The daemon is normally started and contacted by the wrapper (see <code>jeka.daemon</code> property in
+ * <i>jeka/wrapper/jeka.properties</i>). It writes its port and an access token in a file located in
+ * [jeka user home]/daemon, named after the daemon id passed as first argument. It exits when no request has been
+ * received for the idle timeout (in seconds) passed as second argument. A daemon holds a lock on the
+ * {@link #lockFile(String) lock file} named after its id while it is alive, so a same daemon can not be started
+ * twice.<p>
+ *
+ * Protocol (all strings are written as an int length followed by their UTF-8 bytes, see
+ * {@link #writeString(DataOutputStream, String)}) : the client sends the token, the working dir, the argument count
+ * followed by the arguments, then the environment variable count followed by key/value pairs. The client must send
+ * its request within {@link #DEFAULT_REQUEST_TIMEOUT_MILLIS} milliseconds. Standard input is not forwarded, so
+ * interactive runs and watch mode (<code>-Watch</code>) are refused. The daemon answers with frames made of a one byte type followed by an int : for
+ * {@link #OUT_FRAME} and {@link #ERR_FRAME}, the int is the length of the following bytes, for {@link #EXIT_FRAME}
+ * it is the exit code of the run and ends the exchange.
+ *
+ * @author Jerome Angibaud
+ */
+public final class Daemon {
+
+    static final byte OUT_FRAME = 1;
+
+    static final byte ERR_FRAME = 2;
+
+    static final byte EXIT_FRAME = 0;
+
+    static final int DEFAULT_REQUEST_TIMEOUT_MILLIS = 10_000;
+
+    private static final int DEFAULT_IDLE_TIMEOUT_SECONDS = 3 * 3600;
+
+    private static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+
+    private final String id;
+
+    private final int idleTimeoutSeconds;
+
+    private final String token = newToken();
+
+    private final Runner runner;
+
+    // Requests are served one at a time, so a client stalling before sending its request must not block the others
+    int requestTimeoutMillis = DEFAULT_REQUEST_TIMEOUT_MILLIS;
+
+    Daemon(String id, int idleTimeoutSeconds, Runner runner) {
+        this.id = id;
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+        this.runner = runner;
+    }
+
+    /**
+     * Entry point for starting a daemon. Arguments are [daemon id] and optionally [idle timeout in seconds].
+     */
+    public static void main(String[] args) throws IOException {
+        final String id = args.length > 0 ? args[0] : "default";
+        final int timeout = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_IDLE_TIMEOUT_SECONDS;
+        JkLog.setConsumer(JkLog.Style.INDENT);
+        new Daemon(id, timeout, Main::run).serve();
+        System.exit(0);
+    }
+
+    /**
+     * Returns the file where the daemon having the specified id publishes its port and token.
+     */
+    static Path portFile(String daemonId) {
+        return JkLocator.getJekaUserHomeDir().resolve("daemon").resolve(daemonId + ".port");
+    }
+
+    /**
+     * Returns the file the daemon having the specified id holds a lock on while it is alive.
+     */
+    static Path lockFile(String daemonId) {
+        return JkLocator.getJekaUserHomeDir().resolve("daemon").resolve(daemonId + ".lock");
+    }
+
+    /**
+     * Serves requests until the idle timeout expires. Returns immediately if a daemon having the same id is
+     * already alive.
+     */
+    void serve() throws IOException {
+        final Path lockFile = lockFile(id);
+        JkUtilsPath.createDirectories(lockFile.getParent());
+        try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            final FileLock lock = tryLock(lockChannel);
+            if (lock == null) {
+                JkLog.warn("Jeka daemon " + id + " is already running. Exiting.");
+                return;
+            }
+            try {
+                serveLocked();
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private void serveLocked() throws IOException {
+        final Path portFile = portFile(id);
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            serverSocket.setSoTimeout(idleTimeoutSeconds * 1000);
+            JkUtilsPath.createDirectories(portFile.getParent());
+            final String content = serverSocket.getLocalPort() + "\n" + token + "\n";
+            writeOwnerOnly(portFile, content.getBytes(StandardCharsets.UTF_8));
+            portFile.toFile().deleteOnExit();
+            JkLog.info("Jeka daemon " + id + " listening on port " + serverSocket.getLocalPort());
+            while (true) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (final SocketTimeoutException e) {
+                    JkLog.info("No request received for " + idleTimeoutSeconds + " seconds. Stopping.");
+                    break;
+                }
+                try {
+                    handle(socket);
+                } catch (final Throwable e) {  // Client has gone : wait for the next one
+                    JkLog.error("Request on Jeka daemon " + id + " failed : " + e);
+                } finally {
+                    JkUtilsIO.closeQuietly(socket);
+                }
+            }
+        } finally {
+            JkUtilsPath.deleteIfExists(portFile);
+        }
+    }
+
+    private void handle(Socket socket) throws IOException {
+        socket.setSoTimeout(requestTimeoutMillis);
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (!token.equals(readString(in))) {
+            return;
+        }
+        final Path workingDir = Paths.get(readString(in));
+        final String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = readString(in);
+        }
+        final Map<String, String> env = new HashMap<>();
+        final int envCount = in.readInt();
+        for (int i = 0; i < envCount; i++) {
+            env.put(readString(in), readString(in));
+        }
+        int exitCode;
+        try {
+            exitCode = run(args, workingDir, env, out);
+        } catch (final Throwable e) {
+            JkLog.error("Run " + Arrays.asList(args) + " on " + workingDir + " failed : " + e);
+            exitCode = 1;
+        }
+        synchronized (out) {
+            out.writeByte(EXIT_FRAME);
+            out.writeInt(exitCode);
+            out.flush();
+        }
+    }
+
+    private int run(String[] args, Path workingDir, Map<String, String> env, DataOutputStream out) {
+        final PrintStream formerOut = System.out;
+        final PrintStream formerErr = System.err;
+        final ClassLoader formerClassLoader = Thread.currentThread().getContextClassLoader();
+        final Map<String, String> formerEnv = Environment.env;
+        final boolean formerDaemonHosted = Environment.daemonHosted;
+        final Properties formerSystemProps = (Properties) System.getProperties().clone();
+
+        // A fresh classloader per run, so def classes compiled for a run are never seen by the next ones.
+        final URLClassLoader runClassLoader = new URLClassLoader(new URL[0], Daemon.class.getClassLoader());
+        System.setOut(new PrintStream(new BufferedOutputStream(new FrameOutputStream(out, OUT_FRAME)), true));
+        System.setErr(new PrintStream(new BufferedOutputStream(new FrameOutputStream(out, ERR_FRAME)), true));
+        Thread.currentThread().setContextClassLoader(runClassLoader);
+        Environment.env = Collections.unmodifiableMap(env);
+        Environment.daemonHosted = true;
+        JkLocator.setEnv(Environment.env);
+        JkLog.setVerbosity(JkLog.Verbosity.NORMAL);
+        try {
+            return runner.run(args, workingDir);
+        } finally {
+            final JkLog.JkEventLogConsumer consumer = JkLog.getConsumer();
+            if (consumer != null) {
+                consumer.restore();
+            }
+            System.out.flush();
+            System.err.flush();
+            System.setOut(formerOut);
+            System.setErr(formerErr);
+            System.setProperties(formerSystemProps);
+            Environment.env = formerEnv;
+            Environment.daemonHosted = formerDaemonHosted;
+            JkLocator.setEnv(null);
+            Thread.currentThread().setContextClassLoader(formerClassLoader);
+            PluginDictionary.clearCache();
+            JkUtilsIO.closeQuietly(runClassLoader);
+        }
+    }
+
+    /**
+     * Writes the specified string as its length followed by its UTF-8 bytes. Unlike
+     * {@link DataOutputStream#writeUTF(String)}, this is not limited to 64KB.
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_LENGTH) {
+            throw new IOException("Invalid string length " + length);
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Within a same JVM, the lock is reported as overlapping instead of being refused
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (final OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    // The file contains the access token, so only the owner can read it
+    private static void writeOwnerOnly(Path file, byte[] content) throws IOException {
+        Files.deleteIfExists(file);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(file);
+            final File ioFile = file.toFile();
+            ioFile.setReadable(false, false);
+            ioFile.setReadable(true, true);
+            ioFile.setWritable(false, false);
+            ioFile.setWritable(true, true);
+        }
+        Files.write(file, content);
+    }
+
+    private static String newToken() {
+        final byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        final StringBuilder sb = new StringBuilder();
+        for (final byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Runs Jeka for a request and returns the exit code.
+     */
+    @FunctionalInterface
+    interface Runner {
+
+        int run(String[] args, Path workingDir);
+
+    }
+
+    private static class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+
+        private final byte type;
+
+        FrameOutputStream(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(len);
+                out.write(bytes, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+
+    }
+
+}
@@ -14,6 +14,7 @@ import dev.jeka.core.api.utils.JkUtilsReflect;
 import dev.jeka.core.api.utils.JkUtilsString;
 import dev.jeka.core.api.utils.JkUtilsTime;
 
+import java.io.PrintStream;
 import java.lang.reflect.Method;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -103,6 +104,10 @@ final class Engine {
             JkLog.info("Jeka Classpath : ");
             path.iterator().forEachRemaining(item -> JkLog.info("    " + item));
         }
+        if (Environment.standardOptions.watch) {
+            this.watch(jkClass, commandLine);
+            return;
+        }
         try {
             this.launch(jkClass, commandLine);
         } catch (final RuntimeException e) {
@@ -111,8 +116,70 @@ final class Engine {
         }
     }
 
+    /*
+     * Keeps the Jeka class instance alive and launches the command line methods again each time a watched
+     * directory changes. Returns only if the current thread is interrupted.
+     */
+    private void watch(JkClass jkClass, CommandLine commandLine) {
+        final List<JkWatchable> watchables = new LinkedList<>();
+        for (final JkClass importedJkClass : jkClass.getImportedJkClasses().getAll()) {
+            watchables.addAll(watchables(importedJkClass));
+        }
+        watchables.addAll(watchables(jkClass));
+        final Path defSourceDir = resolver.defSourceDir.toAbsolutePath().normalize();
+        final List<Path> watchedDirs = new LinkedList<>();
+        watchedDirs.add(defSourceDir);
+        watchables.forEach(watchable -> watchedDirs.addAll(watchable.getWatchedDirs()));
+        watchables.forEach(JkWatchable::prepareWatch);
+        launchWatched(jkClass, commandLine);
+        try (Watcher watcher = Watcher.of(watchedDirs)) {
+            while (true) {
+                JkLog.info("Watching " + JkUtilsString.plurialize(watcher.getWatchedDirCount(), "directory",
+                        "directories") + " for changes. Press Ctrl+C to stop.");
+                final Set<Path> changes = watcher.awaitChanges();
+                if (changes.stream().anyMatch(path -> path.startsWith(defSourceDir))) {
+                    JkLog.warn("Def sources have changed : restart Jeka to take them into account.");
+                    if (changes.stream().allMatch(path -> path.startsWith(defSourceDir))) {
+                        continue;
+                    }
+                }
+                JkLog.info(JkUtilsString.plurialize(changes.size(), "change") + " detected.");
+                launchWatched(jkClass, commandLine);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Failures do not stop watching, so they can be fixed and checked in the next launch
+    private void launchWatched(JkClass jkClass, CommandLine commandLine) {
+        final long start = System.nanoTime();
+        final int nestedLevel = JkLog.getCurrentNestedLevel();
+        try {
+            this.launch(jkClass, commandLine);
+            JkLog.info("Done in " + JkUtilsTime.durationInMillis(start) + " milliseconds.");
+        } catch (final Throwable e) {  // Errors too, as a stack overflow in a def class
+            while (JkLog.getCurrentNestedLevel() > nestedLevel) {
+                JkLog.endTask("Failed after %d milliseconds.");
+            }
+            JkLog.error("Failed in " + JkUtilsTime.durationInMillis(start) + " milliseconds : " + e.getMessage());
+            if (JkLog.isVerbose()) {
+                e.printStackTrace(new PrintStream(JkLog.getErrorStream()));
+            }
+        }
+    }
+
+    private static List<JkWatchable> watchables(JkClass jkClass) {
+        final List<JkWatchable> result = new LinkedList<>();
+        if (jkClass instanceof JkWatchable) {
+            result.add((JkWatchable) jkClass);
+        }
+        result.addAll(jkClass.getPlugins().getLoadedPluginInstanceOf(JkWatchable.class));
+        return result;
+    }
+
     private void preCompile() {
-        final List<Path> sourceFiles = JkPathTree.of(resolver.defSourceDir)
+        final List<Path> sourceFiles = JkPathTree.of(resolver.defSourceDir).withIndex(true)
                 .andMatcher(JAVA_DEF_SOURCE_MATCHER.or(KOTLIN_DEF_SOURCE_MATCHER)).getFiles();
         final SourceParser parser = SourceParser.of(this.projectBaseDir, sourceFiles);
         this.defDependencies = this.defDependencies.and(parser.dependencies());
@@ -211,16 +278,37 @@ final class Engine {
     }
 
     private void compileDef(JkPathSequence defClasspath) {
-        JkPathTree.of(resolver.defClassDir).deleteContent();
+        final Path stateFile = this.projectBaseDir.resolve(JkConstants.DEF_COMPILE_STATE_FILE);
+        final JkJavaCompileSpec javaCompileSpec;
         if (hasKotlin()) {
+            JkUtilsPath.deleteIfExists(stateFile);
+            JkPathTree.of(resolver.defClassDir).deleteContent();
             final JkKotlinJvmCompileSpec kotlinCompileSpec = defKotlinCompileSpec(defClasspath);
             JkKotlinCompiler kotlinCompiler = JkKotlinCompiler.ofKotlinHome();
             wrapCompile(() -> kotlinCompiler.compile(kotlinCompileSpec));
             JkUrlClassLoader classLoader = JkUrlClassLoader.ofCurrent();
             classLoader.addEntries(kotlinCompiler.getStdLib());
+            javaCompileSpec = defJavaCompileSpec(defClasspath);
+            wrapCompile(() -> JkJavaCompiler.of().compile(javaCompileSpec));
+        } else {
+
+            // Without any previous state, we can not know which class files are stale.
+            if (!Files.exists(stateFile)) {
+                JkPathTree.of(resolver.defClassDir).deleteContent();
+            }
+            javaCompileSpec = defJavaCompileSpec(defClasspath);
+            wrapCompile(() -> JkJavaCompiler.of().compileIncrementally(javaCompileSpec, stateFile));
         }
-        final JkJavaCompileSpec javaCompileSpec = defJavaCompileSpec(defClasspath);
-        wrapCompile(() -> JkJavaCompiler.of().compile(javaCompileSpec));
+        copyDefResources();
+    }
+
+    // Resources removed from def dir are deleted as well, so they do not stay on the def classpath
+    private void copyDefResources() {
+        JkPathTree.of(this.resolver.defClassDir)
+                .andMatching(false, "**/*.class", "*.class", "**/*.kotlin_module")
+                .getRelativeFiles().stream()
+                .filter(relativePath -> !Files.exists(this.resolver.defSourceDir.resolve(relativePath.toString())))
+                .forEach(relativePath -> JkUtilsPath.deleteFile(this.resolver.defClassDir.resolve(relativePath)));
         JkPathTree.of(this.resolver.defSourceDir)
                 .andMatching(false, "**/*.java", "*.java", "**/*.kt", "*.kt")
                 .copyTo(this.resolver.defClassDir, StandardCopyOption.REPLACE_EXISTING);
@@ -236,10 +324,8 @@ final class Engine {
 
     private void launch(JkClass jkClass, CommandLine commandLine) {
         if (!commandLine.getSubProjectMethods().isEmpty()) {
-            for (final JkClass importedJkClass : jkClass.getImportedJkClasses().getAll()) {
-                runProject(importedJkClass, commandLine.getSubProjectMethods());
-            }
-            runProject(jkClass, commandLine.getSubProjectMethods());
+            ProjectScheduler.of(jkClass).run(project -> runProject(project, commandLine.getSubProjectMethods()),
+                    Environment.standardOptions.parallelProjects);
         }
         List<CommandLine.MethodInvocation> methods = commandLine.getMasterMethods();
         if (methods.isEmpty() && Environment.standardOptions.logRuntimeInformation == null) {
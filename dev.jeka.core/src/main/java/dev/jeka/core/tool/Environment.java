@@ -22,6 +22,17 @@ class Environment {
 
     static StandardOptions standardOptions = new StandardOptions(Collections.emptyMap());
 
+    /**
+     * Environment variables visible to Jeka classes. This differs from the process environment when
+     * the run is hosted by a {@link Daemon} on behalf of a client process.
+     */
+    static Map<String, String> env = System.getenv();
+
+    /**
+     * True when the run is hosted by a {@link Daemon}, which can not serve other clients until the run ends.
+     */
+    static boolean daemonHosted;
+
     static void initialize(String[] commandLineArgs) {
 
         // Parse command line
@@ -46,12 +57,20 @@ class Environment {
             JkLog.setVerbosity(JkLog.Verbosity.QUITE_VERBOSE);
         }
         JkSquareConsoleLogConsumer.setMaxLength(standardOptions.logMaxLength);
+        if (standardOptions.watch && daemonHosted) {
+            throw new JkException("Watch mode can not run on Jeka daemon, as it would block other clients. "
+                    + "Set JEKA_DAEMON=false environment variable to use it.");
+        }
 
         Environment.systemProps = sysProps;
         Environment.commandLine = commandLine;
         Environment.standardOptions = standardOptions;
     }
 
+    static String getEnv(String name) {
+        return env.get(name);
+    }
+
     private static Map<String, String> userSystemProperties() {
         final Map<String, String> result = new HashMap<>();
         final Path userPropFile = JkLocator.getJekaUserHomeDir().resolve("ofSystem.properties");
@@ -97,6 +116,10 @@ class Environment {
 
         int logMaxLength = -1;
 
+        boolean watch;
+
+        int parallelProjects = 1;
+
         private String jkClassName;
 
         private final Set<String> names = new HashSet<>();
@@ -110,6 +133,8 @@ class Environment {
             this.logStyle = valueOf(JkLog.Style.class, map, JkLog.Style.INDENT, "LogStyle", "LS");
             this.logMaxLength = valueOf(Integer.class, map, -1,"LogMaxLength", "LML");
             this.jkClassName = valueOf(String.class, map, null, "JekaClass", "JKC");
+            this.watch = valueOf(Boolean.class, map, false, "Watch", "W");
+            this.parallelProjects = valueOf(Integer.class, map, 1, "ParallelProjects", "PP");
         }
 
         Set<String> names() {
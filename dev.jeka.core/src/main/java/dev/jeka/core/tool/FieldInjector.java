@@ -33,7 +33,7 @@ final class FieldInjector {
         for (final Field field : getOptionFields(target.getClass())) {
             final JkEnv env = field.getAnnotation(JkEnv.class);
             if (env != null) {
-                final String stringValue = System.getenv(env.value());
+                final String stringValue = Environment.getEnv(env.value());
                 if (stringValue != null) {
                     final Class<?> type = field.getType();
                     Object value;
@@ -52,6 +52,8 @@ final class HelpDisplayer {
         sb.append("  -LogStyle (shorthand -LS) : choose the display log style : INDENT(default), BRACE or SQUARE.\n");
         sb.append("  -LogMaxLength (shorthand -LML) : Console will do a carriage return automatically after N characters are outputted in a single line (ex : -LML=120).\n");
         sb.append("  -JekaClass (shorthand -JKC) : Force to use the specified class as the Jeka class to invoke. It can be the short name of the class (without package prefix).\n");
+        sb.append("  -Watch (shorthand -W) : Keeps Jeka running and executes the methods again each time sources or resources change.\n");
+        sb.append("  -ParallelProjects (shorthand -PP) : Runs sub-project methods on up to N independent imported projects at once (ex : -PP=4).\n");
         return sb.toString();
     }
 
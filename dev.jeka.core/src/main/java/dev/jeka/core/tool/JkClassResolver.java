@@ -50,7 +50,7 @@ final class JkClassResolver {
         if (!Files.exists(defSourceDir)) {
             return false;
         }
-        return JkPathTree.of(defSourceDir).andMatching(true,
+        return JkPathTree.of(defSourceDir).withIndex(true).andMatching(true,
                 "**.java", "*.java").count(0, false) > 0;
     }
 
@@ -58,7 +58,7 @@ final class JkClassResolver {
         if (!this.hasDefSource()) {
             return false;
         }
-        final JkPathTree dir = JkPathTree.of(defSourceDir);
+        final JkPathTree dir = JkPathTree.of(defSourceDir).withIndex(true);
         for (final Path path : dir.getRelativeFiles()) {
             final String pathName = path.toString();
             if (pathName.endsWith(".java")) {
@@ -104,7 +104,7 @@ final class JkClassResolver {
 
         // If there is a command file
         if (this.hasDefSource()) {
-            final JkPathTree dir = JkPathTree.of(defSourceDir);
+            final JkPathTree dir = JkPathTree.of(defSourceDir).withIndex(true);
             for (final Path path : dir.getRelativeFiles()) {
                 if (path.toString().endsWith(".java") || path.toString().endsWith(".kt")) {
                     final Class<?> clazz = JkClassLoader.ofCurrent().loadGivenClassSourcePath(path.toString());
@@ -24,6 +24,8 @@ public final class JkConstants {
 
     static final String BOOT_DIR = JEKA_DIR + "/boot";
 
+    static final String DEF_COMPILE_STATE_FILE = WORK_PATH + "/def-compile-state";
+
     static final Class<? extends JkClass> DEFAULT_JEKA_CLASS = JkClass.class;
 
     /**
@@ -0,0 +1,24 @@
+package dev.jeka.core.tool;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Implemented by Jeka classes or plugins declaring the directories whose changes should trigger a new execution
+ * of the command line methods, when Jeka runs in watch mode (<code>-Watch</code> option).
+ */
+public interface JkWatchable {
+
+    /**
+     * Returns the directories to watch. Sub-directories are watched as well. Non-existing directories are ignored.
+     */
+    List<Path> getWatchedDirs();
+
+    /**
+     * Called once before the first execution triggered by a change, so that successive executions only process
+     * inputs that have changed (incremental compilation, ...). Does nothing by default.
+     */
+    default void prepareWatch() {
+    }
+
+}
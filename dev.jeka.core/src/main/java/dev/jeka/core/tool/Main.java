@@ -1,6 +1,10 @@
 package dev.jeka.core.tool;
 
+import dev.jeka.core.api.crypto.gpg.JkGpg;
+import dev.jeka.core.api.file.JkPathIndex;
+import dev.jeka.core.api.java.JkBuildCache;
 import dev.jeka.core.api.java.JkClassLoader;
+import dev.jeka.core.api.java.testing.JkTestProcessor;
 import dev.jeka.core.api.system.JkLog;
 import dev.jeka.core.api.utils.JkUtilsIO;
 import dev.jeka.core.api.utils.JkUtilsString;
@@ -33,6 +37,15 @@ public final class Main {
             JkClassLoader.of(urlClassLoader).invokeStaticMethod(false, "dev.jeka.core.tool.Main", "main" , argArray);
             return;
         }
+        final int exitCode = run(args, Paths.get("").toAbsolutePath());
+        System.exit(exitCode); // Triggers shutdown hooks
+    }
+
+    /**
+     * Runs Jeka on the specified working directory and returns the process exit code instead of exiting the JVM.
+     * This is used by both {@link #main(String[])} and the {@link Daemon} which hosts several runs in the same JVM.
+     */
+    static int run(String[] args, Path workingDir) {
         final long start = System.nanoTime();
         JkUtilsSystem.disableUnsafeWarning();
         try {
@@ -48,14 +61,13 @@ public final class Main {
             if (!Environment.standardOptions.logSetup) {
                 JkLog.setVerbosity(JkLog.Verbosity.WARN_AND_ERRORS);
             }
-            final Path workingDir = Paths.get("").toAbsolutePath();
             final Engine engine = new Engine(workingDir);
             engine.execute(Environment.commandLine, Environment.standardOptions.jkClassName(), verbosity);
             if (Environment.standardOptions.logBanner) {
                 displayOutro(start);
             }
-            System.exit(0); // Triggers shutdown hooks
-        } catch (final RuntimeException e) {
+            return 0;
+        } catch (final Throwable e) {  // Errors thrown by def classes must not kill a daemon hosting the run
             JkLog.JkEventLogConsumer consumer = JkLog.getConsumer();
             if (consumer != null) {
                 consumer.restore();
@@ -78,7 +90,12 @@ public final class Main {
             } else {
                 System.err.println("Failed !");
             }
-            System.exit(1);
+            return 1;
+        } finally {
+            JkBuildCache.saveFileHashes();
+            JkPathIndex.clearAll();
+            JkGpg.clearCache();
+            JkTestProcessor.stopIdleForks();
         }
     }
 
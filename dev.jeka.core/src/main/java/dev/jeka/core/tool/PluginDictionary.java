@@ -74,6 +74,13 @@ final class PluginDictionary {
         return this.plugins.toString();
     }
 
+    /*
+     * Forgets plugins found so far, as they may have been loaded by a classloader that is no longer in use.
+     */
+    static void clearCache() {
+        SHORTNAME_CACHE.clear();
+    }
+
     private static <T> Set<PluginDescription> loadAllPlugins() {
         final String nameSuffix = JkPlugin.class.getSimpleName();
         Set<PluginDescription> result = toPluginDescriptions(JkInternalClasspathScanner.INSTANCE
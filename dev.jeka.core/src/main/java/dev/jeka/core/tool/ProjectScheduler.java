@@ -0,0 +1,199 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.java.project.JkJavaIdeSupport;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/*
+ * Runs a task on a Jeka class and all the Jeka classes it imports, in an order where each project comes after the
+ * projects it depends on. A project depends on the projects it imports through @JkDefImport and on the local projects
+ * its dependencies point to (JkDependencySet#getIdePathDirs).
+ *
+ * With a parallelism greater than 1, independent projects run concurrently. The logs of each project are then
+ * displayed at once when it completes, and the first failure prevents remaining projects from starting.
+ */
+final class ProjectScheduler {
+
+    private static final long TERMINATION_TIMEOUT_SECONDS = 30;
+
+    private final List<JkClass> projects;  // in topological order
+
+    private final Map<JkClass, Set<JkClass>> dependencies;
+
+    private ProjectScheduler(List<JkClass> projects, Map<JkClass, Set<JkClass>> dependencies) {
+        this.projects = projects;
+        this.dependencies = dependencies;
+    }
+
+    static ProjectScheduler of(JkClass master) {
+        final List<JkClass> projects = new ArrayList<>(master.getImportedJkClasses().getAll());
+        projects.remove(master);
+        projects.add(master);
+        return of(projects, project -> project.getImportedJkClasses().getDirects());
+    }
+
+    /*
+     * Derives the dependency graph of the specified projects from their direct imports and their IDE project dirs.
+     * Projects are matched by base directory as a same project may be imported through distinct instances.
+     */
+    static ProjectScheduler of(List<JkClass> projects, Function<JkClass, List<JkClass>> directImports) {
+        final Map<Path, JkClass> byDir = new HashMap<>();
+        projects.forEach(project -> byDir.putIfAbsent(dir(project.getBaseDir()), project));
+        final Map<JkClass, Set<JkClass>> dependencies = new HashMap<>();
+        for (final JkClass project : projects) {
+            final Set<Path> dependencyDirs = new LinkedHashSet<>();
+            directImports.apply(project).forEach(imported -> dependencyDirs.add(imported.getBaseDir()));
+            dependencyDirs.addAll(ideProjectDirs(project));
+            final Set<JkClass> projectDependencies = new LinkedHashSet<>();
+            for (final Path dependencyDir : dependencyDirs) {
+                final JkClass dependency = byDir.get(dir(dependencyDir));
+                if (dependency != null && !dir(dependencyDir).equals(dir(project.getBaseDir()))) {
+                    projectDependencies.add(dependency);
+                }
+            }
+            dependencies.put(project, projectDependencies);
+        }
+        return new ProjectScheduler(sort(projects, dependencies), dependencies);
+    }
+
+    List<JkClass> getProjects() {
+        return Collections.unmodifiableList(projects);
+    }
+
+    Set<JkClass> getDependencies(JkClass project) {
+        return Collections.unmodifiableSet(dependencies.get(project));
+    }
+
+    /*
+     * Runs the specified task on every project, using at most the specified number of threads.
+     */
+    void run(Consumer<JkClass> task, int parallelism) {
+        if (parallelism <= 1 || projects.size() <= 1) {
+            projects.forEach(task);
+            return;
+        }
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService executorService = Executors.newFixedThreadPool(Math.min(parallelism, projects.size()),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "jeka-project-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        final CompletionService<JkClass> completionService = new ExecutorCompletionService<>(executorService);
+        final Map<JkClass, Integer> pendingDependencyCounts = new HashMap<>();
+        projects.forEach(project -> pendingDependencyCounts.put(project, dependencies.get(project).size()));
+        final Set<JkClass> submitted = new HashSet<>();
+        int running = 0;
+        try {
+            for (final JkClass project : projects) {
+                if (pendingDependencyCounts.get(project) == 0) {
+                    submit(completionService, task, project);
+                    submitted.add(project);
+                    running++;
+                }
+            }
+            while (running > 0) {
+                final JkClass done = take(completionService);
+                running--;
+                for (final JkClass project : projects) {
+                    if (submitted.contains(project) || !dependencies.get(project).contains(done)) {
+                        continue;
+                    }
+                    final int count = pendingDependencyCounts.get(project) - 1;
+                    pendingDependencyCounts.put(project, count);
+                    if (count == 0) {
+                        submit(completionService, task, project);
+                        submitted.add(project);
+                        running++;
+                    }
+                }
+            }
+        } finally {
+            shutdown(executorService);
+        }
+    }
+
+    // Running projects are interrupted, then awaited so none still runs when the failure is reported
+    private static void shutdown(ExecutorService executorService) {
+        executorService.shutdownNow();
+        try {
+            if (!executorService.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                JkLog.warn("Project executions did not terminate within " + TERMINATION_TIMEOUT_SECONDS
+                        + " seconds.");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void submit(CompletionService<JkClass> completionService, Consumer<JkClass> task,
+                               JkClass project) {
+        completionService.submit(() -> {
+            JkLog.runTask("Project " + project.getBaseDir().getFileName(), () -> task.accept(project));
+            return project;
+        });
+    }
+
+    private static JkClass take(CompletionService<JkClass> completionService) {
+        try {
+            return completionService.take().get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw JkUtilsThrowable.unchecked(e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw JkUtilsThrowable.unchecked(e.getCause(), "Project execution failed.");
+        }
+    }
+
+    // Kahn's algorithm, picking the first ready project in the original order to keep it when possible
+    private static List<JkClass> sort(List<JkClass> projects, Map<JkClass, Set<JkClass>> dependencies) {
+        final List<JkClass> result = new ArrayList<>(projects.size());
+        final List<JkClass> remaining = new LinkedList<>(projects);
+        while (!remaining.isEmpty()) {
+            final JkClass ready = remaining.stream()
+                    .filter(project -> result.containsAll(dependencies.get(project)))
+                    .findFirst()
+                    .orElseThrow(() -> new JkException("Projects %s depend on each other.", dirNames(remaining)));
+            result.add(ready);
+            remaining.remove(ready);
+        }
+        return result;
+    }
+
+    private static Set<Path> ideProjectDirs(JkClass project) {
+        final Set<Path> result = new LinkedHashSet<>();
+        final List<JkJavaIdeSupport.JkSupplier> suppliers = new LinkedList<>(
+                project.getPlugins().getLoadedPluginInstanceOf(JkJavaIdeSupport.JkSupplier.class));
+        if (project instanceof JkJavaIdeSupport.JkSupplier) {
+            suppliers.add((JkJavaIdeSupport.JkSupplier) project);
+        }
+        for (final JkJavaIdeSupport.JkSupplier supplier : suppliers) {
+            final JkJavaIdeSupport ideSupport = supplier.getJavaIdeSupport();
+            if (ideSupport != null && ideSupport.getDependencies() != null) {
+                result.addAll(ideSupport.getDependencies().getIdePathDirs());
+            }
+        }
+        return result;
+    }
+
+    private static Path dir(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    private static List<String> dirNames(List<JkClass> projects) {
+        final List<String> result = new LinkedList<>();
+        projects.forEach(project -> result.add(project.getBaseDir().getFileName().toString()));
+        return result;
+    }
+
+}
@@ -0,0 +1,185 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/*
+ * Watches directory trees for changes. Changes are reported once no other change has occurred for a short delay,
+ * so that a burst of changes (saving several files, checking out a branch) triggers a single reaction.
+ */
+final class Watcher implements Closeable {
+
+    static final long DEBOUNCE_MILLIS = 300;
+
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Path> dirs = new HashMap<>();
+
+    // Roots not existing yet, and the nearest existing parents watched to detect their creation
+    private final Set<Path> pendingRoots = new LinkedHashSet<>();
+
+    private final Map<WatchKey, Path> pendingRootParents = new HashMap<>();
+
+    private Watcher(WatchService watchService) {
+        this.watchService = watchService;
+    }
+
+    /*
+     * Creates a watcher on the specified directories and all their sub-directories. Non-existing ones are watched
+     * from their creation on.
+     */
+    static Watcher of(Collection<Path> roots) {
+        final Watcher result;
+        try {
+            result = new Watcher(FileSystems.getDefault().newWatchService());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        roots.stream()
+                .map(path -> path.toAbsolutePath().normalize())
+                .distinct()
+                .forEach(result.pendingRoots::add);
+        result.watchPendingRoots(new HashSet<>());
+        return result;
+    }
+
+    int getWatchedDirCount() {
+        return dirs.size();
+    }
+
+    /*
+     * Blocks until some changes occur then returns the changed paths, once changes have settled.
+     */
+    Set<Path> awaitChanges() throws InterruptedException {
+        final Set<Path> result = new LinkedHashSet<>();
+        while (result.isEmpty()) {  // Events in parents of pending roots are not changes
+            WatchKey key = watchService.take();
+            while (key != null) {
+                collect(key, result);
+                key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        JkUtilsIO.closeQuietly(watchService);
+    }
+
+    private void collect(WatchKey key, Set<Path> changes) {
+        final Path dir = dirs.get(key);
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (dir == null) {
+                continue;
+            }
+            if (event.kind() == OVERFLOW) {  // Events have been lost, so we only know something changed in there
+                changes.add(dir);
+                continue;
+            }
+            final Path child = dir.resolve((Path) event.context());
+            changes.add(child);
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                registerTree(child);
+                addTree(child, changes);
+            }
+        }
+        if (!key.reset()) {
+            dirs.remove(key);
+            pendingRootParents.remove(key);
+        }
+        if (!pendingRoots.isEmpty()) {
+            watchPendingRoots(changes);
+        }
+    }
+
+    /*
+     * Registers pending roots that now exist, reporting their content as changes. The nearest existing parent of
+     * the other ones is watched instead, so their creation is noticed.
+     */
+    private void watchPendingRoots(Set<Path> changes) {
+        final Set<Path> parents = new HashSet<>();
+        for (final Iterator<Path> it = pendingRoots.iterator(); it.hasNext(); ) {
+            final Path root = it.next();
+            if (Files.isDirectory(root)) {
+                it.remove();
+                registerTree(root);
+                addTree(root, changes);
+                continue;
+            }
+            Path parent = root.getParent();
+            while (parent != null && !Files.isDirectory(parent)) {
+                parent = parent.getParent();
+            }
+            if (parent != null) {
+                parents.add(parent);
+            }
+        }
+        pendingRootParents.entrySet().removeIf(entry -> {
+            if (parents.contains(entry.getValue())) {
+                return false;
+            }
+            if (!dirs.containsKey(entry.getKey())) {  // Keys are shared when a parent is in a watched tree
+                entry.getKey().cancel();
+            }
+            return true;
+        });
+        for (final Path parent : parents) {
+            final WatchKey key = watch(parent);
+            if (key != null) {
+                pendingRootParents.put(key, parent);
+            }
+        }
+
+        // A root may have been created before its parent was watched
+        if (pendingRoots.stream().anyMatch(Files::isDirectory)) {
+            watchPendingRoots(changes);
+        }
+    }
+
+    private static void addTree(Path root, Set<Path> changes) {
+        try (Stream<Path> stream = JkUtilsPath.walk(root)) {
+            changes.addAll(stream.collect(Collectors.toList()));
+        } catch (final UncheckedIOException e) {
+            // Deleted meanwhile
+        }
+    }
+
+    private void registerTree(Path root) {
+        try (Stream<Path> stream = JkUtilsPath.walk(root)) {
+            stream.filter(path -> Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)).forEach(this::register);
+        } catch (final UncheckedIOException e) {
+            // Deleted meanwhile
+        }
+    }
+
+    private void register(Path dir) {
+        final WatchKey key = watch(dir);
+        if (key != null) {
+            dirs.put(key, dir);
+        }
+    }
+
+    // Returns null if the directory has been deleted meanwhile
+    private WatchKey watch(Path dir) {
+        try {
+            return dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        } catch (final NoSuchFileException e) {
+            return null;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
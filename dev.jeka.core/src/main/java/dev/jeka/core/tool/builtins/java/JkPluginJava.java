@@ -2,6 +2,7 @@ package dev.jeka.core.tool.builtins.java;
 
 import dev.jeka.core.api.crypto.gpg.JkGpg;
 import dev.jeka.core.api.depmanagement.*;
+import dev.jeka.core.api.java.JkBuildCache;
 import dev.jeka.core.api.java.JkJavaCompiler;
 import dev.jeka.core.api.java.JkJavaProcess;
 import dev.jeka.core.api.java.project.*;
@@ -17,6 +18,10 @@ import dev.jeka.core.tool.builtins.scaffold.JkPluginScaffold;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.UnaryOperator;
@@ -27,7 +32,7 @@ import java.util.function.UnaryOperator;
  */
 @JkDoc("Build of a Java project through a JkJavaProject instance.")
 @JkDocPluginDeps({JkPluginRepo.class, JkPluginScaffold.class})
-public class JkPluginJava extends JkPlugin implements JkJavaIdeSupport.JkSupplier {
+public class JkPluginJava extends JkPlugin implements JkJavaIdeSupport.JkSupplier, JkWatchable {
 
     /**
      * Options for the packaging tasks (jar creation). These options are injectable from command line.
@@ -42,6 +47,30 @@ public class JkPluginJava extends JkPlugin implements JkJavaIdeSupport.JkSupplie
     @JkDoc("Extra arguments to be passed to the compiler (e.g. -Xlint:unchecked).")
     public String compilerExtraArgs;
 
+    @JkDoc("If true, only Java sources changed since last compilation, and the ones depending on them, are recompiled.")
+    public boolean incrementalCompile;
+
+    @JkDoc("If true, compilation, tests and jar creation are skipped when their inputs and outputs have not changed " +
+            "since their last successful run.")
+    public boolean skipUpToDate;
+
+    @JkDoc("If true, compiled classes, test results and jars are fetched from a build cache when they have already " +
+            "been produced from identical inputs.")
+    public boolean buildCache;
+
+    @JkDoc("Directory of the build cache. It can be shared between builds or machines. Default is [jeka user home]/cache/build.")
+    public String buildCacheDir;
+
+    @JkDoc("Maximum size of the build cache, in megabytes. Least recently used entries are evicted beyond.")
+    public long buildCacheMaxSize = JkBuildCache.DEFAULT_MAX_SIZE_MB;
+
+    @JkDoc("If true, module dependency resolutions are stored in a persistent cache and reused across runs as long " +
+            "as resolved files still exist.")
+    public boolean resolutionCache;
+
+    @JkDoc("How long, in minutes, cached resolutions involving dynamic or snapshot versions are reused.")
+    public long resolutionCacheDynamicTtl = JkResolutionCache.DEFAULT_DYNAMIC_VERSION_TTL.toMinutes();
+
     @JkDoc("Scaffolded code won't use the simple facade over JkJavaProject")
     public boolean noFacade;
 
@@ -95,6 +124,10 @@ public class JkPluginJava extends JkPlugin implements JkJavaIdeSupport.JkSupplie
         if (!resolver.getRepos().contains(downloadRepo.getUrl())) {
             resolver.addRepos(downloadRepo);
         }
+        if (this.resolutionCache && resolver.getResolutionCache() == null) {
+            resolver.setResolutionCache(JkResolutionCache.ofDefault()
+                    .setDynamicVersionTtl(Duration.ofMinutes(resolutionCacheDynamicTtl)));
+        }
         JkPluginGpg pgpPlugin = this.getJkClass().getPlugins().get(JkPluginGpg.class);
 
         // Use signer from GPG plugin as default
@@ -119,6 +152,12 @@ public class JkPluginJava extends JkPlugin implements JkJavaIdeSupport.JkSupplie
             Consumer<Path> javadocJar = project.getDocumentation()::createJavadocJar;
             artifactProducer.putArtifact(javadoc, javadocJar);
         }
+        if (pack.compressionLevel != null) {
+            project.getConstruction().setJarCompressionLevel(pack.compressionLevel);
+        }
+        if (pack.reproducible != null) {
+            project.getConstruction().setReproducibleJars(pack.reproducible);
+        }
         JkTestProcessor testProcessor = project.getConstruction().getTesting().getTestProcessor();
         if (test.fork != null && test.fork && testProcessor.getForkingProcess() == null) {
             final JkJavaProcess javaProcess = JkJavaProcess.of().andCommandLine(this.test.jvmOptions);
@@ -126,9 +165,30 @@ public class JkPluginJava extends JkPlugin implements JkJavaIdeSupport.JkSupplie
         } else if (test.fork != null && !test.fork && testProcessor.getForkingProcess() != null) {
             testProcessor.setForkingProcess(false);
         }
+        if (test.forkCount != null) {
+            testProcessor.setForkCount(test.forkCount);
+        }
+        if (test.maxLaunchesPerFork != null) {
+            testProcessor.setMaxLaunchesPerFork(test.maxLaunchesPerFork);
+        }
         if (test.skip != null) {
             project.getConstruction().getTesting().setSkipped(test.skip);
         }
+        if (test.impactAnalysis != null) {
+            project.getConstruction().getTesting().setTestImpactAnalysis(test.impactAnalysis);
+        }
+        if (this.incrementalCompile) {
+            project.getConstruction().getCompilation().setIncremental(true);
+            project.getConstruction().getTesting().getCompilation().setIncremental(true);
+        }
+        if (this.skipUpToDate) {
+            project.getConstruction().setSkipUpToDate(true);
+        }
+        if (this.buildCache) {
+            Path cacheDir = buildCacheDir == null ? JkBuildCache.ofDefault().getDir()
+                    : getJkClass().getBaseDir().resolve(buildCacheDir);
+            project.getConstruction().setBuildCache(JkBuildCache.of(cacheDir, buildCacheMaxSize));
+        }
         if (this.compilerExtraArgs != null) {
             project.getConstruction().getCompilation().addOptions(JkUtilsString.translateCommandline(this.compilerExtraArgs));
         }
@@ -168,6 +228,30 @@ public class JkPluginJava extends JkPlugin implements JkJavaIdeSupport.JkSupplie
         return scaffoldPlugin;
     }
 
+    // ------------------------------- watch mode ---------------------------------------
+
+    @Override
+    public List<Path> getWatchedDirs() {
+        final List<Path> result = new LinkedList<>();
+        final JkJavaProjectConstruction construction = project.getConstruction();
+        for (final JkCompileLayout<?> layout : Arrays.asList(construction.getCompilation().getLayout(),
+                construction.getTesting().getCompilation().getLayout())) {
+            layout.resolveSources().toList().forEach(tree -> result.add(tree.getRoot()));
+            layout.resolveResources().toList().forEach(tree -> result.add(tree.getRoot()));
+        }
+        return result;
+    }
+
+    /**
+     * Turns on incremental compilation, so only changed sources are recompiled. Test impact analysis is left as
+     * configured, as it may miss tests reaching changed classes through reflection.
+     */
+    @Override
+    public void prepareWatch() {
+        project.getConstruction().getCompilation().setIncremental(true);
+        project.getConstruction().getTesting().getCompilation().setIncremental(true);
+    }
+
     // ------------------------------- command line methods -----------------------------
 
     @JkDoc("Performs compilation and resource processing.")
@@ -248,6 +332,15 @@ public class JkPluginJava extends JkPlugin implements JkJavaIdeSupport.JkSupplie
         @JkDoc("If true, sources jar is added in the list of artifact to produce/publish.")
         public Boolean sources;
 
+        /** Compression level of the created jars. */
+        @JkDoc("Compression level of the created jars, from 0 (no compression, fastest) to 9 (best compression).")
+        public Integer compressionLevel;
+
+        /** When true, created jars are identical byte for byte when their content has not changed. */
+        @JkDoc("If true, created jars are reproducible : entries are sorted and get fixed timestamps so unchanged content " +
+                "produces identical jars.")
+        public Boolean reproducible;
+
     }
 
     /**
@@ -267,5 +360,21 @@ public class JkPluginJava extends JkPlugin implements JkJavaIdeSupport.JkSupplie
         @JkDoc("Argument passed to the JVM if tests are withForking. E.g. -Xms2G -Xmx2G.")
         public String jvmOptions;
 
+        /** Number of JVMs forked concurrently to run tests. */
+        @JkDoc("Number of JVMs forked concurrently to run tests, when tests are forked. Test classes are distributed " +
+                "among them according their previous durations.")
+        public Integer forkCount;
+
+        /** Number of test launches a forked JVM serves before being recycled. */
+        @JkDoc("Number of test launches a forked JVM serves before being recycled. Values greater than 1 keep " +
+                "forked JVMs warm between launches.")
+        public Integer maxLaunchesPerFork;
+
+        /** Turn it on to run only tests affected by classes changed since last successful run. */
+        @JkDoc("If true, only test classes depending on classes changed since the last successful test run are run. " +
+                "All tests run when dependencies, resources or test configuration change. Tests reaching changed " +
+                "classes only through reflection or dependency injection may be skipped.")
+        public Boolean impactAnalysis;
+
     }
 }
@@ -2,15 +2,16 @@ package dev.jeka.core.wrapper;
 
 import java.io.*;
 import java.lang.reflect.Method;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.net.*;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
@@ -27,6 +28,17 @@ class Booter {
 
     private final static String BIN_NAME = "dev.jeka.jeka-core.jar";
 
+    private static final String DAEMON_CLASS_NAME = "dev.jeka.core.tool.Daemon";
+
+    private final static String DAEMON_ENV_NAME = "JEKA_DAEMON";
+
+    private static final String DEFAULT_DAEMON_IDLE_TIMEOUT = "10800";
+
+    // Must match with dev.jeka.core.tool.Daemon frame types
+    private static final byte DAEMON_EXIT_FRAME = 0;
+
+    private static final byte DAEMON_ERR_FRAME = 2;
+
     public static void main(String[] args) throws Exception {
         final Path jekawDir = Paths.get(args[0]);
         Properties props = props(jekawDir);
@@ -50,15 +62,143 @@ class Booter {
         List<URL> classpath = new LinkedList<>();
         classpath.addAll(getBootLibs());
         classpath.add(jekaBinPath.toUri().toURL());
+        final String[] actualArgs = args.length <= 1 ? new String[0]
+                : Arrays.copyOfRange(args, 1, args.length);
+        if (isDaemonEnabled(props)) {
+            final Path workingDir = Paths.get("").toAbsolutePath().normalize();
+            final String daemonId = daemonId(classpath, workingDir);
+            final Integer exitCode = runOnDaemon(daemonId, actualArgs);
+            if (exitCode != null) {
+                System.exit(exitCode);
+            }
+            if (!isDaemonAlive(daemonId)) {
+                startDaemon(daemonId, classpath, workingDir, props);  // Next invocations will benefit from it
+            }
+        }
         final ClassLoader classLoader = new URLClassLoader(classpath.toArray(new URL[0]));
         Thread.currentThread().setContextClassLoader(classLoader);
         final Class<?> mainClass = classLoader.loadClass(MAIN_CLASS_NAME);
         final Method method = mainClass.getMethod("main", String[].class);
-        final String[] actualArgs = args.length <= 1 ? new String[0]
-                : Arrays.copyOfRange(args, 1, args.length);
         method.invoke(null, (Object) actualArgs);
     }
 
+    private static boolean isDaemonEnabled(Properties props) {
+        final String env = System.getenv(DAEMON_ENV_NAME);
+        if (env != null && !env.trim().isEmpty()) {
+            return Boolean.parseBoolean(env.trim());
+        }
+        return Boolean.parseBoolean(props.getProperty("jeka.daemon", "false").trim());
+    }
+
+    // A daemon is dedicated to a given classpath (boot libs + jeka jar) and working dir, as the daemon JVM
+    // resolves relative paths against the dir it has been started from.
+    private static String daemonId(List<URL> classpath, Path workingDir) {
+        return Integer.toHexString((classpath.toString() + File.pathSeparator + workingDir).hashCode());
+    }
+
+    private static Path daemonPortFile(String daemonId) {
+        return getJekaUserHomeDir().resolve("daemon").resolve(daemonId + ".port");
+    }
+
+    /*
+     * A daemon holds a lock on its lock file from its start, so a daemon which has not published its port yet
+     * is not started twice. See dev.jeka.core.tool.Daemon.
+     */
+    private static boolean isDaemonAlive(String daemonId) throws IOException {
+        final Path lockFile = daemonPortFile(daemonId).resolveSibling(daemonId + ".lock");
+        Files.createDirectories(lockFile.getParent());
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = channel.tryLock()) {
+            return lock == null;
+        }
+    }
+
+    /*
+     * Forwards the invocation to a running daemon and returns the exit code, or null if no daemon is reachable.
+     * See dev.jeka.core.tool.Daemon for protocol description.
+     */
+    private static Integer runOnDaemon(String daemonId, String[] args) throws IOException {
+        final Path portFile = daemonPortFile(daemonId);
+        if (!Files.exists(portFile)) {
+            return null;
+        }
+        final List<String> lines = Files.readAllLines(portFile);
+        if (lines.size() < 2) {
+            return null;
+        }
+        final Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                    Integer.parseInt(lines.get(0).trim())), 1000);
+        } catch (final IOException | NumberFormatException e) {
+            socket.close();
+            return null;
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            writeString(out, lines.get(1).trim());
+            writeString(out, Paths.get("").toAbsolutePath().toString());
+            out.writeInt(args.length);
+            for (final String arg : args) {
+                writeString(out, arg);
+            }
+            final Map<String, String> env = System.getenv();
+            out.writeInt(env.size());
+            for (final Map.Entry<String, String> entry : env.entrySet()) {
+                writeString(out, entry.getKey());
+                writeString(out, entry.getValue());
+            }
+            out.flush();
+            while (true) {
+                final byte type = in.readByte();
+                final int value = in.readInt();
+                if (type == DAEMON_EXIT_FRAME) {
+                    return value;
+                }
+                final byte[] bytes = new byte[value];
+                in.readFully(bytes);
+                final PrintStream stream = type == DAEMON_ERR_FRAME ? System.err : System.out;
+                stream.write(bytes, 0, bytes.length);
+                stream.flush();
+            }
+        } catch (final EOFException e) {
+            System.err.println("Connection with Jeka daemon " + daemonId + " lost.");
+            return 1;
+        } finally {
+            socket.close();
+        }
+    }
+
+    // Must match with dev.jeka.core.tool.Daemon#writeString
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void startDaemon(String daemonId, List<URL> classpath, Path workingDir, Properties props)
+            throws IOException {
+        final String idleTimeout = props.getProperty("jeka.daemon.idleTimeout", DEFAULT_DAEMON_IDLE_TIMEOUT).trim();
+        final String classpathString = classpath.stream()
+                .map(url -> {
+                    try {
+                        return Paths.get(url.toURI()).toString();
+                    } catch (final URISyntaxException e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .collect(Collectors.joining(File.pathSeparator));
+        final Path java = Paths.get(System.getProperty("java.home")).resolve("bin").resolve("java");
+        final Path logFile = daemonPortFile(daemonId).resolveSibling(daemonId + ".log");
+        Files.createDirectories(logFile.getParent());
+        new ProcessBuilder(java.toString(), "-cp", classpathString, DAEMON_CLASS_NAME, daemonId, idleTimeout)
+                .directory(workingDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(logFile.toFile())
+                .start();
+        System.out.println("Jeka daemon " + daemonId + " started. Next invocations will be served by it.");
+    }
+
     private static List<URL> getBootLibs() {
         Path bootDir = Paths.get("jeka/boot");
         if (!Files.exists(bootDir)) {
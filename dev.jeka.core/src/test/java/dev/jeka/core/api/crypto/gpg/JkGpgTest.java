@@ -1,5 +1,6 @@
 package dev.jeka.core.api.crypto.gpg;
 
+import dev.jeka.core.api.file.JkPathTree;
 import dev.jeka.core.tool.JkConstants;
 import org.junit.Assert;
 import org.junit.Test;
@@ -7,6 +8,9 @@ import org.junit.Test;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
 
 @SuppressWarnings("javadoc")
 public class JkGpgTest {
@@ -26,6 +30,28 @@ public class JkGpgTest {
         System.out.println("Signature file : " + signature);
     }
 
+    @Test
+    public void testSignSeveralFiles() throws Exception {
+        final Path pubFile = Paths.get(JkGpgTest.class.getResource("pubring.gpg").toURI());
+        final Path secringFile = Paths.get(JkGpgTest.class.getResource("secring.gpg").toURI());
+        final JkGpg pgp = JkGpg.of(pubFile, secringFile, "jerkar");
+        final Path dir = Files.createTempDirectory("jeka-gpg");
+        final List<Path> files = new LinkedList<>();
+        for (int i = 0; i < 5; i++) {
+            final byte[] content = new byte[100_000 * i];
+            Arrays.fill(content, (byte) i);
+            files.add(Files.write(dir.resolve("file" + i + ".bin"), content));
+        }
+        final List<Path> signatures = pgp.sign(files, "");
+        Assert.assertEquals(files.size(), signatures.size());
+        for (int i = 0; i < files.size(); i++) {
+            Assert.assertEquals(JkGpg.getSignatureFile(files.get(i)), signatures.get(i));
+            Assert.assertTrue(pgp.verify(files.get(i), signatures.get(i)));
+        }
+        Assert.assertFalse(pgp.verify(files.get(1), signatures.get(2)));
+        JkPathTree.of(dir).deleteRoot();
+    }
+
     @Test(expected = RuntimeException.class)
     public void testSignWithBadPassword() throws Exception {
         final Path pubFile = Paths.get(JkGpgTest.class.getResource("pubring.gpg").toURI());
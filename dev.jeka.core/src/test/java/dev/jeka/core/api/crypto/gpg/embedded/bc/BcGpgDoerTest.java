@@ -7,6 +7,9 @@ import org.junit.Test;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
 
 @SuppressWarnings("javadoc")
 public class BcGpgDoerTest {
@@ -22,6 +25,26 @@ public class BcGpgDoerTest {
         System.out.println(result);
     }
 
+    @Test
+    public void testCachedKeyIsBoundToPassphrase() throws Exception {
+        Path secring = Paths.get(JkGpgTest.class.getResource("secring.gpg").toURI());
+        Path pubring = Paths.get(JkGpgTest.class.getResource("pubring.gpg").toURI());
+        Path file = Paths.get(JkGpgTest.class.getResource("sampleFileToSign.txt").toURI());
+        Path signature = Files.createTempFile("jeka", ".asc");
+        BcGpgDoer doer = BcGpgDoer.of();
+        doer.sign(file, secring, "", signature, "jerkar".toCharArray(), true);
+        try {
+            doer.sign(file, secring, "", signature, "badPassword".toCharArray(), true);
+            fail("Cached key should not be used with another passphrase.");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        doer.clearCache();
+        doer.sign(file, secring, "", signature, "jerkar".toCharArray(), true);
+        assertTrue(doer.verify(file, pubring, signature));
+        Files.delete(signature);
+    }
+
     private static InputStream sample() {
         return JkGpgTest.class.getResourceAsStream("sampleFileToSign.txt");
     }
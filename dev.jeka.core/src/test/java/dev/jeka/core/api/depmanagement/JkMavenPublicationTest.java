@@ -0,0 +1,70 @@
+package dev.jeka.core.api.depmanagement;
+
+import dev.jeka.core.api.file.JkPathFile;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkLog;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("javadoc")
+public class JkMavenPublicationTest {
+
+    @Test
+    public void testPublishWithChecksumsAndSignatures() throws Exception {
+        final Path dir = Files.createTempDirectory("jeka-publish");
+        final Path repoDir = dir.resolve("repo");
+        final Path jar = dir.resolve("artifacts/mymodule.jar");
+        final Path sources = dir.resolve("artifacts/mymodule-sources.jar");
+        Files.createDirectories(jar.getParent());
+        final byte[] content = new byte[100_000];
+        Arrays.fill(content, (byte) 5);
+        Files.write(jar, content);
+        Files.write(sources, "sources".getBytes());
+        final JkArtifactId sourcesId = JkArtifactId.of("sources", "jar");
+        final JkSuppliedFileArtifactProducer<Void> producer = JkSuppliedFileArtifactProducer.of()
+                .putMainArtifact(jar, () -> {})
+                .putArtifact(sourcesId, sources, () -> {});
+        final JkRepo repo = JkRepo.ofMaven(repoDir).getPublishConfig()
+                .setChecksumAlgos("md5", "sha1").setSignatureRequired(true).setMaxParallelUploads(3).__;
+        JkMavenPublication.of()
+                .setVersionedModule(JkVersionedModule.of("mygroup:mymodule:1.0"))
+                .setArtifactLocator(producer)
+                .publish(repo.toSet(), file -> JkPathFile.of(file.resolveSibling(file.getFileName() + ".asc"))
+                        .deleteIfExist().write("signature".getBytes()).get());
+
+        final Path moduleDir = repoDir.resolve("mygroup/mymodule/1.0");
+        for (final String fileName : Arrays.asList("mymodule-1.0.jar", "mymodule-1.0-sources.jar",
+                "mymodule-1.0.pom")) {
+            final Path file = moduleDir.resolve(fileName);
+            assertTrue(fileName, Files.exists(file));
+            assertEquals(JkPathFile.of(file).getChecksum("MD5"), read(moduleDir.resolve(fileName + ".md5")));
+            assertEquals(JkPathFile.of(file).getChecksum("SHA-1"), read(moduleDir.resolve(fileName + ".sha1")));
+            assertEquals("signature", read(moduleDir.resolve(fileName + ".asc")));
+        }
+        assertArrayEquals(content, Files.readAllBytes(moduleDir.resolve("mymodule-1.0.jar")));
+
+        // Releases can not be published twice
+        final int nestedLevel = JkLog.getCurrentNestedLevel();
+        try {
+            JkMavenPublication.of()
+                    .setVersionedModule(JkVersionedModule.of("mygroup:mymodule:1.0"))
+                    .setArtifactLocator(producer)
+                    .publish(repo.toSet(), null);
+            fail("Publication of an existing release should fail.");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals("Tasks left open", nestedLevel, JkLog.getCurrentNestedLevel());
+        JkPathTree.of(dir).deleteRoot();
+    }
+
+    private static String read(Path file) throws Exception {
+        return new String(Files.readAllBytes(file), "US-ASCII");
+    }
+
+}
@@ -0,0 +1,63 @@
+package dev.jeka.core.api.depmanagement;
+
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class JkResolutionCacheTest {
+
+    @Test
+    public void putAndGet() throws Exception {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-resolution-cache");
+        Path jar = Files.createFile(dir.resolve("guava.jar"));
+        JkResolutionCache cache = JkResolutionCache.of(dir.resolve("cache"));
+        JkDependencySet dependencies = JkDependencySet.of("com.google.guava:guava:28.0-jre", JkScope.COMPILE);
+        JkRepoSet repos = JkRepoSet.of(JkRepo.ofMavenCentral());
+        JkResolutionParameters<?> parameters = JkDependencyResolver.of().getParams();
+        String key = JkResolutionCache.key(null, dependencies, new JkScope[] {JkScope.COMPILE}, parameters, repos);
+        assertEquals(key, JkResolutionCache.key(null, dependencies, new JkScope[] {JkScope.COMPILE}, parameters,
+                repos));
+        assertNotEquals(key, JkResolutionCache.key(null, dependencies, new JkScope[] {JkScope.RUNTIME}, parameters,
+                repos));
+        assertNull(cache.get(key));
+
+        cache.put(key, result("28.0-jre", jar));
+        JkResolveResult cached = cache.get(key);
+        assertNotNull(cached);
+        assertEquals(Collections.singletonList(jar), cached.getFiles().getEntries());
+        assertEquals("28.0-jre", cached.getVersionOf(JkModuleId.of("com.google.guava:guava")).getValue());
+
+        // Stale when a resolved file has been deleted
+        Files.delete(jar);
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void dynamicVersionsExpire() throws Exception {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-resolution-cache");
+        Path jar = Files.createFile(dir.resolve("guava.jar"));
+        JkResolutionCache cache = JkResolutionCache.of(dir.resolve("cache"));
+        cache.put("dynamic", result("28.+", jar));
+        assertNotNull(cache.get("dynamic"));
+        cache.setDynamicVersionTtl(Duration.ZERO);
+        Thread.sleep(5);
+        assertNull(cache.get("dynamic"));
+    }
+
+    private static JkResolveResult result(String declaredVersion, Path jar) {
+        JkDependencyNode.JkModuleNodeInfo info = JkDependencyNode.JkModuleNodeInfo.of(
+                JkModuleId.of("com.google.guava:guava"), JkVersion.of(declaredVersion),
+                Collections.singleton(JkScope.COMPILE), Collections.singleton(JkScope.COMPILE),
+                JkVersion.of("28.0-jre"), Collections.singletonList(jar));
+        JkDependencyNode root = JkDependencyNode.ofModuleDep(JkDependencyNode.JkModuleNodeInfo.ofAnonymousRoot(),
+                Collections.singletonList(JkDependencyNode.ofModuleDep(info, Collections.emptyList())));
+        return JkResolveResult.of(root, JkResolveResult.JkErrorReport.allFine());
+    }
+
+}
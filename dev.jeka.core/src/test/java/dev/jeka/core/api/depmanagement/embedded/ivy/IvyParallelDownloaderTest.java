@@ -0,0 +1,98 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import dev.jeka.core.api.depmanagement.*;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkLocator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IvyParallelDownloaderTest {
+
+    private static final int MODULE_COUNT = 12;
+
+    private String group;
+
+    private Path repoDir;
+
+    @Before
+    public void setUp() throws IOException {
+        group = "dev.jeka.paralleldownload" + System.nanoTime();
+        repoDir = Files.createTempDirectory("jeka-parallel-download");
+        for (int i = 0; i < MODULE_COUNT; i++) {
+            publish("module" + i, true);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        JkPathTree.of(repoDir).deleteRoot();
+        JkPathTree.of(JkLocator.getJekaRepositoryCache().resolve(group)).deleteRoot();
+    }
+
+    @Test
+    public void resolveSeveralArtifactsInParallel() throws IOException {
+        JkDependencySet dependencies = JkDependencySet.of();
+        for (int i = 0; i < MODULE_COUNT; i++) {
+            dependencies = dependencies.and(group + ":module" + i + ":1.0");
+        }
+        final JkResolveResult resolveResult = resolver().resolve(dependencies);
+
+        resolveResult.assertNoError();
+        assertEquals(MODULE_COUNT, resolveResult.getDependencyTree().getChildren().size());
+        final List<Path> files = resolveResult.getFiles().getEntries();
+        assertEquals(MODULE_COUNT, files.size());
+        for (int i = 0; i < MODULE_COUNT; i++) {
+            final JkModuleId moduleId = JkModuleId.of(group, "module" + i);
+            final List<Path> moduleFiles = resolveResult.getFilesFor(moduleId).getEntries();
+            assertEquals(1, moduleFiles.size());
+            assertEquals("module" + i,
+                    new String(Files.readAllBytes(moduleFiles.get(0)), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void missingArtifactDoesNotAffectOtherDownloads() throws IOException {
+        publish("missingjar", false);
+        JkDependencySet dependencies = JkDependencySet.of().and(group + ":missingjar:1.0");
+        for (int i = 0; i < MODULE_COUNT; i++) {
+            dependencies = dependencies.and(group + ":module" + i + ":1.0");
+        }
+        final JkResolveResult resolveResult = resolver().resolve(dependencies);
+
+        assertTrue(resolveResult.getFilesFor(JkModuleId.of(group, "missingjar")).getEntries().isEmpty());
+        for (int i = 0; i < MODULE_COUNT; i++) {
+            assertEquals(1, resolveResult.getFilesFor(JkModuleId.of(group, "module" + i)).getEntries().size());
+        }
+    }
+
+    private JkDependencyResolver<Void> resolver() {
+        return JkDependencyResolver.of()
+                .addRepos(JkRepo.ofMaven(repoDir).setMaxParallelDownloads(4))
+                .setResolutionCache(null);
+    }
+
+    private void publish(String name, boolean withJar) throws IOException {
+        final Path dir = repoDir.resolve(group.replace('.', '/')).resolve(name).resolve("1.0");
+        Files.createDirectories(dir);
+        final String pom = "<project>\n"
+                + "  <modelVersion>4.0.0</modelVersion>\n"
+                + "  <groupId>" + group + "</groupId>\n"
+                + "  <artifactId>" + name + "</artifactId>\n"
+                + "  <version>1.0</version>\n"
+                + "</project>\n";
+        Files.write(dir.resolve(name + "-1.0.pom"), pom.getBytes(StandardCharsets.UTF_8));
+        if (withJar) {
+            Files.write(dir.resolve(name + "-1.0.jar"), name.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+}
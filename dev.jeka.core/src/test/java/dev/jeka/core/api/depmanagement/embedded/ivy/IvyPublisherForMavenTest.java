@@ -0,0 +1,34 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+
+import static org.junit.Assert.*;
+
+public class IvyPublisherForMavenTest {
+
+    private static final String URL = "https://repo.example.com/org/foo/1.0/foo-1.0.jar";
+
+    @Test
+    public void testNetworkAndServerErrorsAreTransient() {
+        assertTrue(IvyPublisherForMaven.isTransient(new SocketTimeoutException("Read timed out")));
+        assertTrue(IvyPublisherForMaven.isTransient(new ConnectException("Connection refused")));
+        assertTrue(IvyPublisherForMaven.isTransient(new IOException("PUT operation to URL " + URL
+                + " failed with status code 503: Service Unavailable")));
+    }
+
+    @Test
+    public void testRejectedUploadsAreNotTransient() {
+        assertFalse(IvyPublisherForMaven.isTransient(new IOException("Access to URL " + URL
+                + " was refused by the server: Unauthorized")));
+        assertFalse(IvyPublisherForMaven.isTransient(new IOException("PUT operation to URL " + URL
+                + " failed with status code 400: Bad Request")));
+        assertFalse(IvyPublisherForMaven.isTransient(new IOException("file copy not done from a.jar to "
+                + "foo-1.0.jar: destination already exists and overwrite is false")));
+        assertFalse(IvyPublisherForMaven.isTransient(new IOException()));
+    }
+
+}
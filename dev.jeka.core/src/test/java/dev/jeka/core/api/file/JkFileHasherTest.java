@@ -0,0 +1,87 @@
+package dev.jeka.core.api.file;
+
+import dev.jeka.core.api.utils.JkUtilsString;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("javadoc")
+public class JkFileHasherTest {
+
+    @Test
+    public void testGetDigests() throws Exception {
+        final Path dir = Files.createTempDirectory("jeka-hasher");
+        final Path file = dir.resolve("file.bin");
+        final byte[] content = new byte[300_000];
+        Arrays.fill(content, (byte) 3);
+        Files.write(file, content);
+        final Map<String, String> digests = JkFileHasher.of().getDigests(file, "MD5", "SHA-1", "SHA-256");
+        assertEquals(Arrays.asList("MD5", "SHA-1", "SHA-256"), Arrays.asList(digests.keySet().toArray()));
+        for (final Map.Entry<String, String> entry : digests.entrySet()) {
+            assertEquals(expected(content, entry.getKey()), entry.getValue());
+        }
+        assertEquals(expected(content, "SHA-1"), JkPathFile.of(file).getChecksum("SHA-1"));
+        JkPathTree.of(dir).deleteRoot();
+    }
+
+    @Test
+    public void testMemoizedAndStored() throws Exception {
+        final Path dir = Files.createTempDirectory("jeka-hasher");
+        final Path file = dir.resolve("file.txt");
+        final Path store = dir.resolve("store/file-hashes");
+        Files.write(file, "foo".getBytes());
+        final FileTime oldTime = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        Files.setLastModifiedTime(file, oldTime);
+        final JkFileHasher hasher = JkFileHasher.of(store);
+        final String digest = hasher.getDigests(file, "MD5", "SHA-256").get("SHA-256");
+        assertFalse(Files.exists(store));
+        hasher.save();
+        assertTrue(Files.exists(store));
+
+        // Same size and time : the stored digest is returned without reading the file
+        Files.write(file, "bar".getBytes());
+        Files.setLastModifiedTime(file, oldTime);
+        assertEquals(digest, JkFileHasher.of(store).getDigest(file, "SHA-256"));
+
+        // Changed file is hashed again
+        Files.setLastModifiedTime(file, FileTime.fromMillis(oldTime.toMillis() + 10_000));
+        assertEquals(expected("bar".getBytes(), "SHA-256"), JkFileHasher.of(store).getDigest(file, "SHA-256"));
+        JkPathTree.of(dir).deleteRoot();
+    }
+
+    @Test
+    public void testTreeDigest() throws Exception {
+        final Path dir1 = Files.createTempDirectory("jeka-hasher");
+        final Path dir2 = Files.createTempDirectory("jeka-hasher");
+        for (final Path dir : Arrays.asList(dir1, dir2)) {
+            Files.createDirectories(dir.resolve("a/b"));
+            Files.write(dir.resolve("a/b/x.txt"), "x".getBytes());
+            Files.write(dir.resolve("y.txt"), "y".getBytes());
+        }
+        final JkFileHasher hasher = JkFileHasher.of();
+        final String digest = hasher.getTreeDigest(JkPathTree.of(dir1), "SHA-256");
+        assertEquals(digest, hasher.getTreeDigest(JkPathTree.of(dir2), "SHA-256"));
+
+        final Path zip = dir1.resolveSibling(dir1.getFileName() + ".zip");
+        JkPathTree.of(dir1).zipTo(zip);
+        assertEquals(digest, hasher.getTreeDigest(JkPathTree.ofZip(zip), "SHA-256"));
+
+        Files.write(dir2.resolve("a/b/x.txt"), "z".getBytes());
+        assertNotEquals(digest, hasher.getTreeDigest(JkPathTree.of(dir2), "SHA-256"));
+        JkPathTree.of(dir1).deleteRoot();
+        JkPathTree.of(dir2).deleteRoot();
+        Files.delete(zip);
+    }
+
+    private static String expected(byte[] content, String algorithm) throws Exception {
+        return JkUtilsString.toHexString(MessageDigest.getInstance(algorithm).digest(content));
+    }
+
+}
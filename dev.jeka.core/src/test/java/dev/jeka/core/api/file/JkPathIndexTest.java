@@ -0,0 +1,103 @@
+package dev.jeka.core.api.file;
+
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("javadoc")
+public class JkPathIndexTest {
+
+    @Test
+    public void testRefresh() throws Exception {
+        final Path root = Files.createTempDirectory("jeka-index");
+        Files.createDirectories(root.resolve("a/b"));
+        Files.write(root.resolve("a/b/foo.txt"), "foo".getBytes());
+        Files.write(root.resolve("bar.txt"), "bar".getBytes());
+        ageDirs(root);
+        final JkPathIndex index = JkPathIndex.of(root);
+        assertSame(index, JkPathIndex.of(root.resolve("a").resolve("..")));
+        assertEquals(paths("", "a", "a/b", "a/b/foo.txt", "bar.txt"), relativePaths(index));
+
+        // changes are detected through directory modification times
+        Files.write(root.resolve("a/b/baz.txt"), "baz".getBytes());
+        Files.delete(root.resolve("bar.txt"));
+        Files.createDirectories(root.resolve("c"));
+        assertEquals(paths("", "a", "a/b", "a/b/baz.txt", "a/b/foo.txt", "c"), relativePaths(index));
+
+        JkUtilsPath.deleteFile(root.resolve("a/b/baz.txt"));
+        JkUtilsPath.deleteFile(root.resolve("a/b/foo.txt"));
+        Files.delete(root.resolve("a/b"));
+        assertEquals(paths("", "a", "c"), relativePaths(index));
+
+        // file attributes are refreshed by full refresh
+        ageDirs(root);
+        Files.write(root.resolve("c/qux.txt"), "qux".getBytes());
+        index.stream().count();
+        Files.write(root.resolve("c/qux.txt"), "quxqux".getBytes());
+        final JkPathIndex.JkEntry entry = index.getEntries().stream()
+                .filter(item -> item.getRelativePath().equals(Paths.get("c/qux.txt")))
+                .findFirst().get();
+        assertEquals(6, entry.getSize());
+        JkPathTree.of(root).deleteRoot();
+        assertEquals(0, index.stream().count());
+        JkPathIndex.clearAll();
+        assertNotSame(index, JkPathIndex.of(root));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIndexesAreEvicted() throws Exception {
+        final Path root = Files.createTempDirectory("jeka-index");
+        final JkPathIndex first = JkPathIndex.of(root.resolve("first"));
+        final JkPathIndex second = JkPathIndex.of(root.resolve("second"));
+        for (int i = 0; i < JkPathIndex.MAX_INDEXES - 1; i++) {
+            assertSame(first, JkPathIndex.of(root.resolve("first")));
+            JkPathIndex.of(root.resolve("other" + i));
+        }
+        assertSame(first, JkPathIndex.of(root.resolve("first")));
+        assertNotSame(second, JkPathIndex.of(root.resolve("second")));
+        JkPathTree.of(root).deleteRoot();
+    }
+
+    @Test
+    public void testIndexedTree() throws Exception {
+        final Path sampleDir = Paths.get(JkPathIndexTest.class.getResource("samplefolder").toURI());
+        final JkPathTree tree = JkPathTree.of(sampleDir).andMatching(true, "**/*.txt");
+        final JkPathTree indexedTree = tree.withIndex(true);
+        assertTrue(indexedTree.isIndexed());
+        assertTrue(indexedTree.goTo("subfolder").isIndexed());
+        assertEquals(tree.getFiles().stream().sorted().collect(Collectors.toList()), indexedTree.getFiles());
+        assertEquals(JkPathTree.of(sampleDir).stream().count(),
+                JkPathTree.of(sampleDir).withIndex(true).stream().count());
+        assertEquals(tree.count(1000, true), indexedTree.count(1000, true));
+        assertEquals(JkPathTree.of(sampleDir).count(1000, true),
+                JkPathTree.of(sampleDir).withIndex(true).count(1000, true));
+        assertEquals(1, indexedTree.count(0, false));
+    }
+
+    // Makes directories look modified long ago, so the index trusts their modification time.
+    private static void ageDirs(Path root) throws IOException {
+        final FileTime time = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        for (final Path dir : JkPathTree.of(root).stream().filter(Files::isDirectory).collect(Collectors.toList())) {
+            Files.setLastModifiedTime(dir, time);
+        }
+    }
+
+    private static List<Path> relativePaths(JkPathIndex index) {
+        return index.stream().collect(Collectors.toList());
+    }
+
+    private static List<Path> paths(String... paths) {
+        return Arrays.stream(paths).map(Paths::get).collect(Collectors.toList());
+    }
+
+}
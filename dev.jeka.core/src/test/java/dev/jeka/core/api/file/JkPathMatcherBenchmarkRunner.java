@@ -0,0 +1,79 @@
+package dev.jeka.core.api.file;
+
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Compares glob matching of {@link JkPathMatcher} with JDK glob matchers composed as they used to be, then walks
+ * of a directory (passed as argument, current dir by default) with and without pruning of directories.
+ */
+@SuppressWarnings("javadoc")
+public class JkPathMatcherBenchmarkRunner {
+
+    private static final String[] INCLUDES = {"**/*.java", "**/*.kt", "**/*.properties", "**/*.xml",
+            "META-INF/**", "**/package-info.java"};
+
+    private static final String[] EXCLUDES = {"**/generated/**", "**/_*", "**/.git/**", "**/target/**"};
+
+    public static void main(String[] args) {
+        final List<Path> paths = samplePaths(50_000);
+        final PathMatcher legacy = legacy(INCLUDES).and(legacy(EXCLUDES).reversed());
+        final PathMatcher compiled = JkPathMatcher.of(true, INCLUDES).and(false, EXCLUDES);
+        for (int i = 0; i < 5; i++) {
+            time("legacy globs", () -> paths.stream().filter(legacy::matches).count());
+            time("compiled globs", () -> paths.stream().filter(compiled::matches).count());
+        }
+        final JkPathTree tree = JkPathTree.of(args.length == 0 ? Paths.get("") : Paths.get(args[0]))
+                .andMatcher(compiled);
+        for (int i = 0; i < 5; i++) {
+            time("full walk", () -> {
+                try (Stream<Path> stream = JkUtilsPath.walk(tree.getRoot())) {
+                    return stream.filter(path -> compiled.matches(tree.getRoot().relativize(path))).count();
+                }
+            });
+            time("pruned walk", () -> {
+                try (Stream<Path> stream = tree.stream()) {
+                    return stream.count();
+                }
+            });
+        }
+    }
+
+    private static void time(String label, Supplier<Long> task) {
+        final long start = System.nanoTime();
+        final long count = task.get();
+        System.out.println(String.format("%-15s : %6d ms (%d matches)", label,
+                (System.nanoTime() - start) / 1_000_000, count));
+    }
+
+    private static List<Path> samplePaths(int count) {
+        final List<Path> result = new ArrayList<>();
+        final String[] dirs = {"src/main/java/com/acme", "src/test/java/com/acme", "target/classes/com/acme",
+                "build/generated/sources/com/acme", "src/main/resources/META-INF"};
+        final String[] extensions = {".java", ".class", ".properties", ".xml", ".txt"};
+        for (int i = 0; i < count; i++) {
+            result.add(Paths.get(dirs[i % dirs.length] + "/module" + i % 97 + "/" + (i % 13 == 0 ? "_" : "")
+                    + "File" + i + extensions[i % extensions.length]));
+        }
+        return result;
+    }
+
+    // Glob matchers composed and compiled on each match, as JkPathMatcher did formerly
+    private static JkPathMatcher legacy(String... patterns) {
+        final FileSystem fileSystem = FileSystems.getDefault();
+        final List<String> list = Arrays.asList(patterns);
+        return JkPathMatcher.of(path -> list.stream()
+                .anyMatch(pattern -> fileSystem.getPathMatcher("glob:" + pattern).matches(path)));
+    }
+
+}
@@ -6,9 +6,12 @@ import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.util.regex.PatternSyntaxException;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 @SuppressWarnings("javadoc")
 public class JkPathMatcherTest {
@@ -73,4 +76,70 @@ public class JkPathMatcherTest {
         assertTrue(JkPathMatcher.of(true,"**").matches(path));
     }
 
+    @Test
+    public void testSameAsJdkGlobs() {
+        String[] patterns = {"**", "*", "**/*.java", "**.java", "*.java", "com/**", "com/**/*", "foo/b?r.txt",
+                "{foo,bar}/*.{txt,java}", "{,a/}b", "[a-c]*/x", "[!a-c]*", "[-a]", "[a-]", "[^a]", "a\\*b",
+                "**/generated/**", "a/*/c", "*/**", "{**/,}*.txt", "[ab\\[]", "x}", "a,b", "***"};
+        String[] paths = {"", "a", "b", "-", "^", "a*b", "ab", "x}", "a,b", "[", "foo/bar.txt", "foo/bar.java",
+                "bar/bar.txt", "baz/bar.txt", "com", "com/", "com/a", "com/a/b.java", "Bar.java", "a/b",
+                "a/x/c", "a/x/y/c", "b/x", "d/x", "dx", "a/generated", "a/generated/b/C.java", "generated/x",
+                "t.txt", "a/t.txt", "a/b/t.txt"};
+        for (String pattern : patterns) {
+            PathMatcher jdkMatcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+            JkPathMatcher matcher = JkPathMatcher.of(pattern);
+            for (String pathString : paths) {
+                Path path = Paths.get(pathString);
+                assertEquals(pattern + " on " + pathString, jdkMatcher.matches(path), matcher.matches(path));
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidPatterns() {
+        for (String pattern : new String[] {"{a", "{a,{b}}", "[a", "[a/]", "[c-a]", "a\\"}) {
+            try {
+                JkPathMatcher.of(pattern);
+                fail("No error on " + pattern);
+            } catch (PatternSyntaxException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testMayMatchUnder() {
+        JkPathMatcher matcher = JkPathMatcher.of("**/*.java").and(false, "**/generated/**");
+        assertTrue(matcher.mayMatchUnder(Paths.get("")));
+        assertTrue(matcher.mayMatchUnder(Paths.get("src/main")));
+        assertFalse(matcher.mayMatchUnder(Paths.get("src/generated")));
+        assertFalse(matcher.mayMatchUnder(Paths.get("src/main/generated/foo")));
+        assertTrue(matcher.mayMatchUnder(Paths.get("generated")));  // '**/' requires a parent
+
+        matcher = JkPathMatcher.of("src/main/**", "lib/*.jar");
+        assertTrue(matcher.mayMatchUnder(Paths.get("src")));
+        assertTrue(matcher.mayMatchUnder(Paths.get("src/main/java")));
+        assertTrue(matcher.mayMatchUnder(Paths.get("lib")));
+        assertFalse(matcher.mayMatchUnder(Paths.get("lib/old")));
+        assertFalse(matcher.mayMatchUnder(Paths.get("src/test")));
+        assertFalse(matcher.mayMatchUnder(Paths.get("target")));
+
+        assertTrue(matcher.or(JkPathMatcher.of("target/*")).mayMatchUnder(Paths.get("target")));
+        assertTrue(matcher.reversed().mayMatchUnder(Paths.get("target")));
+        assertFalse(matcher.reversed().mayMatchUnder(Paths.get("src/main/java")));
+        assertTrue(matcher.and(JkPathMatcher.ofNoDirectory()).mayMatchUnder(Paths.get("src/main")));
+        assertFalse(matcher.and(JkPathMatcher.ofNoDirectory()).mayMatchUnder(Paths.get("target")));
+        assertTrue(JkPathMatcher.of(path -> false).mayMatchUnder(Paths.get("target")));
+    }
+
+    @Test
+    public void testIsDescribed() {
+        JkPathMatcher matcher = JkPathMatcher.of(true, "**/*.class").and(false, "META-INF/*.SF");
+        assertTrue(matcher.isDescribed());
+        assertTrue(matcher.reversed().and(JkPathMatcher.ofNoDirectory()).isDescribed());
+        assertFalse(JkPathMatcher.of(path -> true).isDescribed());
+        assertFalse(matcher.and(path -> true).isDescribed());
+        assertFalse(matcher.or(JkPathMatcher.of(path -> true)).isDescribed());
+    }
+
 }
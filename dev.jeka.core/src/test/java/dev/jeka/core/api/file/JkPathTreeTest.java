@@ -49,6 +49,31 @@ public class JkPathTreeTest {
         System.out.println(tree.getRelativeFiles());
     }
 
+    @Test
+    public void testSyncTo() throws Exception {
+        Path source = Files.createTempDirectory("jeka-sync-source");
+        Path target = Files.createTempDirectory("jeka-sync-target");
+        Files.createDirectories(source.resolve("a/b"));
+        Files.write(source.resolve("a/b/foo.txt"), "foo".getBytes());
+        Files.write(source.resolve("bar.txt"), "bar".getBytes());
+        Files.write(source.resolve("excluded.bin"), "bin".getBytes());
+        Files.createDirectories(target.resolve("stale"));
+        Files.write(target.resolve("stale/old.txt"), "old".getBytes());
+        JkPathTree tree = JkPathTree.of(source).andMatching(true, "**/*.txt", "*.txt");
+
+        assertEquals(2, tree.syncTo(target));
+        assertEquals("foo", new String(Files.readAllBytes(target.resolve("a/b/foo.txt"))));
+        assertFalse(Files.exists(target.resolve("stale")));
+        assertFalse(Files.exists(target.resolve("excluded.bin")));
+        assertEquals(0, tree.syncTo(target));
+
+        Files.write(source.resolve("bar.txt"), "bar2".getBytes());
+        assertEquals(1, tree.syncTo(target));
+        assertEquals("bar2", new String(Files.readAllBytes(target.resolve("bar.txt"))));
+        JkPathTree.of(source).deleteRoot();
+        JkPathTree.of(target).deleteRoot();
+    }
+
     @Test
     public void testStream() throws Exception {
         Path sampleDir = sampleDir();
@@ -0,0 +1,72 @@
+package dev.jeka.core.api.file;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("javadoc")
+public class JkResourceProcessorTest {
+
+    @Test
+    public void testGenerateIncrementally() throws Exception {
+        final Path dir = Files.createTempDirectory("jeka-resources");
+        final Path resources = dir.resolve("resources");
+        final Path output = dir.resolve("classes");
+        final Path stateFile = dir.resolve("classes.resource-state");
+        Files.createDirectories(resources.resolve("conf"));
+        Files.write(resources.resolve("conf/app.properties"), Arrays.asList("name=${name}", "x=${x}"));
+        Files.write(resources.resolve("logo.txt"), "logo".getBytes());
+        Files.write(resources.resolve("old.txt"), "old".getBytes());
+        final byte[] large = new byte[200_000];
+        Arrays.fill(large, (byte) 7);
+        Files.write(resources.resolve("large.bin"), large);
+        final JkResourceProcessor<Void> processor = JkResourceProcessor.of()
+                .addInterpolator("**/*.properties", "${name}", "foo", "${x}", "${name}-bar");
+        final JkPathTreeSet trees = JkPathTreeSet.of(resources);
+
+        processor.generateIncrementally(trees, output, stateFile);
+        assertTrue(Files.exists(stateFile));
+        assertEquals(Arrays.asList("name=foo", "x=foo-bar"), Files.readAllLines(output.resolve("conf/app.properties")));
+        assertArrayEquals(large, Files.readAllBytes(output.resolve("large.bin")));
+
+        // unchanged outputs are not written again
+        final FileTime oldTime = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        Files.setLastModifiedTime(output.resolve("logo.txt"), oldTime);
+        Files.setLastModifiedTime(resources.resolve("logo.txt"), oldTime);
+        processor.generateIncrementally(trees, output, stateFile);
+        assertEquals(oldTime, Files.getLastModifiedTime(output.resolve("logo.txt")));
+
+        // changed resources, modified outputs and values are processed, stale outputs deleted
+        Files.write(resources.resolve("logo.txt"), "logo2".getBytes());
+        Files.write(output.resolve("large.bin"), "corrupted".getBytes());
+        Files.delete(resources.resolve("old.txt"));
+        processor.addInterpolator("**/app.properties", Collections.singletonMap("${x}", "baz"));
+        processor.generateIncrementally(trees, output, stateFile);
+        assertEquals("logo2", new String(Files.readAllBytes(output.resolve("logo.txt")), StandardCharsets.UTF_8));
+        assertArrayEquals(large, Files.readAllBytes(output.resolve("large.bin")));
+        assertFalse(Files.exists(output.resolve("old.txt")));
+        assertEquals(Arrays.asList("name=foo", "x=baz"), Files.readAllLines(output.resolve("conf/app.properties")));
+        JkPathTree.of(dir).deleteRoot();
+    }
+
+    @Test
+    public void testCopyReplacingTokensOverwrites() throws Exception {
+        final Path dir = Files.createTempDirectory("jeka-tokens");
+        final Path source = dir.resolve("source.txt");
+        final Path target = dir.resolve("target.txt");
+        Files.write(source, Arrays.asList("a ${v}", "b"));
+        Files.write(target, "a much longer content that must not remain".getBytes());
+        JkPathFile.of(source).copyReplacingTokens(target, Collections.singletonMap("${v}", "1"),
+                StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("a 1", "b"), Files.readAllLines(target));
+        JkPathTree.of(dir).deleteRoot();
+    }
+
+}
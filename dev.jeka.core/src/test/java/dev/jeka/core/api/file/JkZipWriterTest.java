@@ -0,0 +1,145 @@
+package dev.jeka.core.api.file;
+
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.jar.JarInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.*;
+
+public class JkZipWriterTest {
+
+    @Test
+    public void testPutFile() throws Exception {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-zip-writer");
+        Path text = write(dir.resolve("a.txt"), "text");
+        Path jar = write(dir.resolve("b.jar"), "jar");
+        Path zip = dir.resolve("out/result.zip");
+        try (JkZipWriter writer = JkZipWriter.of(zip)) {
+            assertTrue(writer.putFile("foo/bar/a.txt", text));
+            assertFalse(writer.putFile("foo/bar/a.txt", jar));
+            assertTrue(writer.putFile("foo/b.jar", jar));
+            assertFalse(writer.putDirectory("foo"));
+        }
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertEquals(4, zipFile.size());
+            assertTrue(zipFile.getEntry("foo/").isDirectory());
+            assertTrue(zipFile.getEntry("foo/bar/").isDirectory());
+            assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("foo/bar/a.txt").getMethod());
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("foo/b.jar").getMethod());
+            assertEquals("text", read(zipFile, "foo/bar/a.txt"));
+            assertEquals("jar", read(zipFile, "foo/b.jar"));
+        }
+    }
+
+    @Test
+    public void testNoCompression() throws Exception {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-zip-writer");
+        Path text = write(dir.resolve("a.txt"), "text");
+        Path zip = dir.resolve("result.zip");
+        try (JkZipWriter writer = JkZipWriter.of(zip).setCompressionLevel(0)
+                .setStoredExtensions(Collections.emptyList())) {
+            writer.putFile("a.txt", text);
+        }
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("a.txt").getMethod());
+            assertEquals("text", read(zipFile, "a.txt"));
+        }
+    }
+
+    @Test
+    public void testTreeSetZipTo() throws Exception {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-zip-writer");
+        write(dir.resolve("tree1/a.txt"), "a1");
+        write(dir.resolve("tree1/b.txt"), "b1");
+        write(dir.resolve("tree2/a.txt"), "a2");
+        write(dir.resolve("tree2/META-INF/MANIFEST.MF"), "Manifest-Version: 1.0\r\n\r\n");
+        Path zip = dir.resolve("result.zip");
+        JkPathTreeSet.of(dir.resolve("tree1"), dir.resolve("tree2")).zipTo(zip);
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertEquals("a2", read(zipFile, "a.txt"));   // last tree wins
+            assertEquals("b1", read(zipFile, "b.txt"));
+        }
+        try (JarInputStream jarInputStream = new JarInputStream(Files.newInputStream(zip))) {
+            assertNotNull(jarInputStream.getManifest());
+        }
+
+        // Existing archive entries are kept unless overridden
+        write(dir.resolve("tree3/b.txt"), "b3");
+        write(dir.resolve("tree3/c.txt"), "c3");
+        JkPathTree.of(dir.resolve("tree3")).andMatching("c.txt").zipTo(zip);
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertEquals("a2", read(zipFile, "a.txt"));
+            assertEquals("b1", read(zipFile, "b.txt"));
+            assertEquals("c3", read(zipFile, "c.txt"));
+        }
+    }
+
+    @Test
+    public void testAppendCopiesExistingEntriesAsIs() throws Exception {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-zip-writer");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            content.append(i % 7).append(i % 13).append(i);
+        }
+        write(dir.resolve("tree1/a.txt"), content.toString());
+        write(dir.resolve("tree2/b.txt"), "b");
+        Path zip = dir.resolve("result.zip");
+        JkPathTreeSet.of(dir.resolve("tree1")).zipTo(zip, Deflater.BEST_SPEED);
+        long compressedSize;
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            compressedSize = zipFile.getEntry("a.txt").getCompressedSize();
+        }
+        JkPathTreeSet.of(dir.resolve("tree2")).zipTo(zip, Deflater.BEST_COMPRESSION);
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertEquals(compressedSize, zipFile.getEntry("a.txt").getCompressedSize());
+            assertEquals(content.toString(), read(zipFile, "a.txt"));
+            assertEquals("b", read(zipFile, "b.txt"));
+        }
+    }
+
+    @Test
+    public void testFailureLeavesArchiveUntouched() throws Exception {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-zip-writer");
+        Path text = write(dir.resolve("a.txt"), "text");
+        Path zip = write(dir.resolve("out/result.zip"), "previous");
+        try (JkZipWriter writer = JkZipWriter.of(zip)) {
+            writer.putFile("a.txt", text);
+            writer.putFile("missing.txt", dir.resolve("missing.txt"));
+            fail("Adding a missing file should fail.");
+        } catch (UncheckedIOException e) {
+            // expected
+        }
+        assertEquals("previous", new String(Files.readAllBytes(zip), StandardCharsets.UTF_8));
+
+        try (JkZipWriter writer = JkZipWriter.of(zip)) {
+            writer.putFile("a.txt", text);
+            writer.discard();
+        }
+        assertEquals("previous", new String(Files.readAllBytes(zip), StandardCharsets.UTF_8));
+        assertEquals(1, JkPathTree.of(dir.resolve("out")).getFiles().size());  // no temporary file left
+    }
+
+    private static Path write(Path file, String content) {
+        JkUtilsPath.createDirectories(file.getParent());
+        JkUtilsPath.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String read(ZipFile zipFile, String entryName) throws Exception {
+        try (InputStream inputStream = zipFile.getInputStream(zipFile.getEntry(entryName))) {
+            return JkUtilsIO.readAsString(inputStream);
+        }
+    }
+
+}
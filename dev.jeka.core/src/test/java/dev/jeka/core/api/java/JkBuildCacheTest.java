@@ -0,0 +1,81 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.file.JkPathFile;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JkBuildCacheTest {
+
+    @Test
+    public void keyDependsOnContentOnly() throws IOException {
+        Path dir1 = JkUtilsPath.createTempDirectory("jeka-cache-key");
+        Path dir2 = JkUtilsPath.createTempDirectory("jeka-cache-key");
+        JkPathFile.of(dir1.resolve("a/A.class")).createIfNotExist().write("A".getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(dir2.resolve("a/A.class")).createIfNotExist().write("A".getBytes(StandardCharsets.UTF_8));
+        String key1 = JkBuildCache.keyBuilder("compile").addFiles(Collections.singletonList(dir1)).build();
+        String key2 = JkBuildCache.keyBuilder("compile").addFiles(Collections.singletonList(dir2)).build();
+        assertEquals(key1, key2);
+        JkPathFile.of(dir2.resolve("a/A.class")).createIfNotExist().write("B".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(key1, JkBuildCache.keyBuilder("compile").addFiles(Collections.singletonList(dir2)).build());
+    }
+
+    @Test
+    public void compileKeyDependsOnContentOfPathOptions() throws IOException {
+        Path root = JkUtilsPath.createTempDirectory("jeka-cache-key");
+        Path processorJar = root.resolve("processor.jar");
+        JkPathFile.of(processorJar).createIfNotExist().write("1".getBytes(StandardCharsets.UTF_8));
+        Path source = root.resolve("src/a/A.java");
+        JkPathFile.of(source).createIfNotExist().write("package a; class A {}".getBytes(StandardCharsets.UTF_8));
+        JkJavaCompiler<Void> compiler = JkJavaCompiler.of().setBuildCache(JkBuildCache.of(root.resolve("cache"), 10));
+        JkJavaCompileSpec<Void> spec = JkJavaCompileSpec.of().setOutputDir(root.resolve("classes"))
+                .addOptions("-processorpath", processorJar.toString());
+        List<File> files = Collections.singletonList(source.toFile());
+        String key = compiler.buildCacheKey(spec, files);
+        assertEquals(key, compiler.buildCacheKey(spec, files));
+        JkPathFile.of(processorJar).write("2".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(key, compiler.buildCacheKey(spec, files));
+    }
+
+    @Test
+    public void storeRestoreAndEvict() throws IOException {
+        Path root = JkUtilsPath.createTempDirectory("jeka-cache");
+        JkBuildCache cache = JkBuildCache.of(root.resolve("cache"), 1);
+        Path classes = root.resolve("classes");
+        JkPathFile.of(classes.resolve("a/A.class")).createIfNotExist().write("A".getBytes(StandardCharsets.UTF_8));
+        cache.storeDir("aa01", JkPathTree.of(classes));
+        Path restored = root.resolve("restored");
+        JkPathFile.of(restored.resolve("a/Stale.class")).createIfNotExist().write("S".getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(restored.resolve("a/resource.txt")).createIfNotExist()
+                .write("R".getBytes(StandardCharsets.UTF_8));
+        JkPathTree restoredClasses = JkPathTree.of(restored).andMatching(true, "**.class");
+        assertTrue(cache.restoreDir("aa01", restoredClasses));
+        assertTrue(Files.exists(restored.resolve("a/A.class")));
+        assertFalse(Files.exists(restored.resolve("a/Stale.class")));
+        assertTrue(Files.exists(restored.resolve("a/resource.txt")));
+        assertFalse(cache.restoreDir("aa02", restoredClasses));
+
+        cache.putObject("bb01", "result");
+        assertEquals("result", cache.getObject("bb01"));
+
+        // Make first entry the least recently used then exceed max size
+        Files.setLastModifiedTime(root.resolve("cache/aa/aa01"), FileTime.fromMillis(0));
+        Path big = root.resolve("big.jar");
+        Files.write(big, new byte[1024 * 1024]);
+        cache.storeFile("cc01", big);
+        assertFalse(cache.restoreDir("aa01", restoredClasses));
+        assertTrue(cache.restoreFile("cc01", root.resolve("copy.jar")));
+    }
+
+}
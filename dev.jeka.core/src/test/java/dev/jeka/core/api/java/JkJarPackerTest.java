@@ -0,0 +1,269 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.file.JkPathFile;
+import dev.jeka.core.api.file.JkPathMatcher;
+import dev.jeka.core.api.file.JkZipWriter;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsAssert;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.jar.JarInputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class JkJarPackerTest {
+
+    @Test
+    public void testMakeFatJar() throws Exception {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-jar-packer");
+        Path classes = dir.resolve("classes");
+        JkPathFile.of(classes.resolve("META-INF/MANIFEST.MF")).createIfNotExist()
+                .write("Manifest-Version: 1.0\r\nMain-Class: a.Main\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(classes.resolve("a/Main.class")).createIfNotExist()
+                .write("main".getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(classes.resolve("shared.txt")).createIfNotExist()
+                .write("from classes".getBytes(StandardCharsets.UTF_8));
+        Path jar1 = zip(dir.resolve("dep1.jar"), false, "b/B.class", "b", "shared.txt", "from dep1",
+                "dep.txt", "from dep1");
+        Path jar2 = zip(dir.resolve("dep2.jar"), true, "c/C.class", "c", "dep.txt", "from dep2",
+                "excluded.txt", "excluded");
+        Path fatJar = dir.resolve("fat.jar");
+        Files.write(fatJar, new byte[] {1, 2, 3});  // overwritten
+
+        JkJarPacker.of(classes).makeFatJar(fatJar, Arrays.asList(jar1, jar2), JkPathMatcher.of(false, "excluded.txt"));
+
+        try (ZipFile zipFile = new ZipFile(fatJar.toFile())) {
+            assertEquals("main", read(zipFile, "a/Main.class"));
+            assertEquals("b", read(zipFile, "b/B.class"));
+            assertEquals("c", read(zipFile, "c/C.class"));
+            assertEquals("from classes", read(zipFile, "shared.txt"));
+            assertEquals("from dep2", read(zipFile, "dep.txt"));
+            assertTrue(zipFile.getEntry("b/").isDirectory());
+            assertNull(zipFile.getEntry("excluded.txt"));
+        }
+        try (JarInputStream jarInputStream = new JarInputStream(Files.newInputStream(fatJar))) {
+            assertEquals("a.Main", jarInputStream.getManifest().getMainAttributes().getValue("Main-Class"));
+            assertEquals("b/", jarInputStream.getNextJarEntry().getName());  // dependencies first
+        }
+    }
+
+    @Test
+    public void testMergeEntries() throws Exception {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-jar-packer");
+        Path classes = dir.resolve("classes");
+        JkPathFile.of(classes.resolve("META-INF/services/a.Service")).createIfNotExist()
+                .write("a.MainImpl\n".getBytes(StandardCharsets.UTF_8));
+        Path jar1 = zip(dir.resolve("dep1.jar"), false,
+                "META-INF/services/a.Service", "# comment\nb.Impl\na.MainImpl",
+                "META-INF/spring.factories", "a.Key=b.Factory,\\\n  b.Other\n");
+        Path jar2 = zip(dir.resolve("dep2.jar"), true,
+                "META-INF/services/a.Service", "c.Impl\n",
+                "META-INF/spring.factories", "a.Key=c.Factory\nc.Key=c.Value\n",
+                "META-INF/LICENSE", "license 2");
+        Path jar3 = zip(dir.resolve("dep3.jar"), false, "META-INF/LICENSE", "license 3");
+        Path fatJar = dir.resolve("fat.jar");
+
+        JkJarPacker.of(classes).makeFatJar(fatJar, Arrays.asList(jar1, jar2, jar3), JkPathMatcher.of());
+        try (ZipFile zipFile = new ZipFile(fatJar.toFile())) {
+            assertEquals("a.MainImpl\nc.Impl\nb.Impl\n", read(zipFile, "META-INF/services/a.Service"));
+            assertEquals("a.Key=c.Factory,b.Factory,b.Other\nc.Key=c.Value\n",
+                    read(zipFile, "META-INF/spring.factories"));
+            assertEquals("license 3", read(zipFile, "META-INF/LICENSE"));
+        }
+
+        JkJarPacker.of(classes).withEntryTransformers(Collections.emptyList())
+                .makeFatJar(fatJar, Arrays.asList(jar1, jar2), JkPathMatcher.of());
+        try (ZipFile zipFile = new ZipFile(fatJar.toFile())) {
+            assertEquals("a.MainImpl\n", read(zipFile, "META-INF/services/a.Service"));
+        }
+    }
+
+    @Test
+    public void testDuplicateTreeEntriesAreComparedOnContent() throws Exception {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-jar-packer");
+        Path classes = dir.resolve("classes");
+        JkPathFile.of(classes.resolve("same.txt")).createIfNotExist().write("same".getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(classes.resolve("different.txt")).createIfNotExist()
+                .write("from classes".getBytes(StandardCharsets.UTF_8));
+        Path jar = zip(dir.resolve("dep.jar"), false, "same.txt", "same", "different.txt", "from dep");
+        Path otherClasses = dir.resolve("other-classes");
+        JkPathFile.of(otherClasses.resolve("same.txt")).createIfNotExist()
+                .write("same".getBytes(StandardCharsets.UTF_8));
+        List<String> messages = Collections.synchronizedList(new LinkedList<>());
+        JkLog.JkState.save();
+        JkLog.setVerbosity(JkLog.Verbosity.NORMAL);
+        JkLog.setConsumer(new RecordingConsumer(messages));
+        try {
+            JkJarPacker.of(classes).makeFatJar(dir.resolve("fat.jar"), Arrays.asList(jar, otherClasses),
+                    JkPathMatcher.of());
+        } finally {
+            JkLog.JkState.restore();
+        }
+        assertTrue(messages.toString(), messages.contains(
+                "fat.jar : 0 entries merged, 1 duplicate entries having different contents ignored."));
+    }
+
+    @Test
+    public void testRelocations() throws Exception {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-jar-packer");
+        Path classes = dir.resolve("classes");
+        copyClass(JkClassRelocation.class, classes);
+        Path utilsDir = dir.resolve("utils");
+        copyClass(JkUtilsAssert.class, utilsDir);
+        JkPathFile.of(utilsDir.resolve("META-INF/services/dev.jeka.core.api.utils.JkUtilsAssert")).createIfNotExist()
+                .write("dev.jeka.core.api.utils.JkUtilsAssert\n".getBytes(StandardCharsets.UTF_8));
+        Path fatJar = dir.resolve("fat.jar");
+
+        JkJarPacker.of(classes)
+                .withRelocations(Collections.singletonList(JkClassRelocation.of("dev.jeka.core.api.utils", "shaded")))
+                .makeFatJar(fatJar, Collections.singletonList(utilsDir), JkPathMatcher.of());
+
+        try (ZipFile zipFile = new ZipFile(fatJar.toFile())) {
+            assertNotNull(zipFile.getEntry("shaded/JkUtilsAssert.class"));
+            assertNull(zipFile.getEntry("dev/jeka/core/api/utils/JkUtilsAssert.class"));
+            assertEquals("shaded.JkUtilsAssert\n", read(zipFile, "META-INF/services/shaded.JkUtilsAssert"));
+        }
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {fatJar.toUri().toURL()}, null)) {
+            Method of = classLoader.loadClass(JkClassRelocation.class.getName())
+                    .getMethod("of", String.class, String.class);
+            try {
+                of.invoke(null, "", "b");
+                fail();
+            } catch (InvocationTargetException e) {
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+                assertEquals("shaded.JkUtilsAssert", e.getCause().getStackTrace()[0].getClassName());
+            }
+        }
+    }
+
+    @Test
+    public void testReproducibleJar() throws Exception {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-jar-packer");
+        Path classes = dir.resolve("classes");
+        JkPathFile.of(classes.resolve("b/B.class")).createIfNotExist().write("b".getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(classes.resolve("a/A.class")).createIfNotExist().write("a".getBytes(StandardCharsets.UTF_8));
+        Path dep = zip(dir.resolve("dep.jar"), false, "c/C.class", "c");
+        JkManifest manifest1 = JkManifest.of().addMainClass("a.A").addMainAttribute("Z-Attribute", "z")
+                .addMainAttribute("A-Attribute", "a");
+        JkJarPacker.of(classes).withManifest(manifest1).withReproducible(true).makeJar(dir.resolve("1.jar"));
+        JkJarPacker.of(classes).withManifest(manifest1).withReproducible(true)
+                .makeFatJar(dir.resolve("1-fat.jar"), Collections.singletonList(dep), JkPathMatcher.of());
+
+        Files.setLastModifiedTime(classes.resolve("a/A.class"), FileTime.fromMillis(0));
+        Files.setLastModifiedTime(dep, FileTime.fromMillis(0));
+        JkManifest manifest2 = JkManifest.of().addMainAttribute("A-Attribute", "a")
+                .addMainAttribute("Z-Attribute", "z").addMainClass("a.A");
+        JkJarPacker.of(classes).withManifest(manifest2).withReproducible(true).makeJar(dir.resolve("2.jar"));
+        JkJarPacker.of(classes).withManifest(manifest2).withReproducible(true)
+                .makeFatJar(dir.resolve("2-fat.jar"), Collections.singletonList(dep), JkPathMatcher.of());
+
+        assertArrayEquals(Files.readAllBytes(dir.resolve("1.jar")), Files.readAllBytes(dir.resolve("2.jar")));
+        assertArrayEquals(Files.readAllBytes(dir.resolve("1-fat.jar")), Files.readAllBytes(dir.resolve("2-fat.jar")));
+        try (ZipFile zipFile = new ZipFile(dir.resolve("1.jar").toFile())) {
+            assertEquals(JkZipWriter.REPRODUCIBLE_TIME, zipFile.getEntry("a/A.class").getTime());
+        }
+    }
+
+    @Test
+    public void testManifestToBytes() {
+        String longValue = String.join(" ", Collections.nCopies(20, "value"));
+        JkManifest manifest = JkManifest.of().addMainAttribute("B", "b").addMainAttribute("A", longValue);
+        JkManifest readManifest = JkManifest.of().setManifestFromInputStream(
+                new ByteArrayInputStream(manifest.toBytes()));
+        assertEquals(longValue, readManifest.getMainAttribute("A"));
+        String content = new String(manifest.toBytes(), StandardCharsets.UTF_8);
+        assertTrue(content.startsWith("Manifest-Version: 1.0\r\nA: value"));
+        for (String line : content.split("\r\n")) {
+            assertTrue(line.length() <= 72);
+        }
+    }
+
+    private static class RecordingConsumer implements JkLog.JkEventLogConsumer {
+
+        private final List<String> messages;
+
+        RecordingConsumer(List<String> messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public void accept(JkLog.JkLogEvent event) {
+            messages.add(event.getMessage());
+        }
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public void restore() {
+        }
+
+        @Override
+        public OutputStream getOutStream() {
+            return null;
+        }
+
+        @Override
+        public OutputStream getErrorStream() {
+            return null;
+        }
+    }
+
+    private static Path zip(Path file, boolean stored, String... namesAndContents) throws Exception {
+        try (OutputStream outputStream = Files.newOutputStream(file);
+             ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                byte[] content = namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8);
+                ZipEntry entry = new ZipEntry(namesAndContents[i]);
+                if (stored) {
+                    CRC32 crc = new CRC32();
+                    crc.update(content);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(content.length);
+                    entry.setCrc(crc.getValue());
+                }
+                zipOutputStream.putNextEntry(entry);
+                zipOutputStream.write(content);
+                zipOutputStream.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    private static void copyClass(Class<?> clazz, Path classDir) throws Exception {
+        String entryName = clazz.getName().replace('.', '/') + ".class";
+        Path target = classDir.resolve(entryName);
+        JkUtilsPath.createDirectories(target.getParent());
+        try (InputStream inputStream = clazz.getClassLoader().getResourceAsStream(entryName)) {
+            Files.copy(inputStream, target);
+        }
+    }
+
+    private static String read(ZipFile zipFile, String entryName) throws Exception {
+        byte[] buffer = new byte[1024];
+        int count = zipFile.getInputStream(zipFile.getEntry(entryName)).read(buffer);
+        return new String(buffer, 0, count, StandardCharsets.UTF_8);
+    }
+
+}
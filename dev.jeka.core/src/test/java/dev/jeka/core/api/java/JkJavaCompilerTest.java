@@ -1,7 +1,15 @@
 package dev.jeka.core.api.java;
 
+import dev.jeka.core.api.file.JkPathFile;
+import dev.jeka.core.api.utils.JkUtilsPath;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
 import static org.junit.Assert.*;
 
 public class JkJavaCompilerTest {
@@ -12,4 +20,44 @@ public class JkJavaCompilerTest {
         assertEquals("8", JkJavaCompiler.currentJdkSourceVersion("1.8.0_211"));
         assertEquals("9", JkJavaCompiler.currentJdkSourceVersion("9.0.1"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void compileIncrementally() throws IOException {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-incremental");
+        Path src = dir.resolve("src");
+        Path classes = dir.resolve("classes");
+        Path stateFile = dir.resolve("compile-state");
+        JkPathFile.of(src.resolve("a/A.java")).createIfNotExist()
+                .write("package a; public class A { public int value() { return 1; } }"
+                        .getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(src.resolve("a/B.java")).createIfNotExist()
+                .write("package a; public class B { int get() { return new A().value(); } }"
+                        .getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(src.resolve("c/C.java")).createIfNotExist()
+                .write("package c; public class C { }".getBytes(StandardCharsets.UTF_8));
+        JkJavaCompileSpec<Void> spec = JkJavaCompileSpec.of().setOutputDir(classes).addSources(src);
+        assertTrue(JkJavaCompiler.of().compileIncrementally(spec, stateFile));
+        FileTime bTime = Files.getLastModifiedTime(classes.resolve("a/B.class"));
+        FileTime cTime = Files.getLastModifiedTime(classes.resolve("c/C.class"));
+
+        // Nothing changed : nothing is compiled
+        assertTrue(JkJavaCompiler.of().compileIncrementally(spec, stateFile));
+        assertEquals(bTime, Files.getLastModifiedTime(classes.resolve("a/B.class")));
+
+        // A changed : B depends on A so is recompiled, C is not
+        JkPathFile.of(src.resolve("a/A.java")).createIfNotExist()
+                .write("package a; public class A { public int value() { return 22; } }"
+                        .getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(classes.resolve("a/B.class"), FileTime.fromMillis(0));
+        assertTrue(JkJavaCompiler.of().compileIncrementally(spec, stateFile));
+        assertNotEquals(0, Files.getLastModifiedTime(classes.resolve("a/B.class")).toMillis());
+        assertEquals(cTime, Files.getLastModifiedTime(classes.resolve("c/C.class")));
+
+        // C removed : its class file is removed
+        Files.delete(src.resolve("c/C.java"));
+        assertTrue(JkJavaCompiler.of().compileIncrementally(spec, stateFile));
+        assertFalse(Files.exists(classes.resolve("c/C.class")));
+        assertTrue(Files.exists(classes.resolve("a/A.class")));
+    }
+
+}
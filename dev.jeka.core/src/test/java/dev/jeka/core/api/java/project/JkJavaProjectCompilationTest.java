@@ -0,0 +1,78 @@
+package dev.jeka.core.api.java.project;
+
+import dev.jeka.core.api.file.JkPathFile;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.*;
+
+public class JkJavaProjectCompilationTest {
+
+    @Test
+    public void testCompilationIsIncrementalAcrossProdAndTest() throws IOException {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-project-incremental");
+        JkPathFile.of(dir.resolve("src/main/java/a/A.java")).createIfNotExist()
+                .write("package a; public class A { public int value() { return 1; } }"
+                        .getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(dir.resolve("src/main/java/a/B.java")).createIfNotExist()
+                .write("package a; public class B { }".getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(dir.resolve("src/main/resources/a/data.txt")).createIfNotExist()
+                .write("data".getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(dir.resolve("src/test/java/a/ATest.java")).createIfNotExist()
+                .write("package a; public class ATest { int test() { return new A().value(); } }"
+                        .getBytes(StandardCharsets.UTF_8));
+        JkJavaProject project = project(dir);
+        compile(project);
+        Path classes = project.getConstruction().getCompilation().getLayout().resolveClassDir();
+        Path testClasses = project.getConstruction().getTesting().getCompilation().getLayout().resolveClassDir();
+        assertTrue(Files.exists(classes.resolve("a/A.class")));
+        assertTrue(Files.exists(classes.resolve("a/data.txt")));
+        assertTrue(Files.exists(testClasses.resolve("a/ATest.class")));
+
+        // Only a method body changes : A is recompiled but test classes are not
+        untouch(classes.resolve("a/B.class"), testClasses.resolve("a/ATest.class"));
+        JkPathFile.of(dir.resolve("src/main/java/a/A.java")).createIfNotExist()
+                .write("package a; public class A { public int value() { return 2; } }"
+                        .getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(dir.resolve("src/main/resources/a/data.txt")).createIfNotExist()
+                .write("other data".getBytes(StandardCharsets.UTF_8));
+        project = project(dir);
+        compile(project);
+        assertEquals(0, Files.getLastModifiedTime(classes.resolve("a/B.class")).toMillis());
+        assertEquals(0, Files.getLastModifiedTime(testClasses.resolve("a/ATest.class")).toMillis());
+
+        // The binary interface of A changes : test classes compiled against it are compiled again
+        JkPathFile.of(dir.resolve("src/main/java/a/A.java")).createIfNotExist()
+                .write(("package a; public class A { public int value() { return 2; } "
+                        + "public void other() { } }").getBytes(StandardCharsets.UTF_8));
+        project = project(dir);
+        compile(project);
+        assertEquals(0, Files.getLastModifiedTime(classes.resolve("a/B.class")).toMillis());
+        assertNotEquals(0, Files.getLastModifiedTime(testClasses.resolve("a/ATest.class")).toMillis());
+    }
+
+    private static JkJavaProject project(Path baseDir) {
+        JkJavaProject project = JkJavaProject.of().setBaseDir(baseDir);
+        project.getConstruction().getCompilation().setIncremental(true);
+        project.getConstruction().getTesting().getCompilation().setIncremental(true);
+        return project;
+    }
+
+    private static void compile(JkJavaProject project) {
+        project.getConstruction().getCompilation().run();
+        project.getConstruction().getTesting().getCompilation().run();
+    }
+
+    private static void untouch(Path... files) throws IOException {
+        for (Path file : files) {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package dev.jeka.core.api.java.project;
+
+import dev.jeka.core.api.file.JkPathFile;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PhaseFingerprintTest {
+
+    @Test
+    public void isUpToDate() throws IOException {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-fingerprint");
+        Path input = dir.resolve("in/Foo.java");
+        Path output = dir.resolve("out/foo.jar");
+        Path file = dir.resolve("fingerprint.properties");
+        JkPathFile.of(input).createIfNotExist().write("foo".getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(output).createIfNotExist().write("bar".getBytes(StandardCharsets.UTF_8));
+        assertFalse(fingerprint(file, input, output, "a").isUpToDate());
+        fingerprint(file, input, output, "a").save();
+        assertTrue(fingerprint(file, input, output, "a").isUpToDate());
+
+        // Input value changed
+        assertFalse(fingerprint(file, input, output, "b").isUpToDate());
+
+        // Input file changed
+        JkPathFile.of(input).createIfNotExist().write("foo2".getBytes(StandardCharsets.UTF_8));
+        assertFalse(fingerprint(file, input, output, "a").isUpToDate());
+        fingerprint(file, input, output, "a").save();
+        assertTrue(fingerprint(file, input, output, "a").isUpToDate());
+
+        // Output deleted
+        Files.delete(output);
+        assertFalse(fingerprint(file, input, output, "a").isUpToDate());
+    }
+
+    @Test
+    public void inputsAreFingerprintedOnExplicitFields() throws IOException {
+        Path file = JkUtilsPath.createTempDirectory("jeka-fingerprint").resolve("fingerprint.properties");
+        Map<String, String> map = new HashMap<>();
+        map.put("a", "1");
+        map.put("b", "2");
+        Map<String, String> sameMap = new TreeMap<>(Comparator.reverseOrder());
+        sameMap.putAll(map);
+        PhaseFingerprint.of("Phase", file).addInput("options", map, Arrays.asList("x, y"), null).save();
+        assertTrue(PhaseFingerprint.of("Phase", file)
+                .addInput("options", sameMap, Arrays.asList("x, y"), null).isUpToDate());
+        assertFalse(PhaseFingerprint.of("Phase", file)
+                .addInput("options", sameMap, Arrays.asList("x", "y"), null).isUpToDate());
+        try {
+            PhaseFingerprint.of("Phase", file).addInput("options", new Object());
+            fail("Objects without explicit fields should not be fingerprinted.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void opaqueInputIsNeverUpToDate() throws IOException {
+        Path file = JkUtilsPath.createTempDirectory("jeka-fingerprint").resolve("fingerprint.properties");
+        PhaseFingerprint.of("Phase", file).addInput("options", "a").addOpaqueInput("actions").save();
+        assertFalse(PhaseFingerprint.of("Phase", file).addInput("options", "a").addOpaqueInput("actions")
+                .isUpToDate());
+        assertTrue(PhaseFingerprint.of("Phase", file).addInput("options", "a").isUpToDate());
+    }
+
+    private static PhaseFingerprint fingerprint(Path file, Path input, Path output, String value) {
+        return PhaseFingerprint.of("Phase", file)
+                .addInputFiles("sources", Collections.singletonList(input.getParent()))
+                .addInput("options", value)
+                .addOutputFiles("jar", Collections.singletonList(output));
+    }
+
+}
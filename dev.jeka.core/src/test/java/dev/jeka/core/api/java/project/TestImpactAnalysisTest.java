@@ -0,0 +1,147 @@
+package dev.jeka.core.api.java.project;
+
+import dev.jeka.core.api.file.JkPathFile;
+import dev.jeka.core.api.java.JkJavaCompileSpec;
+import dev.jeka.core.api.java.JkJavaCompiler;
+import dev.jeka.core.api.java.testing.JkTestSelection;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestImpactAnalysisTest {
+
+    @Test
+    public void select() {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-test-impact");
+        Path stateFile = dir.resolve("state");
+        Path classes = dir.resolve("classes");
+        Path testClasses = dir.resolve("test-classes");
+        JkPathFile.of(dir.resolve("src/a/A.java")).createIfNotExist()
+                .write("package a; public class A { public int value() { return 1; } }"
+                        .getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(dir.resolve("src/a/B.java")).createIfNotExist()
+                .write("package a; public class B { public int value() { return 2; } }"
+                        .getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(dir.resolve("src/a/C.java")).createIfNotExist()
+                .write("package a; public class C { public int value() { return new A().value(); } }"
+                        .getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(dir.resolve("test/a/BTest.java")).createIfNotExist()
+                .write("package a; public class BTest { void test() { new B().value(); } }"
+                        .getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(dir.resolve("test/a/CTest.java")).createIfNotExist()
+                .write("package a; public class CTest { void test() { new C().value(); } }"
+                        .getBytes(StandardCharsets.UTF_8));
+        compile(dir.resolve("src"), classes, dir);
+        compile(dir.resolve("test"), testClasses, classes);
+        List<Path> classpath = Arrays.asList(testClasses, classes);
+        JkTestSelection<?> selection = JkTestSelection.of().addTestClassRoots(testClasses);
+
+        // No state : all tests run
+        TestImpactAnalysis analysis = TestImpactAnalysis.of(stateFile, classpath, selection, "config");
+        assertSame(selection, analysis.select(selection));
+        analysis.save();
+
+        // Nothing changed : no test runs
+        assertNull(TestImpactAnalysis.of(stateFile, classpath, selection, "config").select(selection));
+
+        // A changed : CTest depends on A through C
+        JkPathFile.of(dir.resolve("src/a/A.java")).createIfNotExist()
+                .write("package a; public class A { public int value() { return 11; } }"
+                        .getBytes(StandardCharsets.UTF_8));
+        compile(dir.resolve("src"), classes, dir);
+        JkTestSelection<?> restricted = TestImpactAnalysis.of(stateFile, classpath, selection, "config")
+                .select(selection);
+        assertNotNull(restricted);
+        assertTrue(isExcluded(restricted, "a.BTest"));
+        assertFalse(isExcluded(restricted, "a.CTest"));
+
+        // Only a resource changed : all tests run
+        TestImpactAnalysis.of(stateFile, classpath, selection, "config").save();
+        JkPathFile.of(classes.resolve("a/data.properties")).createIfNotExist()
+                .write("value=1".getBytes(StandardCharsets.UTF_8));
+        assertSame(selection, TestImpactAnalysis.of(stateFile, classpath, selection, "config").select(selection));
+
+        // Configuration changed : all tests run
+        assertSame(selection, TestImpactAnalysis.of(stateFile, classpath, selection, "other").select(selection));
+    }
+
+    @Test
+    public void allTestsRunWhenChangeIsNotPlainCode() {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-test-impact");
+        Path stateFile = dir.resolve("state");
+        Path classes = dir.resolve("classes");
+        Path testClasses = dir.resolve("test-classes");
+        JkPathFile.of(dir.resolve("src/a/A.java")).createIfNotExist()
+                .write("package a; public class A { public int value() { return 1; } }"
+                        .getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(dir.resolve("src/a/Named.java")).createIfNotExist()
+                .write("package a; public class Named { }".getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(dir.resolve("src/a/Service.java")).createIfNotExist()
+                .write("package a; public class Service { }".getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(dir.resolve("src/a/Loader.java")).createIfNotExist()
+                .write(("package a; public class Loader { Object load() throws Exception { "
+                        + "return Class.forName(\"a.Named\").newInstance(); } }").getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(dir.resolve("src/a/Constants.java")).createIfNotExist()
+                .write("package a; public class Constants { public static final int VALUE = 1; }"
+                        .getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(dir.resolve("test/a/ATest.java")).createIfNotExist()
+                .write("package a; public class ATest { void test() { new A().value(); } }"
+                        .getBytes(StandardCharsets.UTF_8));
+        compile(dir.resolve("src"), classes, dir);
+        compile(dir.resolve("test"), testClasses, classes);
+        JkPathFile.of(classes.resolve("META-INF/services/a.Api")).createIfNotExist()
+                .write("# implementations\na.Service\n".getBytes(StandardCharsets.UTF_8));
+        List<Path> classpath = Arrays.asList(testClasses, classes);
+        JkTestSelection<?> selection = JkTestSelection.of().addTestClassRoots(testClasses);
+        TestImpactAnalysis.of(stateFile, classpath, selection, "config").save();
+
+        // Class loaded through a name in a string literal
+        JkPathFile.of(dir.resolve("src/a/Named.java")).createIfNotExist()
+                .write("package a; public class Named { int i; }".getBytes(StandardCharsets.UTF_8));
+        compile(dir.resolve("src"), classes, dir);
+        assertSame(selection, TestImpactAnalysis.of(stateFile, classpath, selection, "config").select(selection));
+
+        // Service implementation
+        TestImpactAnalysis.of(stateFile, classpath, selection, "config").save();
+        JkPathFile.of(dir.resolve("src/a/Service.java")).createIfNotExist()
+                .write("package a; public class Service { int i; }".getBytes(StandardCharsets.UTF_8));
+        compile(dir.resolve("src"), classes, dir);
+        assertSame(selection, TestImpactAnalysis.of(stateFile, classpath, selection, "config").select(selection));
+
+        // Class that defined constants before the change
+        TestImpactAnalysis.of(stateFile, classpath, selection, "config").save();
+        JkPathFile.of(dir.resolve("src/a/Constants.java")).createIfNotExist()
+                .write("package a; public class Constants { }".getBytes(StandardCharsets.UTF_8));
+        compile(dir.resolve("src"), classes, dir);
+        assertSame(selection, TestImpactAnalysis.of(stateFile, classpath, selection, "config").select(selection));
+
+        // Deleted class
+        TestImpactAnalysis.of(stateFile, classpath, selection, "config").save();
+        JkUtilsPath.deleteFile(classes.resolve("a/Constants.class"));
+        assertSame(selection, TestImpactAnalysis.of(stateFile, classpath, selection, "config").select(selection));
+
+        // Plain code change in a class no test depends on : no test runs
+        TestImpactAnalysis.of(stateFile, classpath, selection, "config").save();
+        JkPathFile.of(dir.resolve("src/a/Loader.java")).createIfNotExist()
+                .write(("package a; public class Loader { Object load() throws Exception { "
+                        + "return Class.forName(\"a.Named\"); } }").getBytes(StandardCharsets.UTF_8));
+        compile(dir.resolve("src"), classes, dir);
+        assertNull(TestImpactAnalysis.of(stateFile, classpath, selection, "config").select(selection));
+    }
+
+    private static boolean isExcluded(JkTestSelection<?> selection, String className) {
+        return selection.getExcludePatterns().stream().anyMatch(className::matches);
+    }
+
+    private static void compile(Path src, Path classes, Path classpath) {
+        assertTrue(JkJavaCompiler.of().compile(JkJavaCompileSpec.of().setOutputDir(classes)
+                .setClasspath(Arrays.asList(classpath)).addSources(src)));
+    }
+
+}
@@ -0,0 +1,135 @@
+package dev.jeka.core.api.java.testing;
+
+import dev.jeka.core.api.file.JkPathFile;
+import dev.jeka.core.api.file.JkPathSequence;
+import dev.jeka.core.api.java.JkJavaProcess;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsXml;
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class ParallelForksTest {
+
+    @Test
+    public void partitionBalancesOnPreviousDurations() {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-forks");
+        Path classes = dir.resolve("classes");
+        for (String name : Arrays.asList("ATest", "BTest", "CTest", "ATest$Inner", "Helper")) {
+            JkPathFile.of(classes.resolve("p/" + name + ".class")).createIfNotExist();
+        }
+        Path reports = dir.resolve("reports");
+        String report = "<testsuite tests='3'>"
+                + "<testcase classname='p.ATest' time='10'/>"
+                + "<testcase classname='p.BTest' time='6'/>"
+                + "<testcase classname='p.CTest' time='5'/></testsuite>";
+        JkPathFile.of(reports.resolve("TEST-junit-vintage.xml")).createIfNotExist()
+                .write(report.getBytes(StandardCharsets.UTF_8));
+        JkTestSelection<Void> selection = JkTestSelection.of().addTestClassRoots(classes)
+                .addIncludeStandardPatterns();
+        List<JkTestSelection<?>> selections = ParallelForks.partition(selection, 2, reports);
+        assertEquals(2, selections.size());
+        assertTrue(selects(selections.get(0), "p.ATest"));
+        assertTrue(selects(selections.get(0), "p.ATest$Inner"));
+        assertFalse(selects(selections.get(0), "p.BTest"));
+        assertTrue(selects(selections.get(1), "p.BTest"));
+        assertTrue(selects(selections.get(1), "p.CTest"));
+        assertFalse(selects(selections.get(1), "p.ATest"));
+    }
+
+    @Test
+    public void mergeReports() {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-forks");
+        String report0 = "<testsuite tests='1' failures='0' time='2.0'>"
+                + "<testcase classname='p.ATest' time='2'/><system-out/></testsuite>";
+        String report1 = "<testsuite tests='2' failures='1' time='3.0'>"
+                + "<testcase classname='p.BTest' time='1'/><testcase classname='p.CTest' time='2'/></testsuite>";
+        JkPathFile.of(dir.resolve("fork-0/TEST-junit-vintage.xml")).createIfNotExist()
+                .write(report0.getBytes(StandardCharsets.UTF_8));
+        JkPathFile.of(dir.resolve("fork-1/TEST-junit-vintage.xml")).createIfNotExist()
+                .write(report1.getBytes(StandardCharsets.UTF_8));
+        Path reportDir = dir.resolve("report");
+        ParallelForks.mergeReports(Arrays.asList(dir.resolve("fork-0"), dir.resolve("fork-1")), reportDir);
+        Element suite = JkUtilsXml.documentFrom(reportDir.resolve("TEST-junit-vintage.xml")).getDocumentElement();
+        assertEquals("3", suite.getAttribute("tests"));
+        assertEquals("1", suite.getAttribute("failures"));
+        assertEquals(3, JkUtilsXml.directChildren(suite, "testcase").size());
+    }
+
+    @Test
+    public void failingForkEndsTestTask() {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-forks");
+        Path classes = dir.resolve("classes");
+        for (String name : Arrays.asList("ATest", "BTest")) {
+            JkPathFile.of(classes.resolve("p/" + name + ".class")).createIfNotExist();
+        }
+        JkTestProcessor<Void> processor = JkTestProcessor.of().setForkCount(2)
+                .setForkingProcess(JkJavaProcess.ofJavaHome(dir.resolve("no-java")));
+        List<String> messages = new LinkedList<>();
+        JkLog.JkState.save();
+        JkLog.setVerbosity(JkLog.Verbosity.NORMAL);
+        JkLog.setConsumer(new RecordingConsumer(messages));
+        int baseLevel = JkLog.getCurrentNestedLevel();
+        try {
+            processor.launch(JkPathSequence.of(classes), JkTestSelection.of().addTestClassRoots(classes)
+                    .addIncludeStandardPatterns());
+            fail("Fork launch failure should be propagated.");
+        } catch (RuntimeException e) {
+            assertEquals(baseLevel, JkLog.getCurrentNestedLevel());
+        } finally {
+            JkLog.JkState.restore();
+        }
+        assertEquals("Failed after %d milliseconds.", messages.get(messages.size() - 1)
+                .replaceFirst("\\d+", "%d"));
+    }
+
+    private static boolean selects(JkTestSelection<?> selection, String className) {
+        return selection.getExcludePatterns().stream()
+                .noneMatch(pattern -> Pattern.compile(pattern).matcher(className).matches());
+    }
+
+    private static class RecordingConsumer implements JkLog.JkEventLogConsumer {
+
+        private final List<String> messages;
+
+        RecordingConsumer(List<String> messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public void accept(JkLog.JkLogEvent event) {
+            messages.add(event.getMessage());
+        }
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public void restore() {
+        }
+
+        @Override
+        public OutputStream getOutStream() {
+            return JkUtilsIO.nopOuputStream();
+        }
+
+        @Override
+        public OutputStream getErrorStream() {
+            return JkUtilsIO.nopOuputStream();
+        }
+
+    }
+
+}
@@ -0,0 +1,115 @@
+package dev.jeka.core.api.java.testing;
+
+import dev.jeka.core.api.file.JkPathFile;
+import dev.jeka.core.api.file.JkPathSequence;
+import dev.jeka.core.api.java.JkJavaCompileSpec;
+import dev.jeka.core.api.java.JkJavaCompiler;
+import dev.jeka.core.api.java.JkJavaProcess;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class TestWorkerPoolTest {
+
+    @Test
+    public void testWorkerIsReusedUntilMaxLaunches() throws Exception {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-worker-pool");
+        Path jvms = dir.resolve("jvms.txt");
+        Path classes = compileTestClass(dir, "System.out.println(\"running\");", jvms);
+        JkTestProcessor<Void> processor = processor().setMaxLaunchesPerFork(2);
+
+        for (int i = 0; i < 3; i++) {
+            JkTestResult result = processor.launch(JkPathSequence.of(classes), selection(classes));
+            assertEquals(1, result.getTestCount().getSucceded());
+        }
+
+        List<String> jvmNames = Files.readAllLines(jvms);
+        assertEquals(3, jvmNames.size());
+        assertEquals("Second launch should run in the warm worker", jvmNames.get(0), jvmNames.get(1));
+        assertNotEquals("Third launch should run in a new worker", jvmNames.get(1), jvmNames.get(2));
+    }
+
+    @Test
+    public void testWorkerIsNotReusedAfterFailure() throws Exception {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-worker-pool");
+        Path jvms = dir.resolve("jvms.txt");
+        Path exitFlag = dir.resolve("exit");
+        Path classes = compileTestClass(dir, "if (java.nio.file.Files.deleteIfExists(java.nio.file.Paths.get("
+                + literal(exitFlag) + "))) { System.exit(1); }", jvms);
+        JkTestProcessor<Void> processor = processor().setMaxLaunchesPerFork(10);
+
+        Files.createFile(exitFlag);
+        try {
+            processor.launch(JkPathSequence.of(classes), selection(classes));
+            fail("Worker termination should be reported.");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("terminated unexpectedly"));
+        }
+        JkTestResult result = processor.launch(JkPathSequence.of(classes), selection(classes));
+        assertEquals(1, result.getTestCount().getSucceded());
+
+        List<String> jvmNames = Files.readAllLines(jvms);
+        assertEquals(2, jvmNames.size());
+        assertNotEquals(jvmNames.get(0), jvmNames.get(1));
+    }
+
+    @Test
+    public void testIdleWorkersAreCappedAndStopped() throws Exception {
+        Path dir = JkUtilsPath.createTempDirectory("jeka-worker-pool");
+        Path classes = compileTestClass(dir, "", dir.resolve("jvms.txt"));
+        JkTestProcessor.stopIdleForks();
+        for (int i = 0; i <= TestWorkerPool.MAX_IDLE_WORKERS; i++) {
+            processor().setMaxLaunchesPerFork(2).launch(JkPathSequence.of(classes), selection(classes));
+        }
+        assertEquals(TestWorkerPool.MAX_IDLE_WORKERS, TestWorkerPool.getIdleWorkerCount());
+        JkTestProcessor.stopIdleForks();
+        assertEquals(0, TestWorkerPool.getIdleWorkerCount());
+    }
+
+    @After
+    public void stopIdleForks() {
+        JkTestProcessor.stopIdleForks();
+    }
+
+    // A distinct option, so workers are not shared with other tests
+    private static JkTestProcessor<Void> processor() {
+        return JkTestProcessor.of().setForkingProcess(JkJavaProcess.of()
+                .andOptions("-Djeka.test.workerPool=" + UUID.randomUUID()));
+    }
+
+    private static JkTestSelection<Void> selection(Path classes) {
+        return JkTestSelection.of().addTestClassRoots(classes).addIncludeStandardPatterns();
+    }
+
+    // Compiles a JUnit 4 test appending the name of its JVM to the specified file, then running the specified code.
+    private static Path compileTestClass(Path dir, String code, Path jvms) throws URISyntaxException {
+        Path src = dir.resolve("src");
+        Path classes = dir.resolve("classes");
+        String source = "package p; public class PoolTest { @org.junit.Test public void test() "
+                + "throws Exception { java.nio.file.Files.write(java.nio.file.Paths.get(" + literal(jvms) + "), "
+                + "java.util.Collections.singletonList(java.lang.management.ManagementFactory.getRuntimeMXBean()"
+                + ".getName()), java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.APPEND); "
+                + code + " } }";
+        JkPathFile.of(src.resolve("p/PoolTest.java")).createIfNotExist().write(source.getBytes(StandardCharsets.UTF_8));
+        Path junitJar = Paths.get(Test.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        assertTrue(JkJavaCompiler.of().compile(JkJavaCompileSpec.of().setOutputDir(classes)
+                .setClasspath(Collections.singletonList(junitJar)).addSources(src)));
+        return classes;
+    }
+
+    private static String literal(Path path) {
+        return "\"" + path.toAbsolutePath().toString().replace("\\", "\\\\") + "\"";
+    }
+
+}
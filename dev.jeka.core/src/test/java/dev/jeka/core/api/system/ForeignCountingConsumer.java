@@ -0,0 +1,46 @@
+package dev.jeka.core.api.system;
+
+import dev.jeka.core.api.utils.JkUtilsIO;
+
+import java.io.OutputStream;
+
+/*
+ * Consumer counting events, meant to be loaded by a {@link ForeignEventClassLoader}, so it accepts events of another
+ * JkLogEvent class than the one emitted by JkLog.
+ */
+public class ForeignCountingConsumer implements JkLog.JkEventLogConsumer {
+
+    private int count;
+
+    private String last = "";
+
+    @Override
+    public void accept(JkLog.JkLogEvent event) {
+        count++;
+        last = event.getType() + " " + event.getMessage();
+    }
+
+    @Override
+    public void init() {
+    }
+
+    @Override
+    public void restore() {
+    }
+
+    @Override
+    public OutputStream getOutStream() {
+        return JkUtilsIO.nopOuputStream();
+    }
+
+    @Override
+    public OutputStream getErrorStream() {
+        return JkUtilsIO.nopOuputStream();
+    }
+
+    @Override
+    public String toString() {
+        return count + " " + last;
+    }
+
+}
@@ -0,0 +1,43 @@
+package dev.jeka.core.api.system;
+
+import dev.jeka.core.api.utils.JkUtilsIO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+/*
+ * Class loader defining its own copy of the log event classes and of ForeignCountingConsumer, while delegating
+ * anything else to its parent. Consumers it loads implement JkEventLogConsumer but accept another JkLogEvent class.
+ */
+class ForeignEventClassLoader extends ClassLoader {
+
+    ForeignEventClassLoader() {
+        super(ForeignEventClassLoader.class.getClassLoader());
+    }
+
+    JkLog.JkEventLogConsumer newConsumer() throws ReflectiveOperationException {
+        return (JkLog.JkEventLogConsumer) loadClass(ForeignCountingConsumer.class.getName()).newInstance();
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!name.equals(JkLog.JkLogEvent.class.getName()) && !name.equals(JkLog.Type.class.getName())
+                && !name.equals(ForeignCountingConsumer.class.getName())) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> result = findLoadedClass(name);
+            if (result == null) {
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (InputStream inputStream = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                    JkUtilsIO.copy(inputStream, bytes);
+                } catch (final Exception e) {
+                    throw new ClassNotFoundException(name, e);
+                }
+                result = defineClass(name, bytes.toByteArray(), 0, bytes.size());
+            }
+            return result;
+        }
+    }
+
+}
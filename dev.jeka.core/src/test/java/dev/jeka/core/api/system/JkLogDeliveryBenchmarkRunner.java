@@ -0,0 +1,61 @@
+package dev.jeka.core.api.system;
+
+import dev.jeka.core.api.utils.JkUtilsIO;
+
+import java.lang.reflect.Method;
+
+/**
+ * Measures the throughput of log events delivered to a consumer loaded in another class loader, comparing
+ * the former delivery (cloning each event by serialization then invoking <code>accept</code> reflectively) with
+ * the current one, and with a consumer sharing the JkLog class loader.
+ */
+@SuppressWarnings("javadoc")
+public class JkLogDeliveryBenchmarkRunner {
+
+    private static final int EVENT_COUNT = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        final JkLog.JkEventLogConsumer foreignConsumer = new ForeignEventClassLoader().newConsumer();
+        final JkLog.JkEventLogConsumer localConsumer = new ForeignCountingConsumer();
+        for (int i = 0; i < 5; i++) {
+            time("serialization", () -> {
+                for (int j = 0; j < EVENT_COUNT; j++) {
+                    serializedDelivery(foreignConsumer, JkLog.JkLogEvent.ofRegular(JkLog.Type.TRACE, "event " + j));
+                }
+            });
+            JkLog.setConsumer(foreignConsumer);
+            time("method handles", () -> {
+                for (int j = 0; j < EVENT_COUNT; j++) {
+                    JkLog.info("event " + j);
+                }
+            });
+            JkLog.setConsumer(localConsumer);
+            time("same loader", () -> {
+                for (int j = 0; j < EVENT_COUNT; j++) {
+                    JkLog.info("event " + j);
+                }
+            });
+        }
+    }
+
+    // How JkLog used to deliver events to consumers loaded in another class loader
+    private static void serializedDelivery(Object consumer, JkLog.JkLogEvent event) {
+        final Object evt = JkUtilsIO.cloneBySerialization(event, consumer.getClass().getClassLoader());
+        try {
+            Method accept = consumer.getClass().getMethod("accept", evt.getClass());
+            accept.setAccessible(true);
+            accept.invoke(consumer, evt);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void time(String label, Runnable task) {
+        final long start = System.nanoTime();
+        task.run();
+        final long durationNanos = System.nanoTime() - start;
+        System.out.println(String.format("%-15s : %6d ms (%,d events/s)", label, durationNanos / 1_000_000,
+                EVENT_COUNT * 1_000_000_000L / durationNanos));
+    }
+
+}
@@ -1,5 +1,18 @@
 package dev.jeka.core.api.system;
 
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
 public class JkLogTest {
 
     //@Test
@@ -14,4 +27,205 @@ public class JkLogTest {
         thread.start();
         thread.join();
     }
+
+    @Test
+    public void testRunTaskIsNestedUnderCurrentTask() throws Exception {
+        JkLog.JkState.save();
+        JkLog.setVerbosity(JkLog.Verbosity.NORMAL);
+        final int baseLevel = JkLog.getCurrentNestedLevel();  // Levels are recorded relatively to this one
+        final List<String> messages = Collections.synchronizedList(new LinkedList<>());
+        JkLog.setConsumer(new RecordingConsumer(messages));
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            final Thread thread = new Thread(() -> JkLog.runTask("task", () -> {
+                JkLog.startTask("step");
+                JkLog.info("in step");
+                latch.countDown();
+                JkLog.endTask("step done");
+            }));
+            JkLog.startTask("main");
+            thread.start();
+            latch.await();
+            thread.join();
+            JkLog.info("after");
+            JkLog.endTask("main done");
+        } finally {
+            JkLog.JkState.restore();
+        }
+        final List<String> expected = Arrays.asList("START_TASK main 0", "START_TASK task 1", "START_TASK step 2",
+                "INFO in step 3", "END_TASK step done 2", "END_TASK Done in", "INFO after 1", "END_TASK main done 0");
+        assertEquals(expected.size(), messages.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue(messages.get(i), messages.get(i).startsWith(expected.get(i)));
+        }
+        assertEquals(baseLevel, JkLog.getCurrentNestedLevel());
+    }
+
+    @Test
+    public void testRunTaskConcurrently() throws Exception {
+        JkLog.JkState.save();
+        JkLog.setVerbosity(JkLog.Verbosity.NORMAL);
+        final int baseLevel = JkLog.getCurrentNestedLevel();  // Levels are recorded relatively to this one
+        final List<String> messages = Collections.synchronizedList(new LinkedList<>());
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JkLog.setConsumer(new RecordingConsumer(messages, out));
+        try {
+            final CountDownLatch bothStarted = new CountDownLatch(2);
+            final List<Thread> threads = new LinkedList<>();
+            for (final String name : Arrays.asList("a", "b")) {
+                threads.add(new Thread(() -> JkLog.runTask(name, () -> {
+                    bothStarted.countDown();
+                    await(bothStarted);
+                    JkLog.startTask(name + "1");
+                    JkLog.info(name + " info");
+                    new PrintStream(JkLog.getOutputStream(), true).println(name + " output");
+                    JkLog.endTask(name + "1 done");
+                })));
+            }
+            threads.forEach(Thread::start);
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+            try {
+                JkLog.runTask("c", () -> {
+                    JkLog.startTask("c1");
+                    throw new IllegalStateException();
+                });
+                fail();
+            } catch (final IllegalStateException e) {
+                // expected
+            }
+        } finally {
+            JkLog.JkState.restore();
+        }
+        final String first = messages.get(0).equals("START_TASK a 0") ? "a" : "b";
+        final String second = first.equals("a") ? "b" : "a";
+        final List<String> expected = concat(group(first), group(second));
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue(messages.get(i), messages.get(i).startsWith(expected.get(i)));
+        }
+        assertEquals(Arrays.asList("START_TASK c 0", "START_TASK c1 1"), messages.subList(10, 12));
+        assertTrue(messages.get(12), messages.get(12).startsWith("END_TASK Failed after"));
+        assertTrue(messages.get(13), messages.get(13).startsWith("END_TASK Failed after"));
+        assertTrue(out.toString(), out.toString().contains("a output"));
+        assertTrue(out.toString(), out.toString().contains("b output"));
+        assertEquals(baseLevel, JkLog.getCurrentNestedLevel());
+    }
+
+    @Test
+    public void testReplayDoesNotAlterSharedLevel() throws Exception {
+        JkLog.JkState.save();
+        JkLog.setVerbosity(JkLog.Verbosity.NORMAL);
+        final int baseLevel = JkLog.getCurrentNestedLevel();
+        final List<String> messages = Collections.synchronizedList(new LinkedList<>());
+        final List<Integer> sharedLevels = Collections.synchronizedList(new LinkedList<>());
+        JkLog.setConsumer(new RecordingConsumer(messages) {
+
+            @Override
+            public void accept(JkLog.JkLogEvent event) {
+                super.accept(event);
+                final Thread observer = new Thread(() -> sharedLevels.add(JkLog.getCurrentNestedLevel()));
+                observer.start();
+                try {
+                    observer.join();
+                } catch (final InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        try {
+            JkLog.runTask("a", () -> {
+                JkLog.startTask("a1");
+                JkLog.info("a info");
+                JkLog.endTask("a1 done");
+            });
+        } finally {
+            JkLog.JkState.restore();
+        }
+        assertEquals(Arrays.asList("START_TASK a 0", "START_TASK a1 1", "INFO a info 2"), messages.subList(0, 3));
+        for (final int sharedLevel : sharedLevels) {
+            assertEquals(baseLevel, sharedLevel);
+        }
+        assertEquals(baseLevel, JkLog.getCurrentNestedLevel());
+    }
+
+    @Test
+    public void testConsumerFromAnotherClassLoader() throws Exception {
+        final JkLog.JkEventLogConsumer consumer = new ForeignEventClassLoader().newConsumer();
+        final Class<?> acceptedEventClass = consumer.getClass().getMethod("accept",
+                consumer.getClass().getClassLoader().loadClass(JkLog.JkLogEvent.class.getName()))
+                .getParameterTypes()[0];
+        assertNotSame(JkLog.JkLogEvent.class, acceptedEventClass);
+        JkLog.JkState.save();
+        JkLog.setConsumer(consumer);
+        try {
+            JkLog.info("hello");
+            JkLog.warn("beware");
+        } finally {
+            JkLog.JkState.restore();
+        }
+        assertEquals("2 WARN beware", consumer.toString());
+    }
+
+    private static List<String> group(String name) {
+        return Arrays.asList("START_TASK " + name + " 0", "START_TASK " + name + "1 1", "INFO " + name + " info 2",
+                "END_TASK " + name + "1 done 1", "END_TASK Done in");
+    }
+
+    private static List<String> concat(List<String> first, List<String> second) {
+        final List<String> result = new LinkedList<>(first);
+        result.addAll(second);
+        return result;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class RecordingConsumer implements JkLog.JkEventLogConsumer {
+
+        private final List<String> messages;
+
+        private final OutputStream out;
+
+        private final int baseLevel = JkLog.getCurrentNestedLevel();
+
+        RecordingConsumer(List<String> messages) {
+            this(messages, null);
+        }
+
+        RecordingConsumer(List<String> messages, OutputStream out) {
+            this.messages = messages;
+            this.out = out;
+        }
+
+        @Override
+        public void accept(JkLog.JkLogEvent event) {
+            messages.add(event.getType() + " " + event.getMessage() + " "
+                    + (JkLog.getCurrentNestedLevel() - baseLevel));
+        }
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public void restore() {
+        }
+
+        @Override
+        public OutputStream getOutStream() {
+            return out;
+        }
+
+        @Override
+        public OutputStream getErrorStream() {
+            return null;
+        }
+    }
+
 }
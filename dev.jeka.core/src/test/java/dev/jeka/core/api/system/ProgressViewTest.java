@@ -0,0 +1,43 @@
+package dev.jeka.core.api.system;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ProgressViewTest {
+
+    private static final String ESC = "\u001B";
+
+    @Test
+    public void testCursorIsRestoredAroundDrawnBlock() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final Object lock = new Object();
+        final ProgressView progressView = new ProgressView(() -> out, lock,
+                () -> Arrays.asList("  a (1 s)", "  b (2 s)"));
+        synchronized (lock) {
+            progressView.start();
+            try {
+                progressView.draw();
+                assertEquals(ESC + "D" + ESC + "D" + ESC + "[2A" + ESC + "7"
+                        + "\n" + ESC + "[K  a (1 s)\n" + ESC + "[K  b (2 s)" + ESC + "8", text(out));
+                out.reset();
+                progressView.clear();
+                assertEquals(ESC + "7\n" + ESC + "[K\n" + ESC + "[K" + ESC + "8", text(out));
+                out.reset();
+                progressView.clear();  // nothing left to erase
+                assertEquals("", text(out));
+            } finally {
+                progressView.stop();
+            }
+        }
+    }
+
+    private static String text(ByteArrayOutputStream out) {
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,175 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.system.JkLocator;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DaemonTest {
+
+    private final String id = "test-" + System.nanoTime();
+
+    private Thread daemonThread;
+
+    @After
+    public void tearDown() throws Exception {
+        if (daemonThread != null) {
+            daemonThread.join(10_000);
+        }
+        Files.deleteIfExists(Daemon.portFile(id));
+        Files.deleteIfExists(Daemon.lockFile(id));
+    }
+
+    @Test
+    public void runIsForwardedToClient() throws Exception {
+        start((args, workingDir) -> {
+            System.out.println("Hello " + args[0] + " from " + workingDir.getFileName());
+            System.err.println("Oops");
+            return 3;
+        });
+        final Response response = request(Collections.emptyMap(), "world");
+        assertEquals(3, response.exitCode);
+        assertEquals("Hello world from " + Paths.get("").toAbsolutePath().getFileName(),
+                response.out.trim());
+        assertEquals("Oops", response.err.trim());
+    }
+
+    @Test
+    public void daemonKeepsServingAfterError() throws Exception {
+        start((args, workingDir) -> {
+            if (args[0].equals("fail")) {
+                throw new ExceptionInInitializerError("Broken def class");
+            }
+            return 0;
+        });
+        assertEquals(1, request(Collections.emptyMap(), "fail").exitCode);
+        assertEquals(0, request(Collections.emptyMap(), "succeed").exitCode);
+    }
+
+    @Test
+    public void clientEnvironmentIsUsedDuringRun() throws Exception {
+        final Path userHome = Files.createTempDirectory("jeka-daemon-user-home");
+        start((args, workingDir) -> {
+            System.out.print(JkLocator.getJekaUserHomeDir());
+            return 0;
+        });
+        final Map<String, String> env = new HashMap<>();
+        env.put("JEKA_USER_HOME", userHome.toString());
+        assertEquals(userHome.toString(), request(env).out);
+        assertNotEquals(userHome, JkLocator.getJekaUserHomeDir());
+    }
+
+    @Test
+    public void sameDaemonCanNotBeStartedTwice() throws Exception {
+        start((args, workingDir) -> 0);
+        final long start = System.nanoTime();
+        new Daemon(id, 60, (args, workingDir) -> 0).serve();  // returns immediately as the first one holds the lock
+        assertTrue(System.nanoTime() - start < 10_000_000_000L);
+        assertEquals(0, request(Collections.emptyMap()).exitCode);
+    }
+
+    @Test
+    public void argumentsLongerThan64KbAreForwarded() throws Exception {
+        start((args, workingDir) -> {
+            System.out.print(args[0].length());
+            return 0;
+        });
+        final char[] chars = new char[100_000];
+        Arrays.fill(chars, 'a');
+        assertEquals("100000", request(Collections.emptyMap(), new String(chars)).out);
+    }
+
+    @Test
+    public void stalledClientDoesNotBlockOthers() throws Exception {
+        start((args, workingDir) -> 0);
+        final List<String> lines = Files.readAllLines(Daemon.portFile(id));
+        try (Socket stalled = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(lines.get(0)))) {
+            assertEquals(0, request(Collections.emptyMap()).exitCode);
+        }
+    }
+
+    @Test
+    public void watchModeIsRefused() throws Exception {
+        start(Main::run);
+        final Response response = request(Collections.emptyMap(), "-W");
+        assertEquals(1, response.exitCode);
+        assertTrue(response.err, response.err.contains("Watch mode can not run on Jeka daemon"));
+        assertFalse(Environment.daemonHosted);
+    }
+
+    private void start(Daemon.Runner runner) throws Exception {
+        final Daemon daemon = new Daemon(id, 2, runner);
+        daemon.requestTimeoutMillis = 500;
+        daemonThread = new Thread(() -> {
+            try {
+                daemon.serve();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        daemonThread.setDaemon(true);
+        daemonThread.start();
+        final Path portFile = Daemon.portFile(id);
+        for (int i = 0; i < 100 && (!Files.exists(portFile) || Files.readAllLines(portFile).size() < 2); i++) {
+            Thread.sleep(50);
+        }
+    }
+
+    private Response request(Map<String, String> env, String... args) throws IOException {
+        final List<String> lines = Files.readAllLines(Daemon.portFile(id));
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(lines.get(0)));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            Daemon.writeString(out, lines.get(1));
+            Daemon.writeString(out, Paths.get("").toAbsolutePath().toString());
+            out.writeInt(args.length);
+            for (final String arg : args) {
+                Daemon.writeString(out, arg);
+            }
+            out.writeInt(env.size());
+            for (final Map.Entry<String, String> entry : env.entrySet()) {
+                Daemon.writeString(out, entry.getKey());
+                Daemon.writeString(out, entry.getValue());
+            }
+            out.flush();
+            final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+            final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+            while (true) {
+                final byte type = in.readByte();
+                final int value = in.readInt();
+                if (type == Daemon.EXIT_FRAME) {
+                    return new Response(value, stdout.toString("UTF-8"), stderr.toString("UTF-8"));
+                }
+                final byte[] bytes = new byte[value];
+                in.readFully(bytes);
+                (type == Daemon.ERR_FRAME ? stderr : stdout).write(bytes);
+            }
+        }
+    }
+
+    private static class Response {
+
+        final int exitCode;
+
+        final String out;
+
+        final String err;
+
+        Response(int exitCode, String out, String err) {
+            this.exitCode = exitCode;
+            this.out = out;
+            this.err = err;
+        }
+
+    }
+
+}
@@ -0,0 +1,149 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.depmanagement.JkDependencySet;
+import dev.jeka.core.api.depmanagement.JkFileSystemDependency;
+import dev.jeka.core.api.java.project.JkJavaIdeSupport;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class ProjectSchedulerTest {
+
+    private final Map<JkClass, List<JkClass>> imports = new HashMap<>();
+
+    @Test
+    public void testGraphIsDerivedFromImportsAndIdeProjectDirs() {
+        Path root = JkUtilsPath.createTempDirectory("jeka-scheduler");
+        Project core = project(root, "core");
+        Project api = project(root, "api");
+        Project app = project(root, "app");
+        Project otherCoreInstance = project(root, "core");
+        imports.put(api, Collections.singletonList(otherCoreInstance));  // same dir, distinct instance
+        app.ideProjectDirs.add(root.resolve("app/../api"));
+        app.ideProjectDirs.add(root.resolve("app"));   // itself
+        app.ideProjectDirs.add(root.resolve("unknown"));
+
+        ProjectScheduler scheduler = ProjectScheduler.of(Arrays.asList(app, api, core), this::directImports);
+
+        assertEquals(Arrays.asList(core, api, app), scheduler.getProjects());
+        assertEquals(Collections.emptySet(), scheduler.getDependencies(core));
+        assertEquals(Collections.singleton(core), scheduler.getDependencies(api));
+        assertEquals(Collections.singleton(api), scheduler.getDependencies(app));
+    }
+
+    @Test
+    public void testCycleIsDetected() {
+        Path root = JkUtilsPath.createTempDirectory("jeka-scheduler");
+        Project a = project(root, "a");
+        Project b = project(root, "b");
+        Project c = project(root, "c");
+        imports.put(a, Collections.singletonList(b));
+        b.ideProjectDirs.add(a.getBaseDir());
+        try {
+            ProjectScheduler.of(Arrays.asList(a, b, c), this::directImports);
+            fail("Cycle should be detected.");
+        } catch (JkException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("[a, b]"));
+        }
+    }
+
+    @Test
+    public void testSequentialRunFollowsTopologicalOrder() {
+        Path root = JkUtilsPath.createTempDirectory("jeka-scheduler");
+        Project a = project(root, "a");
+        Project b = project(root, "b");
+        Project c = project(root, "c");
+        Project d = project(root, "d");
+        imports.put(a, Arrays.asList(c, b));
+        imports.put(b, Collections.singletonList(d));
+        imports.put(c, Collections.singletonList(d));
+        List<JkClass> ran = new LinkedList<>();
+
+        ProjectScheduler.of(Arrays.asList(a, b, c, d), this::directImports).run(ran::add, 1);
+
+        assertEquals(Arrays.asList(d, b, c, a), ran);
+    }
+
+    @Test
+    public void testParallelRunStopsOnFirstFailure() throws Exception {
+        Path root = JkUtilsPath.createTempDirectory("jeka-scheduler");
+        Project failing = project(root, "failing");
+        Project slow = project(root, "slow");
+        Project dependent = project(root, "dependent");
+        imports.put(dependent, Collections.singletonList(failing));
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        AtomicBoolean slowTerminated = new AtomicBoolean();
+        AtomicBoolean dependentRan = new AtomicBoolean();
+        try {
+            ProjectScheduler.of(Arrays.asList(failing, slow, dependent), this::directImports).run(project -> {
+                if (project == failing) {
+                    await(slowStarted);
+                    throw new IllegalStateException("failure");
+                } else if (project == slow) {
+                    slowStarted.countDown();
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        // expected
+                    } finally {
+                        slowTerminated.set(true);
+                    }
+                } else {
+                    dependentRan.set(true);
+                }
+            }, 2);
+            fail("Failure should be propagated.");
+        } catch (IllegalStateException e) {
+            assertEquals("failure", e.getMessage());
+        }
+        assertTrue("Running projects should be terminated on failure", slowTerminated.get());
+        assertFalse("Dependent project should not start", dependentRan.get());
+    }
+
+    private List<JkClass> directImports(JkClass project) {
+        return imports.getOrDefault(project, Collections.emptyList());
+    }
+
+    private static Project project(Path root, String name) {
+        Path dir = root.resolve(name);
+        JkUtilsPath.createDirectories(dir);
+        JkClass.baseDirContext(dir);
+        try {
+            return new Project();
+        } finally {
+            JkClass.baseDirContext(null);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static class Project extends JkClass implements JkJavaIdeSupport.JkSupplier {
+
+        private final List<Path> ideProjectDirs = new LinkedList<>();
+
+        @Override
+        public JkJavaIdeSupport getJavaIdeSupport() {
+            JkDependencySet dependencies = JkDependencySet.of();
+            for (Path dir : ideProjectDirs) {
+                dependencies = dependencies.and(JkFileSystemDependency.of(Collections.emptyList())
+                        .withIdeProjectDir(dir));
+            }
+            return JkJavaIdeSupport.of(getBaseDir()).setDependencies(dependencies);
+        }
+
+    }
+
+}
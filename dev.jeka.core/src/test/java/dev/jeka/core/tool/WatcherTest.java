@@ -0,0 +1,63 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.file.JkPathTree;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class WatcherTest {
+
+    @Test
+    public void testAwaitChanges() throws Exception {
+        final Path dir = Files.createTempDirectory("jeka-watch").toRealPath();
+        Files.createDirectories(dir.resolve("src/foo"));
+        Files.write(dir.resolve("src/foo/A.java"), "a".getBytes());
+        try (Watcher watcher = Watcher.of(Collections.singletonList(dir.resolve("src")))) {
+            assertEquals(2, watcher.getWatchedDirCount());
+
+            Files.write(dir.resolve("src/foo/A.java"), "aa".getBytes());
+            Files.write(dir.resolve("src/B.java"), "b".getBytes());
+            Set<Path> changes = watcher.awaitChanges();
+            assertTrue(changes.toString(), changes.contains(dir.resolve("src/foo/A.java")));
+            assertTrue(changes.toString(), changes.contains(dir.resolve("src/B.java")));
+
+            // Files in created directories are reported and these directories are watched from now on
+            Files.createDirectories(dir.resolve("src/bar"));
+            Files.write(dir.resolve("src/bar/C.java"), "c".getBytes());
+            changes = watcher.awaitChanges();
+            assertTrue(changes.toString(), changes.contains(dir.resolve("src/bar")));
+            Files.write(dir.resolve("src/bar/C.java"), "cc".getBytes());
+            changes = watcher.awaitChanges();
+            assertTrue(changes.toString(), changes.contains(dir.resolve("src/bar/C.java")));
+        }
+        JkPathTree.of(dir).deleteRoot();
+    }
+
+    @Test
+    public void testRootsAreWatchedOnceCreated() throws Exception {
+        final Path dir = Files.createTempDirectory("jeka-watch").toRealPath();
+        try (Watcher watcher = Watcher.of(Collections.singletonList(dir.resolve("build/generated")))) {
+            assertEquals(0, watcher.getWatchedDirCount());
+
+            // Changes outside the root are not reported
+            Files.write(dir.resolve("other.txt"), "o".getBytes());
+            Files.createDirectories(dir.resolve("build/generated/foo"));
+            Files.write(dir.resolve("build/generated/foo/A.java"), "a".getBytes());
+            Set<Path> changes = watcher.awaitChanges();
+            assertTrue(changes.toString(), changes.contains(dir.resolve("build/generated/foo/A.java")));
+            assertFalse(changes.toString(), changes.contains(dir.resolve("other.txt")));
+            assertEquals(2, watcher.getWatchedDirCount());
+
+            Files.write(dir.resolve("build/generated/foo/A.java"), "aa".getBytes());
+            changes = watcher.awaitChanges();
+            assertTrue(changes.toString(), changes.contains(dir.resolve("build/generated/foo/A.java")));
+        }
+        JkPathTree.of(dir).deleteRoot();
+    }
+
+}